@@ -0,0 +1,22 @@
+package com.college.bus.bus_tracking.cluster;
+
+import java.util.function.Consumer;
+
+/**
+ * Pub/sub channel between the nodes of a cluster. Messages published by a node are
+ * delivered to every other node's subscribers, never back to the publisher.
+ */
+public interface Backplane extends AutoCloseable {
+
+    /**
+     * Unique id of this node.
+     */
+    String getNodeId();
+
+    void publish(BackplaneMessage message);
+
+    void subscribe(Consumer<BackplaneMessage> subscriber);
+
+    @Override
+    void close();
+}
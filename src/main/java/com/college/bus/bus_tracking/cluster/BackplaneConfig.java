@@ -0,0 +1,34 @@
+package com.college.bus.bus_tracking.cluster;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Chooses the backplane implementation from cluster.backplane:
+ * "loopback" (default, in-process only) or "multicast" (UDP multicast on the LAN).
+ */
+@Configuration
+public class BackplaneConfig {
+
+    @Bean(destroyMethod = "close")
+    public Backplane backplane(
+            @Value("${cluster.backplane:loopback}") String type,
+            @Value("${cluster.node-id:}") String nodeId,
+            @Value("${cluster.loopback.group:default}") String loopbackGroup,
+            @Value("${cluster.multicast.group:239.255.42.99}") String multicastGroup,
+            @Value("${cluster.multicast.port:45678}") int multicastPort,
+            @Value("${cluster.multicast.interface:}") String multicastInterface,
+            @Value("${cluster.multicast.ttl:1}") int multicastTtl,
+            @Value("${cluster.multicast.secret:}") String multicastSecret) throws IOException {
+        String id = nodeId == null || nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+        if ("multicast".equalsIgnoreCase(type)) {
+            return new MulticastBackplane(id, multicastGroup, multicastPort, multicastInterface, multicastTtl,
+                    multicastSecret);
+        }
+        return new LoopbackBackplane(id, loopbackGroup);
+    }
+}
@@ -0,0 +1,239 @@
+package com.college.bus.bus_tracking.cluster;
+
+import com.college.bus.bus_tracking.model.BusData;
+
+import java.util.Map;
+
+/**
+ * Envelope replicated over the {@link Backplane}.
+ */
+public class BackplaneMessage {
+
+    public enum Type {
+        BUS_PUT,
+        BUS_REMOVE,
+        BUS_CLEAR,
+        BUS_HEARTBEATS,
+        SYNC_REQUEST,
+        BROADCAST,
+        NODE_HEARTBEAT,
+        NODE_LEAVE,
+        DRIVER_FRAME,
+        DRIVER_DISCONNECT,
+        CONFIG_CHANGED,
+        ACCOUNT_CHANGED,
+        SETTINGS_CHANGED,
+        GUEST_CODE_CHANGED,
+        FEEDBACK_CHANGED
+    }
+
+    // Targets of a BROADCAST message
+    public static final String STUDENTS = "STUDENTS";
+    public static final String ADMINS = "ADMINS";
+    public static final String DRIVERS = "DRIVERS";
+
+    private Type type;
+    private String originNodeId;
+    private String busNumber;
+    private BusData bus;
+    private String channel;
+    private String payload;
+    private String targetNodeId;
+    private long timestamp;
+    private Map<String, Long> heartbeats;
+
+    public BackplaneMessage() {
+    }
+
+    public static BackplaneMessage busPut(BusData bus) {
+        BackplaneMessage message = new BackplaneMessage();
+        message.type = Type.BUS_PUT;
+        message.busNumber = bus.getBusNumber();
+        message.bus = bus;
+        return message;
+    }
+
+    public static BackplaneMessage busRemove(String busNumber) {
+        BackplaneMessage message = new BackplaneMessage();
+        message.type = Type.BUS_REMOVE;
+        message.busNumber = busNumber;
+        return message;
+    }
+
+    public static BackplaneMessage busClear() {
+        BackplaneMessage message = new BackplaneMessage();
+        message.type = Type.BUS_CLEAR;
+        return message;
+    }
+
+    /**
+     * Latest heartbeat time of the buses the sender owns, by bus number.
+     */
+    public static BackplaneMessage busHeartbeats(Map<String, Long> heartbeats) {
+        BackplaneMessage message = new BackplaneMessage();
+        message.type = Type.BUS_HEARTBEATS;
+        message.heartbeats = heartbeats;
+        return message;
+    }
+
+    public static BackplaneMessage syncRequest() {
+        BackplaneMessage message = new BackplaneMessage();
+        message.type = Type.SYNC_REQUEST;
+        return message;
+    }
+
+    public static BackplaneMessage broadcast(String channel, String payload) {
+        BackplaneMessage message = new BackplaneMessage();
+        message.type = Type.BROADCAST;
+        message.channel = channel;
+        message.payload = payload;
+        return message;
+    }
+
+    public static BackplaneMessage configChanged() {
+        BackplaneMessage message = new BackplaneMessage();
+        message.type = Type.CONFIG_CHANGED;
+        return message;
+    }
+
+    /**
+     * A driver or client account changed; payload holds the account cache keys to drop.
+     */
+    public static BackplaneMessage accountChanged(String accountType, String keys) {
+        BackplaneMessage message = new BackplaneMessage();
+        message.type = Type.ACCOUNT_CHANGED;
+        message.channel = accountType;
+        message.payload = keys;
+        return message;
+    }
+
+    public static BackplaneMessage settingsChanged() {
+        BackplaneMessage message = new BackplaneMessage();
+        message.type = Type.SETTINGS_CHANGED;
+        return message;
+    }
+
+    public static BackplaneMessage guestCodeChanged() {
+        BackplaneMessage message = new BackplaneMessage();
+        message.type = Type.GUEST_CODE_CHANGED;
+        return message;
+    }
+
+    /**
+     * Feedback rows were added or removed; channel is ADDED or REMOVED and payload holds
+     * their ids, comma separated.
+     */
+    public static BackplaneMessage feedbackChanged(String change, String ids) {
+        BackplaneMessage message = new BackplaneMessage();
+        message.type = Type.FEEDBACK_CHANGED;
+        message.channel = change;
+        message.payload = ids;
+        return message;
+    }
+
+    public static BackplaneMessage nodeHeartbeat() {
+        BackplaneMessage message = new BackplaneMessage();
+        message.type = Type.NODE_HEARTBEAT;
+        return message;
+    }
+
+    public static BackplaneMessage nodeLeave() {
+        BackplaneMessage message = new BackplaneMessage();
+        message.type = Type.NODE_LEAVE;
+        return message;
+    }
+
+    /**
+     * Raw driver WebSocket frame forwarded to the owner of its bus.
+     */
+    public static BackplaneMessage driverFrame(String busNumber, String payload) {
+        BackplaneMessage message = new BackplaneMessage();
+        message.type = Type.DRIVER_FRAME;
+        message.busNumber = busNumber;
+        message.payload = payload;
+        return message;
+    }
+
+    /**
+     * A driver's socket for the bus closed at the given time on a non-owner node.
+     */
+    public static BackplaneMessage driverDisconnect(String busNumber, long timestamp) {
+        BackplaneMessage message = new BackplaneMessage();
+        message.type = Type.DRIVER_DISCONNECT;
+        message.busNumber = busNumber;
+        message.timestamp = timestamp;
+        return message;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public String getOriginNodeId() {
+        return originNodeId;
+    }
+
+    public void setOriginNodeId(String originNodeId) {
+        this.originNodeId = originNodeId;
+    }
+
+    public String getBusNumber() {
+        return busNumber;
+    }
+
+    public void setBusNumber(String busNumber) {
+        this.busNumber = busNumber;
+    }
+
+    public BusData getBus() {
+        return bus;
+    }
+
+    public void setBus(BusData bus) {
+        this.bus = bus;
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    public void setChannel(String channel) {
+        this.channel = channel;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public String getTargetNodeId() {
+        return targetNodeId;
+    }
+
+    public void setTargetNodeId(String targetNodeId) {
+        this.targetNodeId = targetNodeId;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public Map<String, Long> getHeartbeats() {
+        return heartbeats;
+    }
+
+    public void setHeartbeats(Map<String, Long> heartbeats) {
+        this.heartbeats = heartbeats;
+    }
+}
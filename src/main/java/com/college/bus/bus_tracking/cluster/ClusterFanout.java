@@ -0,0 +1,27 @@
+package com.college.bus.bus_tracking.cluster;
+
+/**
+ * Static access to the backplane for the WebSocket handlers, whose broadcast methods
+ * are static. Every broadcast is sent to the local sessions by the handler itself and
+ * published here so the other nodes can send it to theirs.
+ */
+public class ClusterFanout {
+
+    private static volatile Backplane backplane;
+
+    static void setBackplane(Backplane instance) {
+        backplane = instance;
+    }
+
+    /**
+     * Publish an already serialized payload for the given channel
+     * ({@link BackplaneMessage#STUDENTS}, {@link BackplaneMessage#ADMINS} or
+     * {@link BackplaneMessage#DRIVERS}).
+     */
+    public static void publish(String channel, String payload) {
+        Backplane current = backplane;
+        if (current != null) {
+            current.publish(BackplaneMessage.broadcast(channel, payload));
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.college.bus.bus_tracking.cluster;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks the live nodes of the cluster through heartbeats on the backplane and assigns
+ * each bus to exactly one owner node by consistent hashing of its bus number. The owner
+ * runs persistence and heartbeat checks for the bus; other nodes forward its driver
+ * frames. Ownership rebalances automatically when nodes join or leave.
+ */
+@Service
+public class ClusterMembershipService {
+
+    private final Backplane backplane;
+    private final long timeoutMs;
+
+    // nodeId -> last heartbeat time (this node is always present)
+    private final Map<String, Long> members = new ConcurrentHashMap<>();
+    private volatile ConsistentHashRing ring;
+    private volatile List<String> memberIds = List.of();
+
+    public ClusterMembershipService(Backplane backplane,
+            @Value("${cluster.membership.timeout-ms:6000}") long timeoutMs) {
+        this.backplane = backplane;
+        this.timeoutMs = timeoutMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        members.put(backplane.getNodeId(), System.currentTimeMillis());
+        rebuildRing();
+        backplane.subscribe(this::onMessage);
+        backplane.publish(BackplaneMessage.nodeHeartbeat());
+    }
+
+    @PreDestroy
+    public void stop() {
+        backplane.publish(BackplaneMessage.nodeLeave());
+    }
+
+    public String getNodeId() {
+        return backplane.getNodeId();
+    }
+
+    /**
+     * Ids of the nodes currently considered alive, sorted.
+     */
+    public List<String> getMembers() {
+        return memberIds;
+    }
+
+    public String ownerOf(String busNumber) {
+        String owner = ring.ownerOf(busNumber);
+        return owner != null ? owner : backplane.getNodeId();
+    }
+
+    public boolean isOwner(String busNumber) {
+        return busNumber == null || backplane.getNodeId().equals(ownerOf(busNumber));
+    }
+
+    /**
+     * The ring without the given node: for a node that just joined, which node owned
+     * each bus before it.
+     */
+    public ConsistentHashRing ringWithout(String nodeId) {
+        List<String> ids = new ArrayList<>(memberIds);
+        ids.remove(nodeId);
+        return new ConsistentHashRing(ids);
+    }
+
+    /**
+     * Send a message to the node owning the bus.
+     */
+    public void forwardToOwner(String busNumber, BackplaneMessage message) {
+        message.setTargetNodeId(ownerOf(busNumber));
+        backplane.publish(message);
+    }
+
+    @Scheduled(fixedRateString = "${cluster.membership.heartbeat-ms:2000}")
+    public void heartbeat() {
+        long now = System.currentTimeMillis();
+        members.put(backplane.getNodeId(), now);
+        backplane.publish(BackplaneMessage.nodeHeartbeat());
+
+        boolean changed = members.entrySet().removeIf(
+                e -> !e.getKey().equals(backplane.getNodeId()) && now - e.getValue() > timeoutMs);
+        if (changed) {
+            rebuildRing();
+        }
+    }
+
+    private void onMessage(BackplaneMessage message) {
+        String origin = message.getOriginNodeId();
+        if (origin == null) {
+            return;
+        }
+        if (message.getType() == BackplaneMessage.Type.NODE_HEARTBEAT) {
+            if (members.put(origin, System.currentTimeMillis()) == null) {
+                rebuildRing();
+                // Introduce ourselves right away instead of waiting for the next tick
+                backplane.publish(BackplaneMessage.nodeHeartbeat());
+            }
+        } else if (message.getType() == BackplaneMessage.Type.NODE_LEAVE) {
+            if (members.remove(origin) != null) {
+                rebuildRing();
+            }
+        }
+    }
+
+    private synchronized void rebuildRing() {
+        List<String> ids = new ArrayList<>(new TreeSet<>(members.keySet()));
+        ring = new ConsistentHashRing(ids);
+        memberIds = Collections.unmodifiableList(ids);
+        System.out.println("[Cluster] Node " + backplane.getNodeId() + " membership: " + ids);
+    }
+}
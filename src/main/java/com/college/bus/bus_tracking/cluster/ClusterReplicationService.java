@@ -0,0 +1,204 @@
+package com.college.bus.bus_tracking.cluster;
+
+import com.college.bus.bus_tracking.handler.DriverHandler;
+import com.college.bus.bus_tracking.handler.UserHandler;
+import com.college.bus.bus_tracking.model.BusData;
+import com.college.bus.bus_tracking.store.BusSessionStore;
+import com.college.bus.bus_tracking.store.BusStoreListener;
+import com.college.bus.bus_tracking.websocket.AdminWebSocketHandler;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Replicates {@link BusSessionStore} mutations and WebSocket broadcasts between nodes.
+ *
+ * Local mutations are published as BUS_PUT / BUS_REMOVE / BUS_CLEAR and applied on
+ * the other nodes without being published again. Only the owner of a bus publishes its
+ * puts; a put made on another node (an admin edit served there, say) is forwarded to the
+ * owner, which replicates it. Puts carry the version the store gave the bus, and a put
+ * that is not newer than the local copy is dropped, so a late or stale message cannot
+ * roll a bus back. Broadcasts are published as already serialized payloads and sent by
+ * each node to its own sessions only.
+ *
+ * A node that starts asks for the current state (SYNC_REQUEST); each bus is sent to it
+ * by the node that owned the bus before it joined.
+ *
+ * Heartbeats only move lastHeartbeatTime and arrive every few seconds per bus, so they
+ * are not sent as puts: the owner publishes the latest heartbeat of its buses in one
+ * BUS_HEARTBEATS message per interval, enough for a new owner to tell a live bus from
+ * a stale one after a failover.
+ */
+@Service
+public class ClusterReplicationService implements BusStoreListener {
+
+    // Set while a remote mutation is being applied so it is not echoed back
+    private static final ThreadLocal<Boolean> APPLYING_REMOTE = ThreadLocal.withInitial(() -> false);
+
+    private final Backplane backplane;
+    private final ClusterMembershipService clusterMembershipService;
+
+    // busNumber -> latest heartbeat not yet published
+    private final Map<String, Long> pendingHeartbeats = new ConcurrentHashMap<>();
+
+    public ClusterReplicationService(Backplane backplane, ClusterMembershipService clusterMembershipService) {
+        this.backplane = backplane;
+        this.clusterMembershipService = clusterMembershipService;
+    }
+
+    @PostConstruct
+    public void start() {
+        backplane.subscribe(this::onMessage);
+        BusSessionStore.addListener(this);
+        ClusterFanout.setBackplane(backplane);
+        backplane.publish(BackplaneMessage.syncRequest());
+        System.out.println("[Cluster] Replication started on node " + backplane.getNodeId());
+    }
+
+    @PreDestroy
+    public void stop() {
+        ClusterFanout.setBackplane(null);
+        BusSessionStore.removeListener(this);
+    }
+
+    public String getNodeId() {
+        return backplane.getNodeId();
+    }
+
+    @Override
+    public void onPut(BusData bus) {
+        if (APPLYING_REMOTE.get()) {
+            return;
+        }
+        if (clusterMembershipService.isOwner(bus.getBusNumber())) {
+            backplane.publish(BackplaneMessage.busPut(bus));
+        } else {
+            clusterMembershipService.forwardToOwner(bus.getBusNumber(), BackplaneMessage.busPut(bus));
+        }
+    }
+
+    @Override
+    public void onHeartbeat(BusData bus) {
+        if (clusterMembershipService.isOwner(bus.getBusNumber())) {
+            pendingHeartbeats.put(bus.getBusNumber(), bus.getLastHeartbeatTime());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cluster.heartbeat-batch-ms:5000}")
+    public void publishHeartbeats() {
+        if (pendingHeartbeats.isEmpty()) {
+            return;
+        }
+        Map<String, Long> batch = new HashMap<>();
+        for (String busNumber : pendingHeartbeats.keySet()) {
+            Long time = pendingHeartbeats.remove(busNumber);
+            if (time != null) {
+                batch.put(busNumber, time);
+            }
+        }
+        backplane.publish(BackplaneMessage.busHeartbeats(batch));
+    }
+
+    @Override
+    public void onRemove(String busNumber) {
+        if (!APPLYING_REMOTE.get()) {
+            backplane.publish(BackplaneMessage.busRemove(busNumber));
+        }
+    }
+
+    @Override
+    public void onClear() {
+        if (!APPLYING_REMOTE.get()) {
+            backplane.publish(BackplaneMessage.busClear());
+        }
+    }
+
+    private void onMessage(BackplaneMessage message) {
+        String target = message.getTargetNodeId();
+        if (target != null && !target.equals(backplane.getNodeId())) {
+            return;
+        }
+        if (message.getType() == BackplaneMessage.Type.BROADCAST) {
+            fanOutLocally(message.getChannel(), message.getPayload());
+            return;
+        }
+        if (message.getType() == BackplaneMessage.Type.SYNC_REQUEST) {
+            answerSync(message.getOriginNodeId());
+            return;
+        }
+        if (message.getType() == BackplaneMessage.Type.BUS_HEARTBEATS) {
+            applyHeartbeats(message.getHeartbeats());
+            return;
+        }
+        BusData bus = message.getBus();
+        if (message.getType() == BackplaneMessage.Type.BUS_PUT && target != null && bus != null
+                && bus.getBusNumber() != null && clusterMembershipService.isOwner(bus.getBusNumber())) {
+            // Forwarded to us as the owner: apply it and replicate it from here
+            BusSessionStore.putIfNewer(bus);
+            return;
+        }
+
+        APPLYING_REMOTE.set(true);
+        try {
+            switch (message.getType()) {
+                case BUS_PUT -> {
+                    if (bus != null && bus.getBusNumber() != null) {
+                        BusSessionStore.putIfNewer(bus);
+                    }
+                }
+                case BUS_REMOVE -> BusSessionStore.remove(message.getBusNumber());
+                case BUS_CLEAR -> BusSessionStore.clear();
+                default -> {
+                }
+            }
+        } finally {
+            APPLYING_REMOTE.set(false);
+        }
+    }
+
+    private static void applyHeartbeats(Map<String, Long> heartbeats) {
+        if (heartbeats == null) {
+            return;
+        }
+        for (Map.Entry<String, Long> entry : heartbeats.entrySet()) {
+            BusData bus = BusSessionStore.BUS_MAP.get(entry.getKey());
+            if (bus != null && entry.getValue() != null && entry.getValue() > bus.getLastHeartbeatTime()) {
+                bus.setLastHeartbeatTime(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Send a starting node the buses this node owned before it joined.
+     */
+    private void answerSync(String requester) {
+        if (requester == null) {
+            return;
+        }
+        ConsistentHashRing previous = clusterMembershipService.ringWithout(requester);
+        for (BusData bus : BusSessionStore.BUS_MAP.values()) {
+            if (backplane.getNodeId().equals(previous.ownerOf(bus.getBusNumber()))) {
+                BackplaneMessage put = BackplaneMessage.busPut(bus);
+                put.setTargetNodeId(requester);
+                backplane.publish(put);
+            }
+        }
+    }
+
+    private void fanOutLocally(String channel, String payload) {
+        if (payload == null || channel == null) {
+            return;
+        }
+        switch (channel) {
+            case BackplaneMessage.STUDENTS -> UserHandler.sendToLocalStudents(payload);
+            case BackplaneMessage.ADMINS -> AdminWebSocketHandler.sendToLocalAdmins(payload);
+            case BackplaneMessage.DRIVERS -> DriverHandler.sendToLocalDrivers(payload);
+            default -> System.err.println("[Cluster] Unknown broadcast channel: " + channel);
+        }
+    }
+}
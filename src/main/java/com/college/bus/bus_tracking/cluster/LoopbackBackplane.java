@@ -0,0 +1,98 @@
+package com.college.bus.bus_tracking.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * In-process backplane: nodes created in the same JVM with the same group name see
+ * each other's messages. A single node on its own behaves as a no-op backplane.
+ */
+public class LoopbackBackplane implements Backplane {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final String nodeId;
+    private final String group;
+    private final List<Consumer<BackplaneMessage>> subscribers = new CopyOnWriteArrayList<>();
+    // Receives the JSON published by the other endpoints of the group
+    private final Consumer<byte[]> endpoint = this::receive;
+    // One delivery thread per node keeps messages in publish order
+    private final ExecutorService delivery;
+
+    public LoopbackBackplane(String nodeId, String group) {
+        this.nodeId = nodeId;
+        this.group = group;
+        this.delivery = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "backplane-loopback-" + nodeId);
+            thread.setDaemon(true);
+            return thread;
+        });
+        LoopbackGroups.join(group, endpoint);
+    }
+
+    @Override
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public void publish(BackplaneMessage message) {
+        message.setOriginNodeId(nodeId);
+        List<Consumer<byte[]>> members = LoopbackGroups.members(group);
+        if (members.size() < 2 || delivery.isShutdown()) {
+            return;
+        }
+        // Round-trip through JSON like a real transport, so nodes never share objects
+        byte[] bytes;
+        try {
+            bytes = MAPPER.writeValueAsBytes(message);
+        } catch (IOException e) {
+            System.err.println("[Backplane] Unable to serialize " + message.getType() + ": " + e.getMessage());
+            return;
+        }
+        for (Consumer<byte[]> peer : members) {
+            if (peer != endpoint) {
+                peer.accept(bytes);
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<BackplaneMessage> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    private void receive(byte[] bytes) {
+        if (delivery.isShutdown()) {
+            return;
+        }
+        BackplaneMessage message;
+        try {
+            message = MAPPER.readValue(bytes, BackplaneMessage.class);
+        } catch (IOException e) {
+            System.err.println("[Backplane] Unable to deserialize message on " + nodeId + ": " + e.getMessage());
+            return;
+        }
+        delivery.execute(() -> {
+            for (Consumer<BackplaneMessage> subscriber : subscribers) {
+                try {
+                    subscriber.accept(message);
+                } catch (Exception e) {
+                    System.err.println("[Backplane] Subscriber error on " + nodeId + ": " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        LoopbackGroups.leave(group, endpoint);
+        delivery.shutdown();
+    }
+}
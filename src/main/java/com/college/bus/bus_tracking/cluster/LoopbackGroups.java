@@ -0,0 +1,39 @@
+package com.college.bus.bus_tracking.cluster;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Named groups of in-process {@link LoopbackBackplane} endpoints. Messages cross it as
+ * serialized JSON and it only uses JDK types, so application instances loaded by
+ * separate class loaders in one JVM can share it when their loaders delegate this
+ * class to a common parent (the cluster tests run each node that way).
+ */
+public final class LoopbackGroups {
+
+    private static final Map<String, List<Consumer<byte[]>>> GROUPS = new ConcurrentHashMap<>();
+
+    private LoopbackGroups() {
+    }
+
+    public static void join(String group, Consumer<byte[]> endpoint) {
+        GROUPS.computeIfAbsent(group, k -> new CopyOnWriteArrayList<>()).add(endpoint);
+    }
+
+    public static void leave(String group, Consumer<byte[]> endpoint) {
+        List<Consumer<byte[]>> members = GROUPS.get(group);
+        if (members != null) {
+            members.remove(endpoint);
+        }
+    }
+
+    /**
+     * Endpoints currently in the group, the caller's included.
+     */
+    public static List<Consumer<byte[]>> members(String group) {
+        return GROUPS.getOrDefault(group, List.of());
+    }
+}
@@ -0,0 +1,177 @@
+package com.college.bus.bus_tracking.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * UDP multicast backplane for nodes on the same LAN. Each message is one JSON
+ * datagram; messages from this node are ignored on receipt.
+ *
+ * With a shared secret every datagram is prefixed with its HMAC-SHA256 and datagrams
+ * that do not verify are dropped, so hosts without the secret cannot inject bus state
+ * or driver frames. Without one anything that can reach the group is trusted: only run
+ * it on a private network. Either way datagrams are not encrypted and a captured one
+ * can be replayed.
+ */
+public class MulticastBackplane implements Backplane {
+
+    private static final int MAX_DATAGRAM_BYTES = 65_000;
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final int MAC_BYTES = 32;
+
+    private final String nodeId;
+    private final InetAddress group;
+    private final int port;
+    private final MulticastSocket socket;
+    private final NetworkInterface networkInterface;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final SecretKeySpec macKey; // null: datagrams are not authenticated
+    private final List<Consumer<BackplaneMessage>> subscribers = new CopyOnWriteArrayList<>();
+    private final Thread receiver;
+    private volatile boolean running = true;
+
+    public MulticastBackplane(String nodeId, String groupAddress, int port, String interfaceName, int ttl,
+            String secret) throws IOException {
+        this.nodeId = nodeId;
+        this.macKey = secret != null && !secret.isBlank()
+                ? new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), MAC_ALGORITHM)
+                : null;
+        if (macKey == null) {
+            System.err.println("[Backplane] cluster.multicast.secret is not set: multicast datagrams are not "
+                    + "authenticated, only use this backplane on a private network");
+        }
+        this.group = InetAddress.getByName(groupAddress);
+        this.port = port;
+        this.socket = new MulticastSocket(port);
+        this.socket.setTimeToLive(ttl);
+        this.networkInterface = interfaceName != null && !interfaceName.isBlank()
+                ? NetworkInterface.getByName(interfaceName)
+                : null;
+        if (networkInterface != null) {
+            socket.setNetworkInterface(networkInterface);
+        }
+        socket.joinGroup(new InetSocketAddress(group, port), networkInterface);
+
+        this.receiver = new Thread(this::receiveLoop, "backplane-multicast-" + nodeId);
+        this.receiver.setDaemon(true);
+        this.receiver.start();
+        System.out.println("[Backplane] Node " + nodeId + " joined multicast group " + groupAddress + ":" + port);
+    }
+
+    @Override
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public void publish(BackplaneMessage message) {
+        message.setOriginNodeId(nodeId);
+        try {
+            byte[] bytes = sign(mapper.writeValueAsBytes(message));
+            if (bytes.length > MAX_DATAGRAM_BYTES) {
+                System.err.println("[Backplane] Dropping " + message.getType() + " message of " + bytes.length
+                        + " bytes (too large for one datagram)");
+                return;
+            }
+            socket.send(new DatagramPacket(bytes, bytes.length, group, port));
+        } catch (IOException e) {
+            System.err.println("[Backplane] Multicast send failed: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<BackplaneMessage> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    private void receiveLoop() {
+        byte[] buffer = new byte[MAX_DATAGRAM_BYTES + 1024];
+        while (running) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                socket.receive(packet);
+                int offset = packet.getOffset();
+                int length = packet.getLength();
+                if (macKey != null) {
+                    if (length < MAC_BYTES || !MessageDigest.isEqual(
+                            Arrays.copyOfRange(packet.getData(), offset, offset + MAC_BYTES),
+                            mac(packet.getData(), offset + MAC_BYTES, length - MAC_BYTES))) {
+                        System.err.println("[Backplane] Dropped unauthenticated datagram from "
+                                + packet.getAddress());
+                        continue;
+                    }
+                    offset += MAC_BYTES;
+                    length -= MAC_BYTES;
+                }
+                BackplaneMessage message = mapper.readValue(
+                        new String(packet.getData(), offset, length, StandardCharsets.UTF_8),
+                        BackplaneMessage.class);
+                if (nodeId.equals(message.getOriginNodeId())) {
+                    continue;
+                }
+                for (Consumer<BackplaneMessage> subscriber : subscribers) {
+                    try {
+                        subscriber.accept(message);
+                    } catch (Exception e) {
+                        System.err.println("[Backplane] Subscriber error: " + e.getMessage());
+                    }
+                }
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("[Backplane] Multicast receive failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Prefix the datagram with its MAC when a secret is configured.
+     */
+    private byte[] sign(byte[] json) {
+        if (macKey == null) {
+            return json;
+        }
+        byte[] signed = new byte[MAC_BYTES + json.length];
+        System.arraycopy(mac(json, 0, json.length), 0, signed, 0, MAC_BYTES);
+        System.arraycopy(json, 0, signed, MAC_BYTES, json.length);
+        return signed;
+    }
+
+    private byte[] mac(byte[] data, int offset, int length) {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(macKey);
+            mac.update(data, offset, length);
+            return mac.doFinal();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(MAC_ALGORITHM + " not available", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            socket.leaveGroup(new InetSocketAddress(group, port), networkInterface);
+        } catch (IOException e) {
+            System.err.println("[Backplane] Error leaving multicast group: " + e.getMessage());
+        }
+        socket.close();
+    }
+}
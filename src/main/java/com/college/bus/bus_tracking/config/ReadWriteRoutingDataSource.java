@@ -0,0 +1,50 @@
+package com.college.bus.bus_tracking.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Sends connections of read-only service transactions to the replica pool and
+ * everything else to the primary.
+ *
+ * Spring Data runs every repository read in an implicit read-only transaction. Those
+ * stay on the primary: they back read-modify-write flows (driver START, fleet registry
+ * reloads after an invalidation) that must see their own writes, so only service
+ * methods that opt in with {@code @Transactional(readOnly = true)} accept replica lag.
+ *
+ * Must be wrapped in a {@code LazyConnectionDataSourceProxy} so the connection is
+ * fetched after the transaction's read-only flag is set.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+    public static final String REPLICA = "replica";
+
+    private static final String REPOSITORY_TRANSACTION_PREFIX = "org.springframework.data.";
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica) {
+        setTargetDataSources(Map.of(PRIMARY, primary, REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return isReplicaTransaction() ? REPLICA : PRIMARY;
+    }
+
+    /**
+     * True if the current transaction is an explicit read-only service transaction.
+     */
+    public static boolean isReplicaTransaction() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return false;
+        }
+        String name = TransactionSynchronizationManager.getCurrentTransactionName();
+        return name == null || !name.startsWith(REPOSITORY_TRANSACTION_PREFIX);
+    }
+}
@@ -1,7 +1,9 @@
 package com.college.bus.bus_tracking.controller;
 
-import com.college.bus.bus_tracking.entity.SystemSettings;
 import com.college.bus.bus_tracking.repository.BusRepository;
+import com.college.bus.bus_tracking.service.AccountCacheService;
+import com.college.bus.bus_tracking.service.FleetRegistryService;
+import com.college.bus.bus_tracking.service.PasswordHashingService;
 import com.college.bus.bus_tracking.service.SystemSettingsService;
 import com.college.bus.bus_tracking.store.BusSessionStore;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,9 +22,18 @@ public class AdminController {
     @Autowired
     private BusRepository busRepository;
 
+    @Autowired
+    private FleetRegistryService fleetRegistryService;
+
     @Autowired
     private SystemSettingsService systemSettingsService;
 
+    @Autowired
+    private AccountCacheService accountCacheService;
+
+    @Autowired
+    private PasswordHashingService passwordHashingService;
+
     /**
      * Get system settings
      */
@@ -30,13 +41,11 @@ public class AdminController {
     public ResponseEntity<Map<String, Object>> getSettings() {
         Map<String, Object> response = new HashMap<>();
         try {
-            SystemSettings settings = systemSettingsService.getSettings();
+            SystemSettingsService.Snapshot settings = systemSettingsService.getSettings();
             response.put("success", true);
-            response.put("accountCreationEnabled", settings.getAccountCreationEnabled());
-            Boolean driverSignIn = settings.getDriverSignInEnabled();
-            Boolean studentSignIn = settings.getStudentSignInEnabled();
-            response.put("driverSignInEnabled", driverSignIn != null ? driverSignIn : true);
-            response.put("studentSignInEnabled", studentSignIn != null ? studentSignIn : true);
+            response.put("accountCreationEnabled", settings.isAccountCreationEnabled());
+            response.put("driverSignInEnabled", settings.isDriverSignInEnabled());
+            response.put("studentSignInEnabled", settings.isStudentSignInEnabled());
             response.put("lastModified", settings.getLastModified());
             return ResponseEntity.ok()
                     .header("Cache-Control", "no-store, no-cache, must-revalidate")
@@ -58,19 +67,13 @@ public class AdminController {
     public ResponseEntity<Map<String, Object>> toggleAccountCreation() {
         Map<String, Object> response = new HashMap<>();
         try {
-            SystemSettings settings = systemSettingsService.toggleAccountCreation();
-
-            // Trigger WebSocket broadcast
-            Map<String, Object> update = new HashMap<>();
-            update.put("type", "REGISTRATION_UPDATE");
-            update.put("accountCreationEnabled", settings.getAccountCreationEnabled());
-            update.put("timestamp", System.currentTimeMillis());
-            AdminWebSocketHandler.broadcastSystemUpdate(update);
+            // Broadcast to admins by AdminWebSocketHandler on the settings change event
+            boolean enabled = systemSettingsService.toggleAccountCreation().isAccountCreationEnabled();
 
             response.put("success", true);
-            response.put("accountCreationEnabled", settings.getAccountCreationEnabled());
+            response.put("accountCreationEnabled", enabled);
             response.put("message",
-                    "Account creation " + (settings.getAccountCreationEnabled() ? "enabled" : "disabled"));
+                    "Account creation " + (enabled ? "enabled" : "disabled"));
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             System.err.println("Error toggling account creation:");
@@ -88,15 +91,7 @@ public class AdminController {
     public ResponseEntity<Map<String, Object>> toggleDriverSignIn() {
         Map<String, Object> response = new HashMap<>();
         try {
-            SystemSettings settings = systemSettingsService.toggleDriverSignIn();
-
-            boolean enabled = settings.getDriverSignInEnabled() != null ? settings.getDriverSignInEnabled() : true;
-
-            Map<String, Object> update = new HashMap<>();
-            update.put("type", "DRIVER_SIGNIN_UPDATE");
-            update.put("driverSignInEnabled", enabled);
-            update.put("timestamp", System.currentTimeMillis());
-            AdminWebSocketHandler.broadcastSystemUpdate(update);
+            boolean enabled = systemSettingsService.toggleDriverSignIn().isDriverSignInEnabled();
 
             response.put("success", true);
             response.put("driverSignInEnabled", enabled);
@@ -119,15 +114,7 @@ public class AdminController {
     public ResponseEntity<Map<String, Object>> toggleStudentSignIn() {
         Map<String, Object> response = new HashMap<>();
         try {
-            SystemSettings settings = systemSettingsService.toggleStudentSignIn();
-
-            boolean enabled = settings.getStudentSignInEnabled() != null ? settings.getStudentSignInEnabled() : true;
-
-            Map<String, Object> update = new HashMap<>();
-            update.put("type", "STUDENT_SIGNIN_UPDATE");
-            update.put("studentSignInEnabled", enabled);
-            update.put("timestamp", System.currentTimeMillis());
-            AdminWebSocketHandler.broadcastSystemUpdate(update);
+            boolean enabled = systemSettingsService.toggleStudentSignIn().isStudentSignInEnabled();
 
             response.put("success", true);
             response.put("studentSignInEnabled", enabled);
@@ -168,11 +155,12 @@ public class AdminController {
         try {
             // 1. Clear in-memory bus sessions
             int memoryCount = BusSessionStore.BUS_MAP.size();
-            BusSessionStore.BUS_MAP.clear();
+            BusSessionStore.clear();
 
             // 2. Clear database
             long dbCount = busRepository.count();
             busRepository.deleteAll();
+            fleetRegistryService.invalidateConfig();
 
             response.put("success", true);
             response.put("message", "All bus sessions cleared successfully");
@@ -202,6 +190,28 @@ public class AdminController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Hit/miss statistics of the driver and client account caches
+     */
+    @GetMapping("/cache-stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("accounts", accountCacheService.getStats());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Password hashing pool: queue depth, rejections, queue wait and hash time
+     */
+    @GetMapping("/password-hashing-stats")
+    public ResponseEntity<Map<String, Object>> getPasswordHashingStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("hashing", passwordHashingService.getStats());
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * Sync BUS_MAP with database - removes in-memory entries for buses
      * that no longer exist in the database (e.g. deleted driver accounts).
@@ -215,7 +225,7 @@ public class AdminController {
             for (String busNumber : new java.util.ArrayList<>(BusSessionStore.BUS_MAP.keySet())) {
                 boolean existsInDb = busRepository.findByBusNumber(busNumber).isPresent();
                 if (!existsInDb) {
-                    BusSessionStore.BUS_MAP.remove(busNumber);
+                    BusSessionStore.remove(busNumber);
                     removed.add(busNumber);
                     System.out.println("[Admin] Sync: removed stale bus from memory: " + busNumber);
                 }
@@ -0,0 +1,31 @@
+package com.college.bus.bus_tracking.controller;
+
+import com.college.bus.bus_tracking.service.PasswordHashingService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Responses for exceptions shared by several controllers.
+ */
+@RestControllerAdvice
+public class ApiExceptionHandler {
+
+    /**
+     * 429 while the password hashing pool is saturated
+     */
+    @ExceptionHandler(PasswordHashingService.BusyException.class)
+    public ResponseEntity<Map<String, Object>> tooBusy(PasswordHashingService.BusyException e) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", e.getMessage());
+        response.put("retryAfterSeconds", e.getRetryAfterSeconds());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header("Retry-After", String.valueOf(e.getRetryAfterSeconds()))
+                .body(response);
+    }
+}
@@ -0,0 +1,131 @@
+package com.college.bus.bus_tracking.controller;
+
+import com.college.bus.bus_tracking.service.ProfilePictureService;
+import com.college.bus.bus_tracking.store.BlobStore;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Serves blobs by content hash. A hash always names the same bytes, so responses are
+ * cacheable forever and revalidation is a plain ETag compare. File bodies are handed to
+ * Tomcat's sendfile when the connector supports it, so they go from the page cache to
+ * the socket without being copied through the JVM.
+ */
+@RestController
+@RequestMapping("/api/blobs")
+@CrossOrigin(origins = "*")
+public class BlobController {
+
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    // Tomcat sendfile request attributes (see org.apache.coyote.Constants)
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private ProfilePictureService profilePictureService;
+
+    @GetMapping("/{hash}")
+    public void getBlob(@PathVariable String hash, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        if (!blobStore.exists(hash)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        serve(blobStore.path(hash), "\"" + hash + "\"", request, response);
+    }
+
+    @GetMapping("/{hash}/thumbnail")
+    public void getThumbnail(@PathVariable String hash, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        if (!blobStore.exists(hash)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        try {
+            // Rendered at upload; this covers pictures stored before thumbnails existed
+            profilePictureService.ensureThumbnail(hash);
+        } catch (IOException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        serve(blobStore.variantPath(hash, ProfilePictureService.THUMBNAIL),
+                "\"" + hash + "-" + ProfilePictureService.THUMBNAIL + "\"", request, response);
+    }
+
+    private void serve(Path file, String etag, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        response.setHeader("Cache-Control", CACHE_CONTROL);
+        response.setHeader("ETag", etag);
+
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null && (ifNoneMatch.contains(etag) || ifNoneMatch.trim().equals("*"))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long size = Files.size(file);
+        response.setContentType(contentType(file));
+        response.setContentLengthLong(size);
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, size);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            channel.transferTo(0, size, Channels.newChannel(response.getOutputStream()));
+        }
+    }
+
+    /**
+     * Media type from the file's magic number; blobs are stored without a name.
+     */
+    private static String contentType(Path file) throws IOException {
+        byte[] head = new byte[12];
+        int n;
+        try (InputStream in = Files.newInputStream(file)) {
+            n = in.readNBytes(head, 0, head.length);
+        }
+        if (n >= 3 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xFF) == 0xD8 && (head[2] & 0xFF) == 0xFF) {
+            return "image/jpeg";
+        }
+        if (n >= 8 && (head[0] & 0xFF) == 0x89 && head[1] == 'P' && head[2] == 'N' && head[3] == 'G') {
+            return "image/png";
+        }
+        if (n >= 6 && head[0] == 'G' && head[1] == 'I' && head[2] == 'F' && head[3] == '8') {
+            return "image/gif";
+        }
+        if (n >= 2 && head[0] == 'B' && head[1] == 'M') {
+            return "image/bmp";
+        }
+        if (n >= 12 && head[0] == 'R' && head[1] == 'I' && head[2] == 'F' && head[3] == 'F'
+                && head[8] == 'W' && head[9] == 'E' && head[10] == 'B' && head[11] == 'P') {
+            return "image/webp";
+        }
+        return "application/octet-stream";
+    }
+}
@@ -1,7 +1,13 @@
 package com.college.bus.bus_tracking.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import com.college.bus.bus_tracking.entity.BusEntity;
 import com.college.bus.bus_tracking.entity.Driver;
@@ -11,6 +17,8 @@ import com.college.bus.bus_tracking.store.BusSessionStore;
 import com.college.bus.bus_tracking.websocket.AdminWebSocketHandler;
 import com.college.bus.bus_tracking.handler.UserHandler;
 import com.college.bus.bus_tracking.model.BusData;
+import com.college.bus.bus_tracking.service.FleetRegistryService;
+import com.college.bus.bus_tracking.service.TrackService;
 import java.util.*;
 
 @RestController
@@ -27,53 +35,46 @@ public class BusController {
     @Autowired
     private UserHandler userHandler;
 
+    @Autowired
+    private TrackService trackService;
+
+    @Autowired
+    private FleetRegistryService fleetRegistryService;
+
+    @Value("${fleet.changes.timeout-ms:25000}")
+    private long changesTimeoutMs;
+
     /**
-     * Get all buses - merges database records with live in-memory tracking data
+     * Get all buses - merges database records with live in-memory tracking data.
+     * Served from the fleet registry with a strong ETag (304 on If-None-Match) and a
+     * pre-gzipped body for clients that accept it.
      */
     @GetMapping("/all")
-    public ResponseEntity<List<BusData>> getAllBuses() {
+    public ResponseEntity<byte[]> getAllBuses(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         try {
-            // Start with all buses from the database (the source of truth for registered buses)
-            List<BusEntity> dbBuses = busRepository.findAll();
-            Map<String, BusData> mergedMap = new LinkedHashMap<>();
-
-            // First, add all DB buses with their stored info
-            for (BusEntity entity : dbBuses) {
-                String busNumber = entity.getBusNumber();
-                
-                // Check if there's live data in BUS_MAP
-                BusData liveData = BusSessionStore.BUS_MAP.get(busNumber);
-                if (liveData != null) {
-                    // Use live data (has real-time coordinates, status etc.)
-                    mergedMap.put(busNumber, liveData);
-                } else {
-                    // No live data - create BusData from DB entity with INACTIVE status
-                    BusData dbData = new BusData(
-                            entity.getId(),
-                            entity.getBusNumber(),
-                            entity.getDriverId(),
-                            entity.getBusName(),
-                            entity.getBusStop(),
-                            entity.getLatitude(),
-                            entity.getLongitude(),
-                            "INACTIVE",
-                            entity.getDriverName(),
-                            entity.getDriverPhone());
-                    mergedMap.put(busNumber, dbData);
-                }
+            FleetRegistryService.Snapshot fleet = fleetRegistryService.getSnapshot();
+            boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+            String etag = gzip ? fleet.getGzipEtag() : fleet.getEtag();
+
+            if (ifNoneMatch != null && (ifNoneMatch.contains(etag) || ifNoneMatch.trim().equals("*"))) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(etag)
+                        .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                        .cacheControl(CacheControl.noCache())
+                        .build();
             }
 
-            // Also include any BUS_MAP entries not in DB (edge case: actively tracking but not saved)
-            for (Map.Entry<String, BusData> entry : BusSessionStore.BUS_MAP.entrySet()) {
-                if (!mergedMap.containsKey(entry.getKey())) {
-                    mergedMap.put(entry.getKey(), entry.getValue());
-                }
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .eTag(etag)
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .cacheControl(CacheControl.noCache());
+            if (gzip) {
+                return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(fleet.getGzippedJson());
             }
-
-            List<BusData> buses = new ArrayList<>(mergedMap.values());
-            System.out.println("[BusController] Returning " + buses.size() + " buses (DB: " + dbBuses.size() + ", Live: " + BusSessionStore.BUS_MAP.size() + ")");
-
-            return ResponseEntity.ok(buses);
+            return response.body(fleet.getJson());
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(500).build();
@@ -81,26 +82,55 @@ public class BusController {
     }
 
     /**
-     * Get a specific bus by ID
+     * Long-poll change feed for clients without WebSockets. Returns the buses changed
+     * after version {@code since} (the whole fleet when omitted or outdated) as soon as
+     * there are any, or an empty change set after the timeout.
+     */
+    @GetMapping("/changes")
+    public DeferredResult<FleetRegistryService.Changes> getChanges(@RequestParam(required = false) String since)
+            throws Exception {
+        return fleetRegistryService.awaitChanges(since, changesTimeoutMs);
+    }
+
+    /**
+     * Get a specific bus by ID (live data when tracked, otherwise its registered config)
      */
     @GetMapping("/{busId}")
     public ResponseEntity<?> getBusById(@PathVariable Long busId) {
         try {
-            // Sample bus
-            Map<String, Object> bus = new HashMap<>();
-            bus.put("busId", busId);
-            bus.put("busNumber", "BUS" + String.format("%03d", busId));
-            bus.put("busName", "Route " + busId);
-            bus.put("latitude", 13.0827 + (busId * 0.01));
-            bus.put("longitude", 80.2707 + (busId * 0.01));
-            bus.put("status", "RUNNING");
-            bus.put("driverId", busId);
-            bus.put("driverName", "Driver " + busId);
-            bus.put("driverPhone", "+91-9000000000");
-
+            BusData bus = fleetRegistryService.findById(busId);
+            if (bus == null) {
+                return ResponseEntity.status(404).body(Map.of("success", false, "message", "Bus not found"));
+            }
             return ResponseEntity.ok(bus);
         } catch (Exception e) {
-            return ResponseEntity.status(404).build();
+            return ResponseEntity.status(500).body(Map.of("success", false, "message", e.getMessage()));
+        }
+    }
+
+    /**
+     * Get the recent track of a bus, simplified for the given map zoom level.
+     * from/to are optional epoch-millisecond bounds.
+     */
+    @GetMapping("/{busNumber}/track")
+    public ResponseEntity<?> getBusTrack(
+            @PathVariable String busNumber,
+            @RequestParam(defaultValue = "15") int zoom,
+            @RequestParam(required = false) Long from,
+            @RequestParam(required = false) Long to) {
+        try {
+            TrackService.SimplifiedTrack track = trackService.getTrack(busNumber, from, to, zoom);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("busNumber", busNumber);
+            response.put("zoom", track.getZoom());
+            response.put("toleranceMeters", track.getToleranceMeters());
+            response.put("originalPoints", track.getOriginalPointCount());
+            response.put("points", track.getPoints());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of("success", false, "message", e.getMessage()));
         }
     }
 
@@ -252,6 +282,7 @@ public class BusController {
             entity.setLatitude(0.0);
             entity.setLongitude(0.0);
             entity = busRepository.save(entity);
+            fleetRegistryService.invalidateConfig();
 
             // Add to in-memory store
             BusData busData = new BusData(
@@ -264,7 +295,7 @@ public class BusController {
                     "INACTIVE",
                     entity.getDriverName(),
                     entity.getDriverPhone());
-            BusSessionStore.BUS_MAP.put(busNumber, busData);
+            BusSessionStore.put(busData);
 
             // Broadcast to admins
             List<BusData> allBuses = new ArrayList<>(BusSessionStore.BUS_MAP.values());
@@ -301,10 +332,11 @@ public class BusController {
             Optional<BusEntity> entityOpt = busRepository.findByBusNumber(busNumber);
             if (entityOpt.isPresent()) {
                 busRepository.delete(entityOpt.get());
+                fleetRegistryService.invalidateConfig();
             }
 
             // Remove from in-memory store
-            BusSessionStore.BUS_MAP.remove(busNumber);
+            BusSessionStore.remove(busNumber);
 
             // Broadcast updated list to admins
             List<BusData> allBuses = new ArrayList<>(BusSessionStore.BUS_MAP.values());
@@ -341,25 +373,17 @@ public class BusController {
     @GetMapping("/driver/{driverId}")
     public ResponseEntity<?> getBusesByDriver(@PathVariable Long driverId) {
         try {
-            List<BusEntity> buses = busRepository.findAllByDriverId(driverId);
-            
-            // Cross-reference with live BUS_MAP to get real-time tracking status
+            // Registered buses merged with live tracking status, from the fleet registry indexes
+            List<BusData> buses = fleetRegistryService.findByDriverId(driverId);
+
             List<Map<String, Object>> result = new ArrayList<>();
-            for (BusEntity bus : buses) {
+            for (BusData bus : buses) {
                 Map<String, Object> busMap = new HashMap<>();
-                busMap.put("id", bus.getId());
+                busMap.put("id", bus.getBusId());
                 busMap.put("busNumber", bus.getBusNumber());
                 busMap.put("busName", bus.getBusName());
                 busMap.put("driverId", bus.getDriverId());
-                
-                // Check real-time status from BUS_MAP
-                BusData liveData = BusSessionStore.BUS_MAP.get(bus.getBusNumber());
-                if (liveData != null && liveData.getStatus() != null) {
-                    busMap.put("status", liveData.getStatus());
-                } else {
-                    busMap.put("status", bus.getStatus() != null ? bus.getStatus() : "INACTIVE");
-                }
-                
+                busMap.put("status", bus.getStatus() != null ? bus.getStatus() : "INACTIVE");
                 result.add(busMap);
             }
             
@@ -400,12 +424,13 @@ public class BusController {
             entity.setDriverPhone(driver.getPhone());
             entity.setStatus("INACTIVE");
             entity = busRepository.save(entity);
+            fleetRegistryService.invalidateConfig();
 
             BusData busData = new BusData(
                     entity.getId(), entity.getBusNumber(), entity.getDriverId(),
                     entity.getBusName(), entity.getBusStop(), 0.0, 0.0,
                     "INACTIVE", entity.getDriverName(), entity.getDriverPhone());
-            BusSessionStore.BUS_MAP.put(busNumber, busData);
+            BusSessionStore.put(busData);
 
             // Broadcast ADD Event
             Map<String, Object> update = new HashMap<>();
@@ -445,7 +470,8 @@ public class BusController {
             BusEntity bus = opt.get();
             Long driverId = bus.getDriverId();
             busRepository.delete(bus);
-            BusSessionStore.BUS_MAP.remove(bus.getBusNumber());
+            fleetRegistryService.invalidateConfig();
+            BusSessionStore.remove(bus.getBusNumber());
 
             Map<String, Object> update = new HashMap<>();
             update.put("type", "BUS_CONFIG_DELETED");
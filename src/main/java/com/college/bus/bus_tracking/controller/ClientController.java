@@ -1,13 +1,16 @@
 package com.college.bus.bus_tracking.controller;
 
 import com.college.bus.bus_tracking.entity.Client;
+import com.college.bus.bus_tracking.model.ClientProfile;
 import com.college.bus.bus_tracking.service.ClientService;
+import com.college.bus.bus_tracking.service.PasswordHashingService;
 import com.college.bus.bus_tracking.service.SystemSettingsService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -30,8 +33,10 @@ public class ClientController {
             Client savedClient = clientService.registerClient(client);
             response.put("success", true);
             response.put("message", "Client registered successfully");
-            response.put("client", savedClient);
+            response.put("client", ClientProfile.of(savedClient));
             return ResponseEntity.ok(response);
+        } catch (PasswordHashingService.BusyException e) {
+            throw e; // 429 from ApiExceptionHandler
         } catch (RuntimeException e) {
             response.put("success", false);
             response.put("message", e.getMessage());
@@ -59,14 +64,17 @@ public class ClientController {
             String deviceId = credentials.get("deviceId");
             boolean forceLogout = Boolean.parseBoolean(credentials.getOrDefault("forceLogout", "false"));
 
-            Client client = clientService.loginClient(identifier, password);
-            clientService.checkAndCreateSession(client.getId(), "CLIENT", deviceId, forceLogout);
+            ClientProfile client = clientService.loginClient(identifier, password);
+            String sessionToken = clientService.checkAndCreateSession(client.id(), "CLIENT", deviceId, forceLogout);
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("message", "Login successful");
             response.put("client", client);
+            response.put("sessionToken", sessionToken);
             return ResponseEntity.ok(response);
+        } catch (PasswordHashingService.BusyException e) {
+            throw e; // 429 from ApiExceptionHandler
         } catch (RuntimeException e) {
             Map<String, Object> response = new HashMap<>();
             response.put("success", false);
@@ -91,6 +99,8 @@ public class ClientController {
             response.put("success", true);
             response.put("message", "Password updated successfully");
             return ResponseEntity.ok(response);
+        } catch (PasswordHashingService.BusyException e) {
+            throw e; // 429 from ApiExceptionHandler
         } catch (RuntimeException e) {
             Map<String, Object> response = new HashMap<>();
             response.put("success", false);
@@ -102,7 +112,7 @@ public class ClientController {
     @GetMapping("/{id}")
     public ResponseEntity<?> getClient(@PathVariable Long id) {
         try {
-            Client client = clientService.getClientById(id);
+            ClientProfile client = clientService.getClientById(id);
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("client", client);
@@ -131,7 +141,30 @@ public class ClientController {
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("message", "Profile updated successfully");
-            response.put("client", updatedClient);
+            response.put("client", ClientProfile.of(updatedClient));
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+    }
+
+    /**
+     * Upload a profile picture as the raw request body (image/jpeg, image/png, ...).
+     * The image is streamed to the blob store and served from /api/blobs/{hash}.
+     */
+    @PutMapping("/{id}/profile-picture")
+    public ResponseEntity<?> uploadProfilePicture(@PathVariable Long id, InputStream image) {
+        try {
+            Client updatedClient = clientService.updateProfilePicture(id, image);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Profile picture updated successfully");
+            response.put("profilePictureHash", updatedClient.getProfilePictureHash());
+            response.put("client", ClientProfile.of(updatedClient));
             return ResponseEntity.ok(response);
         } catch (RuntimeException e) {
             Map<String, Object> response = new HashMap<>();
@@ -152,7 +185,7 @@ public class ClientController {
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("message", "Bus stop saved successfully");
-            response.put("client", updatedClient);
+            response.put("client", ClientProfile.of(updatedClient));
             return ResponseEntity.ok(response);
         } catch (RuntimeException e) {
             Map<String, Object> response = new HashMap<>();
@@ -1,7 +1,9 @@
 package com.college.bus.bus_tracking.controller;
 
 import com.college.bus.bus_tracking.entity.Driver;
+import com.college.bus.bus_tracking.model.DriverProfile;
 import com.college.bus.bus_tracking.service.DriverService;
+import com.college.bus.bus_tracking.service.PasswordHashingService;
 import com.college.bus.bus_tracking.service.SystemSettingsService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -37,8 +39,10 @@ public class DriverController {
             Driver savedDriver = driverService.registerDriver(driver);
             response.put("success", true);
             response.put("message", "Driver registered successfully");
-            response.put("driver", savedDriver);
+            response.put("driver", DriverProfile.of(savedDriver));
             return ResponseEntity.ok(response);
+        } catch (PasswordHashingService.BusyException e) {
+            throw e; // 429 from ApiExceptionHandler
         } catch (RuntimeException e) {
             response.put("success", false);
             response.put("message", e.getMessage());
@@ -63,14 +67,16 @@ public class DriverController {
             String deviceId = credentials.get("deviceId");
             boolean forceLogout = Boolean.parseBoolean(credentials.getOrDefault("forceLogout", "false"));
 
-            Driver driver = driverService.loginDriver(username, password);
-            driverService.checkAndCreateSession(driver.getId(), "DRIVER", deviceId, forceLogout);
+            DriverProfile driver = driverService.loginDriver(username, password);
+            driverService.checkAndCreateSession(driver.id(), "DRIVER", deviceId, forceLogout);
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("message", "Login successful");
             response.put("driver", driver);
             return ResponseEntity.ok(response);
+        } catch (PasswordHashingService.BusyException e) {
+            throw e; // 429 from ApiExceptionHandler
         } catch (RuntimeException e) {
             Map<String, Object> response = new HashMap<>();
             response.put("success", false);
@@ -95,6 +101,8 @@ public class DriverController {
             response.put("success", true);
             response.put("message", "Password updated successfully");
             return ResponseEntity.ok(response);
+        } catch (PasswordHashingService.BusyException e) {
+            throw e; // 429 from ApiExceptionHandler
         } catch (RuntimeException e) {
             Map<String, Object> response = new HashMap<>();
             response.put("success", false);
@@ -114,7 +122,7 @@ public class DriverController {
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("message", "Bus details updated successfully");
-            response.put("driver", updatedDriver);
+            response.put("driver", DriverProfile.of(updatedDriver));
             return ResponseEntity.ok(response);
         } catch (RuntimeException e) {
             Map<String, Object> response = new HashMap<>();
@@ -137,7 +145,7 @@ public class DriverController {
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("message", "Profile updated successfully");
-            response.put("driver", updatedDriver);
+            response.put("driver", DriverProfile.of(updatedDriver));
             return ResponseEntity.ok(response);
         } catch (RuntimeException e) {
             Map<String, Object> response = new HashMap<>();
@@ -150,7 +158,7 @@ public class DriverController {
     @GetMapping("/{id}")
     public ResponseEntity<?> getDriver(@PathVariable Long id) {
         try {
-            Driver driver = driverService.getDriverById(id);
+            DriverProfile driver = driverService.getDriverById(id);
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -1,11 +1,15 @@
 package com.college.bus.bus_tracking.controller;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -15,10 +19,18 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.college.bus.bus_tracking.entity.Feedback;
-import com.college.bus.bus_tracking.repository.FeedbackRepository;
+import com.college.bus.bus_tracking.service.FeedbackStatsService;
+import com.college.bus.bus_tracking.service.FeedbackIngestService;
+import com.college.bus.bus_tracking.service.FeedbackSearchIndex;
+import com.college.bus.bus_tracking.service.FeedbackSearchService;
+import com.college.bus.bus_tracking.service.FeedbackService;
+import com.college.bus.bus_tracking.store.SessionStore;
+
+import jakarta.servlet.http.HttpServletRequest;
 
 @RestController
 @RequestMapping("/api/feedback")
@@ -26,21 +38,53 @@ import com.college.bus.bus_tracking.repository.FeedbackRepository;
 public class FeedbackController {
 
     @Autowired
-    private FeedbackRepository feedbackRepository;
+    private FeedbackService feedbackService;
+
+    @Autowired
+    private FeedbackIngestService feedbackIngestService;
+
+    @Autowired
+    private FeedbackStatsService feedbackStatsService;
+
+    @Autowired
+    private FeedbackSearchService feedbackSearchService;
 
     /**
-     * Submit new feedback (Student side)
+     * Submit new feedback (Student side). Acknowledged as soon as it is queued; the row
+     * is written within a moment. A report identical to a recent one is counted into it
+     * and answered with that report's id. Reports are rate limited per login session
+     * (X-Session-Token), else per client address.
      */
     @PostMapping
-    public ResponseEntity<Map<String, Object>> submitFeedback(@RequestBody Feedback feedback) {
+    public ResponseEntity<Map<String, Object>> submitFeedback(@RequestBody Feedback feedback,
+            HttpServletRequest request) {
         Map<String, Object> response = new HashMap<>();
         try {
-            feedback.setStatus("pending");
-            Feedback saved = feedbackRepository.save(feedback);
-            response.put("success", true);
-            response.put("message", "Feedback submitted successfully");
-            response.put("feedbackId", saved.getId());
-            return ResponseEntity.ok(response);
+            FeedbackIngestService.Receipt receipt = feedbackIngestService.submit(feedback, sender(request));
+            switch (receipt.outcome()) {
+                case RATE_LIMITED:
+                    response.put("success", false);
+                    response.put("message", "Too many reports. Please try again later.");
+                    return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                            .header("Retry-After", String.valueOf(receipt.retryAfterSeconds()))
+                            .body(response);
+                case BUSY:
+                    response.put("success", false);
+                    response.put("message", "Feedback service is busy. Please try again shortly.");
+                    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                            .header("Retry-After", "5")
+                            .body(response);
+                default:
+                    response.put("success", true);
+                    response.put("message", "Feedback submitted successfully");
+                    response.put("feedbackId", receipt.feedbackId());
+                    response.put("duplicate", receipt.outcome() == FeedbackIngestService.Outcome.DUPLICATE);
+                    return ResponseEntity.ok(response);
+            }
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "Failed to submit feedback: " + e.getMessage());
@@ -49,17 +93,51 @@ public class FeedbackController {
     }
 
     /**
-     * Get all feedback (Admin side)
+     * Who sent a report, for rate limiting: the logged-in user, else the client address
+     * (from X-Forwarded-For when behind the proxy, see server.forward-headers-strategy).
+     * The student email in the body is not used, since anyone can put any email there.
+     */
+    private static String sender(HttpServletRequest request) {
+        SessionStore.SessionData session = SessionStore.findByToken(request.getHeader("X-Session-Token"));
+        if (session != null) {
+            return "user:" + session.userType + ":" + session.userId;
+        }
+        return "addr:" + request.getRemoteAddr();
+    }
+
+    /**
+     * List feedback newest first, one page at a time (Admin side).
+     * Pass the returned nextCursor to get the following page; all filters are optional
+     * and combine. from/to take a date (yyyy-MM-dd, to is inclusive) or a date-time.
+     * total is only returned with the first page and stops counting at 10000
+     * (totalCapped=true).
      */
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getAllFeedback() {
+    public ResponseEntity<Map<String, Object>> getAllFeedback(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + FeedbackService.DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(required = false) String busNumber,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String issueType,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to) {
         Map<String, Object> response = new HashMap<>();
         try {
-            List<Feedback> feedbackList = feedbackRepository.findAllByOrderByCreatedAtDesc();
+            FeedbackService.Filter filter = new FeedbackService.Filter(blankToNull(busNumber), blankToNull(status),
+                    blankToNull(issueType), parseBound(from, false), parseBound(to, true));
+            FeedbackService.Page page = feedbackService.getFeedbackPage(filter, blankToNull(cursor), limit);
             response.put("success", true);
-            response.put("feedback", feedbackList);
-            response.put("total", feedbackList.size());
+            response.put("feedback", page.items());
+            response.put("nextCursor", page.nextCursor());
+            if (page.total() != null) {
+                response.put("total", page.total());
+                response.put("totalCapped", page.totalCapped());
+            }
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "Failed to fetch feedback: " + e.getMessage());
@@ -67,6 +145,62 @@ public class FeedbackController {
         }
     }
 
+    /**
+     * Feedback counts for the dashboard, read from the per day x bus x issue type buckets.
+     * from/to are inclusive dates; groupBy is a comma list of day, bus and issueType
+     * (none gives one total row).
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getFeedbackStats(
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) String busNumber,
+            @RequestParam(required = false) String issueType,
+            @RequestParam(defaultValue = "") String groupBy) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            List<String> dimensions = Arrays.stream(groupBy.split(","))
+                    .map(String::trim)
+                    .filter(d -> !d.isEmpty())
+                    .toList();
+            response.put("success", true);
+            response.put("stats", feedbackStatsService.query(parseDate(from), parseDate(to),
+                    blankToNull(busNumber), blankToNull(issueType), dimensions));
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Failed to fetch feedback stats: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+
+    /**
+     * Keyword search over feedback messages, route names and bus numbers, best matches
+     * first. Every word also matches longer words it starts ("rash dri" finds
+     * "rash driving").
+     */
+    @GetMapping("/search")
+    public ResponseEntity<Map<String, Object>> searchFeedback(@RequestParam("q") String query,
+            @RequestParam(defaultValue = "20") int limit) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            List<FeedbackSearchIndex.Hit> hits = feedbackSearchService.search(query,
+                    Math.max(1, Math.min(limit, FeedbackService.MAX_PAGE_SIZE)));
+            List<Long> ids = hits.stream().map(FeedbackSearchIndex.Hit::id).toList();
+            response.put("success", true);
+            response.put("feedback", ids.isEmpty() ? List.of() : feedbackService.getFeedbackByIds(ids));
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Failed to search feedback: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+
     /**
      * Get single feedback by ID
      */
@@ -74,7 +208,7 @@ public class FeedbackController {
     public ResponseEntity<Map<String, Object>> getFeedback(@PathVariable Long id) {
         Map<String, Object> response = new HashMap<>();
         try {
-            Optional<Feedback> feedback = feedbackRepository.findById(id);
+            Optional<Feedback> feedback = feedbackService.getFeedback(id);
             if (feedback.isPresent()) {
                 response.put("success", true);
                 response.put("feedback", feedback.get());
@@ -98,11 +232,8 @@ public class FeedbackController {
     public ResponseEntity<Map<String, Object>> resolveFeedback(@PathVariable Long id) {
         Map<String, Object> response = new HashMap<>();
         try {
-            Optional<Feedback> opt = feedbackRepository.findById(id);
-            if (opt.isPresent()) {
-                Feedback feedback = opt.get();
-                feedback.setStatus("resolved");
-                feedbackRepository.save(feedback);
+            if (feedbackService.resolve(id)) {
+                feedbackIngestService.forget(id);
                 response.put("success", true);
                 response.put("message", "Feedback marked as resolved");
             } else {
@@ -125,8 +256,9 @@ public class FeedbackController {
     public ResponseEntity<Map<String, Object>> deleteFeedback(@PathVariable Long id) {
         Map<String, Object> response = new HashMap<>();
         try {
-            if (feedbackRepository.existsById(id)) {
-                feedbackRepository.deleteById(id);
+            if (feedbackService.delete(id)) {
+                feedbackSearchService.removed(id);
+                feedbackIngestService.forget(id);
                 response.put("success", true);
                 response.put("message", "Feedback deleted successfully");
             } else {
@@ -141,4 +273,37 @@ public class FeedbackController {
             return ResponseEntity.internalServerError().body(response);
         }
     }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private static LocalDate parseDate(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value.trim());
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid date: " + value);
+        }
+    }
+
+    /**
+     * A date covers the whole day, so as an upper bound it means the start of the next day.
+     */
+    private static LocalDateTime parseBound(String value, boolean upper) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            if (value.length() == 10) {
+                LocalDate date = LocalDate.parse(value);
+                return upper ? date.plusDays(1).atStartOfDay() : date.atStartOfDay();
+            }
+            return LocalDateTime.parse(value);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid date: " + value);
+        }
+    }
 }
@@ -2,15 +2,18 @@ package com.college.bus.bus_tracking.controller;
 
 import com.college.bus.bus_tracking.entity.Client;
 import com.college.bus.bus_tracking.entity.Driver;
+import com.college.bus.bus_tracking.model.ClientAccount;
+import com.college.bus.bus_tracking.model.DriverAccount;
 import com.college.bus.bus_tracking.repository.ClientRepository;
 import com.college.bus.bus_tracking.repository.DriverRepository;
+import com.college.bus.bus_tracking.service.AccountCacheService;
+import com.college.bus.bus_tracking.service.AccountIdentityService;
+import com.college.bus.bus_tracking.service.PasswordHashingService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
-import java.security.SecureRandom;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -27,9 +30,13 @@ public class ForgotPasswordController {
     private DriverRepository driverRepository;
 
     @Autowired
-    private BCryptPasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
 
-    private final SecureRandom secureRandom = new SecureRandom();
+    @Autowired
+    private AccountCacheService accountCacheService;
+
+    @Autowired
+    private AccountIdentityService accountIdentityService;
 
     @GetMapping("/test")
     public ResponseEntity<?> test() {
@@ -51,54 +58,29 @@ public class ForgotPasswordController {
 
         System.out.println("[ForgotPassword] Processing identifier: " + identifier);
 
-        // Debug: Log DB status
-        System.out.println("[ForgotPassword] DB Status - Total Clients: " + clientRepository.count());
-        System.out.println("[ForgotPassword] DB Status - Total Drivers: " + driverRepository.count());
-
         Map<String, Object> response = new HashMap<>();
 
         // Security best practice: Always return same message
         response.put("success", true);
         response.put("message", "If an account exists with this email/username, a reset link has been sent.");
 
-        String token = generateToken();
-        long expiry = System.currentTimeMillis() + 3600000; // 1 hour
-
-        // Check Client table (Student) - Search by Email or Username
-        Optional<Client> clientOpt = clientRepository.findByEmail(identifier);
-        if (clientOpt.isEmpty()) {
-            clientOpt = clientRepository.findByUsername(identifier);
-        }
-
-        if (clientOpt.isPresent()) {
-            System.out.println("[ForgotPassword] Found Client: " + identifier);
-            Client client = clientOpt.get();
-            client.setResetToken(token);
-            client.setResetTokenExpiry(expiry);
-            clientRepository.save(client);
-            response.put("resetLink", "reset-password.html?token=" + token);
-            response.put("userEmail", client.getEmail());
+        // Client (Student) or Driver, by email or username
+        Optional<AccountIdentityService.Identity> identity = accountIdentityService.findByLogin(identifier);
+        if (identity.isEmpty()) {
+            System.out.println("[ForgotPassword] No user found for: " + identifier);
             return ResponseEntity.ok(response);
         }
 
-        // Check Driver table - Search by Email or Username
-        Optional<Driver> driverOpt = driverRepository.findByEmail(identifier);
-        if (driverOpt.isEmpty()) {
-            driverOpt = driverRepository.findByUsername(identifier);
-        }
+        String userType = identity.get().userType();
+        Long userId = identity.get().userId();
+        String email = AccountCacheService.CLIENT.equals(userType)
+                ? accountCacheService.findClientById(userId).map(ClientAccount::email).orElse(null)
+                : accountCacheService.findDriverById(userId).map(DriverAccount::email).orElse(null);
+        System.out.println("[ForgotPassword] Found " + userType + ": " + identifier);
 
-        if (driverOpt.isPresent()) {
-            System.out.println("[ForgotPassword] Found Driver: " + identifier);
-            Driver driver = driverOpt.get();
-            driver.setResetToken(token);
-            driver.setResetTokenExpiry(expiry);
-            driverRepository.save(driver);
-            response.put("resetLink", "reset-password.html?token=" + token);
-            response.put("userEmail", driver.getEmail());
-            return ResponseEntity.ok(response);
-        }
-
-        System.out.println("[ForgotPassword] No user found for: " + identifier);
+        String token = accountIdentityService.issueResetToken(userType, userId);
+        response.put("resetLink", "reset-password.html?token=" + token);
+        response.put("userEmail", email);
         return ResponseEntity.ok(response);
     }
 
@@ -114,62 +96,52 @@ public class ForgotPasswordController {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
         }
 
-        // Check Client table
-        Optional<Client> clientOpt = clientRepository.findByResetToken(token);
-        if (clientOpt.isPresent()) {
-            Client client = clientOpt.get();
-            if (isTokenExpired(client.getResetTokenExpiry())) {
-                response.put("success", false);
-                response.put("message", "Token has expired");
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
-            }
+        // Check the token before hashing, so made-up tokens do not take hashing slots
+        // from real logins
+        Optional<AccountIdentityService.Identity> found = accountIdentityService.findResetToken(token);
+        if (found.isEmpty()) {
+            return invalidToken(response);
+        }
+        if (found.get().isExpired()) {
+            response.put("success", false);
+            response.put("message", "Token has expired");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
 
-            client.setPassword(passwordEncoder.encode(newPassword));
-            client.setResetToken(null);
-            client.setResetTokenExpiry(null);
-            clientRepository.save(client);
+        // Hash before the token is used up, so a busy hashing pool does not cost the user their link
+        String passwordHash = passwordHashingService.encode(newPassword);
 
-            response.put("success", true);
-            response.put("message", "Password reset successful");
-            return ResponseEntity.ok(response);
+        Optional<AccountIdentityService.Identity> identity = accountIdentityService.consumeResetToken(token);
+        if (identity.isEmpty()) {
+            // Used by a concurrent request meanwhile
+            return invalidToken(response);
         }
 
-        // Check Driver table
-        Optional<Driver> driverOpt = driverRepository.findByResetToken(token);
-        if (driverOpt.isPresent()) {
-            Driver driver = driverOpt.get();
-            if (isTokenExpired(driver.getResetTokenExpiry())) {
-                response.put("success", false);
-                response.put("message", "Token has expired");
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        Long userId = identity.get().userId();
+        if (AccountCacheService.CLIENT.equals(identity.get().userType())) {
+            Optional<Client> clientOpt = clientRepository.findById(userId);
+            if (clientOpt.isPresent()) {
+                Client client = clientOpt.get();
+                client.setPassword(passwordHash);
+                accountCacheService.clientChanged(clientRepository.save(client));
+            }
+        } else {
+            Optional<Driver> driverOpt = driverRepository.findById(userId);
+            if (driverOpt.isPresent()) {
+                Driver driver = driverOpt.get();
+                driver.setPassword(passwordHash);
+                accountCacheService.driverChanged(driverRepository.save(driver));
             }
-
-            driver.setPassword(passwordEncoder.encode(newPassword));
-            driver.setResetToken(null);
-            driver.setResetTokenExpiry(null);
-            driverRepository.save(driver);
-
-            response.put("success", true);
-            response.put("message", "Password reset successful");
-            return ResponseEntity.ok(response);
         }
 
+        response.put("success", true);
+        response.put("message", "Password reset successful");
+        return ResponseEntity.ok(response);
+    }
+
+    private static ResponseEntity<?> invalidToken(Map<String, Object> response) {
         response.put("success", false);
         response.put("message", "Invalid token");
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
     }
-
-    private String generateToken() {
-        byte[] bytes = new byte[32];
-        secureRandom.nextBytes(bytes);
-        StringBuilder sb = new StringBuilder();
-        for (byte b : bytes) {
-            sb.append(String.format("%02x", b));
-        }
-        return sb.toString();
-    }
-
-    private boolean isTokenExpired(Long expiry) {
-        return expiry == null || System.currentTimeMillis() > expiry;
-    }
 }
@@ -69,6 +69,11 @@ public class GuestAccessController {
         Map<String, Object> response = new HashMap<>();
         try {
             GuestAccessCode current = guestAccessCodeService.getCurrentCode();
+            if (current == null) {
+                response.put("success", false);
+                response.put("message", "Guest access code is being generated, try again shortly");
+                return ResponseEntity.status(503).body(response);
+            }
 
             response.put("success", true);
             response.put("code", current.getCode());
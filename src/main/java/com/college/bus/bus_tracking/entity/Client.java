@@ -30,15 +30,12 @@ public class Client {
     @Column(nullable = false)
     private Boolean phoneVerified = false;
 
-    @Column(columnDefinition = "TEXT")
-    private String profilePicture; // Base64 encoded image
+    // SHA-256 of the picture in the blob store (served at /api/blobs/{hash})
+    @Column(length = 64)
+    private String profilePictureHash;
 
     private String savedBusStop;
 
-    // Reset password fields
-    private String resetToken;
-    private Long resetTokenExpiry;
-
     public Long getId() {
         return id;
     }
@@ -95,12 +92,12 @@ public class Client {
         this.phoneVerified = phoneVerified;
     }
 
-    public String getProfilePicture() {
-        return profilePicture;
+    public String getProfilePictureHash() {
+        return profilePictureHash;
     }
 
-    public void setProfilePicture(String profilePicture) {
-        this.profilePicture = profilePicture;
+    public void setProfilePictureHash(String profilePictureHash) {
+        this.profilePictureHash = profilePictureHash;
     }
 
     public String getSavedBusStop() {
@@ -110,20 +107,4 @@ public class Client {
     public void setSavedBusStop(String savedBusStop) {
         this.savedBusStop = savedBusStop;
     }
-
-    public String getResetToken() {
-        return resetToken;
-    }
-
-    public void setResetToken(String resetToken) {
-        this.resetToken = resetToken;
-    }
-
-    public Long getResetTokenExpiry() {
-        return resetTokenExpiry;
-    }
-
-    public void setResetTokenExpiry(Long resetTokenExpiry) {
-        this.resetTokenExpiry = resetTokenExpiry;
-    }
 }
@@ -25,10 +25,6 @@ public class Driver {
     @Column(unique = true)
     private String email;
 
-    // Reset password fields
-    private String resetToken;
-    private Long resetTokenExpiry;
-
     // Bus details fields
     private String busNumber;
     private String busName;
@@ -96,20 +92,4 @@ public class Driver {
     public void setEmail(String email) {
         this.email = email;
     }
-
-    public String getResetToken() {
-        return resetToken;
-    }
-
-    public void setResetToken(String resetToken) {
-        this.resetToken = resetToken;
-    }
-
-    public Long getResetTokenExpiry() {
-        return resetTokenExpiry;
-    }
-
-    public void setResetTokenExpiry(Long resetTokenExpiry) {
-        this.resetTokenExpiry = resetTokenExpiry;
-    }
 }
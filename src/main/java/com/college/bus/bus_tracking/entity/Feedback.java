@@ -8,6 +8,7 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 
 @Entity
@@ -15,7 +16,8 @@ import jakarta.persistence.Table;
 public class Feedback {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "feedback_seq")
+    @SequenceGenerator(name = "feedback_seq", sequenceName = "feedback_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -39,6 +41,9 @@ public class Feedback {
     @Column(nullable = false)
     private String status; // "pending" or "resolved"
 
+    @Column(nullable = false)
+    private Integer reportCount = 1; // identical reports collapsed into this row
+
     @PrePersist
     protected void onCreate() {
         if (createdAt == null) {
@@ -122,4 +127,12 @@ public class Feedback {
     public void setStatus(String status) {
         this.status = status;
     }
+
+    public Integer getReportCount() {
+        return reportCount;
+    }
+
+    public void setReportCount(Integer reportCount) {
+        this.reportCount = reportCount;
+    }
 }
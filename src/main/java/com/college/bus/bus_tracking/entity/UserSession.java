@@ -33,6 +33,8 @@ public class UserSession {
 
     private String sessionToken;
 
+    private String deviceId;
+
     private String ipAddress;
 
     private String userAgent;
@@ -1,13 +1,21 @@
 package com.college.bus.bus_tracking.handler;
 
+import com.college.bus.bus_tracking.cluster.Backplane;
+import com.college.bus.bus_tracking.cluster.BackplaneMessage;
+import com.college.bus.bus_tracking.cluster.ClusterFanout;
+import com.college.bus.bus_tracking.cluster.ClusterMembershipService;
 import com.college.bus.bus_tracking.entity.BusEntity;
 import com.college.bus.bus_tracking.model.BusData;
 import com.college.bus.bus_tracking.repository.BusRepository;
+import com.college.bus.bus_tracking.service.HeartbeatMonitorService;
 import com.college.bus.bus_tracking.store.BusSessionStore;
 import com.college.bus.bus_tracking.websocket.AdminWebSocketHandler;
+import com.college.bus.bus_tracking.websocket.WebSocketHeartbeat;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.PongMessage;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
@@ -16,9 +24,6 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 @Component
@@ -26,21 +31,53 @@ public class DriverHandler extends TextWebSocketHandler {
 
     private final BusRepository repository;
     private final UserHandler userHandler;
+    private final ClusterMembershipService clusterMembershipService;
+    private final Backplane backplane;
+    private final HeartbeatMonitorService heartbeatMonitorService;
     private final ObjectMapper mapper = new ObjectMapper();
-    private static final long GRACE_PERIOD_MS = 2_000; // 2 seconds before marking inactive
-    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
 
     // Store all active driver sessions
     public static final List<WebSocketSession> DRIVER_SESSIONS = new CopyOnWriteArrayList<>();
 
-    public DriverHandler(BusRepository repository, UserHandler userHandler) {
+    public DriverHandler(BusRepository repository, UserHandler userHandler,
+            ClusterMembershipService clusterMembershipService, Backplane backplane,
+            HeartbeatMonitorService heartbeatMonitorService) {
         this.repository = repository;
         this.userHandler = userHandler;
+        this.clusterMembershipService = clusterMembershipService;
+        this.backplane = backplane;
+        this.heartbeatMonitorService = heartbeatMonitorService;
+    }
+
+    /**
+     * Accept driver frames and disconnects forwarded by other nodes for buses owned here.
+     */
+    @PostConstruct
+    public void subscribeForwardedFrames() {
+        backplane.subscribe(message -> {
+            if (!backplane.getNodeId().equals(message.getTargetNodeId())) {
+                return;
+            }
+            if (message.getType() == BackplaneMessage.Type.DRIVER_FRAME) {
+                if (WebSocketHeartbeat.isPing(message.getPayload())) {
+                    touchBus(message.getBusNumber());
+                    return;
+                }
+                try {
+                    processFrame(mapper.readTree(message.getPayload()));
+                } catch (Exception e) {
+                    System.err.println("[DriverHandler] ERROR processing forwarded frame: " + e.getMessage());
+                }
+            } else if (message.getType() == BackplaneMessage.Type.DRIVER_DISCONNECT) {
+                heartbeatMonitorService.driverDisconnected(message.getBusNumber(), message.getTimestamp());
+            }
+        });
     }
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
         DRIVER_SESSIONS.add(session);
+        WebSocketHeartbeat.register(session);
         System.out.println("[DriverHandler] New driver connected. Total drivers: " + DRIVER_SESSIONS.size());
     }
 
@@ -48,20 +85,28 @@ public class DriverHandler extends TextWebSocketHandler {
         ObjectMapper mapper = new ObjectMapper();
         try {
             String payload = mapper.writeValueAsString(message);
-            TextMessage textMessage = new TextMessage(payload);
-            for (WebSocketSession session : DRIVER_SESSIONS) {
-                if (session.isOpen()) {
-                    synchronized (session) {
-                        try {
-                            session.sendMessage(textMessage);
-                        } catch (Exception e) {
-                            System.err.println("[DriverHandler] Error sending to driver session: " + e.getMessage());
-                        }
+            ClusterFanout.publish(BackplaneMessage.DRIVERS, payload);
+            sendToLocalDrivers(payload);
+        } catch (Exception e) {
+            System.err.println("[DriverHandler] Error serializing message for drivers: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Send a payload to the drivers connected to this node only.
+     */
+    public static void sendToLocalDrivers(String payload) {
+        TextMessage textMessage = new TextMessage(payload);
+        for (WebSocketSession session : DRIVER_SESSIONS) {
+            if (session.isOpen()) {
+                synchronized (session) {
+                    try {
+                        session.sendMessage(textMessage);
+                    } catch (Exception e) {
+                        System.err.println("[DriverHandler] Error sending to driver session: " + e.getMessage());
                     }
                 }
             }
-        } catch (Exception e) {
-            System.err.println("[DriverHandler] Error serializing message for drivers: " + e.getMessage());
         }
     }
 
@@ -122,194 +167,232 @@ public class DriverHandler extends TextWebSocketHandler {
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
         String payload = message.getPayload();
+
+        // Legacy PING heartbeat — answered without parsing or logging
+        if (WebSocketHeartbeat.isPing(payload)) {
+            WebSocketHeartbeat.touch(session);
+            WebSocketHeartbeat.sendPong(session);
+            busHeartbeat(WebSocketHeartbeat.busNumberOf(payload), payload);
+            return;
+        }
         System.out.println("[DriverHandler] Received: " + payload);
 
         try {
             JsonNode node = mapper.readTree(payload);
+            String busNumber = node.has("busNumber") ? node.get("busNumber").asText() : null;
 
-            // Log the action being processed
-            String action = node.has("action") ? node.get("action").asText() : "UNKNOWN";
-            String busNum = node.has("busNumber") ? node.get("busNumber").asText() : "N/A";
-            System.out.println("[DriverHandler] Processing action: " + action + " for bus: " + busNum);
-
-            // Handle PING heartbeat — respond with PONG and update lastHeartbeatTime
+            // Handle PING heartbeat — respond with PONG; the bus owner updates lastHeartbeatTime
             if (node.has("type") && "PING".equals(node.get("type").asText())) {
-                String pingBusNumber = node.has("busNumber") ? node.get("busNumber").asText() : null;
-                if (pingBusNumber != null) {
-                    BusData bus = BusSessionStore.BUS_MAP.get(pingBusNumber);
-                    if (bus != null) {
-                        bus.setLastHeartbeatTime(System.currentTimeMillis());
-                    }
-                }
-                // Respond with PONG
-                Map<String, Object> pong = new HashMap<>();
-                pong.put("type", "PONG");
-                pong.put("timestamp", System.currentTimeMillis());
-                synchronized (session) {
-                    if (session.isOpen()) {
-                        session.sendMessage(new TextMessage(mapper.writeValueAsString(pong)));
-                    }
+                WebSocketHeartbeat.touch(session);
+                WebSocketHeartbeat.sendPong(session);
+            } else {
+                // Store busNumber in session for disconnection handling
+                String action = node.path("action").asText("");
+                if (busNumber != null && !"START".equals(action) && !"STOP".equals(action)
+                        && !"GPS_ERROR".equals(action)) {
+                    session.getAttributes().put("BUS_NUMBER", busNumber);
                 }
-                return;
             }
 
-            // Check for driverId, if not present try to extract from session or handle
-            // error
-            Long driverId = null;
-            if (node.has("driverId")) {
-                driverId = node.get("driverId").asLong();
+            // Frames for buses owned by another node are processed there
+            if (busNumber != null && !clusterMembershipService.isOwner(busNumber)) {
+                clusterMembershipService.forwardToOwner(busNumber, BackplaneMessage.driverFrame(busNumber, payload));
+                return;
             }
 
-            String busNumber = null;
-            if (node.has("busNumber")) {
-                busNumber = node.get("busNumber").asText();
-            }
+            processFrame(node);
+        } catch (Exception e) {
+            System.err.println("[DriverHandler] ERROR processing message: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
 
-            if (node.has("action") && "START".equals(node.get("action").asText())) {
-                if (driverId == null) {
-                    System.err.println("[DriverHandler] Error: driverId missing in START payload");
-                    return;
-                }
+    /**
+     * Native pong from the driver's browser: the connection is alive, so the bus is too.
+     */
+    @Override
+    protected void handlePongMessage(WebSocketSession session, PongMessage message) throws Exception {
+        WebSocketHeartbeat.touch(session);
+        String busNumber = (String) session.getAttributes().get("BUS_NUMBER");
+        if (busNumber != null) {
+            busHeartbeat(busNumber, null);
+        }
+    }
 
-                System.out.println("[DriverHandler] Processing START action for driver: " + driverId);
+    /**
+     * Refresh the heartbeat of a bus on its owner node. {@code ping} is the frame to
+     * forward to the owner, built on demand when null.
+     */
+    private void busHeartbeat(String busNumber, String ping) throws Exception {
+        if (busNumber == null) {
+            return;
+        }
+        if (clusterMembershipService.isOwner(busNumber)) {
+            touchBus(busNumber);
+        } else {
+            String frame = ping != null ? ping
+                    : mapper.writeValueAsString(Map.of("type", "PING", "busNumber", busNumber));
+            clusterMembershipService.forwardToOwner(busNumber, BackplaneMessage.driverFrame(busNumber, frame));
+        }
+    }
 
-                // Find existing bus for this driver or create new
-                BusEntity entity = repository.findByDriverId(driverId).orElse(new BusEntity());
+    private static void touchBus(String busNumber) {
+        BusSessionStore.heartbeat(busNumber);
+    }
 
-                // If bus number changed, we might want to clean up old session store entry
-                String oldBusNumber = entity.getBusNumber();
-                if (oldBusNumber != null && !oldBusNumber.equals(busNumber)) {
-                    BusSessionStore.BUS_MAP.remove(oldBusNumber);
-                }
+    /**
+     * Apply a driver frame to its bus. Runs on the node owning the bus, for frames from
+     * a local session as well as frames forwarded by other nodes.
+     */
+    private void processFrame(JsonNode node) throws Exception {
+        // Log the action being processed
+        String action = node.has("action") ? node.get("action").asText() : "UNKNOWN";
+        String busNum = node.has("busNumber") ? node.get("busNumber").asText() : "N/A";
+        System.out.println("[DriverHandler] Processing action: " + action + " for bus: " + busNum);
+
+        // PING heartbeat — update lastHeartbeatTime
+        if (node.has("type") && "PING".equals(node.get("type").asText())) {
+            touchBus(node.has("busNumber") ? node.get("busNumber").asText() : null);
+            return;
+        }
 
-                entity.setDriverId(driverId);
-                if (busNumber != null)
-                    entity.setBusNumber(busNumber);
-                if (node.has("busStop"))
-                    entity.setBusStop(node.get("busStop").asText());
-                entity.setStatus("RUNNING");
-
-                // Extract driver info if provided
-                if (node.has("driverName"))
-                    entity.setDriverName(node.get("driverName").asText());
-                if (node.has("driverPhone"))
-                    entity.setDriverPhone(node.get("driverPhone").asText());
-                // Extract bus name if provided
-                if (node.has("busName"))
-                    entity.setBusName(node.get("busName").asText());
-
-                entity = repository.save(entity);
-
-                BusData busData = new BusData(
-                        entity.getId(),
-                        entity.getBusNumber(),
-                        entity.getDriverId(),
-                        entity.getBusName(),
-                        entity.getBusStop(),
-                        entity.getLatitude(),
-                        entity.getLongitude(),
-                        "RUNNING",
-                        entity.getDriverName(),
-                        entity.getDriverPhone());
-
-                if (entity.getBusNumber() != null) {
-                    BusSessionStore.BUS_MAP.put(entity.getBusNumber(), busData);
-                    busData.setLastHeartbeatTime(System.currentTimeMillis());
-                    System.out.println("[DriverHandler] Bus added to memory: " + entity.getBusNumber() + " (ID: "
-                            + entity.getId() + ")");
-                }
+        // Check for driverId, if not present try to extract from session or handle
+        // error
+        Long driverId = null;
+        if (node.has("driverId")) {
+            driverId = node.get("driverId").asLong();
+        }
 
-                userHandler.broadcastUpdate();
-                userHandler.broadcastStartToStudents(busNumber, driverId, entity.getBusName(), entity.getDriverName(), entity.getDriverPhone(), entity.getBusStop());
-                broadcastStartToAdmins(busNumber, driverId, entity.getBusName(), entity.getDriverName(), entity.getDriverPhone(), entity.getBusStop());
-                return;
-            }
+        String busNumber = null;
+        if (node.has("busNumber")) {
+            busNumber = node.get("busNumber").asText();
+        }
 
-            // For other actions, we need busNumber to identify the bus in session store
-            if (busNumber == null) {
-                System.err.println("[DriverHandler] Error: busNumber missing in payload");
+        if (node.has("action") && "START".equals(node.get("action").asText())) {
+            if (driverId == null) {
+                System.err.println("[DriverHandler] Error: driverId missing in START payload");
                 return;
             }
 
-            if (node.has("action") && "STOP".equals(node.get("action").asText())) {
-                System.out.println("[DriverHandler] Processing STOP action for bus: " + busNumber);
-                BusData bus = BusSessionStore.BUS_MAP.get(busNumber);
-                if (bus != null) {
-                    bus.setStatus("INACTIVE");
-                }
-                repository.findByBusNumber(busNumber).ifPresent(entity -> {
-                    entity.setStatus("INACTIVE");
-                    repository.save(entity);
-                });
-                userHandler.broadcastUpdate();
-                userHandler.broadcastStopToStudents(busNumber);
-                broadcastStopToAdmins(busNumber);
-                return;
+            System.out.println("[DriverHandler] Processing START action for driver: " + driverId);
+
+            // Find existing bus for this driver or create new
+            BusEntity entity = repository.findByDriverId(driverId).orElse(new BusEntity());
+
+            // If bus number changed, we might want to clean up old session store entry
+            String oldBusNumber = entity.getBusNumber();
+            if (oldBusNumber != null && !oldBusNumber.equals(busNumber)) {
+                BusSessionStore.remove(oldBusNumber);
             }
 
-            if (node.has("action") && "GPS_ERROR".equals(node.get("action").asText())) {
-                System.out.println("[DriverHandler] Processing GPS_ERROR action for bus: " + busNumber);
-                BusData bus = BusSessionStore.BUS_MAP.get(busNumber);
-                if (bus != null) {
-                    bus.setStatus("INACTIVE");
-                }
-                repository.findByBusNumber(busNumber).ifPresent(entity -> {
-                    entity.setStatus("INACTIVE");
-                    repository.save(entity);
-                });
-                userHandler.broadcastUpdate();
-                broadcastToAdmins();
-                return;
+            entity.setDriverId(driverId);
+            if (busNumber != null)
+                entity.setBusNumber(busNumber);
+            if (node.has("busStop"))
+                entity.setBusStop(node.get("busStop").asText());
+            entity.setStatus("RUNNING");
+
+            // Extract driver info if provided
+            if (node.has("driverName"))
+                entity.setDriverName(node.get("driverName").asText());
+            if (node.has("driverPhone"))
+                entity.setDriverPhone(node.get("driverPhone").asText());
+            // Extract bus name if provided
+            if (node.has("busName"))
+                entity.setBusName(node.get("busName").asText());
+
+            entity = repository.save(entity);
+
+            BusData busData = new BusData(
+                    entity.getId(),
+                    entity.getBusNumber(),
+                    entity.getDriverId(),
+                    entity.getBusName(),
+                    entity.getBusStop(),
+                    entity.getLatitude(),
+                    entity.getLongitude(),
+                    "RUNNING",
+                    entity.getDriverName(),
+                    entity.getDriverPhone());
+
+            if (entity.getBusNumber() != null) {
+                busData.setLastHeartbeatTime(System.currentTimeMillis());
+                BusSessionStore.put(busData);
+                System.out.println("[DriverHandler] Bus added to memory: " + entity.getBusNumber() + " (ID: "
+                        + entity.getId() + ")");
             }
 
-            // Store busNumber in session for disconnection handling
-            if (busNumber != null) {
-                session.getAttributes().put("BUS_NUMBER", busNumber);
+            userHandler.broadcastUpdate();
+            userHandler.broadcastStartToStudents(busNumber, driverId, entity.getBusName(), entity.getDriverName(), entity.getDriverPhone(), entity.getBusStop());
+            broadcastStartToAdmins(busNumber, driverId, entity.getBusName(), entity.getDriverName(), entity.getDriverPhone(), entity.getBusStop());
+            return;
+        }
+
+        // For other actions, we need busNumber to identify the bus in session store
+        if (busNumber == null) {
+            System.err.println("[DriverHandler] Error: busNumber missing in payload");
+            return;
+        }
+
+        if (node.has("action") && "STOP".equals(node.get("action").asText())) {
+            System.out.println("[DriverHandler] Processing STOP action for bus: " + busNumber);
+            BusData bus = BusSessionStore.BUS_MAP.get(busNumber);
+            if (bus != null) {
+                bus.setStatus("INACTIVE");
+                BusSessionStore.changed(bus);
             }
+            repository.updateStatusByBusNumber(busNumber, "INACTIVE");
+            userHandler.broadcastUpdate();
+            userHandler.broadcastStopToStudents(busNumber);
+            broadcastStopToAdmins(busNumber);
+            return;
+        }
 
-            if (node.has("action") && "GPS_ACTIVE".equals(node.get("action").asText())) {
-                System.out.println("[DriverHandler] Processing GPS_ACTIVE action for bus: " + busNumber);
-                BusData bus = BusSessionStore.BUS_MAP.get(busNumber);
-                if (bus != null) {
-                    bus.setStatus("RUNNING");
-                }
-                repository.findByBusNumber(busNumber).ifPresent(entity -> {
-                    entity.setStatus("RUNNING");
-                    repository.save(entity);
-                });
-                userHandler.broadcastUpdate();
-                broadcastToAdmins();
-                return;
+        if (node.has("action") && "GPS_ERROR".equals(node.get("action").asText())) {
+            System.out.println("[DriverHandler] Processing GPS_ERROR action for bus: " + busNumber);
+            BusData bus = BusSessionStore.BUS_MAP.get(busNumber);
+            if (bus != null) {
+                bus.setStatus("INACTIVE");
+                BusSessionStore.changed(bus);
             }
+            repository.updateStatusByBusNumber(busNumber, "INACTIVE");
+            userHandler.broadcastUpdate();
+            broadcastToAdmins();
+            return;
+        }
 
-            // Regular update
+        if (node.has("action") && "GPS_ACTIVE".equals(node.get("action").asText())) {
+            System.out.println("[DriverHandler] Processing GPS_ACTIVE action for bus: " + busNumber);
             BusData bus = BusSessionStore.BUS_MAP.get(busNumber);
             if (bus != null) {
-                double lat = node.get("latitude").asDouble();
-                double lng = node.get("longitude").asDouble();
-                System.out.println("[DriverHandler] Update for " + busNumber + ": " + lat + ", " + lng);
-                bus.setLatitude(lat);
-                bus.setLongitude(lng);
-                // Receiving GPS coordinates means the driver is actively tracking
                 bus.setStatus("RUNNING");
-                bus.setLastHeartbeatTime(System.currentTimeMillis());
-
-                // Update in memory first for speed
-                // Async update DB
-                repository.findByBusNumber(busNumber).ifPresent(e -> {
-                    e.setLatitude(bus.getLatitude());
-                    e.setLongitude(bus.getLongitude());
-                    e.setStatus("RUNNING");
-                    repository.save(e);
-                });
-                userHandler.broadcastUpdate();
-                broadcastToAdmins();
-            } else {
-                System.err.println("[DriverHandler] Warning: Update received for unknown bus in memory: " + busNumber);
+                BusSessionStore.changed(bus);
             }
-        } catch (Exception e) {
-            System.err.println("[DriverHandler] ERROR processing message: " + e.getMessage());
-            e.printStackTrace();
+            repository.updateStatusByBusNumber(busNumber, "RUNNING");
+            userHandler.broadcastUpdate();
+            broadcastToAdmins();
+            return;
+        }
+
+        // Regular update
+        BusData bus = BusSessionStore.BUS_MAP.get(busNumber);
+        if (bus != null) {
+            double lat = node.get("latitude").asDouble();
+            double lng = node.get("longitude").asDouble();
+            System.out.println("[DriverHandler] Update for " + busNumber + ": " + lat + ", " + lng);
+            bus.setLatitude(lat);
+            bus.setLongitude(lng);
+            // Receiving GPS coordinates means the driver is actively tracking
+            bus.setStatus("RUNNING");
+            bus.setLastHeartbeatTime(System.currentTimeMillis());
+            BusSessionStore.changed(bus);
+
+            // Update in memory first for speed, then the DB row in one statement
+            repository.updatePositionByBusNumber(busNumber, lat, lng, "RUNNING");
+            userHandler.broadcastUpdate();
+            broadcastToAdmins();
+        } else {
+            System.err.println("[DriverHandler] Warning: Update received for unknown bus in memory: " + busNumber);
         }
     }
 
@@ -317,38 +400,19 @@ public class DriverHandler extends TextWebSocketHandler {
     public void afterConnectionClosed(WebSocketSession session, org.springframework.web.socket.CloseStatus status)
             throws Exception {
         DRIVER_SESSIONS.remove(session);
+        WebSocketHeartbeat.unregister(session);
         String busNumber = (String) session.getAttributes().get("BUS_NUMBER");
         if (busNumber != null) {
             System.out.println("[DriverHandler] Connection closed for bus: " + busNumber
-                    + " — waiting " + (GRACE_PERIOD_MS / 1000) + "s grace period before marking INACTIVE");
+                    + " — waiting " + (HeartbeatMonitorService.GRACE_PERIOD_MS / 1000) + "s grace period before marking INACTIVE");
 
-            // Schedule a delayed check instead of immediately marking INACTIVE.
-            // If the driver reconnects within the grace period and sends a heartbeat,
-            // the lastHeartbeatTime will be fresh and we skip marking INACTIVE.
             final long disconnectTime = System.currentTimeMillis();
-            scheduler.schedule(() -> {
-                try {
-                    BusData bus = BusSessionStore.BUS_MAP.get(busNumber);
-                    if (bus != null && bus.getLastHeartbeatTime() <= disconnectTime) {
-                        // No heartbeat received since disconnect → mark INACTIVE
-                        bus.setStatus("INACTIVE");
-                        System.out.println("[DriverHandler] Grace period expired — marked INACTIVE: " + busNumber);
-
-                        repository.findByBusNumber(busNumber).ifPresent(entity -> {
-                            entity.setStatus("INACTIVE");
-                            repository.save(entity);
-                        });
-
-                        userHandler.broadcastUpdate();
-                        broadcastToAdmins();
-                    } else {
-                        System.out.println("[DriverHandler] Grace period: driver reconnected for bus " + busNumber
-                                + " — keeping RUNNING");
-                    }
-                } catch (Exception e) {
-                    System.err.println("[DriverHandler] Grace period check error: " + e.getMessage());
-                }
-            }, GRACE_PERIOD_MS, TimeUnit.MILLISECONDS);
+            if (clusterMembershipService.isOwner(busNumber)) {
+                heartbeatMonitorService.driverDisconnected(busNumber, disconnectTime);
+            } else {
+                clusterMembershipService.forwardToOwner(busNumber,
+                        BackplaneMessage.driverDisconnect(busNumber, disconnectTime));
+            }
         }
     }
 }
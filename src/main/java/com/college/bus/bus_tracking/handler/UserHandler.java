@@ -1,12 +1,16 @@
 package com.college.bus.bus_tracking.handler;
 
+import com.college.bus.bus_tracking.cluster.BackplaneMessage;
+import com.college.bus.bus_tracking.cluster.ClusterFanout;
 import com.college.bus.bus_tracking.model.BusData;
 import com.college.bus.bus_tracking.store.BusSessionStore;
 import com.college.bus.bus_tracking.websocket.AdminWebSocketHandler;
+import com.college.bus.bus_tracking.websocket.WebSocketHeartbeat;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PongMessage;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
@@ -26,28 +30,37 @@ public class UserHandler extends TextWebSocketHandler {
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
         SESSIONS.add(session);
+        WebSocketHeartbeat.register(session);
     }
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
         SESSIONS.remove(session);
+        WebSocketHeartbeat.unregister(session);
+    }
+
+    @Override
+    protected void handlePongMessage(WebSocketSession session, PongMessage message) {
+        WebSocketHeartbeat.touch(session);
     }
 
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
-        JsonNode node = mapper.readTree(message.getPayload());
+        String payload = message.getPayload();
+
+        // Legacy PING heartbeat — answered without parsing
+        if (WebSocketHeartbeat.isPing(payload)) {
+            WebSocketHeartbeat.touch(session);
+            WebSocketHeartbeat.sendPong(session);
+            return;
+        }
+
+        JsonNode node = mapper.readTree(payload);
         String type = node.path("type").asText("");
 
-        // Handle PING heartbeat — respond with PONG
         if ("PING".equals(type)) {
-            java.util.Map<String, Object> pong = new java.util.HashMap<>();
-            pong.put("type", "PONG");
-            pong.put("timestamp", System.currentTimeMillis());
-            synchronized (session) {
-                if (session.isOpen()) {
-                    session.sendMessage(new TextMessage(mapper.writeValueAsString(pong)));
-                }
-            }
+            WebSocketHeartbeat.touch(session);
+            WebSocketHeartbeat.sendPong(session);
             return;
         }
 
@@ -58,20 +71,47 @@ public class UserHandler extends TextWebSocketHandler {
         if ("ALL".equals(type)) {
             // Send all buses to client, even if offline or (0,0)
             result.addAll(BusSessionStore.BUS_MAP.values());
-        } else {
-            for (BusData bus : BusSessionStore.BUS_MAP.values()) {
-                if ("BUS_NUMBER".equals(type) && bus.getBusNumber().equals(value)) {
-                    result.add(bus);
-                }
-                if ("BUS_STOP".equals(type) && bus.getBusStop().equals(value)) {
-                    result.add(bus);
-                }
+        } else if ("BUS_NUMBER".equals(type)) {
+            BusData bus = BusSessionStore.BUS_MAP.get(value);
+            if (bus != null) {
+                result.add(bus);
             }
+        } else if ("BUS_STOP".equals(type)) {
+            result.addAll(BusSessionStore.findByBusStop(value));
         }
 
         session.sendMessage(new TextMessage(mapper.writeValueAsString(result)));
     }
 
+    /**
+     * Send a payload to the students connected to this node and to every other node.
+     */
+    private int broadcastToStudents(String payload) {
+        ClusterFanout.publish(BackplaneMessage.STUDENTS, payload);
+        return sendToLocalStudents(payload);
+    }
+
+    /**
+     * Send a payload to the students connected to this node only.
+     */
+    public static int sendToLocalStudents(String payload) {
+        TextMessage message = new TextMessage(payload);
+        int clientCount = 0;
+        for (WebSocketSession session : SESSIONS) {
+            if (session.isOpen()) {
+                synchronized (session) {
+                    try {
+                        session.sendMessage(message);
+                        clientCount++;
+                    } catch (Exception e) {
+                        System.err.println("[UserHandler] Error sending to student session: " + e.getMessage());
+                    }
+                }
+            }
+        }
+        return clientCount;
+    }
+
     public void broadcastUpdate() {
         try {
             // Send all buses to client for lists, map will ignore (0,0)
@@ -83,14 +123,7 @@ public class UserHandler extends TextWebSocketHandler {
             // Broadcast valid buses to user/student clients
             if (!validBuses.isEmpty()) {
                 String payload = mapper.writeValueAsString(validBuses);
-                TextMessage message = new TextMessage(payload);
-                int clientCount = 0;
-                for (WebSocketSession session : SESSIONS) {
-                    if (session.isOpen()) {
-                        session.sendMessage(message);
-                        clientCount++;
-                    }
-                }
+                int clientCount = broadcastToStudents(payload);
                 if (clientCount > 0) {
                     System.out.println(
                             "[UserHandler] Broadcasted " + validBuses.size() + " buses to " + clientCount
@@ -126,14 +159,7 @@ public class UserHandler extends TextWebSocketHandler {
             startMessage.put("timestamp", System.currentTimeMillis());
 
             String payload = mapper.writeValueAsString(startMessage);
-            TextMessage message = new TextMessage(payload);
-            int clientCount = 0;
-            for (WebSocketSession session : SESSIONS) {
-                if (session.isOpen()) {
-                    session.sendMessage(message);
-                    clientCount++;
-                }
-            }
+            int clientCount = broadcastToStudents(payload);
             if (clientCount > 0) {
                 System.out.println("[UserHandler] Broadcasted START to " + clientCount + " students for bus: " + busNumber);
             }
@@ -151,14 +177,7 @@ public class UserHandler extends TextWebSocketHandler {
             stopMessage.put("timestamp", System.currentTimeMillis());
 
             String payload = mapper.writeValueAsString(stopMessage);
-            TextMessage message = new TextMessage(payload);
-            int clientCount = 0;
-            for (WebSocketSession session : SESSIONS) {
-                if (session.isOpen()) {
-                    session.sendMessage(message);
-                    clientCount++;
-                }
-            }
+            int clientCount = broadcastToStudents(payload);
             if (clientCount > 0) {
                 System.out.println("[UserHandler] Broadcasted STOP to " + clientCount + " students for bus: " + busNumber);
             }
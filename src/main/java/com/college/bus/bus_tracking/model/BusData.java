@@ -13,6 +13,8 @@ public class BusData {
     private String driverName;
     private String driverPhone;
     private long lastHeartbeatTime;
+    // Assigned by BusSessionStore on every mutation; replicas keep the newest version
+    private long version;
 
     public BusData() {
     }
@@ -120,4 +122,12 @@ public class BusData {
     public void setLastHeartbeatTime(long lastHeartbeatTime) {
         this.lastHeartbeatTime = lastHeartbeatTime;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
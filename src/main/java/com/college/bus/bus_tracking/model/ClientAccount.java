@@ -0,0 +1,23 @@
+package com.college.bus.bus_tracking.model;
+
+/**
+ * Projection of a client row loaded for login and profile reads: the profile columns
+ * plus the password hash, without the reset token columns. Only {@link #profile()} is
+ * ever sent to clients.
+ */
+public record ClientAccount(
+        Long id,
+        String username,
+        String email,
+        String name,
+        String phoneNumber,
+        Boolean phoneVerified,
+        String profilePictureHash,
+        String savedBusStop,
+        String password) {
+
+    public ClientProfile profile() {
+        return new ClientProfile(id, username, email, name, phoneNumber, phoneVerified, profilePictureHash,
+                savedBusStop);
+    }
+}
@@ -0,0 +1,24 @@
+package com.college.bus.bus_tracking.model;
+
+import com.college.bus.bus_tracking.entity.Client;
+
+/**
+ * Client fields returned by the auth and profile endpoints. Never carries the password
+ * hash or reset token.
+ */
+public record ClientProfile(
+        Long id,
+        String username,
+        String email,
+        String name,
+        String phoneNumber,
+        Boolean phoneVerified,
+        String profilePictureHash,
+        String savedBusStop) {
+
+    public static ClientProfile of(Client client) {
+        return new ClientProfile(client.getId(), client.getUsername(), client.getEmail(), client.getName(),
+                client.getPhoneNumber(), client.getPhoneVerified(), client.getProfilePictureHash(),
+                client.getSavedBusStop());
+    }
+}
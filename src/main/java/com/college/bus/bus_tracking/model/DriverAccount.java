@@ -0,0 +1,21 @@
+package com.college.bus.bus_tracking.model;
+
+/**
+ * Projection of a driver row loaded for login and profile reads: the profile columns
+ * plus the password hash, without the reset token columns. Only {@link #profile()} is
+ * ever sent to clients.
+ */
+public record DriverAccount(
+        Long id,
+        String username,
+        String email,
+        String name,
+        String phone,
+        String busNumber,
+        String busName,
+        String password) {
+
+    public DriverProfile profile() {
+        return new DriverProfile(id, username, email, name, phone, busNumber, busName);
+    }
+}
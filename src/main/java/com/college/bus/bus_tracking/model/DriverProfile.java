@@ -0,0 +1,22 @@
+package com.college.bus.bus_tracking.model;
+
+import com.college.bus.bus_tracking.entity.Driver;
+
+/**
+ * Driver fields returned by the auth and profile endpoints. Never carries the password
+ * hash or reset token.
+ */
+public record DriverProfile(
+        Long id,
+        String username,
+        String email,
+        String name,
+        String phone,
+        String busNumber,
+        String busName) {
+
+    public static DriverProfile of(Driver driver) {
+        return new DriverProfile(driver.getId(), driver.getUsername(), driver.getEmail(), driver.getName(),
+                driver.getPhone(), driver.getBusNumber(), driver.getBusName());
+    }
+}
@@ -0,0 +1,29 @@
+package com.college.bus.bus_tracking.model;
+
+/**
+ * A single recorded GPS fix of a bus.
+ */
+public class TrackPoint {
+
+    private final double latitude;
+    private final double longitude;
+    private final long timestamp;
+
+    public TrackPoint(double latitude, double longitude, long timestamp) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.timestamp = timestamp;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
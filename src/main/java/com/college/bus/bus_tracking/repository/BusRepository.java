@@ -1,9 +1,14 @@
 package com.college.bus.bus_tracking.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.college.bus.bus_tracking.entity.BusEntity;
 
@@ -15,4 +20,23 @@ public interface BusRepository extends JpaRepository<BusEntity, Long> {
     Optional<BusEntity> findByBusNumber(String busNumber);
 
     List<BusEntity> findByStatus(String status);
+
+    // Single-statement updates for the hot live-tracking paths (no load + dirty check)
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE BusEntity b SET b.status = :status WHERE b.busNumber = :busNumber")
+    int updateStatusByBusNumber(@Param("busNumber") String busNumber, @Param("status") String status);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE BusEntity b SET b.status = :status WHERE b.busNumber IN :busNumbers")
+    int updateStatusByBusNumberIn(@Param("busNumbers") Collection<String> busNumbers, @Param("status") String status);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE BusEntity b SET b.latitude = :latitude, b.longitude = :longitude, b.status = :status "
+            + "WHERE b.busNumber = :busNumber")
+    int updatePositionByBusNumber(@Param("busNumber") String busNumber, @Param("latitude") double latitude,
+            @Param("longitude") double longitude, @Param("status") String status);
 }
@@ -1,6 +1,7 @@
 package com.college.bus.bus_tracking.repository;
 
 import com.college.bus.bus_tracking.entity.Client;
+import com.college.bus.bus_tracking.model.ClientAccount;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import java.util.Optional;
@@ -10,5 +11,10 @@ public interface ClientRepository extends JpaRepository<Client, Long> {
 
     Optional<Client> findByUsername(String username);
 
-    Optional<Client> findByResetToken(String resetToken);
+    // Login/profile reads: select only the ClientAccount columns
+    Optional<ClientAccount> findAccountById(Long id);
+
+    Optional<ClientAccount> findAccountByUsername(String username);
+
+    Optional<ClientAccount> findAccountByEmail(String email);
 }
@@ -1,6 +1,7 @@
 package com.college.bus.bus_tracking.repository;
 
 import com.college.bus.bus_tracking.entity.Driver;
+import com.college.bus.bus_tracking.model.DriverAccount;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import java.util.Optional;
@@ -10,5 +11,10 @@ public interface DriverRepository extends JpaRepository<Driver, Long> {
 
     Optional<Driver> findByEmail(String email);
 
-    Optional<Driver> findByResetToken(String resetToken);
+    // Login/profile reads: select only the DriverAccount columns
+    Optional<DriverAccount> findAccountById(Long id);
+
+    Optional<DriverAccount> findAccountByUsername(String username);
+
+    Optional<DriverAccount> findAccountByEmail(String email);
 }
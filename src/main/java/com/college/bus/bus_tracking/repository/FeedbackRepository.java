@@ -1,13 +1,38 @@
 package com.college.bus.bus_tracking.repository;
 
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.college.bus.bus_tracking.entity.Feedback;
 
+import jakarta.persistence.LockModeType;
+
 public interface FeedbackRepository extends JpaRepository<Feedback, Long> {
     List<Feedback> findAllByOrderByCreatedAtDesc();
     List<Feedback> findByBusNumberOrderByCreatedAtDesc(String busNumber);
     List<Feedback> findByStatusOrderByCreatedAtDesc(String status);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Feedback f SET f.status = :status WHERE f.id = :id")
+    int updateStatusById(@Param("id") Long id, @Param("status") String status);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT f FROM Feedback f WHERE f.id = :id")
+    Optional<Feedback> findForUpdate(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE Feedback f SET f.status = 'resolved' WHERE f.id = :id AND f.status <> 'resolved'")
+    int markResolved(@Param("id") Long id);
+
+    @Modifying
+    @Query("DELETE FROM Feedback f WHERE f.id = :id")
+    int removeById(@Param("id") Long id);
 }
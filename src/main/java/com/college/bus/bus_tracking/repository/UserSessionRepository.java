@@ -2,7 +2,11 @@ package com.college.bus.bus_tracking.repository;
 
 import com.college.bus.bus_tracking.entity.UserSession;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 import java.util.List;
@@ -17,4 +21,10 @@ public interface UserSessionRepository extends JpaRepository<UserSession, Long>
     void deleteByUserIdAndUserType(Long userId, String userType);
 
     void deleteAllByUserId(Long userId);
+
+    // Startup: sessions idle past the TTL are dropped rather than restored
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM UserSession s WHERE s.lastActivityTime < :cutoff")
+    int deleteIdleSince(@Param("cutoff") Long cutoff);
 }
@@ -0,0 +1,256 @@
+package com.college.bus.bus_tracking.service;
+
+import com.college.bus.bus_tracking.cluster.Backplane;
+import com.college.bus.bus_tracking.cluster.BackplaneMessage;
+import com.college.bus.bus_tracking.entity.Client;
+import com.college.bus.bus_tracking.entity.Driver;
+import com.college.bus.bus_tracking.model.ClientAccount;
+import com.college.bus.bus_tracking.model.DriverAccount;
+import com.college.bus.bus_tracking.repository.ClientRepository;
+import com.college.bus.bus_tracking.repository.DriverRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Bounded near-cache of driver and client accounts for the login and profile reads.
+ * Accounts are loaded as {@link DriverAccount} / {@link ClientAccount} projections and
+ * cached under their id, username and email, and lookups that found
+ * nothing are cached too, so an email-then-username login costs no queries once warm.
+ * Concurrent misses on the same key share a single query. An account found by one key is
+ * copied to its other keys unless an invalidation ran while it was being looked up.
+ *
+ * Every write to an account must go through {@link #driverChanged} / {@link #clientChanged}
+ * (or the deleted variants), which drop its keys locally and on the other cluster nodes.
+ */
+@Service
+public class AccountCacheService {
+
+    public static final String DRIVER = "DRIVER";
+    public static final String CLIENT = "CLIENT";
+
+    private static final String KEY_SEPARATOR = "\n";
+
+    private final DriverRepository driverRepository;
+    private final ClientRepository clientRepository;
+    private final Backplane backplane;
+
+    private final Cache<String, Optional<DriverAccount>> drivers;
+    private final Cache<String, Optional<ClientAccount>> clients;
+    // Bumped before every invalidation, so a lookup can tell that its result may be stale
+    private final AtomicLong driverGeneration = new AtomicLong();
+    private final AtomicLong clientGeneration = new AtomicLong();
+
+    public AccountCacheService(DriverRepository driverRepository, ClientRepository clientRepository,
+            Backplane backplane,
+            @Value("${account.cache.max-size:30000}") long maxSize,
+            @Value("${account.cache.ttl-seconds:600}") long ttlSeconds) {
+        this.driverRepository = driverRepository;
+        this.clientRepository = clientRepository;
+        this.backplane = backplane;
+        this.drivers = newCache(maxSize, ttlSeconds);
+        this.clients = newCache(maxSize, ttlSeconds);
+    }
+
+    private static <T> Cache<String, Optional<T>> newCache(long maxSize, long ttlSeconds) {
+        // The TTL bounds staleness from writes made outside the application
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+    }
+
+    @PostConstruct
+    public void start() {
+        backplane.subscribe(message -> {
+            if (message.getType() == BackplaneMessage.Type.ACCOUNT_CHANGED && message.getPayload() != null) {
+                List<String> keys = List.of(message.getPayload().split(KEY_SEPARATOR));
+                if (DRIVER.equals(message.getChannel())) {
+                    driverGeneration.incrementAndGet();
+                    drivers.invalidateAll(keys);
+                } else if (CLIENT.equals(message.getChannel())) {
+                    clientGeneration.incrementAndGet();
+                    clients.invalidateAll(keys);
+                }
+            }
+        });
+    }
+
+    // ---- Drivers ----
+
+    public Optional<DriverAccount> findDriverById(Long id) {
+        return id == null ? Optional.empty()
+                : load(drivers, driverGeneration, idKey(id), k -> driverRepository.findAccountById(id),
+                        AccountCacheService::driverKeys);
+    }
+
+    public Optional<DriverAccount> findDriverByUsername(String username) {
+        return username == null ? Optional.empty()
+                : load(drivers, driverGeneration, usernameKey(username), k -> driverRepository.findAccountByUsername(username),
+                        AccountCacheService::driverKeys);
+    }
+
+    public Optional<DriverAccount> findDriverByEmail(String email) {
+        return email == null ? Optional.empty()
+                : load(drivers, driverGeneration, emailKey(email), k -> driverRepository.findAccountByEmail(email),
+                        AccountCacheService::driverKeys);
+    }
+
+    /**
+     * Drop a driver after it was saved (registered, profile, password or token change).
+     */
+    public void driverChanged(Driver driver) {
+        invalidate(drivers, driverGeneration, DRIVER, driver.getId(), keys(driver.getId(), driver.getUsername(), driver.getEmail()));
+    }
+
+    public void driverDeleted(Long id) {
+        invalidate(drivers, driverGeneration, DRIVER, id, List.of());
+    }
+
+    // ---- Clients ----
+
+    public Optional<ClientAccount> findClientById(Long id) {
+        return id == null ? Optional.empty()
+                : load(clients, clientGeneration, idKey(id), k -> clientRepository.findAccountById(id),
+                        AccountCacheService::clientKeys);
+    }
+
+    public Optional<ClientAccount> findClientByUsername(String username) {
+        return username == null ? Optional.empty()
+                : load(clients, clientGeneration, usernameKey(username), k -> clientRepository.findAccountByUsername(username),
+                        AccountCacheService::clientKeys);
+    }
+
+    public Optional<ClientAccount> findClientByEmail(String email) {
+        return email == null ? Optional.empty()
+                : load(clients, clientGeneration, emailKey(email), k -> clientRepository.findAccountByEmail(email),
+                        AccountCacheService::clientKeys);
+    }
+
+    /**
+     * Drop a client after it was saved (registered, profile, password or token change).
+     */
+    public void clientChanged(Client client) {
+        invalidate(clients, clientGeneration, CLIENT, client.getId(), keys(client.getId(), client.getUsername(), client.getEmail()));
+    }
+
+    public void clientDeleted(Long id) {
+        clientChanged(id);
+    }
+
+    /**
+     * Drop a client updated by a bulk or SQL write, when only its id is at hand.
+     */
+    public void clientChanged(Long id) {
+        invalidate(clients, clientGeneration, CLIENT, id, List.of());
+    }
+
+    /**
+     * Hit/miss counters of both caches.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("drivers", statsOf(drivers));
+        stats.put("clients", statsOf(clients));
+        return stats;
+    }
+
+    private static Map<String, Object> statsOf(Cache<String, ?> cache) {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new HashMap<>();
+        result.put("size", cache.estimatedSize());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        result.put("averageLoadMillis", stats.averageLoadPenalty() / 1_000_000.0);
+        return result;
+    }
+
+    private static <T> Optional<T> load(Cache<String, Optional<T>> cache, AtomicLong generation, String key,
+            Function<String, Optional<T>> loader, Function<T, List<String>> keysOf) {
+        long seen = generation.get();
+        Optional<T> result = cache.get(key, loader);
+        if (result.isPresent()) {
+            // Found by one key: make the entity reachable through its other keys as well
+            List<String> copied = new ArrayList<>(2);
+            for (String other : keysOf.apply(result.get())) {
+                if (!other.equals(key) && cache.asMap().putIfAbsent(other, result) == null) {
+                    copied.add(other);
+                }
+            }
+            // The result may predate a write invalidated meanwhile; the invalidation may
+            // have missed the copies, so take them back
+            if (generation.get() != seen) {
+                for (String other : copied) {
+                    cache.asMap().remove(other, result);
+                }
+            }
+        }
+        return result;
+    }
+
+    private <T> void invalidate(Cache<String, Optional<T>> cache, AtomicLong generation, String type, Long id,
+            List<String> keys) {
+        List<String> all = new ArrayList<>(keys);
+        if (id != null) {
+            all.add(idKey(id));
+            // Keys of the cached copy cover a username or email that just changed
+            Optional<T> cached = cache.asMap().get(idKey(id)); // not counted in the stats
+            if (cached != null && cached.isPresent()) {
+                all.addAll(DRIVER.equals(type) ? driverKeys((DriverAccount) cached.get())
+                        : clientKeys((ClientAccount) cached.get()));
+            }
+        }
+        generation.incrementAndGet();
+        cache.invalidateAll(all);
+        backplane.publish(BackplaneMessage.accountChanged(type, String.join(KEY_SEPARATOR, all)));
+    }
+
+    private static List<String> driverKeys(DriverAccount driver) {
+        return keys(driver.id(), driver.username(), driver.email());
+    }
+
+    private static List<String> clientKeys(ClientAccount client) {
+        return keys(client.id(), client.username(), client.email());
+    }
+
+    private static List<String> keys(Long id, String username, String email) {
+        List<String> keys = new ArrayList<>(3);
+        if (id != null) {
+            keys.add(idKey(id));
+        }
+        if (username != null) {
+            keys.add(usernameKey(username));
+        }
+        if (email != null) {
+            keys.add(emailKey(email));
+        }
+        return keys;
+    }
+
+    private static String idKey(Long id) {
+        return "id:" + id;
+    }
+
+    private static String usernameKey(String username) {
+        return "username:" + username;
+    }
+
+    private static String emailKey(String email) {
+        return "email:" + email;
+    }
+}
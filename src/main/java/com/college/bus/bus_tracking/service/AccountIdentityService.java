@@ -0,0 +1,188 @@
+package com.college.bus.bus_tracking.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Resolves login identifiers and password reset tokens to accounts through the
+ * account_identity table, keyed by (lookup_key, kind, user_type): every lookup is a
+ * single primary key probe whichever table the account lives in. Reset tokens are
+ * stored as their SHA-256 only and are single use; expired ones are purged on a timer.
+ *
+ * Account writes must keep the table in step through {@link #accountSaved} and
+ * {@link #accountDeleted}.
+ */
+@Service
+public class AccountIdentityService {
+
+    public static final String EMAIL = "EMAIL";
+    public static final String USERNAME = "USERNAME";
+    public static final String RESET = "RESET";
+
+    public static final long RESET_TOKEN_TTL_MS = 3_600_000; // 1 hour
+
+    private static final String SELECT_SQL = "SELECT kind, user_type, user_id, expires_at FROM account_identity ";
+    private static final String INSERT_SQL = "INSERT INTO account_identity "
+            + "(lookup_key, kind, user_type, user_id, expires_at) VALUES (?, ?, ?, ?, ?)";
+
+    private static final RowMapper<Identity> ROW_MAPPER = (rs, rowNum) -> new Identity(
+            rs.getString("kind"), rs.getString("user_type"), rs.getLong("user_id"),
+            (Long) rs.getObject("expires_at", Long.class));
+
+    // Clients before drivers, and an email match before a username match
+    private static final Comparator<Identity> LOGIN_ORDER = Comparator
+            .comparing((Identity i) -> !AccountCacheService.CLIENT.equals(i.userType()))
+            .thenComparing(i -> !EMAIL.equals(i.kind()));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    public AccountIdentityService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * An account found by one of its identifiers; expiresAt is set for reset tokens.
+     */
+    public record Identity(String kind, String userType, Long userId, Long expiresAt) {
+
+        public boolean isExpired() {
+            return expiresAt != null && System.currentTimeMillis() > expiresAt;
+        }
+    }
+
+    /**
+     * The account an email or username belongs to, a client taking precedence over a
+     * driver with the same identifier. Auth lookups are not read-only transactions, so
+     * they run on the primary and see accounts created moments ago.
+     */
+    public Optional<Identity> findByLogin(String identifier) {
+        if (identifier == null) {
+            return Optional.empty();
+        }
+        return jdbcTemplate.query(SELECT_SQL + "WHERE lookup_key = ? AND kind IN (?, ?)", ROW_MAPPER,
+                identifier, EMAIL, USERNAME).stream().min(LOGIN_ORDER);
+    }
+
+    /**
+     * Id of the account of the given type with this email or username. Runs on the
+     * primary, like {@link #findByLogin}.
+     */
+    public Optional<Long> findUserId(String userType, String identifier) {
+        if (identifier == null) {
+            return Optional.empty();
+        }
+        return jdbcTemplate.query(SELECT_SQL + "WHERE lookup_key = ? AND kind IN (?, ?) AND user_type = ?",
+                ROW_MAPPER, identifier, EMAIL, USERNAME, userType).stream()
+                .min(LOGIN_ORDER)
+                .map(Identity::userId);
+    }
+
+    /**
+     * Id of the account of the given type with this username; emails do not match.
+     */
+    public Optional<Long> findUserIdByUsername(String userType, String username) {
+        if (username == null) {
+            return Optional.empty();
+        }
+        return jdbcTemplate.query(SELECT_SQL + "WHERE lookup_key = ? AND kind = ? AND user_type = ?", ROW_MAPPER,
+                username, USERNAME, userType).stream()
+                .findFirst()
+                .map(Identity::userId);
+    }
+
+    /**
+     * Replace the login identifiers of a saved account.
+     */
+    @Transactional
+    public void accountSaved(String userType, Long userId, String username, String email) {
+        jdbcTemplate.update("DELETE FROM account_identity WHERE user_type = ? AND user_id = ? AND kind <> ?",
+                userType, userId, RESET);
+        if (username != null) {
+            jdbcTemplate.update(INSERT_SQL, username, USERNAME, userType, userId, null);
+        }
+        if (email != null) {
+            jdbcTemplate.update(INSERT_SQL, email, EMAIL, userType, userId, null);
+        }
+    }
+
+    public void accountDeleted(String userType, Long userId) {
+        jdbcTemplate.update("DELETE FROM account_identity WHERE user_type = ? AND user_id = ?", userType, userId);
+    }
+
+    /**
+     * Issue a reset token for the account, replacing any it already had. Only the hash is
+     * stored; the returned token is the one to send to the user.
+     */
+    @Transactional
+    public String issueResetToken(String userType, Long userId) {
+        byte[] bytes = new byte[32];
+        secureRandom.nextBytes(bytes);
+        String token = HexFormat.of().formatHex(bytes);
+
+        jdbcTemplate.update("DELETE FROM account_identity WHERE user_type = ? AND user_id = ? AND kind = ?",
+                userType, userId, RESET);
+        jdbcTemplate.update(INSERT_SQL, hash(token), RESET, userType, userId,
+                System.currentTimeMillis() + RESET_TOKEN_TTL_MS);
+        return token;
+    }
+
+    /**
+     * The account a reset token belongs to, without using the token up. Like
+     * {@link #consumeResetToken}, an expired token is returned too.
+     */
+    public Optional<Identity> findResetToken(String token) {
+        return jdbcTemplate.query(SELECT_SQL + "WHERE lookup_key = ? AND kind = ?", ROW_MAPPER, hash(token), RESET)
+                .stream().findFirst();
+    }
+
+    /**
+     * Take a reset token out of the table. The identity is returned even when it has
+     * expired, so callers can tell an expired token from an unknown one; a token that
+     * was already used, or is being used concurrently, gives empty.
+     */
+    @Transactional
+    public Optional<Identity> consumeResetToken(String token) {
+        String hash = hash(token);
+        Optional<Identity> identity = findResetToken(token);
+        if (identity.isPresent()
+                && jdbcTemplate.update("DELETE FROM account_identity WHERE lookup_key = ? AND kind = ? "
+                        + "AND user_type = ?", hash, RESET, identity.get().userType()) == 0) {
+            return Optional.empty();
+        }
+        return identity;
+    }
+
+    /**
+     * Drop reset tokens that expired without being used.
+     */
+    @Scheduled(fixedRate = 600_000)
+    public void purgeExpiredTokens() {
+        int purged = jdbcTemplate.update("DELETE FROM account_identity WHERE kind = ? AND expires_at < ?",
+                RESET, System.currentTimeMillis());
+        if (purged > 0) {
+            System.out.println("[AccountIdentity] Purged " + purged + " expired reset tokens");
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.college.bus.bus_tracking.service;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,8 +14,9 @@ import com.college.bus.bus_tracking.store.BusSessionStore;
 import jakarta.annotation.PostConstruct;
 
 /**
- * Service responsible for restoring active buses from database to memory after server restart.
- * This ensures that buses with status "RUNNING" are automatically restored without driver intervention.
+ * Service responsible for restoring active buses to memory after server restart.
+ * The live store is rebuilt from the local checkpoint + journal when available; otherwise
+ * buses with status "RUNNING" are restored from the database without driver intervention.
  */
 @Service
 public class BusRestorationService {
@@ -22,24 +24,35 @@ public class BusRestorationService {
     @Autowired
     private BusRepository busRepository;
 
+    @Autowired
+    private FleetCheckpointService fleetCheckpointService;
+
     /**
-     * Restores all active buses from database to memory on application startup.
+     * Restores the live store on application startup, then starts journaling.
      * This method is automatically called after dependency injection is complete.
      */
     @PostConstruct
+    public void restore() {
+        if (!fleetCheckpointService.restore()) {
+            restoreActiveBuses();
+        }
+        fleetCheckpointService.start();
+    }
+
+    /**
+     * Restores all active buses from database to memory.
+     */
     public void restoreActiveBuses() {
         try {
             System.out.println("[BusRestorationService] Starting bus restoration process...");
             
-            // Clear any existing entries to avoid duplicates
-            BusSessionStore.BUS_MAP.clear();
-            
             // Query database for all buses with status = "RUNNING"
             List<BusEntity> runningBuses = busRepository.findByStatus("RUNNING");
             
             System.out.println("[BusRestorationService] Found " + runningBuses.size() + " running buses in database");
             
             int restoredCount = 0;
+            List<BusData> restored = new ArrayList<>();
             
             // Restore each running bus to BUS_MAP
             for (BusEntity entity : runningBuses) {
@@ -64,8 +77,7 @@ public class BusRestorationService {
                         entity.getDriverPhone()
                     );
                     
-                    // Add to memory store (BUS_MAP)
-                    BusSessionStore.BUS_MAP.put(entity.getBusNumber(), busData);
+                    restored.add(busData);
                     restoredCount++;
                     
                     System.out.println("[BusRestorationService] Restored bus: " + entity.getBusNumber() + 
@@ -78,6 +90,9 @@ public class BusRestorationService {
                 }
             }
             
+            // Replace the memory store (BUS_MAP) content, dropping any existing entries
+            BusSessionStore.restore(restored);
+
             System.out.println("[BusRestorationService] Bus restoration completed successfully!");
             System.out.println("[BusRestorationService] Total buses restored: " + restoredCount);
             System.out.println("[BusRestorationService] Current BUS_MAP size: " + BusSessionStore.BUS_MAP.size());
@@ -1,11 +1,15 @@
 package com.college.bus.bus_tracking.service;
 
 import com.college.bus.bus_tracking.entity.Client;
+import com.college.bus.bus_tracking.model.ClientAccount;
+import com.college.bus.bus_tracking.model.ClientProfile;
 import com.college.bus.bus_tracking.repository.ClientRepository;
 import com.college.bus.bus_tracking.store.SessionStore;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Optional;
 
 @Service
@@ -15,7 +19,16 @@ public class ClientService {
     private ClientRepository clientRepository;
 
     @Autowired
-    private org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder passwordEncoder;
+    private AccountCacheService accountCacheService;
+
+    @Autowired
+    private AccountIdentityService accountIdentityService;
+
+    @Autowired
+    private ProfilePictureService profilePictureService;
+
+    @Autowired
+    private PasswordHashingService passwordHashingService;
 
     private static final String[] ALLOWED_DOMAINS = { "@sairam.edu.in", "@sairamtap.edu.in" };
 
@@ -26,68 +39,78 @@ public class ClientService {
         }
 
         // Check if username already exists
-        Optional<Client> existingUsername = clientRepository.findByUsername(client.getUsername());
+        Optional<ClientAccount> existingUsername = accountCacheService.findClientByUsername(client.getUsername());
         if (existingUsername.isPresent()) {
             throw new RuntimeException("Username already taken");
         }
 
         // Check if email already exists
-        Optional<Client> existingEmail = clientRepository.findByEmail(client.getEmail());
+        Optional<ClientAccount> existingEmail = accountCacheService.findClientByEmail(client.getEmail());
         if (existingEmail.isPresent()) {
             throw new RuntimeException("Email already registered");
         }
 
         // Hash password before saving
-        client.setPassword(passwordEncoder.encode(client.getPassword()));
+        client.setPassword(passwordHashingService.encode(client.getPassword()));
 
-        return clientRepository.save(client);
+        Client saved = clientRepository.save(client);
+        accountIdentityService.accountSaved(AccountCacheService.CLIENT, saved.getId(), saved.getUsername(),
+                saved.getEmail());
+        accountCacheService.clientChanged(saved);
+        return saved;
     }
 
-    public Client loginClient(String identifier, String password) {
-        Optional<Client> client = clientRepository.findByEmail(identifier);
-
-        if (client.isEmpty()) {
-            client = clientRepository.findByUsername(identifier);
-        }
+    public ClientProfile loginClient(String identifier, String password) {
+        // One account_identity probe for the email or username, then the account by id
+        Optional<ClientAccount> client = accountIdentityService.findUserId(AccountCacheService.CLIENT, identifier)
+                .flatMap(accountCacheService::findClientById);
 
         if (client.isEmpty()) {
             throw new RuntimeException("Invalid username/email or password");
         }
 
-        if (client.get().getPassword().equals(password)) {
-            // Valid login - check for existing session
-            return client.get();
+        // BCrypt hash, or plaintext stored before passwords were hashed
+        if (!passwordHashingService.matches(password, client.get().password())) {
+            throw new RuntimeException("Invalid email/username or password");
         }
 
-        // Check if it's a BCrypt hash
-        if (passwordEncoder.matches(password, client.get().getPassword())) {
-            // Valid login - check for existing session
-            return client.get();
+        if (!PasswordHashingService.isHashed(client.get().password())) {
+            rehashLegacyPassword(client.get().id(), password);
         }
-
-        throw new RuntimeException("Invalid email/username or password");
+        // Valid login - check for existing session
+        return client.get().profile();
     }
 
-    public void checkAndCreateSession(Long userId, String userType, String deviceId, boolean force) {
-        // Check if user already has an active session in memory
-        SessionStore.SessionData existingSession = SessionStore.getSession(userId, userType);
-
-        if (existingSession != null) {
-            // If force is requested, remove the old session
-            if (force) {
-                SessionStore.removeSession(userId, userType);
-            } else {
-                // If deviceId differs, prevent login
-                if (deviceId == null || !deviceId.equals(existingSession.deviceId)) {
-                    throw new RuntimeException("User is already logged in on another device");
+    /**
+     * Replace a plaintext password with its hash after a successful login. Skipped when
+     * the hashing pool is busy; the next login tries again.
+     */
+    private void rehashLegacyPassword(Long clientId, String password) {
+        try {
+            String hash = passwordHashingService.encode(password);
+            clientRepository.findById(clientId).ifPresent(client -> {
+                if (!PasswordHashingService.isHashed(client.getPassword())) {
+                    client.setPassword(hash);
+                    accountCacheService.clientChanged(clientRepository.save(client));
+                    System.out.println("[ClientService] Rehashed legacy password of client " + clientId);
                 }
-                // Same device, allow (it effectively refreshes or reuses the session)
-                return;
-            }
+            });
+        } catch (PasswordHashingService.BusyException e) {
+            // Keep the plaintext for now
         }
+    }
 
-        // Create new in-memory session (either as a new session or replacing the forced one)
-        SessionStore.createSession(userId, userType, deviceId);
+    /**
+     * Open the login session and return its token.
+     */
+    public String checkAndCreateSession(Long userId, String userType, String deviceId, boolean force) {
+        // Same device reuses its session, force replaces another device's, otherwise
+        // the session on another device blocks the login
+        SessionStore.SessionData session = SessionStore.openSession(userId, userType, deviceId, force);
+        if (session == null) {
+            throw new RuntimeException("User is already logged in on another device");
+        }
+        return session.sessionToken;
     }
 
     public void logoutClient(Long clientId) {
@@ -109,7 +132,8 @@ public class ClientService {
     }
 
     /**
-     * Update client profile with phone number and profile picture
+     * Update client profile with phone number and profile picture. The picture may be
+     * sent as base64 (optionally a data: URL); an empty string removes it.
      */
     public Client updateProfile(Long clientId, String phoneNumber, String profilePicture, Boolean phoneVerified,
             String name) {
@@ -125,7 +149,7 @@ public class ClientService {
         }
 
         if (profilePicture != null) {
-            client.setProfilePicture(profilePicture);
+            client.setProfilePictureHash(profilePicture.isBlank() ? null : storePicture(profilePicture));
         }
 
         if (phoneVerified != null) {
@@ -136,7 +160,33 @@ public class ClientService {
             client.setName(name.trim());
         }
 
-        return clientRepository.save(client);
+        Client saved = clientRepository.save(client);
+        accountCacheService.clientChanged(saved);
+        return saved;
+    }
+
+    /**
+     * Replace the client's profile picture with an uploaded image stream
+     */
+    public Client updateProfilePicture(Long clientId, InputStream image) {
+        Client client = clientRepository.findById(clientId)
+                .orElseThrow(() -> new RuntimeException("Client not found"));
+        try {
+            client.setProfilePictureHash(profilePictureService.store(image));
+        } catch (IOException | IllegalArgumentException e) {
+            throw new RuntimeException("Invalid profile picture: " + e.getMessage());
+        }
+        Client saved = clientRepository.save(client);
+        accountCacheService.clientChanged(saved);
+        return saved;
+    }
+
+    private String storePicture(String base64) {
+        try {
+            return profilePictureService.storeBase64(base64);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new RuntimeException("Invalid profile picture: " + e.getMessage());
+        }
     }
 
     /**
@@ -151,32 +201,34 @@ public class ClientService {
         Client client = clientOptional.get();
         client.setSavedBusStop(busStop);
 
-        return clientRepository.save(client);
+        Client saved = clientRepository.save(client);
+        accountCacheService.clientChanged(saved);
+        return saved;
     }
 
     /**
      * Update client password
      */
     public void updatePassword(String identifier, String newPassword) {
-        Optional<Client> clientOpt = clientRepository.findByEmail(identifier);
-        if (clientOpt.isEmpty()) {
-            clientOpt = clientRepository.findByUsername(identifier);
-        }
+        Optional<Client> clientOpt = accountIdentityService.findUserId(AccountCacheService.CLIENT, identifier)
+                .flatMap(clientRepository::findById);
 
         if (clientOpt.isEmpty()) {
             throw new RuntimeException("Client not found");
         }
 
         Client client = clientOpt.get();
-        client.setPassword(passwordEncoder.encode(newPassword));
-        clientRepository.save(client);
+        client.setPassword(passwordHashingService.encode(newPassword));
+        accountCacheService.clientChanged(clientRepository.save(client));
     }
 
     /**
      * Get client by ID
      */
-    public Client getClientById(Long clientId) {
-        return clientRepository.findById(clientId)
+    public ClientProfile getClientById(Long clientId) {
+        SessionStore.touch(clientId, "CLIENT");
+        return accountCacheService.findClientById(clientId)
+                .map(ClientAccount::profile)
                 .orElseThrow(() -> new RuntimeException("Client not found"));
     }
 
@@ -185,5 +237,7 @@ public class ClientService {
             throw new RuntimeException("Client not found");
         }
         clientRepository.deleteById(id);
+        accountIdentityService.accountDeleted(AccountCacheService.CLIENT, id);
+        accountCacheService.clientDeleted(id);
     }
 }
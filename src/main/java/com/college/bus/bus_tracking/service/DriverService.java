@@ -3,6 +3,8 @@ package com.college.bus.bus_tracking.service;
 import com.college.bus.bus_tracking.entity.Driver;
 import com.college.bus.bus_tracking.entity.BusEntity;
 import com.college.bus.bus_tracking.model.BusData;
+import com.college.bus.bus_tracking.model.DriverAccount;
+import com.college.bus.bus_tracking.model.DriverProfile;
 import com.college.bus.bus_tracking.repository.BusRepository;
 import com.college.bus.bus_tracking.repository.DriverRepository;
 import com.college.bus.bus_tracking.store.BusSessionStore;
@@ -11,7 +13,6 @@ import com.college.bus.bus_tracking.handler.UserHandler;
 import com.college.bus.bus_tracking.websocket.AdminWebSocketHandler;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -25,11 +26,20 @@ public class DriverService {
     @Autowired
     private DriverRepository driverRepository;
 
+    @Autowired
+    private AccountCacheService accountCacheService;
+
+    @Autowired
+    private AccountIdentityService accountIdentityService;
+
     @Autowired
     private BusRepository busRepository;
 
     @Autowired
-    private BCryptPasswordEncoder passwordEncoder;
+    private FleetRegistryService fleetRegistryService;
+
+    @Autowired
+    private PasswordHashingService passwordHashingService;
 
     @Autowired
     private UserHandler userHandler;
@@ -44,65 +54,75 @@ public class DriverService {
         }
 
         // Check if username already exists
-        Optional<Driver> existing = driverRepository.findByUsername(driver.getUsername());
+        Optional<DriverAccount> existing = accountCacheService.findDriverByUsername(driver.getUsername());
         if (existing.isPresent()) {
             throw new RuntimeException("Username already exists");
         }
 
         // Check if email already exists
         if (driver.getEmail() != null) {
-            Optional<Driver> existingEmail = driverRepository.findByEmail(driver.getEmail());
+            Optional<DriverAccount> existingEmail = accountCacheService.findDriverByEmail(driver.getEmail());
             if (existingEmail.isPresent()) {
                 throw new RuntimeException("Email already registered");
             }
         }
 
         // Hash password before saving
-        driver.setPassword(passwordEncoder.encode(driver.getPassword()));
+        driver.setPassword(passwordHashingService.encode(driver.getPassword()));
 
-        return driverRepository.save(driver);
+        Driver saved = driverRepository.save(driver);
+        accountIdentityService.accountSaved(AccountCacheService.DRIVER, saved.getId(), saved.getUsername(),
+                saved.getEmail());
+        accountCacheService.driverChanged(saved);
+        return saved;
     }
 
-    public Driver loginDriver(String username, String password) {
-        Optional<Driver> driver = driverRepository.findByUsername(username);
+    public DriverProfile loginDriver(String username, String password) {
+        // One account_identity probe for the username, then the account by id
+        Optional<DriverAccount> driver = accountIdentityService
+                .findUserIdByUsername(AccountCacheService.DRIVER, username)
+                .flatMap(accountCacheService::findDriverById);
         if (driver.isEmpty()) {
             throw new RuntimeException("Invalid username or password");
         }
 
-        if (driver.get().getPassword().equals(password)) {
-            // Valid login - check for existing session
-            return driver.get();
+        // BCrypt hash, or plaintext stored before passwords were hashed
+        if (!passwordHashingService.matches(password, driver.get().password())) {
+            throw new RuntimeException("Invalid username or password");
         }
 
-        // Check if it's a BCrypt hash
-        if (passwordEncoder.matches(password, driver.get().getPassword())) {
-            // Valid login - check for existing session
-            return driver.get();
+        if (!PasswordHashingService.isHashed(driver.get().password())) {
+            rehashLegacyPassword(driver.get().id(), password);
         }
-
-        throw new RuntimeException("Invalid username or password");
+        // Valid login - check for existing session
+        return driver.get().profile();
     }
 
-    public void checkAndCreateSession(Long userId, String userType, String deviceId, boolean force) {
-        // Check if user already has an active session in memory
-        SessionStore.SessionData existingSession = SessionStore.getSession(userId, userType);
-
-        if (existingSession != null) {
-            // If force is requested, remove the old session
-            if (force) {
-                SessionStore.removeSession(userId, userType);
-            } else {
-                // If deviceId differs, prevent login
-                if (deviceId == null || !deviceId.equals(existingSession.deviceId)) {
-                    throw new RuntimeException("User is already logged in on another device");
+    /**
+     * Replace a plaintext password with its hash after a successful login. Skipped when
+     * the hashing pool is busy; the next login tries again.
+     */
+    private void rehashLegacyPassword(Long driverId, String password) {
+        try {
+            String hash = passwordHashingService.encode(password);
+            driverRepository.findById(driverId).ifPresent(driver -> {
+                if (!PasswordHashingService.isHashed(driver.getPassword())) {
+                    driver.setPassword(hash);
+                    accountCacheService.driverChanged(driverRepository.save(driver));
+                    System.out.println("[DriverService] Rehashed legacy password of driver " + driverId);
                 }
-                // Same device, allow (it effectively refreshes or reuses the session)
-                return;
-            }
+            });
+        } catch (PasswordHashingService.BusyException e) {
+            // Keep the plaintext for now
         }
+    }
 
-        // Create new in-memory session (either as a new session or replacing the forced one)
-        SessionStore.createSession(userId, userType, deviceId);
+    public void checkAndCreateSession(Long userId, String userType, String deviceId, boolean force) {
+        // Same device reuses its session, force replaces another device's, otherwise
+        // the session on another device blocks the login
+        if (SessionStore.openSession(userId, userType, deviceId, force) == null) {
+            throw new RuntimeException("User is already logged in on another device");
+        }
     }
 
     public void logoutDriver(Long driverId) {
@@ -119,7 +139,9 @@ public class DriverService {
         driver.setBusNumber(busNumber);
         driver.setBusName(busName);
 
-        return driverRepository.save(driver);
+        Driver saved = driverRepository.save(driver);
+        accountCacheService.driverChanged(saved);
+        return saved;
     }
 
     public Driver updateDriverProfile(Long id, String name, String phone, String busNumber, String busName) {
@@ -134,6 +156,7 @@ public class DriverService {
         driver.setBusNumber(busNumber);
         driver.setBusName(busName);
         Driver savedDriver = driverRepository.save(driver);
+        accountCacheService.driverChanged(savedDriver);
 
         // Update all BusEntity records assigned to this driver
         List<BusEntity> driverBuses = busRepository.findAllByDriverId(id);
@@ -145,16 +168,19 @@ public class DriverService {
                 busEntity.setBusName(busName);
             }
             busRepository.save(busEntity);
+        }
 
-            // Also update in-memory BUS_MAP
-            BusData liveData = BusSessionStore.BUS_MAP.get(busEntity.getBusNumber());
-            if (liveData != null) {
-                liveData.setDriverName(name);
-                liveData.setDriverPhone(phone);
-                if (busEntity.getBusNumber().equals(busNumber)) {
-                    liveData.setBusName(busName);
-                }
+        // Also update in-memory BUS_MAP, found through the driver index
+        for (BusData liveData : BusSessionStore.findByDriverId(id)) {
+            liveData.setDriverName(name);
+            liveData.setDriverPhone(phone);
+            if (liveData.getBusNumber().equals(busNumber)) {
+                liveData.setBusName(busName);
             }
+            BusSessionStore.changed(liveData);
+        }
+        if (!driverBuses.isEmpty()) {
+            fleetRegistryService.invalidateConfig();
         }
 
         // Broadcast updated bus list to admins and students
@@ -181,12 +207,14 @@ public class DriverService {
         }
 
         Driver driver = driverOpt.get();
-        driver.setPassword(passwordEncoder.encode(newPassword));
-        driverRepository.save(driver);
+        driver.setPassword(passwordHashingService.encode(newPassword));
+        accountCacheService.driverChanged(driverRepository.save(driver));
     }
 
-    public Driver getDriverById(Long driverId) {
-        return driverRepository.findById(driverId)
+    public DriverProfile getDriverById(Long driverId) {
+        SessionStore.touch(driverId, "DRIVER");
+        return accountCacheService.findDriverById(driverId)
+                .map(DriverAccount::profile)
                 .orElseThrow(() -> new RuntimeException("Driver not found"));
     }
 
@@ -198,18 +226,20 @@ public class DriverService {
 
         // 1. Delete driver record
         driverRepository.deleteById(id);
+        accountIdentityService.accountDeleted(AccountCacheService.DRIVER, id);
+        accountCacheService.driverDeleted(id);
 
         // 2. Clean up associated bus data if it exists
         if (busNumber != null && !busNumber.trim().isEmpty()) {
             // Remove from database
             busRepository.findByBusNumber(busNumber).ifPresent(bus -> {
                 busRepository.delete(bus);
+                fleetRegistryService.invalidateConfig();
                 System.out.println("[DriverService] Deleted bus entity for busNumber: " + busNumber);
             });
 
             // Remove from in-memory session store
-            if (BusSessionStore.BUS_MAP.containsKey(busNumber)) {
-                BusSessionStore.BUS_MAP.remove(busNumber);
+            if (BusSessionStore.remove(busNumber) != null) {
                 System.out.println("[DriverService] Removed bus from memory: " + busNumber);
             }
 
@@ -0,0 +1,406 @@
+package com.college.bus.bus_tracking.service;
+
+import com.college.bus.bus_tracking.entity.Feedback;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Accepts feedback submissions without writing them on the request thread. A report is
+ * given its id up front (from the feedback id sequence, in blocks), queued, and written
+ * by a single writer thread in JDBC batches, each in one transaction with its
+ * {@link FeedbackStatsService} updates, and handed to {@link FeedbackSearchService} once
+ * committed. A batch that fails stays with the writer and is retried with backoff, so
+ * acknowledged reports survive a database outage; a report is only given up after it
+ * failed on a constraint {@value #MAX_CONSTRAINT_FAILURES} times.
+ *
+ * Identical reports (same bus, issue type and message) within the dedupe window are
+ * stored once: later ones are acknowledged with the first report's id and only bump its
+ * report_count. Each sender (as identified by the caller) is rate limited with a token
+ * bucket. Both are per node, which is enough to absorb a burst of reports.
+ */
+@Service
+public class FeedbackIngestService {
+
+    public enum Outcome {
+        ACCEPTED, DUPLICATE, RATE_LIMITED, BUSY
+    }
+
+    /**
+     * Result of a submission. {@code feedbackId} is the row the report was stored in
+     * (or collapsed into); {@code retryAfterSeconds} is set when rate limited.
+     */
+    public record Receipt(Outcome outcome, Long feedbackId, long retryAfterSeconds) {
+    }
+
+    private static final String SEQUENCE = "feedback_id_seq";
+    private static final int ID_BLOCK_SIZE = 50; // INCREMENT BY of feedback_id_seq
+    private static final int MAX_CONSTRAINT_FAILURES = 3;
+    private static final long MAX_RETRY_DELAY_MS = 30_000;
+
+    private static final String INSERT_SQL = "INSERT INTO feedback (id, bus_number, route_name, student_name, "
+            + "student_email, issue_type, message, created_at, status, report_count) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INCREMENT_SQL = "UPDATE feedback SET report_count = report_count + ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final FeedbackStatsService feedbackStatsService;
+    private final FeedbackSearchService feedbackSearchService;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long dedupeWindowMs;
+    private final int burst;
+    private final double tokensPerMs;
+
+    private final BlockingQueue<Op> queue;
+    // Ops of a failed write, retried ahead of the queue; guarded by this
+    private final List<Op> retries = new ArrayList<>();
+    private volatile int retryCount;
+    private volatile long retryDelayMs;
+    private final Map<String, Original> recentReports = new ConcurrentHashMap<>();
+    private final Cache<String, TokenBucket> buckets;
+
+    private final Object idLock = new Object();
+    private String nextIdSql;
+    private long nextId = 1;
+    private long lastId = 0;
+
+    private Thread writer;
+    private volatile boolean running;
+
+    public FeedbackIngestService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            EntityManagerFactory entityManagerFactory, FeedbackStatsService feedbackStatsService,
+            FeedbackSearchService feedbackSearchService,
+            @Value("${feedback.ingest.batch-size:200}") int batchSize,
+            @Value("${feedback.ingest.flush-interval-ms:200}") long flushIntervalMs,
+            @Value("${feedback.ingest.queue-capacity:10000}") int queueCapacity,
+            @Value("${feedback.ingest.dedupe-window-seconds:600}") long dedupeWindowSeconds,
+            @Value("${feedback.ingest.rate-limit.burst:5}") int burst,
+            @Value("${feedback.ingest.rate-limit.per-minute:1}") double perMinute) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.entityManagerFactory = entityManagerFactory;
+        this.feedbackStatsService = feedbackStatsService;
+        this.feedbackSearchService = feedbackSearchService;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.dedupeWindowMs = dedupeWindowSeconds * 1000;
+        this.burst = burst;
+        this.tokensPerMs = perMinute / 60_000.0;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterAccess(Duration.ofMinutes(30))
+                .build();
+    }
+
+    @PostConstruct
+    public void start() {
+        nextIdSql = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect()
+                .getSequenceSupport().getSequenceNextValString(SEQUENCE);
+        running = true;
+        writer = new Thread(this::writeLoop, "feedback-ingest");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        Thread t = writer;
+        if (t != null) {
+            t.interrupt();
+            try {
+                t.join(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Whatever is still queued was acknowledged, so write it before going down
+        flush();
+        if (retryCount > 0) {
+            System.err.println("[FeedbackIngest] " + retryCount + " acknowledged reports could not be written");
+        }
+    }
+
+    /**
+     * Queue a report.
+     *
+     * @param sender rate-limit key: who sent the report (login session or client address)
+     * @throws IllegalArgumentException if a required field is missing
+     */
+    public Receipt submit(Feedback feedback, String sender) {
+        if (isBlank(feedback.getBusNumber()) || isBlank(feedback.getIssueType())) {
+            throw new IllegalArgumentException("Bus number and issue type are required");
+        }
+
+        long waitMs = buckets.get(sender, k -> new TokenBucket(burst)).tryAcquire(burst, tokensPerMs);
+        if (waitMs > 0) {
+            return new Receipt(Outcome.RATE_LIMITED, null, Math.max(1, (waitMs + 999) / 1000));
+        }
+
+        feedback.setId(allocateId());
+        feedback.setStatus("pending");
+        feedback.setReportCount(1);
+        if (feedback.getCreatedAt() == null) {
+            feedback.setCreatedAt(LocalDateTime.now());
+        }
+
+        String key = dedupeKey(feedback);
+        long now = System.currentTimeMillis();
+        // Locked so a report's insert is always queued ahead of the duplicates counted into it
+        synchronized (recentReports) {
+            Original original = recentReports.get(key);
+            if (original != null && original.expiresAt > now) {
+                if (!queue.offer(new Op(null, original.id, original.bucket, 0))) {
+                    return new Receipt(Outcome.BUSY, null, 0);
+                }
+                return new Receipt(Outcome.DUPLICATE, original.id, 0);
+            }
+            FeedbackStatsService.Bucket bucket = FeedbackStatsService.Bucket.of(feedback);
+            if (!queue.offer(new Op(feedback, 0, bucket, 0))) {
+                return new Receipt(Outcome.BUSY, null, 0);
+            }
+            recentReports.put(key, new Original(feedback.getId(), now + dedupeWindowMs, bucket));
+            return new Receipt(Outcome.ACCEPTED, feedback.getId(), 0);
+        }
+    }
+
+    /**
+     * Stop collapsing new reports into a row that was resolved or deleted.
+     */
+    public void forget(Long feedbackId) {
+        recentReports.values().removeIf(original -> original.id == feedbackId);
+    }
+
+    /**
+     * Reports acknowledged but not written yet, including those waiting for a retry.
+     */
+    public int getQueueDepth() {
+        return queue.size() + retryCount;
+    }
+
+    /**
+     * Write the failed ops and everything queued so far, in batches, until a write
+     * fails. Runs on the writer thread, and on shutdown.
+     */
+    synchronized void flush() {
+        List<Op> ops = new ArrayList<>(retries);
+        retries.clear();
+        while (true) {
+            queue.drainTo(ops, Math.max(0, batchSize - ops.size()));
+            if (ops.isEmpty()) {
+                retryDelayMs = 0;
+                break;
+            }
+            List<Op> failed = write(ops);
+            if (!failed.isEmpty()) {
+                // Keep the rest queued behind them; the queue limit pushes back on senders
+                retries.addAll(failed);
+                retryDelayMs = Math.min(MAX_RETRY_DELAY_MS, Math.max(flushIntervalMs, retryDelayMs * 2));
+                break;
+            }
+            ops = new ArrayList<>();
+        }
+        retryCount = retries.size();
+        long now = System.currentTimeMillis();
+        recentReports.values().removeIf(original -> original.expiresAt <= now);
+    }
+
+    private void writeLoop() {
+        while (running) {
+            try {
+                // Ops stay queued until flushed, so a burst builds up into batches
+                long delay = retryDelayMs;
+                Thread.sleep(delay > 0 ? delay : flushIntervalMs);
+                flush();
+            } catch (InterruptedException e) {
+                // stop() interrupts to end the loop
+            } catch (Exception e) {
+                System.err.println("[FeedbackIngest] Flush failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Write a batch; returns the ops to retry later, empty when all were written (or
+     * given up).
+     */
+    private List<Op> write(List<Op> ops) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> writeBatch(ops));
+            feedbackSearchService.added(inserted(ops));
+            return List.of();
+        } catch (DataIntegrityViolationException e) {
+            // Write one by one so one bad report does not hold back the whole batch
+            System.err.println("[FeedbackIngest] Batch of " + ops.size() + " failed, retrying one by one: "
+                    + e.getMessage());
+        } catch (RuntimeException e) {
+            // Database unavailable or similar: the whole batch waits for the next attempt
+            System.err.println("[FeedbackIngest] Batch of " + ops.size() + " failed, will retry: "
+                    + e.getMessage());
+            return ops;
+        }
+
+        List<Op> written = new ArrayList<>();
+        List<Op> failed = new ArrayList<>();
+        for (Op op : ops) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> writeBatch(List.of(op)));
+                written.add(op);
+            } catch (DataIntegrityViolationException opError) {
+                if (op.constraintFailures + 1 < MAX_CONSTRAINT_FAILURES) {
+                    failed.add(op.failedOnConstraint());
+                } else {
+                    System.err.println("[FeedbackIngest] Dropped report for feedback "
+                            + (op.feedback != null ? op.feedback.getId() : op.duplicateOf) + " after "
+                            + MAX_CONSTRAINT_FAILURES + " attempts: " + opError.getMessage());
+                }
+            } catch (RuntimeException opError) {
+                failed.add(op);
+            }
+        }
+        feedbackSearchService.added(inserted(written));
+        return failed;
+    }
+
+    private static List<Feedback> inserted(List<Op> ops) {
+        List<Feedback> feedback = new ArrayList<>();
+        for (Op op : ops) {
+            if (op.feedback != null) {
+                feedback.add(op.feedback);
+            }
+        }
+        return feedback;
+    }
+
+    /**
+     * Insert the new rows, count the duplicates into theirs and update the stats buckets,
+     * all in the caller's transaction.
+     */
+    private void writeBatch(List<Op> ops) {
+        List<Object[]> inserts = new ArrayList<>();
+        Map<Long, Integer> increments = new LinkedHashMap<>();
+        Map<Long, FeedbackStatsService.Bucket> incrementBuckets = new HashMap<>();
+        FeedbackStatsService.Changes stats = new FeedbackStatsService.Changes();
+        for (Op op : ops) {
+            if (op.feedback != null) {
+                inserts.add(insertArgs(op.feedback));
+                stats.add(op.bucket, 1, 1, 0);
+            } else {
+                increments.merge(op.duplicateOf, 1, Integer::sum);
+                incrementBuckets.put(op.duplicateOf, op.bucket);
+            }
+        }
+
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, inserts);
+        }
+        if (!increments.isEmpty()) {
+            List<Long> ids = new ArrayList<>(increments.keySet());
+            List<Object[]> args = new ArrayList<>();
+            for (Long id : ids) {
+                args.add(new Object[] { increments.get(id), id });
+            }
+            int[] updated = jdbcTemplate.batchUpdate(INCREMENT_SQL, args);
+            for (int i = 0; i < updated.length; i++) {
+                // Not counted if the original was deleted meanwhile
+                if (updated[i] > 0) {
+                    stats.add(incrementBuckets.get(ids.get(i)), 0, increments.get(ids.get(i)), 0);
+                }
+            }
+        }
+        feedbackStatsService.apply(stats);
+    }
+
+    private static Object[] insertArgs(Feedback f) {
+        return new Object[] { f.getId(), f.getBusNumber(), f.getRouteName(), f.getStudentName(), f.getStudentEmail(),
+                f.getIssueType(), f.getMessage(), Timestamp.valueOf(f.getCreatedAt()), f.getStatus(),
+                f.getReportCount() };
+    }
+
+    /**
+     * Next id from the sequence, which hands out blocks of {@link #ID_BLOCK_SIZE}: a value
+     * v reserves v-49..v, the same scheme Hibernate uses for the entity's generator.
+     */
+    private long allocateId() {
+        synchronized (idLock) {
+            if (nextId > lastId) {
+                Long top = jdbcTemplate.queryForObject(nextIdSql, Long.class);
+                lastId = top;
+                nextId = top - ID_BLOCK_SIZE + 1;
+            }
+            return nextId++;
+        }
+    }
+
+    private static String dedupeKey(Feedback f) {
+        String message = f.getMessage() == null ? "" : f.getMessage().trim().replaceAll("\\s+", " ");
+        return (f.getBusNumber().trim() + "\n" + f.getIssueType().trim() + "\n" + message).toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private record Op(Feedback feedback, long duplicateOf, FeedbackStatsService.Bucket bucket,
+            int constraintFailures) {
+
+        Op failedOnConstraint() {
+            return new Op(feedback, duplicateOf, bucket, constraintFailures + 1);
+        }
+    }
+
+    private record Original(long id, long expiresAt, FeedbackStatsService.Bucket bucket) {
+    }
+
+    /**
+     * Starts full; refills continuously up to the burst size.
+     */
+    private static final class TokenBucket {
+
+        private double tokens;
+        private long updatedAt = System.currentTimeMillis();
+
+        TokenBucket(int burst) {
+            this.tokens = burst;
+        }
+
+        /**
+         * Take a token, or return how many ms until one is available.
+         */
+        synchronized long tryAcquire(int burst, double tokensPerMs) {
+            long now = System.currentTimeMillis();
+            tokens = Math.min(burst, tokens + (now - updatedAt) * tokensPerMs);
+            updatedAt = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / tokensPerMs);
+        }
+    }
+}
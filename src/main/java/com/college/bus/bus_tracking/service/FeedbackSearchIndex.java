@@ -0,0 +1,177 @@
+package com.college.bus.bus_tracking.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over feedback text: term -> (feedback id -> weight). Terms
+ * are kept sorted, so every query term also matches the terms it is a prefix of.
+ *
+ * Scoring is BM25-like: each query term contributes idf x a saturating function of the
+ * term's weight in the document (bus number and route name occurrences weigh more than
+ * message words), prefix expansions count less than exact matches, and documents that
+ * match more of the query terms rank first. Readers run concurrently; writes take the
+ * write lock.
+ */
+public class FeedbackSearchIndex {
+
+    public record Hit(long id, double score) {
+    }
+
+    private static final float BUS_WEIGHT = 3f;
+    private static final float ROUTE_WEIGHT = 2f;
+    private static final float MESSAGE_WEIGHT = 1f;
+
+    private static final double PREFIX_FACTOR = 0.7;
+    private static final int MAX_EXPANSIONS = 64;
+    private static final double SATURATION = 1.2;
+
+    private final NavigableMap<String, Map<Long, Float>> postings = new TreeMap<>();
+    private final Map<Long, String[]> documentTerms = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Index a feedback row, replacing it if it is already indexed.
+     */
+    public void add(long id, String busNumber, String routeName, String message) {
+        Map<String, Float> weights = new LinkedHashMap<>();
+        addTerms(weights, busNumber, BUS_WEIGHT);
+        addTerms(weights, routeName, ROUTE_WEIGHT);
+        addTerms(weights, message, MESSAGE_WEIGHT);
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            for (Map.Entry<String, Float> entry : weights.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), t -> new HashMap<>()).put(id, entry.getValue());
+            }
+            documentTerms.put(id, weights.keySet().toArray(new String[0]));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documentTerms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Best {@code limit} matches for the query, highest score first (newest first on ties).
+     */
+    public List<Hit> search(String query, int limit) {
+        List<String> terms = tokenize(query).stream().distinct().toList();
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        Map<Long, double[]> matches = new HashMap<>(); // id -> [score, matched terms]
+        lock.readLock().lock();
+        try {
+            int documents = documentTerms.size();
+            for (String term : terms) {
+                Map<Long, Double> best = new HashMap<>();
+                int expansions = 0;
+                for (Map.Entry<String, Map<Long, Float>> entry
+                        : postings.subMap(term, true, term + Character.MAX_VALUE, false).entrySet()) {
+                    // The exact term sorts first in the range, so it is never cut off
+                    boolean exact = entry.getKey().equals(term);
+                    if (!exact && ++expansions > MAX_EXPANSIONS) {
+                        break;
+                    }
+                    Map<Long, Float> docs = entry.getValue();
+                    double idf = Math.log(1 + (documents - docs.size() + 0.5) / (docs.size() + 0.5));
+                    double factor = exact ? 1.0 : PREFIX_FACTOR;
+                    for (Map.Entry<Long, Float> doc : docs.entrySet()) {
+                        float weight = doc.getValue();
+                        double score = factor * idf * (weight * (SATURATION + 1)) / (weight + SATURATION);
+                        // A document counts once per query term, by its best matching term
+                        best.merge(doc.getKey(), score, Math::max);
+                    }
+                }
+                for (Map.Entry<Long, Double> entry : best.entrySet()) {
+                    double[] match = matches.computeIfAbsent(entry.getKey(), id -> new double[2]);
+                    match[0] += entry.getValue();
+                    match[1]++;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Comparator<Hit> order = Comparator.comparingDouble(Hit::score).thenComparingLong(Hit::id);
+        PriorityQueue<Hit> top = new PriorityQueue<>(limit + 1, order);
+        for (Map.Entry<Long, double[]> entry : matches.entrySet()) {
+            double[] match = entry.getValue();
+            // Matching every term beats matching some of them strongly
+            top.add(new Hit(entry.getKey(), match[0] * match[1] / terms.size()));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        List<Hit> hits = new ArrayList<>(top);
+        hits.sort(order.reversed());
+        return hits;
+    }
+
+    /**
+     * Lowercase letter/digit runs; "TN-01 A/C" gives [tn, 01, a, c].
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static void addTerms(Map<String, Float> weights, String text, float weight) {
+        for (String token : tokenize(text)) {
+            weights.merge(token, weight, Float::sum);
+        }
+    }
+
+    private void removeLocked(long id) {
+        String[] terms = documentTerms.remove(id);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            Map<Long, Float> docs = postings.get(term);
+            if (docs != null) {
+                docs.remove(id);
+                if (docs.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+}
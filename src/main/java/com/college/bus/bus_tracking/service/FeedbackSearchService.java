@@ -0,0 +1,105 @@
+package com.college.bus.bus_tracking.service;
+
+import com.college.bus.bus_tracking.cluster.Backplane;
+import com.college.bus.bus_tracking.cluster.BackplaneMessage;
+import com.college.bus.bus_tracking.entity.Feedback;
+import jakarta.annotation.PostConstruct;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Keyword search over feedback (message, route name, bus number) from a
+ * {@link FeedbackSearchIndex} built at startup. Rows written or deleted on this node are
+ * indexed directly and announced over the backplane; other nodes load the added rows
+ * by id.
+ */
+@Service
+public class FeedbackSearchService {
+
+    public static final String ADDED = "ADDED";
+    public static final String REMOVED = "REMOVED";
+
+    private static final String SELECT_SQL = "SELECT id, bus_number, route_name, message FROM feedback";
+
+    private final FeedbackSearchIndex index = new FeedbackSearchIndex();
+    private final JdbcTemplate jdbcTemplate;
+    private final Backplane backplane;
+
+    public FeedbackSearchService(JdbcTemplate jdbcTemplate, Backplane backplane) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.backplane = backplane;
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        backplane.subscribe(message -> {
+            if (message.getType() != BackplaneMessage.Type.FEEDBACK_CHANGED || message.getPayload() == null) {
+                return;
+            }
+            List<Long> ids = new ArrayList<>();
+            for (String id : message.getPayload().split(",")) {
+                ids.add(Long.valueOf(id));
+            }
+            if (ADDED.equals(message.getChannel())) {
+                load(ids);
+            } else if (REMOVED.equals(message.getChannel())) {
+                ids.forEach(index::remove);
+            }
+        });
+    }
+
+    /**
+     * Index every stored feedback row, streaming them so the table is never held in
+     * memory as entities.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        long startedAt = System.nanoTime();
+        jdbcTemplate.query(SELECT_SQL, rs -> {
+            index.add(rs.getLong("id"), rs.getString("bus_number"), rs.getString("route_name"),
+                    rs.getString("message"));
+        });
+        System.out.println("[FeedbackSearch] Indexed " + index.size() + " feedback reports in "
+                + (System.nanoTime() - startedAt) / 1_000_000 + " ms");
+    }
+
+    /**
+     * Rows just committed on this node.
+     */
+    public void added(Collection<Feedback> feedback) {
+        if (feedback.isEmpty()) {
+            return;
+        }
+        for (Feedback f : feedback) {
+            index.add(f.getId(), f.getBusNumber(), f.getRouteName(), f.getMessage());
+        }
+        backplane.publish(BackplaneMessage.feedbackChanged(ADDED,
+                feedback.stream().map(f -> String.valueOf(f.getId())).collect(Collectors.joining(","))));
+    }
+
+    public void removed(Long id) {
+        index.remove(id);
+        backplane.publish(BackplaneMessage.feedbackChanged(REMOVED, String.valueOf(id)));
+    }
+
+    public List<FeedbackSearchIndex.Hit> search(String query, int limit) {
+        return index.search(query, limit);
+    }
+
+    private void load(List<Long> ids) {
+        new NamedParameterJdbcTemplate(jdbcTemplate).query(SELECT_SQL + " WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", ids), rs -> {
+                    index.add(rs.getLong("id"), rs.getString("bus_number"), rs.getString("route_name"),
+                            rs.getString("message"));
+                });
+    }
+}
@@ -0,0 +1,241 @@
+package com.college.bus.bus_tracking.service;
+
+import com.college.bus.bus_tracking.entity.Feedback;
+import com.college.bus.bus_tracking.repository.FeedbackRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Feedback listings and admin actions for the dashboard. The listings tolerate replica
+ * lag, so they are served by the read replica when one is configured. Resolve and delete
+ * update the {@link FeedbackStatsService} buckets in the same transaction.
+ *
+ * Listings are paged newest first by the (created_at, id) keyset: the cursor is the
+ * position of the last row returned, and each page is an index range scan from there,
+ * so the cost of a page does not depend on how deep it is or how large the table gets.
+ */
+@Service
+public class FeedbackService {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+
+    /** Totals are counted up to this many rows and reported as "at least" beyond it. */
+    public static final int TOTAL_CAP = 10_000;
+
+    private static final String COLUMNS = "id, bus_number, route_name, student_name, student_email, issue_type, "
+            + "message, created_at, status, report_count";
+
+    private static final RowMapper<Feedback> ROW_MAPPER = (rs, rowNum) -> {
+        Feedback feedback = new Feedback();
+        feedback.setId(rs.getLong("id"));
+        feedback.setBusNumber(rs.getString("bus_number"));
+        feedback.setRouteName(rs.getString("route_name"));
+        feedback.setStudentName(rs.getString("student_name"));
+        feedback.setStudentEmail(rs.getString("student_email"));
+        feedback.setIssueType(rs.getString("issue_type"));
+        feedback.setMessage(rs.getString("message"));
+        feedback.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+        feedback.setStatus(rs.getString("status"));
+        feedback.setReportCount(rs.getInt("report_count"));
+        return feedback;
+    };
+
+    private final FeedbackRepository feedbackRepository;
+    private final FeedbackStatsService feedbackStatsService;
+    private final JdbcTemplate jdbcTemplate;
+
+    public FeedbackService(FeedbackRepository feedbackRepository, FeedbackStatsService feedbackStatsService,
+            JdbcTemplate jdbcTemplate) {
+        this.feedbackRepository = feedbackRepository;
+        this.feedbackStatsService = feedbackStatsService;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Filters of a feedback listing; null fields do not filter. {@code from} is inclusive
+     * and {@code to} exclusive.
+     */
+    public record Filter(String busNumber, String status, String issueType, LocalDateTime from, LocalDateTime to) {
+
+        public static final Filter NONE = new Filter(null, null, null, null, null);
+    }
+
+    /**
+     * One page of a listing. {@code nextCursor} is null on the last page. {@code total}
+     * is only computed for the first page (null otherwise) and is exact unless
+     * {@code totalCapped}, in which case there are at least that many rows.
+     */
+    public record Page(List<Feedback> items, String nextCursor, Integer total, boolean totalCapped) {
+    }
+
+    /**
+     * Fetch the page after {@code cursor} (the first page if null).
+     *
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    @Transactional(readOnly = true)
+    public Page getFeedbackPage(Filter filter, String cursor, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<Object> args = new ArrayList<>();
+        StringBuilder where = where(filter, args);
+        if (cursor != null) {
+            Cursor position = Cursor.decode(cursor);
+            where.append(where.length() == 0 ? " WHERE" : " AND").append(" (created_at, id) < (?, ?)");
+            args.add(Timestamp.valueOf(position.createdAt()));
+            args.add(position.id());
+        }
+        args.add(size + 1);
+        List<Feedback> rows = jdbcTemplate.query(
+                "SELECT " + COLUMNS + " FROM feedback" + where + " ORDER BY created_at DESC, id DESC LIMIT ?",
+                ROW_MAPPER, args.toArray());
+
+        String nextCursor = null;
+        if (rows.size() > size) {
+            rows = rows.subList(0, size);
+            Feedback last = rows.get(size - 1);
+            nextCursor = new Cursor(last.getCreatedAt(), last.getId()).encode();
+        }
+
+        Integer total = null;
+        boolean capped = false;
+        if (cursor == null) {
+            total = rows.size() < size ? rows.size() : countUpTo(filter, TOTAL_CAP + 1);
+            capped = total > TOTAL_CAP;
+            total = Math.min(total, TOTAL_CAP);
+        }
+        return new Page(new ArrayList<>(rows), nextCursor, total, capped);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<Feedback> getFeedback(Long id) {
+        return feedbackRepository.findById(id);
+    }
+
+    /**
+     * Rows for the given ids, in the order of the ids; ids with no row are skipped.
+     */
+    @Transactional(readOnly = true)
+    public List<Feedback> getFeedbackByIds(List<Long> ids) {
+        Map<Long, Feedback> rows = new HashMap<>();
+        for (Feedback feedback : feedbackRepository.findAllById(ids)) {
+            rows.put(feedback.getId(), feedback);
+        }
+        List<Feedback> ordered = new ArrayList<>(rows.size());
+        for (Long id : ids) {
+            Feedback feedback = rows.get(id);
+            if (feedback != null) {
+                ordered.add(feedback);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * Mark feedback resolved.
+     *
+     * @return false if there is no such feedback
+     */
+    @Transactional
+    public boolean resolve(Long id) {
+        Optional<Feedback> feedback = feedbackRepository.findForUpdate(id);
+        if (feedback.isEmpty()) {
+            return false;
+        }
+        if (feedbackRepository.markResolved(id) > 0) {
+            feedbackStatsService.apply(new FeedbackStatsService.Changes()
+                    .add(FeedbackStatsService.Bucket.of(feedback.get()), 0, 0, 1));
+        }
+        return true;
+    }
+
+    /**
+     * Delete feedback. The row is locked first, so its report count cannot change
+     * between reading it and taking it off the stats.
+     *
+     * @return false if there is no such feedback
+     */
+    @Transactional
+    public boolean delete(Long id) {
+        Optional<Feedback> feedback = feedbackRepository.findForUpdate(id);
+        if (feedback.isEmpty() || feedbackRepository.removeById(id) == 0) {
+            return false;
+        }
+        Feedback f = feedback.get();
+        int resolved = "resolved".equals(f.getStatus()) ? 1 : 0;
+        feedbackStatsService.apply(new FeedbackStatsService.Changes()
+                .add(FeedbackStatsService.Bucket.of(f), -1, -f.getReportCount(), -resolved));
+        return true;
+    }
+
+    /**
+     * Count matching rows, stopping after {@code cap}: bounded work however many match.
+     */
+    private int countUpTo(Filter filter, int cap) {
+        List<Object> args = new ArrayList<>();
+        StringBuilder where = where(filter, args);
+        args.add(cap);
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM (SELECT 1 FROM feedback" + where + " LIMIT ?) matched",
+                Integer.class, args.toArray());
+        return count != null ? count : 0;
+    }
+
+    private static StringBuilder where(Filter filter, List<Object> args) {
+        List<String> conditions = new ArrayList<>();
+        if (filter.busNumber() != null) {
+            conditions.add("bus_number = ?");
+            args.add(filter.busNumber());
+        }
+        if (filter.status() != null) {
+            conditions.add("status = ?");
+            args.add(filter.status());
+        }
+        if (filter.issueType() != null) {
+            conditions.add("issue_type = ?");
+            args.add(filter.issueType());
+        }
+        if (filter.from() != null) {
+            conditions.add("created_at >= ?");
+            args.add(Timestamp.valueOf(filter.from()));
+        }
+        if (filter.to() != null) {
+            conditions.add("created_at < ?");
+            args.add(Timestamp.valueOf(filter.to()));
+        }
+        return new StringBuilder(conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions));
+    }
+
+    /**
+     * Keyset position, sent to clients as an opaque URL-safe token.
+     */
+    private record Cursor(LocalDateTime createdAt, long id) {
+
+        String encode() {
+            String raw = createdAt + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String token) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+                int bar = raw.indexOf('|');
+                return new Cursor(LocalDateTime.parse(raw.substring(0, bar)), Long.parseLong(raw.substring(bar + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+    }
+}
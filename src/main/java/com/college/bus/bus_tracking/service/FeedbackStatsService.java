@@ -0,0 +1,216 @@
+package com.college.bus.bus_tracking.service;
+
+import com.college.bus.bus_tracking.entity.Feedback;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Feedback counts per report day x bus x issue type, kept in feedback_daily_stats.
+ * Writers pass their changes to {@link #apply} inside the transaction that changes the
+ * feedback rows, so the buckets always match the table; queries then cost one row per
+ * bucket instead of one per report.
+ */
+@Service
+public class FeedbackStatsService {
+
+    /** Dimensions a stats query can group by, mapped to their columns. */
+    private static final Map<String, String> DIMENSIONS = Map.of(
+            "day", "report_date",
+            "bus", "bus_number",
+            "issueType", "issue_type");
+
+    private static final Comparator<Bucket> BUCKET_ORDER = Comparator.comparing(Bucket::day)
+            .thenComparing(Bucket::busNumber)
+            .thenComparing(Bucket::issueType);
+
+    private static final String UPDATE_SQL = "UPDATE feedback_daily_stats SET submitted = submitted + ?, "
+            + "reports = reports + ?, resolved = resolved + ? "
+            + "WHERE report_date = ? AND bus_number = ? AND issue_type = ?";
+    private static final String INSERT_SQL = "INSERT INTO feedback_daily_stats "
+            + "(report_date, bus_number, issue_type, submitted, reports, resolved) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public FeedbackStatsService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public record Bucket(LocalDate day, String busNumber, String issueType) {
+
+        public static Bucket of(Feedback feedback) {
+            return new Bucket(feedback.getCreatedAt().toLocalDate(), feedback.getBusNumber(), feedback.getIssueType());
+        }
+    }
+
+    public record Counts(int submitted, int reports, int resolved) {
+
+        public Counts plus(Counts other) {
+            return new Counts(submitted + other.submitted, reports + other.reports, resolved + other.resolved);
+        }
+    }
+
+    /**
+     * Changes to collect before {@link #apply}; several changes to a bucket are summed.
+     */
+    public static class Changes {
+
+        private final Map<Bucket, Counts> deltas = new TreeMap<>(BUCKET_ORDER);
+
+        public Changes add(Bucket bucket, int submitted, int reports, int resolved) {
+            deltas.merge(bucket, new Counts(submitted, reports, resolved), Counts::plus);
+            return this;
+        }
+
+        public boolean isEmpty() {
+            return deltas.isEmpty();
+        }
+    }
+
+    /**
+     * Add the changes to their buckets. Must run in the transaction that writes the
+     * feedback rows. Buckets are updated in a fixed order, so concurrent writers do not
+     * deadlock.
+     */
+    public void apply(Changes changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Bucket, Counts>> entries = new ArrayList<>(changes.deltas.entrySet());
+        List<Object[]> updates = new ArrayList<>(entries.size());
+        for (Map.Entry<Bucket, Counts> entry : entries) {
+            updates.add(updateArgs(entry.getKey(), entry.getValue()));
+        }
+        int[] updated = jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+
+        // First change of a bucket creates it. The insert runs under a savepoint: if
+        // another transaction created the bucket meanwhile, the insert fails on the key
+        // without aborting the caller's transaction, and the change is added to that row.
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                Bucket b = entries.get(i).getKey();
+                Counts c = entries.get(i).getValue();
+                if (!insert(b, c)) {
+                    jdbcTemplate.update(UPDATE_SQL, updateArgs(b, c));
+                }
+            }
+        }
+    }
+
+    /**
+     * Create the bucket, or return false if it already exists.
+     */
+    private boolean insert(Bucket b, Counts c) {
+        return jdbcTemplate.execute((ConnectionCallback<Boolean>) con -> {
+            Savepoint savepoint = con.setSavepoint();
+            try (PreparedStatement ps = con.prepareStatement(INSERT_SQL)) {
+                ps.setDate(1, Date.valueOf(b.day()));
+                ps.setString(2, b.busNumber());
+                ps.setString(3, b.issueType());
+                ps.setInt(4, c.submitted());
+                ps.setInt(5, c.reports());
+                ps.setInt(6, c.resolved());
+                ps.executeUpdate();
+            } catch (SQLException e) {
+                con.rollback(savepoint);
+                if (!isUniqueViolation(e)) {
+                    throw e;
+                }
+                return false;
+            }
+            con.releaseSavepoint(savepoint);
+            return true;
+        });
+    }
+
+    // 23505 is the standard SQLSTATE for a duplicate key, used by Postgres and H2
+    private static boolean isUniqueViolation(SQLException e) {
+        return "23505".equals(e.getSQLState());
+    }
+
+    private static Object[] updateArgs(Bucket b, Counts c) {
+        return new Object[] { c.submitted(), c.reports(), c.resolved(), Date.valueOf(b.day()), b.busNumber(),
+                b.issueType() };
+    }
+
+    /**
+     * Sum the buckets in [from, to] (both optional, inclusive) matching the optional bus
+     * and issue type, grouped by the given dimensions ("day", "bus", "issueType"). No
+     * dimensions gives a single total row.
+     *
+     * @throws IllegalArgumentException on an unknown dimension
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> query(LocalDate from, LocalDate to, String busNumber, String issueType,
+            List<String> groupBy) {
+        List<String> columns = new ArrayList<>();
+        for (String dimension : groupBy) {
+            String column = DIMENSIONS.get(dimension);
+            if (column == null) {
+                throw new IllegalArgumentException("Unknown groupBy: " + dimension);
+            }
+            if (!columns.contains(column)) {
+                columns.add(column);
+            }
+        }
+
+        List<String> conditions = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+        if (from != null) {
+            conditions.add("report_date >= ?");
+            args.add(Date.valueOf(from));
+        }
+        if (to != null) {
+            conditions.add("report_date <= ?");
+            args.add(Date.valueOf(to));
+        }
+        if (busNumber != null) {
+            conditions.add("bus_number = ?");
+            args.add(busNumber);
+        }
+        if (issueType != null) {
+            conditions.add("issue_type = ?");
+            args.add(issueType);
+        }
+
+        String dims = String.join(", ", columns);
+        String sql = "SELECT " + (columns.isEmpty() ? "" : dims + ", ")
+                + "COALESCE(SUM(submitted), 0) AS submitted, COALESCE(SUM(reports), 0) AS reports, "
+                + "COALESCE(SUM(resolved), 0) AS resolved FROM feedback_daily_stats"
+                + (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions))
+                + (columns.isEmpty() ? "" : " GROUP BY " + dims + " ORDER BY " + dims);
+
+        return jdbcTemplate.query(sql, (rs, rowNum) -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            if (columns.contains("report_date")) {
+                row.put("day", rs.getDate("report_date").toLocalDate().toString());
+            }
+            if (columns.contains("bus_number")) {
+                row.put("busNumber", rs.getString("bus_number"));
+            }
+            if (columns.contains("issue_type")) {
+                row.put("issueType", rs.getString("issue_type"));
+            }
+            long submitted = rs.getLong("submitted");
+            long resolved = rs.getLong("resolved");
+            row.put("submitted", submitted);
+            row.put("reports", rs.getLong("reports"));
+            row.put("resolved", resolved);
+            row.put("pending", submitted - resolved);
+            return row;
+        }, args.toArray());
+    }
+}
@@ -0,0 +1,417 @@
+package com.college.bus.bus_tracking.service;
+
+import com.college.bus.bus_tracking.model.BusData;
+import com.college.bus.bus_tracking.store.BusSessionStore;
+import com.college.bus.bus_tracking.store.BusStoreListener;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Crash-safe persistence of the live fleet store ({@link BusSessionStore}) on local disk.
+ *
+ * Every mutation is appended to a binary journal; periodically the whole store is
+ * written to a checkpoint and the journal is rotated. On startup the store is rebuilt
+ * from the last checkpoint plus the journals written after it, without touching the DB.
+ *
+ * Files in the store directory:
+ *   fleet.checkpoint   - MAGIC, version, journal generation, bus count, buses..., CRC32
+ *   journal-{gen}.log  - records of [op][length][payload][CRC32], replayed in order
+ */
+@Service
+public class FleetCheckpointService implements BusStoreListener {
+
+    private static final int CHECKPOINT_MAGIC = 0x42555343; // "BUSC"
+    private static final int FORMAT_VERSION = 1;
+    private static final String CHECKPOINT_FILE = "fleet.checkpoint";
+    private static final String JOURNAL_PREFIX = "journal-";
+    private static final String JOURNAL_SUFFIX = ".log";
+
+    private static final byte OP_PUT = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final byte OP_CLEAR = 3;
+
+    private final boolean enabled;
+    private final Path directory;
+
+    private final Object journalLock = new Object();
+    private DataOutputStream journal;
+    private long generation;
+    private volatile boolean started;
+
+    public FleetCheckpointService(
+            @Value("${fleet.store.journal.enabled:true}") boolean enabled,
+            @Value("${fleet.store.dir:data/fleet-store}") String directory) {
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+    }
+
+    /**
+     * Rebuild {@link BusSessionStore#BUS_MAP} from checkpoint + journal replay.
+     *
+     * @return false if there is no usable checkpoint, in which case the caller should
+     *         fall back to restoring from the database
+     */
+    public boolean restore() {
+        if (!enabled) {
+            return false;
+        }
+        Path checkpoint = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(checkpoint)) {
+            System.out.println("[FleetCheckpoint] No checkpoint found in " + directory.toAbsolutePath());
+            return false;
+        }
+
+        long startedAt = System.nanoTime();
+        Map<String, BusData> restored = new LinkedHashMap<>();
+        long checkpointGeneration;
+        try {
+            checkpointGeneration = readCheckpoint(checkpoint, restored);
+        } catch (IOException e) {
+            System.err.println("[FleetCheckpoint] Checkpoint unreadable, falling back to DB: " + e.getMessage());
+            return false;
+        }
+
+        int replayed = 0;
+        for (Map.Entry<Long, Path> entry : listJournals().entrySet()) {
+            if (entry.getKey() >= checkpointGeneration) {
+                replayed += replayJournal(entry.getValue(), restored);
+            }
+        }
+
+        BusSessionStore.restore(restored.values());
+        generation = Math.max(checkpointGeneration, listJournals().keySet().stream()
+                .mapToLong(Long::longValue).max().orElse(checkpointGeneration));
+
+        System.out.println("[FleetCheckpoint] Restored " + restored.size() + " buses from checkpoint + "
+                + replayed + " journal records in " + (System.nanoTime() - startedAt) / 1_000_000 + " ms");
+        return true;
+    }
+
+    /**
+     * Write a fresh checkpoint of the current store and start journaling mutations.
+     * Called once the store has been restored (from disk or from the DB).
+     */
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            synchronized (journalLock) {
+                started = true;
+                BusSessionStore.addListener(this);
+            }
+            checkpoint();
+        } catch (IOException e) {
+            System.err.println("[FleetCheckpoint] Unable to start journal in " + directory.toAbsolutePath()
+                    + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Periodically fold the journal into a new checkpoint.
+     */
+    @Scheduled(fixedDelayString = "${fleet.store.checkpoint-interval-ms:60000}")
+    public void checkpoint() {
+        if (!started) {
+            return;
+        }
+        try {
+            byte[] snapshot;
+            long newGeneration;
+            synchronized (journalLock) {
+                // Snapshot and rotation happen under the journal lock so that every
+                // mutation is either in the snapshot or in the new journal.
+                newGeneration = generation + 1;
+                snapshot = encodeCheckpoint(new ArrayList<>(BusSessionStore.BUS_MAP.values()), newGeneration);
+                closeJournal();
+                journal = new DataOutputStream(new BufferedOutputStream(
+                        new FileOutputStream(journalPath(newGeneration).toFile(), true)));
+                generation = newGeneration;
+            }
+
+            Path tmp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+            try (FileOutputStream out = new FileOutputStream(tmp.toFile())) {
+                out.write(snapshot);
+                out.getChannel().force(true);
+            }
+            Files.move(tmp, directory.resolve(CHECKPOINT_FILE),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            // Journals older than the checkpoint are no longer needed
+            for (Map.Entry<Long, Path> entry : listJournals().entrySet()) {
+                if (entry.getKey() < newGeneration) {
+                    Files.deleteIfExists(entry.getValue());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("[FleetCheckpoint] Checkpoint failed: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!started) {
+            return;
+        }
+        checkpoint();
+        synchronized (journalLock) {
+            BusSessionStore.removeListener(this);
+            started = false;
+            closeJournal();
+        }
+    }
+
+    @Override
+    public void onPut(BusData bus) {
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(128);
+            writeBus(new DataOutputStream(buffer), bus);
+            append(OP_PUT, buffer.toByteArray());
+        } catch (IOException e) {
+            System.err.println("[FleetCheckpoint] Journal write failed: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void onRemove(String busNumber) {
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(32);
+            new DataOutputStream(buffer).writeUTF(busNumber);
+            append(OP_REMOVE, buffer.toByteArray());
+        } catch (IOException e) {
+            System.err.println("[FleetCheckpoint] Journal write failed: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void onClear() {
+        try {
+            append(OP_CLEAR, new byte[0]);
+        } catch (IOException e) {
+            System.err.println("[FleetCheckpoint] Journal write failed: " + e.getMessage());
+        }
+    }
+
+    private void append(byte op, byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(op);
+        crc.update(payload);
+        synchronized (journalLock) {
+            if (journal == null) {
+                return;
+            }
+            journal.writeByte(op);
+            journal.writeInt(payload.length);
+            journal.write(payload);
+            journal.writeInt((int) crc.getValue());
+            // Hand the record to the OS so it survives a process crash
+            journal.flush();
+        }
+    }
+
+    private void closeJournal() {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.err.println("[FleetCheckpoint] Error closing journal: " + e.getMessage());
+            }
+            journal = null;
+        }
+    }
+
+    private int replayJournal(Path file, Map<String, BusData> target) {
+        int count = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                byte op;
+                try {
+                    op = in.readByte();
+                } catch (EOFException eof) {
+                    break;
+                }
+                int length = in.readInt();
+                if (length < 0 || length > 1 << 20) {
+                    throw new IOException("bad record length " + length);
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                int expected = in.readInt();
+                CRC32 crc = new CRC32();
+                crc.update(op);
+                crc.update(payload);
+                if ((int) crc.getValue() != expected) {
+                    throw new IOException("CRC mismatch");
+                }
+
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                switch (op) {
+                    case OP_PUT -> {
+                        BusData bus = readBus(record);
+                        target.put(bus.getBusNumber(), bus);
+                    }
+                    case OP_REMOVE -> target.remove(record.readUTF());
+                    case OP_CLEAR -> target.clear();
+                    default -> throw new IOException("unknown op " + op);
+                }
+                count++;
+            }
+        } catch (IOException e) {
+            // A torn record at the tail is expected after a crash; keep everything before it
+            System.err.println("[FleetCheckpoint] Stopped replay of " + file.getFileName() + " after " + count
+                    + " records: " + e.getMessage());
+        }
+        return count;
+    }
+
+    private long readCheckpoint(Path file, Map<String, BusData> target) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        if (bytes.length < 8) {
+            throw new IOException("checkpoint truncated");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 8);
+        long expected = ByteBuffer.wrap(bytes, bytes.length - 8, 8).getLong();
+        if (crc.getValue() != expected) {
+            throw new IOException("checkpoint CRC mismatch");
+        }
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (in.readInt() != CHECKPOINT_MAGIC) {
+                throw new IOException("not a fleet checkpoint");
+            }
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("unsupported checkpoint version " + version);
+            }
+            long checkpointGeneration = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                BusData bus = readBus(in);
+                target.put(bus.getBusNumber(), bus);
+            }
+            return checkpointGeneration;
+        }
+    }
+
+    private byte[] encodeCheckpoint(List<BusData> buses, long checkpointGeneration) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 + buses.size() * 128);
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeInt(CHECKPOINT_MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(checkpointGeneration);
+        out.writeInt(buses.size());
+        for (BusData bus : buses) {
+            writeBus(out, bus);
+        }
+        out.flush();
+        CRC32 crc = new CRC32();
+        crc.update(buffer.toByteArray());
+        out.writeLong(crc.getValue());
+        out.flush();
+        return buffer.toByteArray();
+    }
+
+    private static void writeBus(DataOutputStream out, BusData bus) throws IOException {
+        writeNullableLong(out, bus.getBusId());
+        out.writeUTF(bus.getBusNumber());
+        writeNullableLong(out, bus.getDriverId());
+        writeNullableString(out, bus.getBusName());
+        writeNullableString(out, bus.getBusStop());
+        out.writeDouble(bus.getLatitude());
+        out.writeDouble(bus.getLongitude());
+        writeNullableString(out, bus.getStatus());
+        writeNullableString(out, bus.getDriverName());
+        writeNullableString(out, bus.getDriverPhone());
+        out.writeLong(bus.getLastHeartbeatTime());
+    }
+
+    private static BusData readBus(DataInputStream in) throws IOException {
+        BusData bus = new BusData();
+        bus.setBusId(readNullableLong(in));
+        bus.setBusNumber(in.readUTF());
+        bus.setDriverId(readNullableLong(in));
+        bus.setBusName(readNullableString(in));
+        bus.setBusStop(readNullableString(in));
+        bus.setLatitude(in.readDouble());
+        bus.setLongitude(in.readDouble());
+        bus.setStatus(readNullableString(in));
+        bus.setDriverName(readNullableString(in));
+        bus.setDriverPhone(readNullableString(in));
+        bus.setLastHeartbeatTime(in.readLong());
+        return bus;
+    }
+
+    private static void writeNullableLong(DataOutputStream out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readNullableLong(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private Path journalPath(long journalGeneration) {
+        return directory.resolve(JOURNAL_PREFIX + journalGeneration + JOURNAL_SUFFIX);
+    }
+
+    private TreeMap<Long, Path> listJournals() {
+        TreeMap<Long, Path> journals = new TreeMap<>();
+        if (!Files.isDirectory(directory)) {
+            return journals;
+        }
+        try (var files = Files.list(directory)) {
+            files.forEach(path -> {
+                String name = path.getFileName().toString();
+                if (name.startsWith(JOURNAL_PREFIX) && name.endsWith(JOURNAL_SUFFIX)) {
+                    try {
+                        long gen = Long.parseLong(
+                                name.substring(JOURNAL_PREFIX.length(), name.length() - JOURNAL_SUFFIX.length()));
+                        journals.put(gen, path);
+                    } catch (NumberFormatException ignored) {
+                    }
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("[FleetCheckpoint] Unable to list journals: " + e.getMessage());
+        }
+        return journals;
+    }
+}
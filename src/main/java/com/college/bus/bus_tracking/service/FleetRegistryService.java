@@ -0,0 +1,486 @@
+package com.college.bus.bus_tracking.service;
+
+import com.college.bus.bus_tracking.cluster.Backplane;
+import com.college.bus.bus_tracking.cluster.BackplaneMessage;
+import com.college.bus.bus_tracking.entity.BusEntity;
+import com.college.bus.bus_tracking.model.BusData;
+import com.college.bus.bus_tracking.repository.BusRepository;
+import com.college.bus.bus_tracking.store.BusSessionStore;
+import com.college.bus.bus_tracking.store.BusStoreListener;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * In-memory view of the whole fleet: registered buses from the database merged with the
+ * live {@link BusSessionStore}. The database rows are cached until a bus is configured,
+ * deleted or leaves the live store, so serving the fleet does no DB work in steady state.
+ *
+ * Every change bumps the fleet version; the serialized (and gzipped) fleet is rebuilt
+ * at most once per version and identified by a strong ETag.
+ *
+ * The version of the last change of each bus is kept as well, so HTTP-only clients can
+ * long-poll for the buses changed since the version they last saw. Config changes and
+ * clears cannot be expressed per bus and make the next response a full one.
+ */
+@Service
+public class FleetRegistryService implements BusStoreListener {
+
+    private static final int MAX_TRACKED_BUSES = 4096;
+    private static final long WAKE_DELAY_MS = 100; // coalesces bursts of changes
+
+    private final BusRepository busRepository;
+    private final Backplane backplane;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    // Distinguishes versions of this process from those of a previous run or another node
+    private final String epoch = Long.toHexString(System.currentTimeMillis());
+    private final AtomicLong version = new AtomicLong(1);
+    private final AtomicLong configGeneration = new AtomicLong();
+
+    private volatile ConfigRows configRows;
+    private volatile Snapshot snapshot;
+
+    // busNumber -> version of its last change; versions below resetVersion are not tracked
+    private final Map<String, Long> busVersions = new ConcurrentHashMap<>();
+    private final Object changeLock = new Object();
+    private volatile long resetVersion = 1;
+
+    private final Queue<Watch> watches = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean wakeScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService notifier = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "FleetRegistry-notifier");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public FleetRegistryService(BusRepository busRepository, Backplane backplane) {
+        this.busRepository = busRepository;
+        this.backplane = backplane;
+    }
+
+    @PostConstruct
+    public void start() {
+        BusSessionStore.addListener(this);
+        backplane.subscribe(message -> {
+            if (message.getType() == BackplaneMessage.Type.CONFIG_CHANGED) {
+                dropConfig();
+            }
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        notifier.shutdownNow();
+    }
+
+    @Override
+    public void onPut(BusData bus) {
+        markChanged(bus.getBusNumber());
+    }
+
+    @Override
+    public void onRemove(String busNumber) {
+        // The DB row may hold a newer position than the cached one; the bus is then
+        // reported from the reloaded row, or as removed if it has none
+        configGeneration.incrementAndGet();
+        configRows = null;
+        markChanged(busNumber);
+    }
+
+    @Override
+    public void onClear() {
+        dropConfig();
+    }
+
+    /**
+     * Call after buses were added, edited or deleted in the database.
+     */
+    public void invalidateConfig() {
+        dropConfig();
+        backplane.publish(BackplaneMessage.configChanged());
+    }
+
+    private void dropConfig() {
+        configGeneration.incrementAndGet();
+        configRows = null;
+        synchronized (changeLock) {
+            resetVersion = version.incrementAndGet();
+            busVersions.clear();
+        }
+        scheduleWake();
+    }
+
+    private void markChanged(String busNumber) {
+        synchronized (changeLock) {
+            busVersions.put(busNumber, version.incrementAndGet());
+            if (busVersions.size() > MAX_TRACKED_BUSES) {
+                resetVersion = version.get();
+                busVersions.clear();
+            }
+        }
+        scheduleWake();
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * The merged fleet at the current version.
+     */
+    public Snapshot getSnapshot() throws IOException {
+        Snapshot current = snapshot;
+        long v = version.get();
+        if (current != null && current.version == v) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            v = version.get();
+            if (current != null && current.version == v) {
+                return current;
+            }
+            List<BusData> buses = merge(loadConfig().byNumber);
+            byte[] json = mapper.writeValueAsBytes(buses);
+            current = new Snapshot(v, epoch + "-" + v, buses, json, gzip(json));
+            snapshot = current;
+            return current;
+        }
+    }
+
+    /**
+     * Buses changed after the version token {@code since}. The response is full when
+     * the token is missing, from another process or older than the tracked history.
+     */
+    public Changes changesSince(String since) throws IOException {
+        Snapshot current = getSnapshot();
+        long sinceVersion = parseVersion(since);
+        if (sinceVersion < resetVersion || sinceVersion > current.version) {
+            return new Changes(current.getVersionToken(), true, current.buses, List.of());
+        }
+
+        Map<String, BusData> byNumber = null;
+        List<BusData> buses = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : busVersions.entrySet()) {
+            long v = entry.getValue();
+            if (v <= sinceVersion || v > current.version) {
+                continue;
+            }
+            if (byNumber == null) {
+                byNumber = new HashMap<>();
+                for (BusData bus : current.buses) {
+                    byNumber.put(bus.getBusNumber(), bus);
+                }
+            }
+            BusData bus = byNumber.get(entry.getKey());
+            if (bus != null) {
+                buses.add(bus);
+            } else {
+                removed.add(entry.getKey());
+            }
+        }
+        return new Changes(current.getVersionToken(), false, buses, removed);
+    }
+
+    /**
+     * Long-poll for {@link #changesSince}: completes as soon as something changed after
+     * {@code since}, or with an empty response after the timeout. No thread is held
+     * while waiting.
+     */
+    public DeferredResult<Changes> awaitChanges(String since, long timeoutMs) throws IOException {
+        DeferredResult<Changes> result = new DeferredResult<>(timeoutMs);
+        long seenVersion = version.get();
+        Changes changes = changesSince(since);
+        if (!changes.isEmpty()) {
+            result.setResult(changes);
+            return result;
+        }
+
+        Watch watch = new Watch(since, result);
+        watches.add(watch);
+        result.onTimeout(() -> result.setResult(changes));
+        result.onCompletion(() -> watches.remove(watch));
+        // A change between the check above and registering the watch
+        if (version.get() != seenVersion) {
+            scheduleWake();
+        }
+        return result;
+    }
+
+    private void scheduleWake() {
+        if (!watches.isEmpty() && wakeScheduled.compareAndSet(false, true)) {
+            try {
+                notifier.schedule(this::wakeWatches, WAKE_DELAY_MS, TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                wakeScheduled.set(false);
+            }
+        }
+    }
+
+    private void wakeWatches() {
+        wakeScheduled.set(false);
+        for (Watch watch : watches) {
+            try {
+                Changes changes = changesSince(watch.since);
+                if (!changes.isEmpty()) {
+                    watches.remove(watch);
+                    watch.result.setResult(changes);
+                }
+            } catch (Exception e) {
+                System.err.println("[FleetRegistry] Failed to answer change watch: " + e.getMessage());
+            }
+        }
+    }
+
+    private long parseVersion(String token) {
+        if (token == null) {
+            return -1;
+        }
+        int dash = token.indexOf('-');
+        if (dash < 0 || !token.substring(0, dash).equals(epoch)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(token.substring(dash + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * A registered bus by id, with its live data when tracked.
+     */
+    public BusData findById(Long busId) {
+        BusData live = BusSessionStore.findById(busId);
+        if (live != null) {
+            return live;
+        }
+        BusData row = loadConfig().byId.get(busId);
+        if (row == null) {
+            return null;
+        }
+        live = BusSessionStore.BUS_MAP.get(row.getBusNumber());
+        return live != null ? live : row;
+    }
+
+    /**
+     * Buses assigned to a driver, with their live data when tracked. A tracked bus
+     * belongs to the driver in its live data, which is newer than the cached row.
+     */
+    public List<BusData> findByDriverId(Long driverId) {
+        Map<String, BusData> result = new LinkedHashMap<>();
+        for (BusData row : loadConfig().byDriver.getOrDefault(driverId, List.of())) {
+            BusData live = BusSessionStore.BUS_MAP.get(row.getBusNumber());
+            if (live == null) {
+                result.put(row.getBusNumber(), row);
+            } else if (driverId.equals(live.getDriverId())) {
+                result.put(row.getBusNumber(), live);
+            }
+        }
+        for (BusData live : BusSessionStore.findByDriverId(driverId)) {
+            result.putIfAbsent(live.getBusNumber(), live);
+        }
+        return new ArrayList<>(result.values());
+    }
+
+    private ConfigRows loadConfig() {
+        ConfigRows rows = configRows;
+        if (rows != null) {
+            return rows;
+        }
+        long generation = configGeneration.get();
+        rows = new ConfigRows();
+        for (BusEntity entity : busRepository.findAll()) {
+            rows.add(toBusData(entity, entity.getStatus() != null ? entity.getStatus() : "INACTIVE"),
+                    toBusData(entity, "INACTIVE"));
+        }
+        // Keep the rows only if nothing was invalidated while they were being read
+        if (configGeneration.get() == generation) {
+            configRows = rows;
+        }
+        System.out.println("[FleetRegistry] Loaded " + rows.byNumber.size() + " bus configs from database");
+        return rows;
+    }
+
+    private static BusData toBusData(BusEntity entity, String status) {
+        return new BusData(
+                entity.getId(),
+                entity.getBusNumber(),
+                entity.getDriverId(),
+                entity.getBusName(),
+                entity.getBusStop(),
+                entity.getLatitude(),
+                entity.getLongitude(),
+                status,
+                entity.getDriverName(),
+                entity.getDriverPhone());
+    }
+
+    /**
+     * DB buses in DB order, replaced by their live data when tracked, followed by live
+     * buses that are not (yet) saved.
+     */
+    private static List<BusData> merge(Map<String, BusData> rows) {
+        Map<String, BusData> merged = new LinkedHashMap<>();
+        for (Map.Entry<String, BusData> row : rows.entrySet()) {
+            BusData live = BusSessionStore.BUS_MAP.get(row.getKey());
+            merged.put(row.getKey(), live != null ? live : row.getValue());
+        }
+        for (Map.Entry<String, BusData> entry : BusSessionStore.BUS_MAP.entrySet()) {
+            merged.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Cached database rows, indexed by bus number, id and driver id. The id and driver
+     * lookups report the stored status; the fleet listing reports untracked buses as
+     * INACTIVE.
+     */
+    private static class ConfigRows {
+        final Map<String, BusData> byNumber = new LinkedHashMap<>();
+        final Map<Long, BusData> byId = new HashMap<>();
+        final Map<Long, List<BusData>> byDriver = new HashMap<>();
+
+        void add(BusData row, BusData listed) {
+            byNumber.put(row.getBusNumber(), listed);
+            if (row.getBusId() != null) {
+                byId.put(row.getBusId(), row);
+            }
+            if (row.getDriverId() != null) {
+                byDriver.computeIfAbsent(row.getDriverId(), k -> new ArrayList<>()).add(row);
+            }
+        }
+    }
+
+    private static class Watch {
+        final String since;
+        final DeferredResult<Changes> result;
+
+        Watch(String since, DeferredResult<Changes> result) {
+            this.since = since;
+            this.result = result;
+        }
+    }
+
+    /**
+     * Serialized fleet at one version.
+     */
+    public static class Snapshot {
+        private final long version;
+        private final String versionToken;
+        private final List<BusData> buses;
+        private final byte[] json;
+        private final byte[] gzippedJson;
+
+        Snapshot(long version, String versionToken, List<BusData> buses, byte[] json, byte[] gzippedJson) {
+            this.version = version;
+            this.versionToken = versionToken;
+            this.buses = buses;
+            this.json = json;
+            this.gzippedJson = gzippedJson;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Version as exchanged with clients: process epoch and version number.
+         */
+        public String getVersionToken() {
+            return versionToken;
+        }
+
+        public String getEtag() {
+            return "\"" + versionToken + "\"";
+        }
+
+        public List<BusData> getBuses() {
+            return buses;
+        }
+
+        public byte[] getJson() {
+            return json;
+        }
+
+        public byte[] getGzippedJson() {
+            return gzippedJson;
+        }
+
+        /**
+         * Strong ETag of the gzip-encoded representation.
+         */
+        public String getGzipEtag() {
+            return "\"" + versionToken + "-gzip\"";
+        }
+    }
+
+    /**
+     * Buses changed since a version; {@code full} means {@code buses} is the whole fleet.
+     */
+    public static class Changes {
+        private final String version;
+        private final boolean full;
+        private final List<BusData> buses;
+        private final List<String> removed;
+
+        Changes(String version, boolean full, List<BusData> buses, List<String> removed) {
+            this.version = version;
+            this.full = full;
+            this.buses = buses;
+            this.removed = removed;
+        }
+
+        public String getVersion() {
+            return version;
+        }
+
+        public boolean isFull() {
+            return full;
+        }
+
+        public List<BusData> getBuses() {
+            return buses;
+        }
+
+        public List<String> getRemoved() {
+            return removed;
+        }
+
+        @JsonIgnore
+        public boolean isEmpty() {
+            return !full && buses.isEmpty() && removed.isEmpty();
+        }
+    }
+}
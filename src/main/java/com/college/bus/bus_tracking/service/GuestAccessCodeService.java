@@ -1,63 +1,128 @@
 package com.college.bus.bus_tracking.service;
 
+import com.college.bus.bus_tracking.cluster.Backplane;
+import com.college.bus.bus_tracking.cluster.BackplaneMessage;
+import com.college.bus.bus_tracking.cluster.ClusterMembershipService;
 import com.college.bus.bus_tracking.entity.GuestAccessCode;
 import com.college.bus.bus_tracking.repository.GuestAccessCodeRepository;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.time.LocalDateTime;
-import java.util.Optional;
+import java.time.ZoneId;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * The current guest access code is held in memory, so validating a guest attempt is a
+ * volatile read and a constant-time compare. Codes are only generated under a lock that
+ * re-checks the holder, so concurrent callers that all see an expired code produce a
+ * single new one. In a cluster only the owner of {@link #OWNER_KEY} generates codes on
+ * its own (at midnight and when the code expired); the other nodes reload the latest
+ * code on GUEST_CODE_CHANGED.
+ */
 @Service
 public class GuestAccessCodeService {
 
+    static final String OWNER_KEY = "guest-access-code";
+
     @Autowired
     private GuestAccessCodeRepository repository;
 
+    @Autowired
+    private Backplane backplane;
+
+    @Autowired
+    private ClusterMembershipService clusterMembershipService;
+
     private final Random random = new Random();
 
+    private final AtomicReference<CurrentCode> current = new AtomicReference<>();
+    private final Object generationLock = new Object();
+
+    @PostConstruct
+    public void start() {
+        reload();
+        backplane.subscribe(message -> {
+            if (message.getType() == BackplaneMessage.Type.GUEST_CODE_CHANGED) {
+                reload();
+            }
+        });
+    }
+
+    /**
+     * Replace the held code with the latest one in the database.
+     */
+    private void reload() {
+        synchronized (generationLock) {
+            current.set(repository.findTopByOrderByCreatedAtDesc().map(CurrentCode::new).orElse(null));
+        }
+    }
+
     /**
      * Get the current active guest access code.
-     * If none exists or the current one is expired, generate a new one.
+     * If none exists or the current one is expired, the owning node generates a new one;
+     * the others return the latest one in the database (null before the first one).
      */
     public GuestAccessCode getCurrentCode() {
-        Optional<GuestAccessCode> latest = repository.findTopByOrderByCreatedAtDesc();
-
-        if (latest.isPresent() && !latest.get().isExpired()) {
-            return latest.get();
+        CurrentCode held = current.get();
+        if (held != null && !held.isExpired()) {
+            return held.accessCode;
+        }
+        synchronized (generationLock) {
+            // Another caller may have generated it while this one waited
+            held = current.get();
+            if (held != null && !held.isExpired()) {
+                return held.accessCode;
+            }
+            if (clusterMembershipService.isOwner(OWNER_KEY)) {
+                return generateNewCode();
+            }
+            // The owner replaces it within a refresh period; pick it up if it already did
+            current.set(repository.findTopByOrderByCreatedAtDesc().map(CurrentCode::new).orElse(null));
+            held = current.get();
+            return held != null ? held.accessCode : null;
         }
-
-        // Generate new code
-        return generateNewCode();
     }
 
     /**
-     * Validate a guest access code entered by a user.
+     * Validate a guest access code entered by a user. Expired codes are rejected;
+     * the scheduler replaces them.
      */
     public boolean validateCode(String code) {
-        GuestAccessCode current = getCurrentCode();
-        return current.getCode().equals(code);
+        CurrentCode held = current.get();
+        if (held == null || code == null || held.isExpired()) {
+            return false;
+        }
+        return MessageDigest.isEqual(held.codeBytes, code.getBytes(StandardCharsets.UTF_8));
     }
 
     /**
      * Manually regenerate the guest access code (admin action).
      */
     public GuestAccessCode regenerateCode() {
-        return generateNewCode();
+        synchronized (generationLock) {
+            return generateNewCode();
+        }
     }
 
     /**
-     * Generate a new random 6-digit code with 24-hour expiration.
+     * Generate a new random 6-digit code with 24-hour expiration. Called with the
+     * generation lock held.
      */
     private GuestAccessCode generateNewCode() {
         String code = String.format("%06d", random.nextInt(1000000));
         LocalDateTime now = LocalDateTime.now();
         LocalDateTime expiresAt = now.plusHours(24);
 
-        GuestAccessCode accessCode = new GuestAccessCode(code, now, expiresAt);
-        return repository.save(accessCode);
+        GuestAccessCode accessCode = repository.save(new GuestAccessCode(code, now, expiresAt));
+        current.set(new CurrentCode(accessCode));
+        backplane.publish(BackplaneMessage.guestCodeChanged());
+        return accessCode;
     }
 
     /**
@@ -66,7 +131,38 @@ public class GuestAccessCodeService {
      */
     @Scheduled(cron = "0 0 0 * * *")
     public void scheduledCodeRegeneration() {
+        if (!clusterMembershipService.isOwner(OWNER_KEY)) {
+            return;
+        }
         System.out.println("[GuestAccess] Scheduled code regeneration triggered");
-        generateNewCode();
+        regenerateCode();
+    }
+
+    /**
+     * Replace an expired code (e.g. one regenerated by an admin during the day) so
+     * validation never has to.
+     */
+    @Scheduled(fixedRate = 60_000)
+    public void refreshExpiredCode() {
+        getCurrentCode();
+    }
+
+    /**
+     * Immutable view of the code being held.
+     */
+    private static class CurrentCode {
+        final GuestAccessCode accessCode;
+        final byte[] codeBytes;
+        final long expiresAtMillis;
+
+        CurrentCode(GuestAccessCode accessCode) {
+            this.accessCode = accessCode;
+            this.codeBytes = accessCode.getCode().getBytes(StandardCharsets.UTF_8);
+            this.expiresAtMillis = accessCode.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() > expiresAtMillis;
+        }
     }
 }
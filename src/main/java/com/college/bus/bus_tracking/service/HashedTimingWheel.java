@@ -0,0 +1,190 @@
+package com.college.bus.bus_tracking.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hashed timing wheel of keyed deadlines. Scheduling or re-arming a key is O(1), and
+ * each tick only visits the timeouts that hash to the current slot. A deadline that
+ * moves later is updated in place and re-slotted lazily when its old slot comes up,
+ * so heartbeat-driven re-arming costs a field write.
+ *
+ * Timeouts fire on the wheel thread no earlier than their deadline and at most one
+ * tick after it.
+ */
+public class HashedTimingWheel {
+
+    private final String name;
+    private final long tickMs;
+    private final int mask;
+    private final List<List<Timeout>> slots;
+    private final Map<String, Timeout> timeouts = new HashMap<>();
+
+    private long lastProcessedTick;
+    private Thread worker;
+    private volatile boolean running;
+    private volatile Runnable tickListener;
+
+    /**
+     * @param tickMs     resolution of the wheel
+     * @param slotCount  number of slots, rounded up to a power of two
+     */
+    public HashedTimingWheel(String name, long tickMs, int slotCount) {
+        this.name = name;
+        this.tickMs = tickMs;
+        int size = Integer.highestOneBit(Math.max(1, slotCount - 1)) << 1;
+        this.mask = size - 1;
+        this.slots = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            slots.add(new ArrayList<>());
+        }
+        this.lastProcessedTick = System.currentTimeMillis() / tickMs - 1;
+    }
+
+    /**
+     * Run after the tasks of the ticks processed together whenever any timeout expired,
+     * so tasks can batch their side effects.
+     */
+    public void setTickListener(Runnable tickListener) {
+        this.tickListener = tickListener;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::run, name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public void stop() {
+        running = false;
+        Thread t = worker;
+        if (t != null) {
+            t.interrupt();
+        }
+    }
+
+    /**
+     * Arm (or re-arm) the timeout for a key. The task replaces any task previously
+     * scheduled under the same key.
+     */
+    public synchronized void schedule(String key, long deadline, Runnable task) {
+        Timeout timeout = timeouts.get(key);
+        if (timeout == null) {
+            timeout = new Timeout(key);
+            timeouts.put(key, timeout);
+        } else if (deadline >= timeout.deadline) {
+            // Later deadline: moved to the right slot when its current slot is reached
+            timeout.deadline = deadline;
+            timeout.task = task;
+            return;
+        }
+        timeout.deadline = deadline;
+        timeout.task = task;
+        place(timeout);
+    }
+
+    public synchronized void cancel(String key) {
+        timeouts.remove(key);
+    }
+
+    public synchronized void cancelAll() {
+        timeouts.clear();
+        for (List<Timeout> slot : slots) {
+            slot.clear();
+        }
+    }
+
+    public synchronized int size() {
+        return timeouts.size();
+    }
+
+    private void place(Timeout timeout) {
+        long tick = Math.max(timeout.deadline / tickMs, lastProcessedTick + 1);
+        int index = (int) (tick & mask);
+        timeout.slot = index;
+        slots.get(index).add(timeout);
+    }
+
+    private void run() {
+        while (running) {
+            long nextTickEnd = (lastProcessedTick + 2) * tickMs;
+            long sleep = nextTickEnd - System.currentTimeMillis();
+            if (sleep > 0) {
+                try {
+                    Thread.sleep(sleep);
+                } catch (InterruptedException e) {
+                    continue;
+                }
+            }
+            // Catch up on every tick that has fully elapsed
+            long currentTick = System.currentTimeMillis() / tickMs - 1;
+            boolean expired = false;
+            while (running && lastProcessedTick < currentTick) {
+                for (Timeout timeout : advance()) {
+                    expired = true;
+                    try {
+                        timeout.task.run();
+                    } catch (Exception e) {
+                        System.err.println("[" + name + "] Timeout task for " + timeout.key + " failed: "
+                                + e.getMessage());
+                    }
+                }
+            }
+            Runnable listener = tickListener;
+            if (expired && listener != null) {
+                try {
+                    listener.run();
+                } catch (Exception e) {
+                    System.err.println("[" + name + "] Tick listener failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Process the next tick and return the timeouts that expired in it.
+     */
+    private synchronized List<Timeout> advance() {
+        long tick = ++lastProcessedTick;
+        int index = (int) (tick & mask);
+        List<Timeout> slot = slots.get(index);
+        if (slot.isEmpty()) {
+            return List.of();
+        }
+        List<Timeout> pending = new ArrayList<>(slot);
+        slot.clear();
+
+        long tickEnd = (tick + 1) * tickMs;
+        List<Timeout> expired = new ArrayList<>();
+        for (Timeout timeout : pending) {
+            // Skip cancelled timeouts and stale entries of timeouts that moved slot
+            if (timeouts.get(timeout.key) != timeout || timeout.slot != index) {
+                continue;
+            }
+            if (timeout.deadline < tickEnd) {
+                timeouts.remove(timeout.key);
+                expired.add(timeout);
+            } else {
+                place(timeout);
+            }
+        }
+        return expired;
+    }
+
+    private static class Timeout {
+        final String key;
+        long deadline;
+        Runnable task;
+        int slot;
+
+        Timeout(String key) {
+            this.key = key;
+        }
+    }
+}
@@ -1,80 +1,197 @@
 package com.college.bus.bus_tracking.service;
 
+import com.college.bus.bus_tracking.cluster.ClusterMembershipService;
 import com.college.bus.bus_tracking.model.BusData;
 import com.college.bus.bus_tracking.repository.BusRepository;
 import com.college.bus.bus_tracking.store.BusSessionStore;
+import com.college.bus.bus_tracking.store.BusStoreListener;
 import com.college.bus.bus_tracking.handler.UserHandler;
 import com.college.bus.bus_tracking.websocket.AdminWebSocketHandler;
-import org.springframework.scheduling.annotation.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Periodically checks for buses whose lastHeartbeatTime is stale (>30 seconds).
- * If a bus is still marked RUNNING but hasn't sent a heartbeat, this service
- * marks it as STOPPED. This is the authoritative background checker that
- * catches genuinely-offline buses.
+ * Detects buses whose lastHeartbeatTime is stale (>30 seconds by default) and drivers that did not
+ * come back after a disconnect. Both are deadlines on one hashed timing wheel: every
+ * store update of a RUNNING bus re-arms its stale deadline, so a bus is marked STOPPED
+ * right when its heartbeat goes stale instead of on the next periodic scan.
+ * In a cluster each node only acts on the buses it owns, but keeps the deadlines of the
+ * others armed so it takes over when their owner dies. Buses expiring in the same
+ * tick are written to the DB with one statement per status and broadcast once.
  */
 @Service
-public class HeartbeatMonitorService {
+public class HeartbeatMonitorService implements BusStoreListener {
 
-    private static final long STALE_THRESHOLD_MS = 30_000; // 30 seconds
+    public static final long GRACE_PERIOD_MS = 2_000; // 2 seconds before marking inactive
+    private static final String GRACE_KEY_PREFIX = "grace|";
 
     private final BusRepository busRepository;
     private final UserHandler userHandler;
+    private final ClusterMembershipService clusterMembershipService;
+    private final long staleThresholdMs;
+    private final HashedTimingWheel wheel = new HashedTimingWheel("HeartbeatMonitor", 100, 512);
 
-    public HeartbeatMonitorService(BusRepository busRepository, UserHandler userHandler) {
+    // Buses marked in memory during the current tick, flushed to the DB after it
+    private final Set<String> pendingStopped = ConcurrentHashMap.newKeySet();
+    private final Set<String> pendingInactive = ConcurrentHashMap.newKeySet();
+
+    public HeartbeatMonitorService(BusRepository busRepository, UserHandler userHandler,
+            ClusterMembershipService clusterMembershipService,
+            @Value("${heartbeat.stale-threshold-ms:30000}") long staleThresholdMs) {
         this.busRepository = busRepository;
         this.userHandler = userHandler;
+        this.clusterMembershipService = clusterMembershipService;
+        this.staleThresholdMs = staleThresholdMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        BusSessionStore.addListener(this);
+        wheel.setTickListener(this::flushExpired);
+        wheel.start();
+    }
+
+    /**
+     * Arm the buses restored at startup, some of which bypass the store listeners.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void armRestoredBuses() {
+        for (BusData bus : BusSessionStore.findByStatus("RUNNING")) {
+            onPut(bus);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        BusSessionStore.removeListener(this);
+        wheel.stop();
+    }
+
+    @Override
+    public void onPut(BusData bus) {
+        String busNumber = bus.getBusNumber();
+        if ("RUNNING".equals(bus.getStatus())) {
+            wheel.schedule(busNumber, bus.getLastHeartbeatTime() + staleThresholdMs,
+                    () -> checkStaleHeartbeat(busNumber));
+        } else {
+            wheel.cancel(busNumber);
+        }
+    }
+
+    @Override
+    public void onRemove(String busNumber) {
+        wheel.cancel(busNumber);
+        wheel.cancel(GRACE_KEY_PREFIX + busNumber);
+    }
+
+    @Override
+    public void onClear() {
+        wheel.cancelAll();
+    }
+
+    /**
+     * Start the grace period of a driver that disconnected. If the driver reconnects and
+     * sends a heartbeat before it ends, the bus keeps running; otherwise it is marked INACTIVE.
+     */
+    public void driverDisconnected(String busNumber, long disconnectTime) {
+        wheel.schedule(GRACE_KEY_PREFIX + busNumber, disconnectTime + GRACE_PERIOD_MS,
+                () -> checkGracePeriod(busNumber, disconnectTime));
     }
 
-    @Scheduled(fixedRate = 15000) // Run every 15 seconds
-    public void checkStaleHeartbeats() {
+    private void checkStaleHeartbeat(String busNumber) {
+        BusData bus = BusSessionStore.BUS_MAP.get(busNumber);
+        if (bus == null || !"RUNNING".equals(bus.getStatus())) {
+            return;
+        }
         long now = System.currentTimeMillis();
-        boolean changed = false;
-
-        for (Map.Entry<String, BusData> entry : BusSessionStore.BUS_MAP.entrySet()) {
-            String busNumber = entry.getKey();
-            BusData bus = entry.getValue();
-
-            // Only check buses that are currently RUNNING
-            if ("RUNNING".equals(bus.getStatus())) {
-                long elapsed = now - bus.getLastHeartbeatTime();
-                if (elapsed > STALE_THRESHOLD_MS) {
-                    bus.setStatus("STOPPED");
-                    System.out.println("[HeartbeatMonitor] Bus " + busNumber
-                            + " heartbeat stale (" + (elapsed / 1000) + "s) — marked STOPPED");
-
-                    // Update DB
-                    busRepository.findByBusNumber(busNumber).ifPresent(entity -> {
-                        entity.setStatus("STOPPED");
-                        busRepository.save(entity);
-                    });
-
-                    changed = true;
-                }
-            }
+        long elapsed = now - bus.getLastHeartbeatTime();
+        if (elapsed <= staleThresholdMs) {
+            // Heartbeat updated without a store notification; wait for the new deadline
+            onPut(bus);
+            return;
+        }
+        // The owner publishes the STOPPED bus, which cancels this deadline on the other
+        // nodes. Until then keep checking: if the owner died, this node may own it next.
+        if (!clusterMembershipService.isOwner(busNumber)) {
+            wheel.schedule(busNumber, now + staleThresholdMs, () -> checkStaleHeartbeat(busNumber));
+            return;
         }
 
-        if (changed) {
-            // Broadcast the status changes to all connected clients
-            userHandler.broadcastUpdate();
-
-            try {
-                List<BusData> currentBuses = new ArrayList<>(BusSessionStore.BUS_MAP.values());
-                Map<String, Object> update = new HashMap<>();
-                update.put("type", "BUS_UPDATE");
-                update.put("buses", currentBuses);
-                update.put("source", "HeartbeatMonitor");
-                update.put("timestamp", System.currentTimeMillis());
-                AdminWebSocketHandler.broadcastToAdmins(update);
-            } catch (Exception e) {
-                System.err.println("[HeartbeatMonitor] Failed to broadcast to admins: " + e.getMessage());
+        bus.setStatus("STOPPED");
+        BusSessionStore.changed(bus);
+        System.out.println("[HeartbeatMonitor] Bus " + busNumber
+                + " heartbeat stale (" + (elapsed / 1000) + "s) — marked STOPPED");
+        pendingStopped.add(busNumber);
+    }
+
+    private void checkGracePeriod(String busNumber, long disconnectTime) {
+        BusData bus = BusSessionStore.BUS_MAP.get(busNumber);
+        if (bus != null && bus.getLastHeartbeatTime() <= disconnectTime) {
+            // No heartbeat received since disconnect → mark INACTIVE
+            bus.setStatus("INACTIVE");
+            BusSessionStore.changed(bus);
+            System.out.println("[HeartbeatMonitor] Grace period expired — marked INACTIVE: " + busNumber);
+            pendingInactive.add(busNumber);
+        } else {
+            System.out.println("[HeartbeatMonitor] Grace period: driver reconnected for bus " + busNumber
+                    + " — keeping RUNNING");
+        }
+    }
+
+    /**
+     * Write the statuses set during the last tick to the DB and broadcast them once.
+     */
+    private void flushExpired() {
+        List<String> stopped = drain(pendingStopped);
+        List<String> inactive = drain(pendingInactive);
+        if (stopped.isEmpty() && inactive.isEmpty()) {
+            return;
+        }
+        // Update DB
+        if (!stopped.isEmpty()) {
+            busRepository.updateStatusByBusNumberIn(stopped, "STOPPED");
+        }
+        if (!inactive.isEmpty()) {
+            busRepository.updateStatusByBusNumberIn(inactive, "INACTIVE");
+        }
+        broadcastChange();
+    }
+
+    private static List<String> drain(Set<String> pending) {
+        List<String> busNumbers = new ArrayList<>();
+        for (String busNumber : pending) {
+            if (pending.remove(busNumber)) {
+                busNumbers.add(busNumber);
             }
         }
+        return busNumbers;
+    }
+
+    private void broadcastChange() {
+        // Broadcast the status changes to all connected clients
+        userHandler.broadcastUpdate();
+
+        try {
+            List<BusData> currentBuses = new ArrayList<>(BusSessionStore.BUS_MAP.values());
+            Map<String, Object> update = new HashMap<>();
+            update.put("type", "BUS_UPDATE");
+            update.put("buses", currentBuses);
+            update.put("source", "HeartbeatMonitor");
+            update.put("timestamp", System.currentTimeMillis());
+            AdminWebSocketHandler.broadcastToAdmins(update);
+        } catch (Exception e) {
+            System.err.println("[HeartbeatMonitor] Failed to broadcast to admins: " + e.getMessage());
+        }
     }
 }
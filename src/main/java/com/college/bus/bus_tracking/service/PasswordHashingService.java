@@ -0,0 +1,197 @@
+package com.college.bus.bus_tracking.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Runs BCrypt hashing and verification on a small pool sized to a share of the CPUs, so
+ * a login storm cannot take every core from WebSocket I/O and driver ingest. Callers wait
+ * for their result; when the pool's queue is full the work is refused with a
+ * {@link BusyException} carrying a Retry-After estimate instead of being queued.
+ *
+ * Passwords stored before hashing was introduced are compared as plaintext;
+ * {@link #isHashed} tells callers to rehash them after a successful login.
+ */
+@Service
+public class PasswordHashingService {
+
+    private static final Pattern BCRYPT = Pattern.compile("\\A\\$2[aby]?\\$\\d\\d\\$[./0-9A-Za-z]{53}");
+
+    /**
+     * The hashing pool is saturated; retry after the given number of seconds.
+     */
+    public static class BusyException extends RuntimeException {
+
+        private final long retryAfterSeconds;
+
+        public BusyException(long retryAfterSeconds) {
+            super("Too many sign-in attempts right now. Please try again in a few seconds.");
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+
+    private final BCryptPasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final int threads;
+    private final int queueLimit;
+
+    private final Timing queueWait = new Timing();
+    private final Timing hashTime = new Timing();
+    private final LongAdder rejected = new LongAdder();
+
+    public PasswordHashingService(BCryptPasswordEncoder passwordEncoder,
+            @Value("${auth.hashing.cpu-share:0.5}") double cpuShare,
+            @Value("${auth.hashing.queue-limit:200}") int queueLimit) {
+        this.passwordEncoder = passwordEncoder;
+        this.threads = Math.max(1, (int) (Runtime.getRuntime().availableProcessors() * cpuShare));
+        this.queueLimit = queueLimit;
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueLimit), r -> {
+                    Thread thread = new Thread(r, "password-hash-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        System.out.println("[PasswordHashing] " + threads + " threads, queue limit " + queueLimit);
+    }
+
+    /**
+     * Whether the stored password is a BCrypt hash rather than legacy plaintext.
+     */
+    public static boolean isHashed(String storedPassword) {
+        return storedPassword != null && BCRYPT.matcher(storedPassword).matches();
+    }
+
+    /**
+     * @throws BusyException when the hashing pool is saturated
+     */
+    public boolean matches(String rawPassword, String storedPassword) {
+        if (rawPassword == null || storedPassword == null) {
+            return false;
+        }
+        if (!isHashed(storedPassword)) {
+            return MessageDigest.isEqual(rawPassword.getBytes(StandardCharsets.UTF_8),
+                    storedPassword.getBytes(StandardCharsets.UTF_8));
+        }
+        return run(() -> passwordEncoder.matches(rawPassword, storedPassword));
+    }
+
+    /**
+     * @throws BusyException when the hashing pool is saturated
+     */
+    public String encode(String rawPassword) {
+        return run(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    private <T> T run(Callable<T> work) {
+        long submittedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long startedAt = System.nanoTime();
+                queueWait.record(startedAt - submittedAt);
+                try {
+                    return work.call();
+                } finally {
+                    hashTime.record(System.nanoTime() - startedAt);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new BusyException(retryAfterSeconds());
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Time for the pool to work through a full queue.
+     */
+    private long retryAfterSeconds() {
+        double hashMillis = Math.max(hashTime.averageMillis(), 100);
+        return Math.max(1, (long) Math.ceil(queueLimit * hashMillis / threads / 1000));
+    }
+
+    /**
+     * Pool size and queue depth, rejections, and queue wait / hash time in milliseconds.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("threads", threads);
+        stats.put("queueLimit", queueLimit);
+        stats.put("queueDepth", executor.getQueue().size());
+        stats.put("active", executor.getActiveCount());
+        stats.put("completed", executor.getCompletedTaskCount());
+        stats.put("rejected", rejected.sum());
+        stats.put("queueWait", queueWait.toMap());
+        stats.put("hashTime", hashTime.toMap());
+        return stats;
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Count, mean and max of recorded durations.
+     */
+    private static class Timing {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        double averageMillis() {
+            long n = count.sum();
+            return n == 0 ? 0 : totalNanos.sum() / 1_000_000.0 / n;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("count", count.sum());
+            map.put("averageMillis", averageMillis());
+            map.put("maxMillis", maxNanos.get() / 1_000_000.0);
+            return map;
+        }
+    }
+}
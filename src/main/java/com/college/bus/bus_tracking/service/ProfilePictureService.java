@@ -0,0 +1,157 @@
+package com.college.bus.bus_tracking.service;
+
+import com.college.bus.bus_tracking.store.BlobStore;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Iterator;
+
+/**
+ * Stores profile pictures in the {@link BlobStore} and renders their thumbnails. Only
+ * images ImageIO can decode (JPEG, PNG, GIF, BMP) are accepted, and their dimensions are
+ * checked from the header before any pixels are decoded.
+ */
+@Service
+public class ProfilePictureService {
+
+    public static final long MAX_BYTES = 10L * 1024 * 1024;
+    public static final String THUMBNAIL = "thumb-160";
+
+    private static final int THUMBNAIL_SIZE = 160;
+    private static final long MAX_PIXELS = 40_000_000L;
+
+    private final BlobStore blobStore;
+
+    public ProfilePictureService(BlobStore blobStore) {
+        this.blobStore = blobStore;
+    }
+
+    /**
+     * Stream an uploaded image into the blob store and return its hash.
+     */
+    public String store(InputStream in) throws IOException {
+        String hash = blobStore.put(in, MAX_BYTES, this::isSupportedImage);
+        ensureThumbnail(hash);
+        return hash;
+    }
+
+    /**
+     * Store a base64 image as sent by older clients, with or without a data: URL prefix.
+     */
+    public String storeBase64(String value) throws IOException {
+        int comma = value.startsWith("data:") ? value.indexOf(',') : -1;
+        byte[] ascii = value.substring(comma + 1).getBytes(StandardCharsets.US_ASCII);
+        try (InputStream in = Base64.getMimeDecoder().wrap(new ByteArrayInputStream(ascii))) {
+            return store(in);
+        }
+    }
+
+    /**
+     * Render the thumbnail of a stored picture if it does not exist yet.
+     */
+    public void ensureThumbnail(String hash) throws IOException {
+        if (blobStore.variantExists(hash, THUMBNAIL)) {
+            return;
+        }
+        BufferedImage source = readScaled(blobStore.path(hash), THUMBNAIL_SIZE);
+        double scale = Math.min(1.0, (double) THUMBNAIL_SIZE / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        // JPEG has no alpha: flatten transparent pictures onto white
+        BufferedImage thumbnail = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = thumbnail.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        blobStore.putVariant(hash, THUMBNAIL, encodeJpeg(thumbnail, 0.85f));
+    }
+
+    private boolean isSupportedImage(Path file) {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            ImageReader reader = readerFor(in);
+            if (reader == null) {
+                return false;
+            }
+            try {
+                reader.setInput(in, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                return pixels > 0 && pixels <= MAX_PIXELS;
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Decode an image with source subsampling, so only about twice the target size is
+     * ever held in memory.
+     */
+    private static BufferedImage readScaled(Path file, int targetSize) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            ImageReader reader = readerFor(in);
+            if (reader == null) {
+                throw new IOException("Unsupported image");
+            }
+            try {
+                reader.setInput(in, true, true);
+                int longest = Math.max(reader.getWidth(0), reader.getHeight(0));
+                int step = Math.max(1, longest / (targetSize * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static ImageReader readerFor(ImageInputStream in) {
+        if (in == null) {
+            return null;
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+        return readers.hasNext() ? readers.next() : null;
+    }
+
+    private static byte[] encodeJpeg(BufferedImage image, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(bytes)) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+}
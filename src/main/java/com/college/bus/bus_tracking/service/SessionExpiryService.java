@@ -0,0 +1,82 @@
+package com.college.bus.bus_tracking.service;
+
+import com.college.bus.bus_tracking.store.SessionStore;
+import com.college.bus.bus_tracking.store.SessionStoreListener;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Removes sessions idle for longer than the TTL. Each session gets one deadline on a
+ * hashed timing wheel when it is created; activity only moves its lastActivityTime, and
+ * a deadline that comes up for a session used since is re-armed from that time instead
+ * of expiring it. Nothing scans the store.
+ */
+@Service
+public class SessionExpiryService implements SessionStoreListener {
+
+    private final long ttlMs;
+    private final HashedTimingWheel wheel = new HashedTimingWheel("SessionExpiry", 1000, 4096);
+
+    public SessionExpiryService(@Value("#{${session.ttl-minutes:1440} * 60000}") long ttlMs) {
+        this.ttlMs = ttlMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        SessionStore.addListener(this);
+        wheel.start();
+    }
+
+    /**
+     * Arm the sessions restored at startup, which bypass the store listeners.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void armRestoredSessions() {
+        for (SessionStore.SessionData session : SessionStore.getAllSessions().values()) {
+            arm(session);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        SessionStore.removeListener(this);
+        wheel.stop();
+    }
+
+    @Override
+    public void onCreate(SessionStore.SessionData session) {
+        arm(session);
+    }
+
+    @Override
+    public void onRemove(SessionStore.SessionData session) {
+        wheel.cancel(session.sessionToken);
+    }
+
+    @Override
+    public void onClear() {
+        wheel.cancelAll();
+    }
+
+    public int getArmedCount() {
+        return wheel.size();
+    }
+
+    private void arm(SessionStore.SessionData session) {
+        wheel.schedule(session.sessionToken, session.lastActivityTime + ttlMs, () -> check(session));
+    }
+
+    private void check(SessionStore.SessionData session) {
+        if (SessionStore.expire(session, ttlMs)) {
+            System.out.println("[SessionExpiry] Expired idle session of " + session.userType + " "
+                    + session.userId);
+        } else if (SessionStore.findByToken(session.sessionToken) == session) {
+            // Used since the deadline was set
+            arm(session);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.college.bus.bus_tracking.service;
+
+import com.college.bus.bus_tracking.entity.UserSession;
+import com.college.bus.bus_tracking.repository.UserSessionRepository;
+import com.college.bus.bus_tracking.store.SessionStore;
+import com.college.bus.bus_tracking.store.SessionStoreListener;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Write-behind persistence of {@link SessionStore} to user_session, so a restart does
+ * not log everyone out (and send them all through BCrypt again at once).
+ *
+ * Logins and logouts only mark the user as dirty; a periodic flush writes every dirty
+ * user's current session (or its absence) in one transaction of JDBC batches, so several
+ * changes to a user between flushes cost one write. Activity is not signalled by the
+ * store: lastActivityTime is written at most once per activity interval, for the sessions
+ * used since their last write. On startup rows idle past the session TTL are purged and
+ * the rest are put back into the store.
+ */
+@Service
+public class SessionPersistenceService implements SessionStoreListener {
+
+    private static final String DELETE_SQL = "DELETE FROM user_session WHERE user_id = ? AND user_type = ?";
+    private static final String INSERT_SQL = "INSERT INTO user_session "
+            + "(user_id, user_type, login_time, last_activity_time, session_token, device_id) "
+            + "VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String ACTIVITY_SQL = "UPDATE user_session SET last_activity_time = ? "
+            + "WHERE user_id = ? AND user_type = ? AND session_token = ?";
+
+    private record UserKey(Long userId, String userType) {
+
+        static UserKey of(SessionStore.SessionData session) {
+            return new UserKey(session.userId, session.userType);
+        }
+    }
+
+    /** What user_session holds for a user, as of the last flush. */
+    private record Persisted(String sessionToken, long lastActivityTime) {
+    }
+
+    private final UserSessionRepository userSessionRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final long ttlMs;
+    private final long activityWriteIntervalMs;
+
+    private final Set<UserKey> dirty = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean cleared = new AtomicBoolean();
+
+    // Only used by flush(), which is synchronized
+    private final Map<UserKey, Persisted> persisted = new HashMap<>();
+    private long lastActivityWrite = System.currentTimeMillis();
+
+    public SessionPersistenceService(UserSessionRepository userSessionRepository, JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("#{${session.ttl-minutes:1440} * 60000}") long ttlMs,
+            @Value("${session.store.activity-write-interval-ms:60000}") long activityWriteIntervalMs) {
+        this.userSessionRepository = userSessionRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttlMs = ttlMs;
+        this.activityWriteIntervalMs = activityWriteIntervalMs;
+    }
+
+    /**
+     * Put the persisted sessions back into the store, then start recording changes.
+     */
+    @PostConstruct
+    public synchronized void restore() {
+        int purged = userSessionRepository.deleteIdleSince(System.currentTimeMillis() - ttlMs);
+
+        // Most recently used first: a user with several rows keeps that one
+        List<UserSession> rows = new ArrayList<>(userSessionRepository.findAll());
+        rows.sort(Comparator.comparing(UserSession::getLastActivityTime,
+                Comparator.nullsLast(Comparator.reverseOrder())));
+        List<SessionStore.SessionData> sessions = new ArrayList<>(rows.size());
+        for (UserSession row : rows) {
+            SessionStore.SessionData session = new SessionStore.SessionData(row.getUserId(), row.getUserType(),
+                    row.getSessionToken(), row.getDeviceId());
+            session.loginTime = row.getLoginTime();
+            session.lastActivityTime = row.getLastActivityTime() != null ? row.getLastActivityTime()
+                    : row.getLoginTime();
+            sessions.add(session);
+        }
+        SessionStore.restore(sessions);
+
+        persisted.clear();
+        for (SessionStore.SessionData session : SessionStore.getAllSessions().values()) {
+            persisted.put(UserKey.of(session), new Persisted(session.sessionToken, session.lastActivityTime));
+        }
+        SessionStore.addListener(this);
+        System.out.println("[SessionPersistence] Restored " + persisted.size() + " sessions (purged " + purged
+                + " idle)");
+    }
+
+    @PreDestroy
+    public void stop() {
+        SessionStore.removeListener(this);
+        flush(true);
+    }
+
+    @Override
+    public void onCreate(SessionStore.SessionData session) {
+        dirty.add(UserKey.of(session));
+    }
+
+    @Override
+    public void onRemove(SessionStore.SessionData session) {
+        dirty.add(UserKey.of(session));
+    }
+
+    @Override
+    public void onClear() {
+        cleared.set(true);
+    }
+
+    @Scheduled(fixedDelayString = "${session.store.flush-interval-ms:1000}")
+    public void flush() {
+        flush(System.currentTimeMillis() - lastActivityWrite >= activityWriteIntervalMs);
+    }
+
+    /**
+     * Write the dirty users' sessions as they are in the store now, and the activity of
+     * sessions used since it was last written if writeActivity is set. Failed writes stay
+     * pending for the next flush.
+     */
+    synchronized void flush(boolean writeActivity) {
+        boolean clear = cleared.getAndSet(false);
+        List<UserKey> keys = new ArrayList<>(dirty);
+        dirty.removeAll(keys);
+
+        List<Object[]> deletes = new ArrayList<>(keys.size());
+        List<Object[]> inserts = new ArrayList<>();
+        Map<UserKey, Persisted> written = new HashMap<>();
+        for (UserKey key : keys) {
+            deletes.add(new Object[] { key.userId(), key.userType() });
+            SessionStore.SessionData session = SessionStore.getSession(key.userId(), key.userType());
+            if (session != null) {
+                long lastActivity = session.lastActivityTime;
+                inserts.add(new Object[] { session.userId, session.userType, session.loginTime, lastActivity,
+                        session.sessionToken, session.deviceId });
+                written.put(key, new Persisted(session.sessionToken, lastActivity));
+            }
+        }
+
+        List<Object[]> activity = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        if (writeActivity) {
+            for (SessionStore.SessionData session : SessionStore.getAllSessions().values()) {
+                UserKey key = UserKey.of(session);
+                Persisted row = clear ? null : persisted.get(key);
+                long lastActivity = session.lastActivityTime;
+                if (row != null && !written.containsKey(key) && row.sessionToken().equals(session.sessionToken)
+                        && lastActivity > row.lastActivityTime()) {
+                    activity.add(new Object[] { lastActivity, session.userId, session.userType,
+                            session.sessionToken });
+                    written.put(key, new Persisted(session.sessionToken, lastActivity));
+                }
+            }
+        }
+
+        if (!clear && deletes.isEmpty() && activity.isEmpty()) {
+            if (writeActivity) {
+                lastActivityWrite = now;
+            }
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (clear) {
+                    jdbcTemplate.update("DELETE FROM user_session");
+                }
+                jdbcTemplate.batchUpdate(DELETE_SQL, deletes);
+                jdbcTemplate.batchUpdate(INSERT_SQL, inserts);
+                jdbcTemplate.batchUpdate(ACTIVITY_SQL, activity);
+            });
+        } catch (DataAccessException e) {
+            System.err.println("[SessionPersistence] Flush of " + keys.size() + " sessions failed, will retry: "
+                    + e.getMessage());
+            dirty.addAll(keys);
+            if (clear) {
+                cleared.set(true);
+            }
+            return;
+        }
+
+        if (clear) {
+            persisted.clear();
+        }
+        keys.forEach(persisted::remove);
+        persisted.putAll(written);
+        if (writeActivity) {
+            lastActivityWrite = now;
+        }
+    }
+}
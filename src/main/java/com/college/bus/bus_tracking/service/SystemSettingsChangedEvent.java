@@ -0,0 +1,29 @@
+package com.college.bus.bus_tracking.service;
+
+/**
+ * Published after a system setting was toggled on this node and written to the database.
+ */
+public class SystemSettingsChangedEvent {
+
+    public enum Setting {
+        ACCOUNT_CREATION,
+        DRIVER_SIGN_IN,
+        STUDENT_SIGN_IN
+    }
+
+    private final Setting setting;
+    private final SystemSettingsService.Snapshot settings;
+
+    public SystemSettingsChangedEvent(Setting setting, SystemSettingsService.Snapshot settings) {
+        this.setting = setting;
+        this.settings = settings;
+    }
+
+    public Setting getSetting() {
+        return setting;
+    }
+
+    public SystemSettingsService.Snapshot getSettings() {
+        return settings;
+    }
+}
@@ -1,24 +1,68 @@
 package com.college.bus.bus_tracking.service;
 
+import com.college.bus.bus_tracking.cluster.Backplane;
+import com.college.bus.bus_tracking.cluster.BackplaneMessage;
 import com.college.bus.bus_tracking.entity.SystemSettings;
 import com.college.bus.bus_tracking.repository.SystemSettingsRepository;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * System settings are read on every login and signup, so they are served from an
+ * immutable in-memory snapshot loaded at startup. Toggles write through to the
+ * database, swap the snapshot and publish a {@link SystemSettingsChangedEvent};
+ * other cluster nodes reload their snapshot on SETTINGS_CHANGED.
+ */
 @Service
 public class SystemSettingsService {
 
     @Autowired
     private SystemSettingsRepository settingsRepository;
 
+    @Autowired
+    private Backplane backplane;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+
+    @PostConstruct
+    public void start() {
+        reload();
+        backplane.subscribe(message -> {
+            if (message.getType() == BackplaneMessage.Type.SETTINGS_CHANGED) {
+                reload();
+            }
+        });
+    }
+
+    /**
+     * Reload the snapshot from the database.
+     */
+    public void reload() {
+        synchronized (this) {
+            snapshot.set(Snapshot.of(loadRow()));
+        }
+    }
+
     /**
-     * Get system settings. Creates default settings if none exist.
+     * Get the current system settings.
      */
+    public Snapshot getSettings() {
+        return snapshot.get();
+    }
+
     /**
-     * Get system settings. Creates default settings if none exist.
+     * Load the settings row. Creates default settings if none exist.
      * Uses findAll() to retrieve any existing settings to avoid ID conflicts.
      */
-    public SystemSettings getSettings() {
+    private SystemSettings loadRow() {
         java.util.List<SystemSettings> all = settingsRepository.findAll();
 
         if (all.isEmpty()) {
@@ -62,52 +106,107 @@ public class SystemSettingsService {
     /**
      * Toggle account creation on/off
      */
-    public SystemSettings toggleAccountCreation() {
-        SystemSettings settings = getSettings();
-        settings.setAccountCreationEnabled(!settings.getAccountCreationEnabled());
-        return settingsRepository.save(settings);
+    public Snapshot toggleAccountCreation() {
+        synchronized (this) {
+            SystemSettings settings = loadRow();
+            settings.setAccountCreationEnabled(!settings.getAccountCreationEnabled());
+            return save(settings, SystemSettingsChangedEvent.Setting.ACCOUNT_CREATION);
+        }
     }
 
     /**
      * Check if account creation is enabled
      */
     public boolean isAccountCreationEnabled() {
-        return getSettings().getAccountCreationEnabled();
+        return snapshot.get().isAccountCreationEnabled();
     }
 
     /**
      * Toggle driver sign-in on/off
      */
-    public SystemSettings toggleDriverSignIn() {
-        SystemSettings settings = getSettings();
-        Boolean current = settings.getDriverSignInEnabled();
-        settings.setDriverSignInEnabled(!(current != null ? current : true));
-        return settingsRepository.save(settings);
+    public Snapshot toggleDriverSignIn() {
+        synchronized (this) {
+            SystemSettings settings = loadRow();
+            settings.setDriverSignInEnabled(!enabledOrDefault(settings.getDriverSignInEnabled()));
+            return save(settings, SystemSettingsChangedEvent.Setting.DRIVER_SIGN_IN);
+        }
     }
 
     /**
      * Check if driver sign-in is enabled
      */
     public boolean isDriverSignInEnabled() {
-        Boolean val = getSettings().getDriverSignInEnabled();
-        return val != null ? val : true;
+        return snapshot.get().isDriverSignInEnabled();
     }
 
     /**
      * Toggle student sign-in on/off
      */
-    public SystemSettings toggleStudentSignIn() {
-        SystemSettings settings = getSettings();
-        Boolean current = settings.getStudentSignInEnabled();
-        settings.setStudentSignInEnabled(!(current != null ? current : true));
-        return settingsRepository.save(settings);
+    public Snapshot toggleStudentSignIn() {
+        synchronized (this) {
+            SystemSettings settings = loadRow();
+            settings.setStudentSignInEnabled(!enabledOrDefault(settings.getStudentSignInEnabled()));
+            return save(settings, SystemSettingsChangedEvent.Setting.STUDENT_SIGN_IN);
+        }
     }
 
     /**
      * Check if student sign-in is enabled
      */
     public boolean isStudentSignInEnabled() {
-        Boolean val = getSettings().getStudentSignInEnabled();
-        return val != null ? val : true;
+        return snapshot.get().isStudentSignInEnabled();
+    }
+
+    private Snapshot save(SystemSettings settings, SystemSettingsChangedEvent.Setting setting) {
+        Snapshot updated = Snapshot.of(settingsRepository.save(settings));
+        snapshot.set(updated);
+        backplane.publish(BackplaneMessage.settingsChanged());
+        eventPublisher.publishEvent(new SystemSettingsChangedEvent(setting, updated));
+        return updated;
+    }
+
+    private static boolean enabledOrDefault(Boolean value) {
+        return value != null ? value : true;
+    }
+
+    /**
+     * Immutable copy of the settings row.
+     */
+    public static class Snapshot {
+        private final boolean accountCreationEnabled;
+        private final boolean driverSignInEnabled;
+        private final boolean studentSignInEnabled;
+        private final LocalDateTime lastModified;
+
+        private Snapshot(boolean accountCreationEnabled, boolean driverSignInEnabled, boolean studentSignInEnabled,
+                LocalDateTime lastModified) {
+            this.accountCreationEnabled = accountCreationEnabled;
+            this.driverSignInEnabled = driverSignInEnabled;
+            this.studentSignInEnabled = studentSignInEnabled;
+            this.lastModified = lastModified;
+        }
+
+        static Snapshot of(SystemSettings settings) {
+            return new Snapshot(settings.getAccountCreationEnabled(),
+                    enabledOrDefault(settings.getDriverSignInEnabled()),
+                    enabledOrDefault(settings.getStudentSignInEnabled()),
+                    settings.getLastModified());
+        }
+
+        public boolean isAccountCreationEnabled() {
+            return accountCreationEnabled;
+        }
+
+        public boolean isDriverSignInEnabled() {
+            return driverSignInEnabled;
+        }
+
+        public boolean isStudentSignInEnabled() {
+            return studentSignInEnabled;
+        }
+
+        public LocalDateTime getLastModified() {
+            return lastModified;
+        }
     }
 }
@@ -0,0 +1,306 @@
+package com.college.bus.bus_tracking.service;
+
+import com.college.bus.bus_tracking.model.BusData;
+import com.college.bus.bus_tracking.model.TrackPoint;
+import com.college.bus.bus_tracking.store.BusSessionStore;
+import com.college.bus.bus_tracking.store.BusStoreListener;
+import jakarta.annotation.PostConstruct;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the recent GPS track of every bus in memory and serves it simplified
+ * (Douglas-Peucker) with a tolerance derived from the map zoom level, so a long
+ * trip can be drawn with a few hundred points instead of one per second.
+ *
+ * Points are taken from {@link BusSessionStore} mutations, so every node of a cluster
+ * records the tracks of all buses, including the ones it does not own.
+ */
+@Service
+public class TrackService implements BusStoreListener {
+
+    private static final int MAX_POINTS_PER_BUS = 14_400; // 4 hours at 1 Hz
+    private static final int SIMPLIFIED_CACHE_SIZE = 256;
+    private static final int MIN_ZOOM = 0;
+    private static final int MAX_ZOOM = 20;
+    private static final double PIXEL_TOLERANCE = 1.5; // error allowed on screen, in pixels
+    private static final double EARTH_RADIUS_M = 6_378_137.0;
+    private static final double METERS_PER_PIXEL_AT_ZOOM_0 = 156_543.033_92;
+
+    private final ConcurrentHashMap<String, BusTrack> tracks = new ConcurrentHashMap<>();
+
+    // LRU of simplified results keyed by (bus, range, tolerance[, revision])
+    private final Map<String, SimplifiedTrack> simplifiedCache = Collections.synchronizedMap(
+            new LinkedHashMap<>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, SimplifiedTrack> eldest) {
+                    return size() > SIMPLIFIED_CACHE_SIZE;
+                }
+            });
+
+    @PostConstruct
+    public void start() {
+        BusSessionStore.addListener(this);
+    }
+
+    @Override
+    public void onPut(BusData bus) {
+        // Only moving, tracked buses contribute points; heartbeats and status changes
+        // at the same position are skipped by record()
+        if ("RUNNING".equals(bus.getStatus()) && (bus.getLatitude() != 0.0 || bus.getLongitude() != 0.0)) {
+            record(bus.getBusNumber(), bus.getLatitude(), bus.getLongitude(), bus.getLastHeartbeatTime());
+        }
+    }
+
+    @Override
+    public void onRemove(String busNumber) {
+        clear(busNumber);
+    }
+
+    @Override
+    public void onClear() {
+        tracks.clear();
+        simplifiedCache.clear();
+    }
+
+    /**
+     * Append a GPS fix to the bus's track.
+     */
+    public void record(String busNumber, double latitude, double longitude, long timestamp) {
+        if (busNumber == null) {
+            return;
+        }
+        tracks.computeIfAbsent(busNumber, k -> new BusTrack()).append(latitude, longitude, timestamp);
+    }
+
+    /**
+     * Forget the track of a bus (e.g. when its config is deleted).
+     */
+    public void clear(String busNumber) {
+        if (busNumber == null) {
+            return;
+        }
+        tracks.remove(busNumber);
+        synchronized (simplifiedCache) {
+            simplifiedCache.keySet().removeIf(key -> key.startsWith(busNumber + "|"));
+        }
+    }
+
+    /**
+     * Get the track of a bus between {@code from} and {@code to} (epoch millis, both
+     * optional) simplified for display at the given zoom level.
+     */
+    public SimplifiedTrack getTrack(String busNumber, Long from, Long to, int zoom) {
+        BusTrack track = tracks.get(busNumber);
+        int clampedZoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, zoom));
+        if (track == null) {
+            return new SimplifiedTrack(List.of(), 0, 0.0, clampedZoom);
+        }
+
+        long fromTs = from != null ? from : Long.MIN_VALUE;
+        long toTs = to != null ? to : Long.MAX_VALUE;
+
+        // The key needs only the track's bounds, so a cache hit copies no points. A closed
+        // range that is fully inside the retained window never changes, so it can be
+        // cached independently of new points being appended.
+        BusTrack.State state = track.state();
+        boolean stable = to != null && toTs < state.newestTimestamp && fromTs >= state.oldestTimestamp;
+        String key = busNumber + "|" + fromTs + "|" + toTs + "|" + clampedZoom
+                + (stable ? "" : "|" + state.revision);
+
+        SimplifiedTrack cached = simplifiedCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Points appended since state() only make this result newer than its key
+        List<TrackPoint> points = track.slice(fromTs, toTs);
+        double tolerance = points.isEmpty() ? 0.0
+                : toleranceMeters(clampedZoom, points.get(0).getLatitude());
+        SimplifiedTrack result = new SimplifiedTrack(simplify(points, tolerance), points.size(), tolerance,
+                clampedZoom);
+        simplifiedCache.put(key, result);
+        return result;
+    }
+
+    /**
+     * Ground distance covered by {@link #PIXEL_TOLERANCE} screen pixels at the given
+     * Web Mercator zoom level and latitude.
+     */
+    static double toleranceMeters(int zoom, double latitude) {
+        double metersPerPixel = METERS_PER_PIXEL_AT_ZOOM_0 * Math.cos(Math.toRadians(latitude)) / (1L << zoom);
+        return metersPerPixel * PIXEL_TOLERANCE;
+    }
+
+    /**
+     * Douglas-Peucker simplification. Coordinates are projected to a local
+     * equirectangular plane (meters) which is accurate enough at campus scale.
+     */
+    static List<TrackPoint> simplify(List<TrackPoint> points, double toleranceMeters) {
+        int n = points.size();
+        if (n < 3 || toleranceMeters <= 0) {
+            return points;
+        }
+
+        double lat0 = Math.toRadians(points.get(0).getLatitude());
+        double kx = EARTH_RADIUS_M * Math.cos(lat0) * Math.PI / 180.0;
+        double ky = EARTH_RADIUS_M * Math.PI / 180.0;
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = points.get(i).getLongitude() * kx;
+            y[i] = points.get(i).getLatitude() * ky;
+        }
+
+        boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[n - 1] = true;
+        double toleranceSq = toleranceMeters * toleranceMeters;
+
+        Deque<int[]> stack = new ArrayDeque<>();
+        stack.push(new int[] { 0, n - 1 });
+        while (!stack.isEmpty()) {
+            int[] range = stack.pop();
+            int first = range[0];
+            int last = range[1];
+            double maxDistSq = -1;
+            int index = -1;
+            for (int i = first + 1; i < last; i++) {
+                double d = segmentDistanceSq(x[i], y[i], x[first], y[first], x[last], y[last]);
+                if (d > maxDistSq) {
+                    maxDistSq = d;
+                    index = i;
+                }
+            }
+            if (index != -1 && maxDistSq > toleranceSq) {
+                keep[index] = true;
+                stack.push(new int[] { first, index });
+                stack.push(new int[] { index, last });
+            }
+        }
+
+        List<TrackPoint> result = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            if (keep[i]) {
+                result.add(points.get(i));
+            }
+        }
+        return result;
+    }
+
+    private static double segmentDistanceSq(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double lengthSq = dx * dx + dy * dy;
+        double t = lengthSq == 0 ? 0 : ((px - ax) * dx + (py - ay) * dy) / lengthSq;
+        t = Math.max(0, Math.min(1, t));
+        double cx = ax + t * dx - px;
+        double cy = ay + t * dy - py;
+        return cx * cx + cy * cy;
+    }
+
+    /**
+     * Fixed-capacity ring buffer of fixes for one bus.
+     */
+    private static class BusTrack {
+        private final double[] latitudes = new double[MAX_POINTS_PER_BUS];
+        private final double[] longitudes = new double[MAX_POINTS_PER_BUS];
+        private final long[] timestamps = new long[MAX_POINTS_PER_BUS];
+        private int start;
+        private int size;
+        private long revision;
+
+        synchronized void append(double latitude, double longitude, long timestamp) {
+            if (size > 0) {
+                int last = (start + size - 1) % MAX_POINTS_PER_BUS;
+                if (latitudes[last] == latitude && longitudes[last] == longitude) {
+                    return;
+                }
+            }
+            int index = (start + size) % MAX_POINTS_PER_BUS;
+            latitudes[index] = latitude;
+            longitudes[index] = longitude;
+            timestamps[index] = timestamp;
+            if (size < MAX_POINTS_PER_BUS) {
+                size++;
+            } else {
+                start = (start + 1) % MAX_POINTS_PER_BUS;
+            }
+            revision++;
+        }
+
+        /**
+         * Revision and retained time window, without copying any points.
+         */
+        synchronized State state() {
+            long oldest = size > 0 ? timestamps[start] : Long.MAX_VALUE;
+            long newest = size > 0 ? timestamps[(start + size - 1) % MAX_POINTS_PER_BUS] : Long.MIN_VALUE;
+            return new State(revision, oldest, newest);
+        }
+
+        synchronized List<TrackPoint> slice(long from, long to) {
+            List<TrackPoint> points = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                int index = (start + i) % MAX_POINTS_PER_BUS;
+                long ts = timestamps[index];
+                if (ts >= from && ts <= to) {
+                    points.add(new TrackPoint(latitudes[index], longitudes[index], ts));
+                }
+            }
+            return points;
+        }
+
+        private static class State {
+            final long revision;
+            final long oldestTimestamp;
+            final long newestTimestamp;
+
+            State(long revision, long oldestTimestamp, long newestTimestamp) {
+                this.revision = revision;
+                this.oldestTimestamp = oldestTimestamp;
+                this.newestTimestamp = newestTimestamp;
+            }
+        }
+    }
+
+    /**
+     * Simplified track returned to clients.
+     */
+    public static class SimplifiedTrack {
+        private final List<TrackPoint> points;
+        private final int originalPointCount;
+        private final double toleranceMeters;
+        private final int zoom;
+
+        public SimplifiedTrack(List<TrackPoint> points, int originalPointCount, double toleranceMeters, int zoom) {
+            this.points = points;
+            this.originalPointCount = originalPointCount;
+            this.toleranceMeters = toleranceMeters;
+            this.zoom = zoom;
+        }
+
+        public List<TrackPoint> getPoints() {
+            return points;
+        }
+
+        public int getOriginalPointCount() {
+            return originalPointCount;
+        }
+
+        public double getToleranceMeters() {
+            return toleranceMeters;
+        }
+
+        public int getZoom() {
+            return zoom;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.college.bus.bus_tracking.store;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.function.Predicate;
+
+/**
+ * Content-addressed file store. A blob is written once under the SHA-256 of its bytes
+ * (objects/ab/abcd...), so identical uploads share one file and a stored blob never
+ * changes. Variants derived from a blob (e.g. thumbnails) are kept under the source
+ * hash in variants/{name}/ and are just as immutable.
+ *
+ * Writes stream through a temp file and are published with an atomic rename, so
+ * readers never see a partial blob.
+ */
+@Component
+public class BlobStore {
+
+    private static final int HASH_LENGTH = 64;
+
+    private final Path objects;
+    private final Path variants;
+    private final Path tmp;
+
+    public BlobStore(@Value("${blob.store.dir:data/blobs}") String directory) throws IOException {
+        Path root = Paths.get(directory);
+        this.objects = root.resolve("objects");
+        this.variants = root.resolve("variants");
+        this.tmp = root.resolve("tmp");
+        Files.createDirectories(objects);
+        Files.createDirectories(variants);
+        Files.createDirectories(tmp);
+    }
+
+    /**
+     * Stream a blob into the store and return its hash.
+     *
+     * @param maxBytes  uploads larger than this are rejected
+     * @param accept    check run on the complete temp file before it is published
+     * @throws IllegalArgumentException if the blob is too large or not accepted
+     */
+    public String put(InputStream in, long maxBytes, Predicate<Path> accept) throws IOException {
+        Path temp = Files.createTempFile(tmp, "upload-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(temp), digest)) {
+                byte[] buffer = new byte[64 * 1024];
+                long total = 0;
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    total += read;
+                    if (total > maxBytes) {
+                        throw new IllegalArgumentException("Blob exceeds " + maxBytes + " bytes");
+                    }
+                    out.write(buffer, 0, read);
+                }
+            }
+            if (accept != null && !accept.test(temp)) {
+                throw new IllegalArgumentException("Unsupported content");
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            publish(temp, path(hash));
+            return hash;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Store a variant of a blob, replacing nothing if it already exists.
+     */
+    public void putVariant(String hash, String variant, byte[] data) throws IOException {
+        Path temp = Files.createTempFile(tmp, "variant-", ".tmp");
+        try {
+            Files.write(temp, data);
+            publish(temp, variantPath(hash, variant));
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public boolean exists(String hash) {
+        return isHash(hash) && Files.isRegularFile(path(hash));
+    }
+
+    public boolean variantExists(String hash, String variant) {
+        return isHash(hash) && Files.isRegularFile(variantPath(hash, variant));
+    }
+
+    /**
+     * File holding the blob. The hash must be a lowercase SHA-256 hex string.
+     */
+    public Path path(String hash) {
+        requireHash(hash);
+        return objects.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    public Path variantPath(String hash, String variant) {
+        requireHash(hash);
+        if (!variant.matches("[a-z0-9-]+")) {
+            throw new IllegalArgumentException("Invalid variant: " + variant);
+        }
+        return variants.resolve(variant).resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    /**
+     * True if the value is a well-formed blob hash (also keeps it from escaping the store
+     * directory when used in a path).
+     */
+    public static boolean isHash(String value) {
+        if (value == null || value.length() != HASH_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < HASH_LENGTH; i++) {
+            char c = value.charAt(i);
+            if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void requireHash(String hash) {
+        if (!isHash(hash)) {
+            throw new IllegalArgumentException("Invalid blob hash");
+        }
+    }
+
+    private static void publish(Path temp, Path target) throws IOException {
+        if (Files.exists(target)) {
+            // Same content already stored
+            return;
+        }
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // Stored concurrently by another upload of the same content
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
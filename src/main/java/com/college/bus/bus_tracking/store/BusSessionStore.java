@@ -1,10 +1,300 @@
 package com.college.bus.bus_tracking.store;
 
 import com.college.bus.bus_tracking.model.BusData;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+/**
+ * Live store of the buses known to this node, keyed by bus number.
+ *
+ * Secondary indexes by bus id, driver id, bus stop and status are kept consistent with
+ * every mutation made through this class, so lookups by those keys cost O(result).
+ * Buses modified in place must be reported with {@link #changed} to be re-indexed.
+ *
+ * Listeners are called under the store lock, so they see mutations in the order they
+ * were applied (the journal and the replication stream depend on it). They must not
+ * block or call back into the store from another thread.
+ */
 public class BusSessionStore {
 
     public static final ConcurrentHashMap<String, BusData> BUS_MAP =
             new ConcurrentHashMap<>();
+
+    private static final List<BusStoreListener> LISTENERS = new CopyOnWriteArrayList<>();
+
+    // Guards the index maps together with the BUS_MAP mutation they reflect
+    private static final Object INDEX_LOCK = new Object();
+    private static final Map<String, IndexKeys> INDEXED = new HashMap<>();
+    private static final Map<Long, Set<String>> BY_ID = new HashMap<>();
+    private static final Map<Long, Set<String>> BY_DRIVER = new HashMap<>();
+    private static final Map<String, Set<String>> BY_STOP = new HashMap<>();
+    private static final Map<String, Set<String>> BY_STATUS = new HashMap<>();
+
+    /**
+     * Register a listener that is told about every mutation made through this class.
+     */
+    public static void addListener(BusStoreListener listener) {
+        LISTENERS.add(listener);
+    }
+
+    public static void removeListener(BusStoreListener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * Insert or replace a bus. It gets a version newer than the bus it replaces.
+     */
+    public static void put(BusData bus) {
+        synchronized (INDEX_LOCK) {
+            BusData previous = BUS_MAP.put(bus.getBusNumber(), bus);
+            long previousVersion = previous != null ? previous.getVersion() : 0;
+            bus.setVersion(nextVersion(Math.max(previousVersion, bus.getVersion())));
+            index(bus);
+            notifyPut(bus);
+        }
+    }
+
+    /**
+     * Apply a bus replicated from another node, unless the store already holds the same
+     * or a newer version of it. The version is kept as is. Returns whether it was applied.
+     */
+    public static boolean putIfNewer(BusData bus) {
+        synchronized (INDEX_LOCK) {
+            BusData current = BUS_MAP.get(bus.getBusNumber());
+            if (current != null && current.getVersion() >= bus.getVersion()) {
+                return false;
+            }
+            BUS_MAP.put(bus.getBusNumber(), bus);
+            index(bus);
+            notifyPut(bus);
+            return true;
+        }
+    }
+
+    /**
+     * Signal that a bus already in the store was modified in place.
+     */
+    public static void changed(BusData bus) {
+        if (bus == null) {
+            return;
+        }
+        synchronized (INDEX_LOCK) {
+            if (BUS_MAP.get(bus.getBusNumber()) != bus) {
+                return;
+            }
+            bus.setVersion(nextVersion(bus.getVersion()));
+            index(bus);
+            notifyPut(bus);
+        }
+    }
+
+    /**
+     * Record a heartbeat of a bus in the store. Only the timestamp changes, so the bus is
+     * not re-indexed or versioned and listeners get onHeartbeat instead of onPut.
+     */
+    public static void heartbeat(String busNumber) {
+        BusData bus = busNumber != null ? BUS_MAP.get(busNumber) : null;
+        if (bus == null) {
+            return;
+        }
+        bus.setLastHeartbeatTime(System.currentTimeMillis());
+        for (BusStoreListener listener : LISTENERS) {
+            listener.onHeartbeat(bus);
+        }
+    }
+
+    /**
+     * Remove a bus, returning it if it was present.
+     */
+    public static BusData remove(String busNumber) {
+        if (busNumber == null) {
+            return null;
+        }
+        synchronized (INDEX_LOCK) {
+            BusData removed = BUS_MAP.remove(busNumber);
+            unindex(busNumber);
+            if (removed != null) {
+                for (BusStoreListener listener : LISTENERS) {
+                    listener.onRemove(busNumber);
+                }
+            }
+            return removed;
+        }
+    }
+
+    /**
+     * Remove every bus.
+     */
+    public static void clear() {
+        synchronized (INDEX_LOCK) {
+            clearAll();
+            for (BusStoreListener listener : LISTENERS) {
+                listener.onClear();
+            }
+        }
+    }
+
+    /**
+     * Replace the whole content when the store is rebuilt at startup. Listeners are not
+     * notified.
+     */
+    public static void restore(Collection<BusData> buses) {
+        synchronized (INDEX_LOCK) {
+            clearAll();
+            for (BusData bus : buses) {
+                BUS_MAP.put(bus.getBusNumber(), bus);
+                index(bus);
+            }
+        }
+    }
+
+    public static BusData findById(Long busId) {
+        synchronized (INDEX_LOCK) {
+            Set<String> busNumbers = BY_ID.get(busId);
+            return busNumbers == null || busNumbers.isEmpty() ? null : BUS_MAP.get(busNumbers.iterator().next());
+        }
+    }
+
+    public static List<BusData> findByDriverId(Long driverId) {
+        synchronized (INDEX_LOCK) {
+            return lookup(BY_DRIVER.get(driverId));
+        }
+    }
+
+    public static List<BusData> findByBusStop(String busStop) {
+        synchronized (INDEX_LOCK) {
+            return lookup(BY_STOP.get(busStop));
+        }
+    }
+
+    public static List<BusData> findByStatus(String status) {
+        synchronized (INDEX_LOCK) {
+            return lookup(BY_STATUS.get(status));
+        }
+    }
+
+    private static long nextVersion(long previous) {
+        // Never behind the clock, so a node restarted without versions (restored from its
+        // checkpoint or the DB) still produces newer ones than its peers hold
+        return Math.max(previous + 1, System.currentTimeMillis());
+    }
+
+    private static void notifyPut(BusData bus) {
+        for (BusStoreListener listener : LISTENERS) {
+            listener.onPut(bus);
+        }
+    }
+
+    private static List<BusData> lookup(Set<String> busNumbers) {
+        if (busNumbers == null) {
+            return List.of();
+        }
+        List<BusData> result = new ArrayList<>(busNumbers.size());
+        for (String busNumber : busNumbers) {
+            BusData bus = BUS_MAP.get(busNumber);
+            if (bus != null) {
+                result.add(bus);
+            }
+        }
+        return result;
+    }
+
+    private static void clearAll() {
+        BUS_MAP.clear();
+        INDEXED.clear();
+        BY_ID.clear();
+        BY_DRIVER.clear();
+        BY_STOP.clear();
+        BY_STATUS.clear();
+    }
+
+    private static void index(BusData bus) {
+        String busNumber = bus.getBusNumber();
+        IndexKeys keys = new IndexKeys(bus);
+        IndexKeys previous = INDEXED.put(busNumber, keys);
+        if (keys.equals(previous)) {
+            return;
+        }
+        if (previous != null) {
+            previous.removeFrom(busNumber);
+        }
+        keys.addTo(busNumber);
+    }
+
+    private static void unindex(String busNumber) {
+        IndexKeys previous = INDEXED.remove(busNumber);
+        if (previous != null) {
+            previous.removeFrom(busNumber);
+        }
+    }
+
+    private static <K> void add(Map<K, Set<String>> index, K key, String busNumber) {
+        if (key != null) {
+            index.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(busNumber);
+        }
+    }
+
+    private static <K> void remove(Map<K, Set<String>> index, K key, String busNumber) {
+        if (key == null) {
+            return;
+        }
+        Set<String> busNumbers = index.get(key);
+        if (busNumbers != null && busNumbers.remove(busNumber) && busNumbers.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    /**
+     * Values a bus is currently indexed under.
+     */
+    private static class IndexKeys {
+        final Long busId;
+        final Long driverId;
+        final String busStop;
+        final String status;
+
+        IndexKeys(BusData bus) {
+            this.busId = bus.getBusId();
+            this.driverId = bus.getDriverId();
+            this.busStop = bus.getBusStop();
+            this.status = bus.getStatus();
+        }
+
+        void addTo(String busNumber) {
+            add(BY_ID, busId, busNumber);
+            add(BY_DRIVER, driverId, busNumber);
+            add(BY_STOP, busStop, busNumber);
+            add(BY_STATUS, status, busNumber);
+        }
+
+        void removeFrom(String busNumber) {
+            remove(BY_ID, busId, busNumber);
+            remove(BY_DRIVER, driverId, busNumber);
+            remove(BY_STOP, busStop, busNumber);
+            remove(BY_STATUS, status, busNumber);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof IndexKeys)) {
+                return false;
+            }
+            IndexKeys other = (IndexKeys) o;
+            return Objects.equals(busId, other.busId) && Objects.equals(driverId, other.driverId)
+                    && Objects.equals(busStop, other.busStop) && Objects.equals(status, other.status);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(busId, driverId, busStop, status);
+        }
+    }
 }
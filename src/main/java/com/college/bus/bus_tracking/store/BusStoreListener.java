@@ -0,0 +1,22 @@
+package com.college.bus.bus_tracking.store;
+
+import com.college.bus.bus_tracking.model.BusData;
+
+/**
+ * Callback for mutations of {@link BusSessionStore}.
+ */
+public interface BusStoreListener {
+
+    void onPut(BusData bus);
+
+    void onRemove(String busNumber);
+
+    void onClear();
+
+    /**
+     * A bus's lastHeartbeatTime moved forward and nothing else changed; not reported
+     * through onPut.
+     */
+    default void onHeartbeat(BusData bus) {
+    }
+}
@@ -1,15 +1,24 @@
 package com.college.bus.bus_tracking.store;
 
+import java.util.Collection;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
- * In-memory session store for tracking active user sessions
- * Sessions are automatically cleared when user closes app/browser
+ * In-memory session store for tracking active user sessions, indexed both by user
+ * (userType_userId) and by session token, so validating a token is a map lookup.
+ * Writers update both indexes under one lock; readers go straight to the maps.
+ *
+ * Sessions slide: validating or touching one records activity, and
+ * SessionExpiryService removes those idle for longer than the TTL.
  */
 public class SessionStore {
 
     private static final ConcurrentHashMap<String, SessionData> ACTIVE_SESSIONS = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, SessionData> BY_TOKEN = new ConcurrentHashMap<>();
+    private static final Object LOCK = new Object();
+
+    private static final CopyOnWriteArrayList<SessionStoreListener> LISTENERS = new CopyOnWriteArrayList<>();
 
     public static class SessionData {
         public Long userId;
@@ -17,6 +26,7 @@ public class SessionStore {
         public Long loginTime;
         public String sessionToken;
         public String deviceId;
+        public volatile long lastActivityTime;
 
         public SessionData(Long userId, String userType, String sessionToken, String deviceId) {
             this.userId = userId;
@@ -24,9 +34,18 @@ public class SessionStore {
             this.sessionToken = sessionToken;
             this.deviceId = deviceId;
             this.loginTime = System.currentTimeMillis();
+            this.lastActivityTime = loginTime;
         }
     }
 
+    public static void addListener(SessionStoreListener listener) {
+        LISTENERS.addIfAbsent(listener);
+    }
+
+    public static void removeListener(SessionStoreListener listener) {
+        LISTENERS.remove(listener);
+    }
+
     /**
      * Check if user already has an active session
      */
@@ -36,14 +55,41 @@ public class SessionStore {
     }
 
     /**
-     * Create a new session for user
+     * Create a new session for user, replacing any session the user had
      */
     public static String createSession(Long userId, String userType, String deviceId) {
-        String sessionToken = generateSessionToken();
-        String key = generateKey(userId, userType);
+        SessionData session = new SessionData(userId, userType, generateSessionToken(), deviceId);
+        SessionData replaced;
+        synchronized (LOCK) {
+            replaced = putLocked(session);
+        }
+        notifyReplaced(replaced, session);
+        return session.sessionToken;
+    }
 
-        ACTIVE_SESSIONS.put(key, new SessionData(userId, userType, sessionToken, deviceId));
-        return sessionToken;
+    /**
+     * Log a user in on a device, atomically with respect to other logins and logouts of
+     * the same user: an existing session on the same device is reused and touched, one on
+     * another device is replaced only when forced. Returns null when another device holds
+     * the session.
+     */
+    public static SessionData openSession(Long userId, String userType, String deviceId, boolean force) {
+        SessionData session;
+        SessionData replaced;
+        synchronized (LOCK) {
+            SessionData existing = ACTIVE_SESSIONS.get(generateKey(userId, userType));
+            if (existing != null && !force) {
+                if (deviceId == null || !deviceId.equals(existing.deviceId)) {
+                    return null;
+                }
+                existing.lastActivityTime = System.currentTimeMillis();
+                return existing;
+            }
+            session = new SessionData(userId, userType, generateSessionToken(), deviceId);
+            replaced = putLocked(session);
+        }
+        notifyReplaced(replaced, session);
+        return session;
     }
 
     /**
@@ -54,20 +100,85 @@ public class SessionStore {
         return ACTIVE_SESSIONS.get(key);
     }
 
+    /**
+     * Get the session holding a token, or null
+     */
+    public static SessionData findByToken(String sessionToken) {
+        return sessionToken == null ? null : BY_TOKEN.get(sessionToken);
+    }
+
     /**
      * Remove session when user logs out
      */
     public static void removeSession(Long userId, String userType) {
-        String key = generateKey(userId, userType);
-        ACTIVE_SESSIONS.remove(key);
+        SessionData removed;
+        synchronized (LOCK) {
+            removed = ACTIVE_SESSIONS.remove(generateKey(userId, userType));
+            if (removed != null) {
+                BY_TOKEN.remove(removed.sessionToken);
+            }
+        }
+        if (removed != null) {
+            for (SessionStoreListener listener : LISTENERS) {
+                listener.onRemove(removed);
+            }
+        }
+    }
+
+    /**
+     * Remove a session that has been idle for at least maxIdleMs, unless it was replaced
+     * or removed meanwhile. Returns whether it was removed.
+     */
+    public static boolean expire(SessionData session, long maxIdleMs) {
+        synchronized (LOCK) {
+            String key = generateKey(session.userId, session.userType);
+            if (ACTIVE_SESSIONS.get(key) != session
+                    || System.currentTimeMillis() - session.lastActivityTime < maxIdleMs) {
+                return false;
+            }
+            ACTIVE_SESSIONS.remove(key);
+            BY_TOKEN.remove(session.sessionToken);
+        }
+        for (SessionStoreListener listener : LISTENERS) {
+            listener.onRemove(session);
+        }
+        return true;
     }
 
     /**
-     * Validate session token
+     * Validate session token, recording activity on it
      */
     public static boolean validateSession(String sessionToken) {
-        return ACTIVE_SESSIONS.values().stream()
-                .anyMatch(session -> session.sessionToken.equals(sessionToken));
+        SessionData session = findByToken(sessionToken);
+        if (session == null) {
+            return false;
+        }
+        session.lastActivityTime = System.currentTimeMillis();
+        return true;
+    }
+
+    /**
+     * Record activity on the user's session, if any
+     */
+    public static void touch(Long userId, String userType) {
+        SessionData session = getSession(userId, userType);
+        if (session != null) {
+            session.lastActivityTime = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Put back sessions persisted before a restart, without notifying listeners. A user
+     * keeps the first of their sessions given.
+     */
+    public static void restore(Collection<SessionData> sessions) {
+        synchronized (LOCK) {
+            for (SessionData session : sessions) {
+                if (!ACTIVE_SESSIONS.containsKey(generateKey(session.userId, session.userType))) {
+                    putLocked(session);
+                }
+            }
+        }
     }
 
     /**
@@ -77,11 +188,43 @@ public class SessionStore {
         return new ConcurrentHashMap<>(ACTIVE_SESSIONS);
     }
 
+    public static int size() {
+        return ACTIVE_SESSIONS.size();
+    }
+
+    static int tokenIndexSize() {
+        return BY_TOKEN.size();
+    }
+
     /**
      * Clear all sessions
      */
     public static void clearAllSessions() {
-        ACTIVE_SESSIONS.clear();
+        synchronized (LOCK) {
+            ACTIVE_SESSIONS.clear();
+            BY_TOKEN.clear();
+        }
+        for (SessionStoreListener listener : LISTENERS) {
+            listener.onClear();
+        }
+    }
+
+    private static SessionData putLocked(SessionData session) {
+        SessionData replaced = ACTIVE_SESSIONS.put(generateKey(session.userId, session.userType), session);
+        if (replaced != null) {
+            BY_TOKEN.remove(replaced.sessionToken);
+        }
+        BY_TOKEN.put(session.sessionToken, session);
+        return replaced;
+    }
+
+    private static void notifyReplaced(SessionData replaced, SessionData created) {
+        for (SessionStoreListener listener : LISTENERS) {
+            if (replaced != null) {
+                listener.onRemove(replaced);
+            }
+            listener.onCreate(created);
+        }
     }
 
     /**
@@ -0,0 +1,14 @@
+package com.college.bus.bus_tracking.store;
+
+/**
+ * Callback for mutations of {@link SessionStore}. Activity on a session only updates its
+ * lastActivityTime and is not signalled.
+ */
+public interface SessionStoreListener {
+
+    void onCreate(SessionStore.SessionData session);
+
+    void onRemove(SessionStore.SessionData session);
+
+    void onClear();
+}
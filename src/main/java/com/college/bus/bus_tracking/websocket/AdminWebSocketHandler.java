@@ -1,12 +1,17 @@
 package com.college.bus.bus_tracking.websocket;
 
 import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.PongMessage;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 import org.springframework.stereotype.Component;
+import org.springframework.context.event.EventListener;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.college.bus.bus_tracking.cluster.BackplaneMessage;
+import com.college.bus.bus_tracking.cluster.ClusterFanout;
 import com.college.bus.bus_tracking.store.BusSessionStore;
 import com.college.bus.bus_tracking.model.BusData;
+import com.college.bus.bus_tracking.service.SystemSettingsChangedEvent;
 import java.util.*;
 import java.util.concurrent.CopyOnWriteArrayList;
 
@@ -19,6 +24,7 @@ public class AdminWebSocketHandler extends TextWebSocketHandler {
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
         adminSessions.add(session);
+        WebSocketHeartbeat.register(session);
         System.out.println("[Admin WS] Connected: " + session.getId());
 
         // Send welcome message
@@ -46,6 +52,13 @@ public class AdminWebSocketHandler extends TextWebSocketHandler {
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
         String payload = message.getPayload();
+
+        // Legacy PING heartbeat — answered without parsing or logging
+        if (WebSocketHeartbeat.isPing(payload)) {
+            WebSocketHeartbeat.touch(session);
+            WebSocketHeartbeat.sendPong(session);
+            return;
+        }
         System.out.println("[Admin WS] Received: " + payload);
 
         try {
@@ -53,16 +66,9 @@ public class AdminWebSocketHandler extends TextWebSocketHandler {
             Map<String, Object> data = objectMapper.readValue(payload, Map.class);
             String type = (String) data.get("type");
 
-            // Handle PING heartbeat — respond with PONG
             if ("PING".equals(type)) {
-                Map<String, Object> pong = new HashMap<>();
-                pong.put("type", "PONG");
-                pong.put("timestamp", System.currentTimeMillis());
-                synchronized (session) {
-                    if (session.isOpen()) {
-                        session.sendMessage(new TextMessage(objectMapper.writeValueAsString(pong)));
-                    }
-                }
+                WebSocketHeartbeat.touch(session);
+                WebSocketHeartbeat.sendPong(session);
                 return;
             }
 
@@ -83,33 +89,49 @@ public class AdminWebSocketHandler extends TextWebSocketHandler {
     public void afterConnectionClosed(WebSocketSession session, org.springframework.web.socket.CloseStatus status)
             throws Exception {
         adminSessions.remove(session);
+        WebSocketHeartbeat.unregister(session);
         System.out.println("[Admin WS] Disconnected: " + session.getId());
     }
 
+    @Override
+    protected void handlePongMessage(WebSocketSession session, PongMessage message) {
+        WebSocketHeartbeat.touch(session);
+    }
+
     public static void broadcastToAdmins(Map<String, Object> data) throws Exception {
         String messageType = data.get("type") != null ? data.get("type").toString() : "UNKNOWN";
         System.out.println("[AdminWebSocketHandler] === START broadcastToAdmins() - type: " + messageType + ", adminSessions count: " + adminSessions.size());
         
         String message = objectMapper.writeValueAsString(data);
         System.out.println("[AdminWebSocketHandler] Message payload: " + message);
-        
-        int sentCount = 0;
-        for (WebSocketSession session : adminSessions) {
-            if (session.isOpen()) {
-                try {
-                    synchronized (session) {
-                        System.out.println("[AdminWebSocketHandler] Sending " + messageType + " to session: " + session.getId());
-                        session.sendMessage(new TextMessage(message));
-                        sentCount++;
-                    }
-                } catch (Exception e) {
-                    System.err.println("[Admin WS] Error sending message: " + e.getMessage());
-                }
-            } else {
-                System.out.println("[AdminWebSocketHandler] Session not open, skipping: " + session.getId());
+
+        ClusterFanout.publish(BackplaneMessage.ADMINS, message);
+        int sentCount = sendToLocalAdmins(message);
+        System.out.println("[AdminWebSocketHandler] === END broadcastToAdmins() - sent to " + sentCount + " open sessions");
+    }
+
+    /**
+     * Push a toggled system setting to the admin pages of every node.
+     */
+    @EventListener
+    public void onSettingsChanged(SystemSettingsChangedEvent event) {
+        Map<String, Object> update = new HashMap<>();
+        switch (event.getSetting()) {
+            case ACCOUNT_CREATION -> {
+                update.put("type", "REGISTRATION_UPDATE");
+                update.put("accountCreationEnabled", event.getSettings().isAccountCreationEnabled());
+            }
+            case DRIVER_SIGN_IN -> {
+                update.put("type", "DRIVER_SIGNIN_UPDATE");
+                update.put("driverSignInEnabled", event.getSettings().isDriverSignInEnabled());
+            }
+            case STUDENT_SIGN_IN -> {
+                update.put("type", "STUDENT_SIGNIN_UPDATE");
+                update.put("studentSignInEnabled", event.getSettings().isStudentSignInEnabled());
             }
         }
-        System.out.println("[AdminWebSocketHandler] === END broadcastToAdmins() - sent to " + sentCount + " open sessions");
+        update.put("timestamp", System.currentTimeMillis());
+        broadcastSystemUpdate(update);
     }
 
     /**
@@ -118,16 +140,32 @@ public class AdminWebSocketHandler extends TextWebSocketHandler {
     public static void broadcastSystemUpdate(Map<String, Object> data) {
         try {
             String message = objectMapper.writeValueAsString(data);
-            for (WebSocketSession session : adminSessions) {
-                if (session.isOpen()) {
+            ClusterFanout.publish(BackplaneMessage.ADMINS, message);
+            sendToLocalAdmins(message);
+        } catch (Exception e) {
+            System.err.println("[Admin WS] Broadcast error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Send a payload to the admin sessions connected to this node only.
+     */
+    public static int sendToLocalAdmins(String message) {
+        TextMessage textMessage = new TextMessage(message);
+        int sentCount = 0;
+        for (WebSocketSession session : adminSessions) {
+            if (session.isOpen()) {
+                try {
                     synchronized (session) {
-                        session.sendMessage(new TextMessage(message));
+                        session.sendMessage(textMessage);
+                        sentCount++;
                     }
+                } catch (Exception e) {
+                    System.err.println("[Admin WS] Error sending message: " + e.getMessage());
                 }
             }
-        } catch (Exception e) {
-            System.err.println("[Admin WS] Broadcast error: " + e.getMessage());
         }
+        return sentCount;
     }
 
     public static int getAdminSessionCount() {
@@ -0,0 +1,118 @@
+package com.college.bus.bus_tracking.websocket;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PingMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Connection liveness for every WebSocket endpoint. The server sends protocol-level ping
+ * frames, which browsers answer without running any page script, and closes sessions that
+ * stop answering. Legacy JSON {"type":"PING"} messages are still accepted through a fast
+ * path that recognises them without parsing and replies with a shared PONG frame.
+ */
+@Component
+public class WebSocketHeartbeat {
+
+    public static final TextMessage PONG = new TextMessage("{\"type\":\"PONG\"}");
+
+    private static final String PING_PREFIX = "{\"type\":\"PING\"";
+    private static final String BUS_NUMBER_FIELD = "\"busNumber\":\"";
+    private static final int MAX_PING_LENGTH = 256;
+    private static final PingMessage PING = new PingMessage(ByteBuffer.allocate(0));
+
+    // session -> time the last pong (or any client frame) was seen
+    private static final Map<WebSocketSession, Long> SESSIONS = new ConcurrentHashMap<>();
+
+    private final long timeoutMs;
+
+    public WebSocketHeartbeat(@Value("${websocket.ping-interval-ms:10000}") long pingIntervalMs) {
+        this.timeoutMs = pingIntervalMs * 3;
+    }
+
+    public static void register(WebSocketSession session) {
+        SESSIONS.put(session, System.currentTimeMillis());
+    }
+
+    public static void unregister(WebSocketSession session) {
+        SESSIONS.remove(session);
+    }
+
+    /**
+     * Record that the client answered (pong) or otherwise proved it is alive.
+     */
+    public static void touch(WebSocketSession session) {
+        SESSIONS.replace(session, System.currentTimeMillis());
+    }
+
+    /**
+     * True if the payload is a legacy JSON PING as sent by the web clients. Anything else,
+     * including PINGs with escaped characters or unusual formatting, is left to the
+     * handler's regular parsing.
+     */
+    public static boolean isPing(String payload) {
+        int length = payload.length();
+        if (length > MAX_PING_LENGTH || !payload.startsWith(PING_PREFIX) || payload.indexOf('\\') >= 0) {
+            return false;
+        }
+        char next = length > PING_PREFIX.length() ? payload.charAt(PING_PREFIX.length()) : 0;
+        return next == '}' || next == ',';
+    }
+
+    /**
+     * The busNumber of a payload accepted by {@link #isPing}, or null if it has none.
+     */
+    public static String busNumberOf(String ping) {
+        int start = ping.indexOf(BUS_NUMBER_FIELD);
+        if (start < 0) {
+            return null;
+        }
+        start += BUS_NUMBER_FIELD.length();
+        int end = ping.indexOf('"', start);
+        return end > start ? ping.substring(start, end) : null;
+    }
+
+    public static void sendPong(WebSocketSession session) {
+        synchronized (session) {
+            if (session.isOpen()) {
+                try {
+                    session.sendMessage(PONG);
+                } catch (Exception e) {
+                    System.err.println("[WebSocketHeartbeat] Error sending PONG: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    @Scheduled(fixedRateString = "${websocket.ping-interval-ms:10000}")
+    public void pingSessions() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<WebSocketSession, Long> entry : SESSIONS.entrySet()) {
+            WebSocketSession session = entry.getKey();
+            if (!session.isOpen()) {
+                SESSIONS.remove(session);
+                continue;
+            }
+            synchronized (session) {
+                try {
+                    if (now - entry.getValue() > timeoutMs) {
+                        System.out.println("[WebSocketHeartbeat] No pong from " + session.getId() + " — closing");
+                        SESSIONS.remove(session);
+                        session.close(CloseStatus.SESSION_NOT_RELIABLE);
+                    } else {
+                        session.sendMessage(PING);
+                    }
+                } catch (Exception e) {
+                    System.err.println("[WebSocketHeartbeat] Error pinging " + session.getId() + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+}
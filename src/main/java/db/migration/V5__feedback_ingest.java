@@ -0,0 +1,37 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Feedback ingestion writes rows in JDBC batches and hands out their ids before the
+ * insert, so feedback ids now come from a sequence that is allocated in blocks of 50
+ * (the same block size as the entity's sequence generator). The sequence has to start
+ * past the ids the identity column already issued, which plain SQL cannot express
+ * portably, hence a Java migration.
+ *
+ * Also adds report_count: identical reports arriving close together are stored once
+ * and counted.
+ */
+public class V5__feedback_ingest extends BaseJavaMigration {
+
+    private static final int BLOCK_SIZE = 50;
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        try (Statement statement = context.getConnection().createStatement()) {
+            long maxId;
+            try (ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM feedback")) {
+                rs.next();
+                maxId = rs.getLong(1);
+            }
+            // The first value is the top of the first block: ids maxId+1 .. maxId+50
+            statement.execute("CREATE SEQUENCE IF NOT EXISTS feedback_id_seq START WITH " + (maxId + BLOCK_SIZE)
+                    + " INCREMENT BY " + BLOCK_SIZE);
+            statement.execute("ALTER TABLE feedback ADD COLUMN IF NOT EXISTS report_count INTEGER DEFAULT 1 NOT NULL");
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.HexFormat;
+
+/**
+ * One table for every auth lookup: account_identity maps a login identifier (username
+ * or email) or the SHA-256 of a password reset token to its (user_type, user_id), so
+ * finding an account no longer probes the client and driver tables in turn.
+ *
+ * Outstanding reset tokens are moved over hashed, which plain SQL cannot do portably,
+ * hence a Java migration; the raw token columns are then dropped.
+ */
+public class V7__account_identity extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        try (Statement statement = context.getConnection().createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS account_identity ("
+                    + "lookup_key VARCHAR(255) NOT NULL, "
+                    + "kind VARCHAR(16) NOT NULL, "
+                    + "user_type VARCHAR(16) NOT NULL, "
+                    + "user_id BIGINT NOT NULL, "
+                    + "expires_at BIGINT, "
+                    + "CONSTRAINT pk_account_identity PRIMARY KEY (lookup_key, kind, user_type))");
+            statement.execute("CREATE INDEX IF NOT EXISTS idx_account_identity_user "
+                    + "ON account_identity (user_type, user_id)");
+            statement.execute("CREATE INDEX IF NOT EXISTS idx_account_identity_expires_at "
+                    + "ON account_identity (expires_at)");
+
+            for (String[] source : new String[][] { { "client", "CLIENT" }, { "driver", "DRIVER" } }) {
+                for (String[] column : new String[][] { { "username", "USERNAME" }, { "email", "EMAIL" } }) {
+                    statement.execute("INSERT INTO account_identity (lookup_key, kind, user_type, user_id) "
+                            + "SELECT " + column[0] + ", '" + column[1] + "', '" + source[1] + "', id FROM "
+                            + source[0] + " WHERE " + column[0] + " IS NOT NULL");
+                }
+                moveResetTokens(context, statement, source[0], source[1]);
+                statement.execute("DROP INDEX IF EXISTS idx_" + source[0] + "_reset_token");
+                statement.execute("ALTER TABLE " + source[0] + " DROP COLUMN IF EXISTS reset_token");
+                statement.execute("ALTER TABLE " + source[0] + " DROP COLUMN IF EXISTS reset_token_expiry");
+            }
+        }
+    }
+
+    private static void moveResetTokens(Context context, Statement statement, String table, String userType)
+            throws Exception {
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        try (ResultSet rs = statement.executeQuery("SELECT id, reset_token, reset_token_expiry FROM " + table
+                + " WHERE reset_token IS NOT NULL AND reset_token_expiry > " + System.currentTimeMillis());
+                PreparedStatement insert = context.getConnection().prepareStatement(
+                        "INSERT INTO account_identity (lookup_key, kind, user_type, user_id, expires_at) "
+                                + "VALUES (?, 'RESET', ?, ?, ?)")) {
+            while (rs.next()) {
+                byte[] hash = sha256.digest(rs.getString("reset_token").getBytes(StandardCharsets.UTF_8));
+                insert.setString(1, HexFormat.of().formatHex(hash));
+                insert.setString(2, userType);
+                insert.setLong(3, rs.getLong("id"));
+                insert.setLong(4, rs.getLong("reset_token_expiry"));
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+}
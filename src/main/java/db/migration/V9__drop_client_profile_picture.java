@@ -0,0 +1,162 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Moves the profile pictures still stored as base64 in client.profile_picture into the
+ * blob store, then drops the column. The blob store directory is the blob-store-dir
+ * placeholder, set from blob.store.dir.
+ *
+ * The blob layout (objects/{first two hex chars}/{sha-256}) and the image checks are
+ * spelled out here rather than borrowed from BlobStore and ProfilePictureService, so
+ * later changes to those classes cannot change what this migration did. Thumbnails are
+ * rendered on first request, as for any other picture.
+ *
+ * A picture that does not decode as an image within the upload limits is dropped with
+ * the column, as an upload of it would be rejected. Failing to write the blob store
+ * fails the migration and keeps the column.
+ */
+public class V9__drop_client_profile_picture extends BaseJavaMigration {
+
+    static final String BLOB_STORE_DIR = "blob-store-dir";
+
+    private static final long MAX_BYTES = 10L * 1024 * 1024;
+    private static final long MAX_PIXELS = 40_000_000L;
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        List<Long> ids = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery("SELECT id FROM client WHERE profile_picture IS NOT NULL")) {
+            while (rs.next()) {
+                ids.add(rs.getLong(1));
+            }
+        }
+        if (!ids.isEmpty()) {
+            String directory = context.getConfiguration().getPlaceholders().getOrDefault(BLOB_STORE_DIR, "data/blobs");
+            movePictures(connection, ids, Paths.get(directory));
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE client DROP COLUMN IF EXISTS profile_picture");
+        }
+    }
+
+    /**
+     * Rows are read one at a time so a large backlog never sits in memory.
+     */
+    private static void movePictures(Connection connection, List<Long> ids, Path root) throws Exception {
+        System.out.println("[ProfilePicture] Moving " + ids.size() + " legacy pictures to the blob store");
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT profile_picture FROM client WHERE id = ?");
+                PreparedStatement update = connection.prepareStatement(
+                        "UPDATE client SET profile_picture_hash = ? WHERE id = ?")) {
+            for (Long id : ids) {
+                String picture;
+                select.setLong(1, id);
+                try (ResultSet rs = select.executeQuery()) {
+                    picture = rs.next() ? rs.getString(1) : null;
+                }
+                if (picture == null || picture.isBlank()) {
+                    continue;
+                }
+                byte[] image;
+                try {
+                    image = decodeImage(picture);
+                } catch (IOException | IllegalArgumentException e) {
+                    System.err.println("[ProfilePicture] Dropping unreadable picture of client " + id + ": "
+                            + e.getMessage());
+                    continue;
+                }
+                update.setString(1, store(root, image));
+                update.setLong(2, id);
+                update.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Decode a base64 picture, with or without a data: URL prefix, and check that it is a
+     * complete image within the upload limits.
+     */
+    private static byte[] decodeImage(String value) throws IOException {
+        int comma = value.startsWith("data:") ? value.indexOf(',') : -1;
+        byte[] image = Base64.getMimeDecoder().decode(value.substring(comma + 1).getBytes(StandardCharsets.US_ASCII));
+        if (image.length > MAX_BYTES) {
+            throw new IllegalArgumentException("Picture exceeds " + MAX_BYTES + " bytes");
+        }
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(image))) {
+            Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+            if (readers == null || !readers.hasNext()) {
+                throw new IllegalArgumentException("Unsupported image");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                long pixels = (long) width * height;
+                if (pixels <= 0 || pixels > MAX_PIXELS) {
+                    throw new IllegalArgumentException("Unsupported image size " + width + "x" + height);
+                }
+                // Decode every row (subsampled, so little is held) to catch truncated pictures
+                int step = Math.max(1, Math.max(width, height) / 320);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+        return image;
+    }
+
+    private static String store(Path root, byte[] image) throws Exception {
+        String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(image));
+        Path target = root.resolve("objects").resolve(hash.substring(0, 2)).resolve(hash);
+        if (Files.exists(target)) {
+            return hash;
+        }
+        Path tmp = Files.createDirectories(root.resolve("tmp"));
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(tmp, "migrate-", ".tmp");
+        try {
+            Files.write(temp, image);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // Same content stored meanwhile
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,80 @@
+-- Schema as previously generated by Hibernate (ddl-auto=update).
+-- Databases created before migrations were introduced are baselined at this version.
+
+CREATE TABLE IF NOT EXISTS bus_entity (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    bus_number VARCHAR(255),
+    driver_id BIGINT,
+    bus_name VARCHAR(255),
+    bus_stop VARCHAR(255),
+    latitude DOUBLE PRECISION NOT NULL,
+    longitude DOUBLE PRECISION NOT NULL,
+    status VARCHAR(255),
+    driver_name VARCHAR(255),
+    driver_phone VARCHAR(255)
+);
+
+CREATE TABLE IF NOT EXISTS client (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    username VARCHAR(255) NOT NULL UNIQUE,
+    email VARCHAR(255) NOT NULL UNIQUE,
+    password VARCHAR(255),
+    name VARCHAR(255),
+    phone_number VARCHAR(255),
+    phone_verified BOOLEAN NOT NULL,
+    profile_picture TEXT,
+    saved_bus_stop VARCHAR(255),
+    reset_token VARCHAR(255),
+    reset_token_expiry BIGINT
+);
+
+CREATE TABLE IF NOT EXISTS driver (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    username VARCHAR(255) UNIQUE,
+    password VARCHAR(255),
+    name VARCHAR(255),
+    phone VARCHAR(255),
+    email VARCHAR(255) UNIQUE,
+    reset_token VARCHAR(255),
+    reset_token_expiry BIGINT,
+    bus_number VARCHAR(255),
+    bus_name VARCHAR(255)
+);
+
+CREATE TABLE IF NOT EXISTS feedback (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    bus_number VARCHAR(255) NOT NULL,
+    route_name VARCHAR(255),
+    student_name VARCHAR(255),
+    student_email VARCHAR(255),
+    issue_type VARCHAR(255) NOT NULL,
+    message TEXT,
+    created_at TIMESTAMP(6) NOT NULL,
+    status VARCHAR(255) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS guest_access_code (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    code VARCHAR(6) NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL,
+    expires_at TIMESTAMP(6) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS system_settings (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    account_creation_enabled BOOLEAN NOT NULL,
+    driver_sign_in_enabled BOOLEAN,
+    student_sign_in_enabled BOOLEAN,
+    last_modified TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS user_session (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id BIGINT,
+    user_type VARCHAR(255) NOT NULL,
+    login_time BIGINT NOT NULL,
+    last_activity_time BIGINT,
+    session_token VARCHAR(255),
+    ip_address VARCHAR(255),
+    user_agent VARCHAR(255)
+);
@@ -0,0 +1,18 @@
+-- Indexes for every repository lookup (findByX / ORDER BY) on the hot paths.
+-- bus_number is not unique: a driver START can create a row for a bus number an admin
+-- already configured without a driver.
+
+CREATE INDEX IF NOT EXISTS idx_bus_entity_bus_number ON bus_entity (bus_number);
+CREATE INDEX IF NOT EXISTS idx_bus_entity_driver_id ON bus_entity (driver_id);
+CREATE INDEX IF NOT EXISTS idx_bus_entity_status ON bus_entity (status);
+
+CREATE INDEX IF NOT EXISTS idx_client_reset_token ON client (reset_token);
+CREATE INDEX IF NOT EXISTS idx_driver_reset_token ON driver (reset_token);
+
+CREATE INDEX IF NOT EXISTS idx_feedback_created_at ON feedback (created_at);
+CREATE INDEX IF NOT EXISTS idx_feedback_bus_number_created_at ON feedback (bus_number, created_at);
+CREATE INDEX IF NOT EXISTS idx_feedback_status_created_at ON feedback (status, created_at);
+
+CREATE INDEX IF NOT EXISTS idx_guest_access_code_created_at ON guest_access_code (created_at);
+
+CREATE INDEX IF NOT EXISTS idx_user_session_user_id_user_type ON user_session (user_id, user_type);
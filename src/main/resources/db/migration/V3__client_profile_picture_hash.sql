@@ -0,0 +1,5 @@
+-- Profile pictures move to the blob store; the client row only keeps the content hash.
+-- profile_picture (base64 TEXT) is left in place until ProfilePictureService has moved
+-- the existing pictures out of it at startup.
+
+ALTER TABLE client ADD COLUMN IF NOT EXISTS profile_picture_hash VARCHAR(64);
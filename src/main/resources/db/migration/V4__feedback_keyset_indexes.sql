@@ -0,0 +1,12 @@
+-- Feedback is listed newest first and paged by the (created_at, id) keyset, so every
+-- listing index ends in (created_at, id): a page is one index range scan whatever the
+-- filter and however deep the cursor.
+
+DROP INDEX IF EXISTS idx_feedback_created_at;
+DROP INDEX IF EXISTS idx_feedback_bus_number_created_at;
+DROP INDEX IF EXISTS idx_feedback_status_created_at;
+
+CREATE INDEX IF NOT EXISTS idx_feedback_created_at_id ON feedback (created_at, id);
+CREATE INDEX IF NOT EXISTS idx_feedback_bus_number_created_at_id ON feedback (bus_number, created_at, id);
+CREATE INDEX IF NOT EXISTS idx_feedback_status_created_at_id ON feedback (status, created_at, id);
+CREATE INDEX IF NOT EXISTS idx_feedback_issue_type_created_at_id ON feedback (issue_type, created_at, id);
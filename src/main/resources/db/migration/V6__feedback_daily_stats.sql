@@ -0,0 +1,21 @@
+-- Running feedback counts per report day x bus x issue type, maintained by the writes
+-- that change feedback (submit, duplicate report, resolve, delete) in the same
+-- transaction, so dashboard queries read buckets instead of scanning feedback.
+--   submitted: feedback rows, reports: including collapsed duplicates,
+--   resolved:  rows marked resolved
+
+CREATE TABLE IF NOT EXISTS feedback_daily_stats (
+    report_date DATE NOT NULL,
+    bus_number VARCHAR(255) NOT NULL,
+    issue_type VARCHAR(255) NOT NULL,
+    submitted INTEGER DEFAULT 0 NOT NULL,
+    reports INTEGER DEFAULT 0 NOT NULL,
+    resolved INTEGER DEFAULT 0 NOT NULL,
+    PRIMARY KEY (report_date, bus_number, issue_type)
+);
+
+INSERT INTO feedback_daily_stats (report_date, bus_number, issue_type, submitted, reports, resolved)
+SELECT CAST(created_at AS DATE), bus_number, issue_type, COUNT(*), SUM(report_count),
+       SUM(CASE WHEN status = 'resolved' THEN 1 ELSE 0 END)
+FROM feedback
+GROUP BY CAST(created_at AS DATE), bus_number, issue_type;
@@ -0,0 +1,7 @@
+-- Sessions of the in-memory SessionStore are written behind to user_session and restored
+-- on startup. The device decides whether a login from another device is refused, and
+-- rows idle past the session TTL are purged by last_activity_time at startup.
+
+ALTER TABLE user_session ADD COLUMN IF NOT EXISTS device_id VARCHAR(255);
+
+CREATE INDEX IF NOT EXISTS idx_user_session_last_activity_time ON user_session (last_activity_time);
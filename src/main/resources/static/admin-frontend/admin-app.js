@@ -2329,31 +2329,95 @@ document.addEventListener("DOMContentLoaded", async () => {
 // Feedback Manager
 // =========================================
 const FeedbackManager = {
+  pageSize: 50,
   allFeedback: [],
+  nextCursor: null,
+  loading: false,
+  searchTimer: null,
   currentFeedbackId: null,
 
+  // Loads the first page for the current filter; further pages via loadMore()
   async loadFeedback() {
+    this.allFeedback = [];
+    this.nextCursor = null;
+    const search = document.getElementById("feedbackSearch");
+    if (search && search.value.trim()) {
+      await this.search(search.value.trim());
+      return;
+    }
+    await this.fetchPage(null);
+  },
+
+  onSearchInput() {
+    clearTimeout(this.searchTimer);
+    this.searchTimer = setTimeout(() => this.loadFeedback(), 250);
+  },
+
+  // Ranked keyword search; results come back best match first, in one page
+  async search(query) {
     try {
-      const resp = await fetch(getApiBaseUrl() + "/api/feedback");
+      const resp = await fetch(
+        getApiBaseUrl() +
+        "/api/feedback/search?limit=100&q=" +
+        encodeURIComponent(query),
+      );
       const data = await resp.json();
       if (data.success) {
-        this.allFeedback = data.feedback || [];
+        const filter = document.getElementById("feedbackFilter").value;
+        this.allFeedback = (data.feedback || []).filter(
+          (f) => filter === "all" || f.status === filter,
+        );
         document.getElementById("totalFeedback").textContent =
           this.allFeedback.length;
-        this.applyFilter();
+        this.renderTable(this.allFeedback);
+      }
+    } catch (e) {
+      console.error("[Feedback] Search error:", e);
+    } finally {
+      const more = document.getElementById("feedbackLoadMore");
+      if (more) more.style.display = "none";
+    }
+  },
+
+  async loadMore() {
+    if (this.nextCursor) {
+      await this.fetchPage(this.nextCursor);
+    }
+  },
+
+  async fetchPage(cursor) {
+    if (this.loading) return;
+    this.loading = true;
+    try {
+      const params = new URLSearchParams({ limit: this.pageSize });
+      const filter = document.getElementById("feedbackFilter").value;
+      if (filter !== "all") params.set("status", filter);
+      if (cursor) params.set("cursor", cursor);
+
+      const resp = await fetch(
+        getApiBaseUrl() + "/api/feedback?" + params.toString(),
+      );
+      const data = await resp.json();
+      if (data.success) {
+        this.allFeedback = this.allFeedback.concat(data.feedback || []);
+        this.nextCursor = data.nextCursor || null;
+        if (data.total !== undefined) {
+          document.getElementById("totalFeedback").textContent =
+            data.total + (data.totalCapped ? "+" : "");
+        }
+        this.renderTable(this.allFeedback);
       }
     } catch (e) {
       console.error("[Feedback] Load error:", e);
+    } finally {
+      this.loading = false;
+      const more = document.getElementById("feedbackLoadMore");
+      if (more) more.style.display = this.nextCursor ? "block" : "none";
     }
   },
 
   applyFilter() {
-    const filter = document.getElementById("feedbackFilter").value;
-    let list = this.allFeedback;
-    if (filter !== "all") {
-      list = list.filter((f) => f.status === filter);
-    }
-    this.renderTable(list);
+    this.loadFeedback();
   },
 
   renderTable(list) {
@@ -401,6 +401,7 @@ signinForm.addEventListener("submit", async (e) => {
     switch (currentRole) {
       case "client":
         localStorage.setItem("client", JSON.stringify(data.client));
+        localStorage.setItem("client_session_token", data.sessionToken || "");
         window.location.href = "client-frontend/index.html";
         break;
       case "driver":
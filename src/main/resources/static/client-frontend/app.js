@@ -25,7 +25,9 @@
     let selectedBusNumber = null;
     let webSocket = null;
     let wsHeartbeatTimer = null;
-    let pollingInterval = null;
+    let changeVersion = null; // last version seen from /api/bus/changes
+    let longPollActive = false;
+    let longPollAbort = null;
     let activeNavTab = 'dashboard';
     let busSubFilter = 'all';
     let scheduleType = 'morning';
@@ -123,8 +125,8 @@
         fetchBusesData();
         connectWebSocket();
 
-        // Start fallback polling every 5 seconds
-        pollingInterval = setInterval(fetchBusesData, 5000);
+        // Long-poll for changes until the WebSocket is up
+        startLongPoll();
     }
 
     // Load User Session from localStorage
@@ -226,6 +228,7 @@
                 console.log('[ClientWS] Connected to live WebSocket');
                 elements.statusPulse.classList.add('active');
                 elements.statusText.textContent = 'Real-time Live Sync Active';
+                stopLongPoll();
 
                 webSocket.send(JSON.stringify({ type: 'ALL' }));
 
@@ -260,6 +263,7 @@
                 elements.statusPulse.classList.remove('active');
                 elements.statusText.textContent = 'Polling Feed (WS Reconnecting...)';
                 clearInterval(wsHeartbeatTimer);
+                startLongPoll();
                 setTimeout(connectWebSocket, 5000);
             };
 
@@ -284,6 +288,51 @@
         }
     }
 
+    // Long-poll fallback: the server holds each request until buses change
+    function startLongPoll() {
+        if (longPollActive) return;
+        longPollActive = true;
+        pollChanges();
+    }
+
+    function stopLongPoll() {
+        longPollActive = false;
+        if (longPollAbort) longPollAbort.abort();
+    }
+
+    async function pollChanges() {
+        while (longPollActive) {
+            try {
+                longPollAbort = new AbortController();
+                const query = changeVersion ? `?since=${encodeURIComponent(changeVersion)}` : '';
+                const response = await fetch(`${getApiBaseUrl()}/api/bus/changes${query}`, {
+                    cache: 'no-store',
+                    signal: longPollAbort.signal
+                });
+                if (!response.ok) throw new Error(`HTTP ${response.status}`);
+                applyChanges(await response.json());
+            } catch (e) {
+                if (!longPollActive) break;
+                console.error('[LongPoll] Failed to fetch changes:', e);
+                await new Promise(resolve => setTimeout(resolve, 5000));
+            }
+        }
+    }
+
+    function applyChanges(changes) {
+        changeVersion = changes.version;
+        if (changes.full) {
+            updateBusesData(changes.buses);
+            return;
+        }
+        if (changes.buses.length === 0 && changes.removed.length === 0) return;
+
+        const byNumber = new Map(busesData.map(b => [b.busNumber, b]));
+        changes.removed.forEach(busNumber => byNumber.delete(busNumber));
+        changes.buses.forEach(bus => byNumber.set(bus.busNumber, bus));
+        updateBusesData(Array.from(byNumber.values()));
+    }
+
     // Fetch Bus Stops
     async function fetchBusStops() {
         try {
@@ -733,6 +782,7 @@
         elements.logoutBtn.addEventListener('click', () => {
             if (confirm('Are you sure you want to log out?')) {
                 localStorage.removeItem('client');
+                localStorage.removeItem('client_session_token');
                 window.location.href = '../auth.html';
             }
         });
@@ -760,9 +810,14 @@
             elements.submitFeedbackBtn.textContent = 'Submitting...';
 
             try {
+                const headers = { 'Content-Type': 'application/json' };
+                const sessionToken = localStorage.getItem('client_session_token');
+                if (sessionToken) {
+                    headers['X-Session-Token'] = sessionToken;
+                }
                 const response = await fetch(`${getApiBaseUrl()}/api/feedback`, {
                     method: 'POST',
-                    headers: { 'Content-Type': 'application/json' },
+                    headers,
                     body: JSON.stringify({
                         studentEmail: currentUser ? currentUser.email : 'guest@student.com',
                         studentName: currentUser ? currentUser.name : 'Student',
@@ -0,0 +1,338 @@
+package com.college.bus.bus_tracking.cluster;
+
+import com.college.bus.bus_tracking.BusTrackingApplication;
+import com.college.bus.bus_tracking.repository.BusRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Starts three application nodes on one loopback backplane and checks that they agree
+ * on a single owner per bus, that ownership rebalances when a node leaves, and that a
+ * driver's frames sent to any node are processed by the owner and replicated, and that a
+ * survivor stops a stale bus whose owner died.
+ *
+ * Each node is loaded by its own class loader, so it has its own copy of the static
+ * stores (live buses, sessions, WebSocket sessions) as it would in its own JVM; only
+ * {@link LoopbackGroups} is shared. The nodes are driven over HTTP and WebSocket, and
+ * through their beans reflectively. Starting a node this way is slow, so the tests share
+ * one cluster and run in order, the node leaving last.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ClusterOwnershipTest {
+
+    private static final List<String> BUSES = List.of("TN01", "TN02", "TN03", "TN04", "TN05", "TN06",
+            "TN07", "TN08", "TN09", "TN10", "TN11", "TN12", "TN13", "TN14", "TN15", "TN16");
+    private static final long STALE_THRESHOLD_MS = 4_000;
+
+    private static final List<Node> nodes = new ArrayList<>();
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    @BeforeAll
+    static void startCluster() throws Exception {
+        String group = "ownership-" + UUID.randomUUID();
+        for (int i = 1; i <= 3; i++) {
+            nodes.add(Node.start(group, "node-" + i));
+        }
+        awaitTrue(() -> nodes.stream().allMatch(n -> n.members().size() == 3));
+    }
+
+    @AfterAll
+    static void stopCluster() {
+        for (Node node : nodes) {
+            node.close();
+        }
+        nodes.clear();
+    }
+
+    @Test
+    @Order(1)
+    void driverFramesAreProcessedByTheOwnerAndReplicated() throws Exception {
+        Node entry = nodes.get(0);
+        String busNumber = BUSES.stream()
+                .filter(b -> !entry.id.equals(entry.ownerOf(b)))
+                .findFirst()
+                .orElseThrow();
+        Node owner = nodes.stream().filter(n -> n.id.equals(entry.ownerOf(busNumber))).findFirst().orElseThrow();
+
+        WebSocket driver = connectDriver(entry);
+        driver.sendText("{\"action\":\"START\",\"driverId\":7,\"busNumber\":\"" + busNumber
+                + "\",\"busName\":\"Campus Line\",\"busStop\":\"Gate\"}", true).join();
+        for (Node node : nodes) {
+            awaitTrue(() -> "RUNNING".equals(bus(node, busNumber).get("status")));
+        }
+        // Only the owner processed the frame, so only its database has the bus
+        for (Node node : nodes) {
+            assertEquals(node == owner ? 1L : 0L, node.call(BusRepository.class, "count"), node.id);
+        }
+
+        driver.sendText("{\"busNumber\":\"" + busNumber + "\",\"latitude\":11.5,\"longitude\":77.25}", true)
+                .join();
+        for (Node node : nodes) {
+            awaitTrue(() -> Double.valueOf(11.5).equals(bus(node, busNumber).get("latitude")));
+        }
+        driver.sendClose(WebSocket.NORMAL_CLOSURE, "").join();
+    }
+
+    @Test
+    @Order(2)
+    void nodesAgreeOnOwnersAndRebalanceWhenANodeLeaves() throws Exception {
+        Set<String> owners = assertSingleOwnerPerBus(nodes);
+        assertTrue(owners.size() > 1, "buses should be spread over several nodes");
+
+        Node leaving = nodes.remove(0);
+        leaving.close();
+
+        awaitTrue(() -> nodes.stream().allMatch(n -> n.members().size() == 2));
+        for (String owner : assertSingleOwnerPerBus(nodes)) {
+            assertNotEquals(leaving.id, owner);
+        }
+    }
+
+    @Test
+    @Order(3)
+    void survivorStopsAStaleBusWhoseOwnerDied() throws Exception {
+        Node survivor = nodes.get(0);
+        String busNumber = BUSES.stream()
+                .filter(b -> !survivor.id.equals(survivor.ownerOf(b)))
+                .findFirst()
+                .orElseThrow();
+        Node owner = nodes.get(1);
+
+        WebSocket driver = connectDriver(survivor);
+        driver.sendText("{\"action\":\"START\",\"driverId\":8,\"busNumber\":\"" + busNumber
+                + "\",\"busName\":\"Hostel Line\",\"busStop\":\"Gate\"}", true).join();
+        awaitTrue(() -> "RUNNING".equals(bus(survivor, busNumber).get("status")));
+
+        // Cut the owner off just before the heartbeat goes stale, so the survivor's deadline
+        // comes up while the owner is still in its ring
+        long lastHeartbeat = ((Number) bus(survivor, busNumber).get("lastHeartbeatTime")).longValue();
+        Thread.sleep(Math.max(0, lastHeartbeat + STALE_THRESHOLD_MS - 300 - System.currentTimeMillis()));
+        owner.call(Backplane.class, "close");
+
+        awaitTrue(() -> "STOPPED".equals(bus(survivor, busNumber).get("status")));
+        assertEquals(survivor.id, survivor.ownerOf(busNumber));
+        driver.sendClose(WebSocket.NORMAL_CLOSURE, "").join();
+    }
+
+    private WebSocket connectDriver(Node node) {
+        return http.newWebSocketBuilder()
+                .buildAsync(URI.create("ws://localhost:" + node.port + "/ws/driver"), new WebSocket.Listener() {
+                })
+                .join();
+    }
+
+    /**
+     * The bus as the node serves it from /api/bus/all, or an empty map.
+     */
+    private Map<String, Object> bus(Node node, String busNumber) {
+        try {
+            HttpResponse<String> response = http.send(HttpRequest.newBuilder(
+                    URI.create("http://localhost:" + node.port + "/api/bus/all")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            List<Map<String, Object>> buses = mapper.readValue(response.body(), new TypeReference<>() {
+            });
+            return buses.stream().filter(b -> busNumber.equals(b.get("busNumber"))).findFirst().orElse(Map.of());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Every node must name the same owner for every bus, and exactly one node must
+     * consider itself that owner. Returns the set of owners used.
+     */
+    private static Set<String> assertSingleOwnerPerBus(List<Node> cluster) {
+        Set<String> owners = new HashSet<>();
+        for (String bus : BUSES) {
+            String owner = cluster.get(0).ownerOf(bus);
+            int selfOwners = 0;
+            for (Node node : cluster) {
+                assertEquals(owner, node.ownerOf(bus), "owner of " + bus);
+                if ((Boolean) node.call(ClusterMembershipService.class, "isOwner", bus)) {
+                    selfOwners++;
+                }
+            }
+            assertEquals(1, selfOwners, "nodes claiming " + bus);
+            owners.add(owner);
+        }
+        return owners;
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 15_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("cluster did not converge in time");
+            }
+            Thread.sleep(50);
+        }
+    }
+
+    /**
+     * An application started in its own class loader.
+     */
+    static final class Node {
+
+        final String id;
+        final int port;
+        private final ClassLoader loader;
+        private final Object context;
+
+        private Node(String id, ClassLoader loader, Object context) {
+            this.id = id;
+            this.loader = loader;
+            this.context = context;
+            Object environment = invoke(context, "getEnvironment");
+            this.port = Integer.parseInt((String) invoke(environment, "getProperty", "local.server.port"));
+        }
+
+        static Node start(String group, String nodeId) throws Exception {
+            List<String> args = List.of("--server.port=0",
+                    "--spring.datasource.url=jdbc:h2:mem:" + nodeId + ";DB_CLOSE_DELAY=-1",
+                    "--cluster.backplane=loopback",
+                    "--cluster.loopback.group=" + group,
+                    "--cluster.node-id=" + nodeId,
+                    "--cluster.membership.heartbeat-ms=200",
+                    "--cluster.membership.timeout-ms=1000",
+                    "--cluster.heartbeat-batch-ms=200",
+                    "--heartbeat.stale-threshold-ms=" + STALE_THRESHOLD_MS,
+                    "--websocket.ping-interval-ms=600000");
+
+            ClassLoader loader = new NodeClassLoader();
+            Thread thread = Thread.currentThread();
+            ClassLoader previous = thread.getContextClassLoader();
+            thread.setContextClassLoader(loader);
+            try {
+                // The JVM takes one URL handler factory, so no node may install Tomcat's
+                loader.loadClass("org.apache.catalina.webresources.TomcatURLStreamHandlerFactory")
+                        .getMethod("disable").invoke(null);
+                Class<?> builderType = loader.loadClass("org.springframework.boot.builder.SpringApplicationBuilder");
+                Class<?> application = loader.loadClass(BusTrackingApplication.class.getName());
+                Object builder = builderType.getConstructor(Class[].class)
+                        .newInstance((Object) new Class<?>[] { application });
+                Object context = builderType.getMethod("run", String[].class)
+                        .invoke(builder, (Object) args.toArray(new String[0]));
+                return new Node(nodeId, loader, context);
+            } finally {
+                thread.setContextClassLoader(previous);
+            }
+        }
+
+        List<?> members() {
+            return (List<?>) call(ClusterMembershipService.class, "getMembers");
+        }
+
+        String ownerOf(String busNumber) {
+            return (String) call(ClusterMembershipService.class, "ownerOf", busNumber);
+        }
+
+        /**
+         * Call a method of this node's bean of the given type (resolved in its loader).
+         */
+        Object call(Class<?> beanType, String method, Object... args) {
+            try {
+                Class<?> type = loader.loadClass(beanType.getName());
+                Object bean = invoke(context, "getBean", type);
+                return invoke(type, bean, method, args);
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void close() {
+            if ((Boolean) invoke(context, "isActive")) {
+                invoke(context, "close");
+            }
+        }
+
+        private static Object invoke(Object target, String method, Object... args) {
+            return invoke(target.getClass(), target, method, args);
+        }
+
+        private static Object invoke(Class<?> type, Object target, String name, Object... args) {
+            for (Method method : type.getMethods()) {
+                if (method.getName().equals(name) && accepts(method.getParameterTypes(), args)) {
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw new IllegalStateException(e.getCause());
+                    } catch (IllegalAccessException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            }
+            throw new IllegalArgumentException("No method " + name + " on " + type.getName());
+        }
+
+        private static boolean accepts(Class<?>[] parameters, Object[] args) {
+            if (parameters.length != args.length) {
+                return false;
+            }
+            for (int i = 0; i < args.length; i++) {
+                if (!parameters[i].isInstance(args[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Loads the whole test classpath again, sharing only {@link LoopbackGroups} (and the
+     * JDK) with the test.
+     */
+    private static final class NodeClassLoader extends URLClassLoader {
+
+        NodeClassLoader() throws MalformedURLException {
+            super(classpath(), ClassLoader.getPlatformClassLoader());
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (name.equals(LoopbackGroups.class.getName())) {
+                return LoopbackGroups.class;
+            }
+            return super.loadClass(name, resolve);
+        }
+
+        private static URL[] classpath() throws MalformedURLException {
+            String[] entries = System.getProperty("java.class.path").split(File.pathSeparator);
+            URL[] urls = new URL[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                urls[i] = new File(entries[i]).toURI().toURL();
+            }
+            return urls;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.college.bus.bus_tracking.cluster;
+
+import com.college.bus.bus_tracking.model.BusData;
+import com.college.bus.bus_tracking.store.BusSessionStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * One replicating node and two scripted peers on a loopback group: the node publishes
+ * puts only for the buses it owns and forwards the others to their owner, drops puts
+ * older than its copy, answers a sync request only for the buses it owned before the
+ * requester joined, and sends heartbeats in batches rather than as puts.
+ */
+class ClusterReplicationServiceTest {
+
+    private static final List<String> BUSES = List.of("RP01", "RP02", "RP03", "RP04", "RP05", "RP06",
+            "RP07", "RP08", "RP09", "RP10", "RP11", "RP12");
+
+    private LoopbackBackplane node;
+    private LoopbackBackplane peer1;
+    private LoopbackBackplane peer2;
+    private ClusterMembershipService membership;
+    private ClusterReplicationService replication;
+    private final List<BackplaneMessage> toPeer1 = new CopyOnWriteArrayList<>();
+    private final List<BackplaneMessage> toPeer2 = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void startCluster() throws InterruptedException {
+        String group = "replication-" + UUID.randomUUID();
+        node = new LoopbackBackplane("node", group);
+        membership = new ClusterMembershipService(node, 60_000);
+        membership.start();
+        replication = new ClusterReplicationService(node, membership);
+        replication.start();
+
+        peer1 = new LoopbackBackplane("peer-1", group);
+        peer2 = new LoopbackBackplane("peer-2", group);
+        peer1.subscribe(message -> record(toPeer1, message));
+        peer2.subscribe(message -> record(toPeer2, message));
+        peer1.publish(BackplaneMessage.nodeHeartbeat());
+        peer2.publish(BackplaneMessage.nodeHeartbeat());
+        awaitTrue(() -> membership.getMembers().size() == 3);
+    }
+
+    @AfterEach
+    void stopCluster() {
+        replication.stop();
+        membership.stop();
+        node.close();
+        peer1.close();
+        peer2.close();
+        BusSessionStore.restore(List.of());
+    }
+
+    @Test
+    void onlyOwnerPublishesAndStalePutsAreDropped() throws InterruptedException {
+        String own = busOwnedBy("node");
+        String peers = busOwnedBy("peer-1");
+
+        BusSessionStore.put(bus(own, 1.0, 0));
+        BusSessionStore.put(bus(peers, 1.0, 0)); // an edit served by a non-owner
+        awaitTrue(() -> toPeer1.size() == 2);
+        assertNull(toPeer1.get(0).getTargetNodeId());
+        assertEquals(own, toPeer1.get(0).getBusNumber());
+        assertEquals("peer-1", toPeer1.get(1).getTargetNodeId());
+        assertEquals(peers, toPeer1.get(1).getBusNumber());
+
+        long version = BusSessionStore.BUS_MAP.get(peers).getVersion();
+        peer1.publish(BackplaneMessage.busPut(bus(peers, 2.0, version + 10)));
+        awaitTrue(() -> BusSessionStore.BUS_MAP.get(peers).getLatitude() == 2.0);
+
+        // A replica that missed the last update answers late with its older copy
+        peer2.publish(BackplaneMessage.busPut(bus(peers, 3.0, version + 5)));
+        String marker = busOwnedBy("peer-2");
+        peer2.publish(BackplaneMessage.busPut(bus(marker, 1.0, 1)));
+        awaitTrue(() -> BusSessionStore.BUS_MAP.containsKey(marker));
+        assertEquals(2.0, BusSessionStore.BUS_MAP.get(peers).getLatitude());
+        assertEquals(version + 10, BusSessionStore.BUS_MAP.get(peers).getVersion());
+    }
+
+    @Test
+    void syncIsAnsweredByThePreviousOwnerOnly() throws InterruptedException {
+        for (String busNumber : BUSES) {
+            BusSessionStore.put(bus(busNumber, 1.0, 0));
+        }
+        awaitTrue(() -> toPeer2.size() == BUSES.size());
+        toPeer2.clear();
+
+        ConsistentHashRing beforePeer2 = new ConsistentHashRing(List.of("node", "peer-1"));
+        Set<String> expected = BUSES.stream()
+                .filter(b -> "node".equals(beforePeer2.ownerOf(b)))
+                .collect(Collectors.toCollection(TreeSet::new));
+        assertTrue(!expected.isEmpty() && expected.size() < BUSES.size());
+
+        peer2.publish(BackplaneMessage.syncRequest());
+        awaitTrue(() -> toPeer2.size() >= expected.size());
+        Thread.sleep(200);
+        assertEquals(expected, toPeer2.stream().map(BackplaneMessage::getBusNumber)
+                .collect(Collectors.toCollection(TreeSet::new)));
+        assertEquals(expected.size(), toPeer2.size());
+        assertTrue(toPeer2.stream().allMatch(m -> "peer-2".equals(m.getTargetNodeId())));
+    }
+
+    @Test
+    void heartbeatsAreBatchedInsteadOfPublishedAsPuts() throws InterruptedException {
+        String own = busOwnedBy("node");
+        BusSessionStore.put(bus(own, 1.0, 0));
+        long version = BusSessionStore.BUS_MAP.get(own).getVersion();
+        for (int i = 0; i < 3; i++) {
+            BusSessionStore.heartbeat(own);
+        }
+        replication.publishHeartbeats();
+        replication.publishHeartbeats(); // nothing new: nothing sent
+
+        awaitTrue(() -> toPeer1.size() == 2);
+        Thread.sleep(100);
+        assertEquals(2, toPeer1.size());
+        assertEquals(BackplaneMessage.Type.BUS_PUT, toPeer1.get(0).getType());
+        assertEquals(Map.of(own, BusSessionStore.BUS_MAP.get(own).getLastHeartbeatTime()),
+                toPeer1.get(1).getHeartbeats());
+        assertEquals(version, BusSessionStore.BUS_MAP.get(own).getVersion());
+
+        // A replica takes the owner's heartbeat time without a put
+        String peers = busOwnedBy("peer-1");
+        peer1.publish(BackplaneMessage.busPut(bus(peers, 1.0, 1)));
+        awaitTrue(() -> BusSessionStore.BUS_MAP.containsKey(peers));
+        long beat = BusSessionStore.BUS_MAP.get(peers).getLastHeartbeatTime() + 5_000;
+        peer1.publish(BackplaneMessage.busHeartbeats(Map.of(peers, beat)));
+        awaitTrue(() -> BusSessionStore.BUS_MAP.get(peers).getLastHeartbeatTime() == beat);
+    }
+
+    private static void record(List<BackplaneMessage> received, BackplaneMessage message) {
+        if (message.getType() == BackplaneMessage.Type.BUS_PUT
+                || message.getType() == BackplaneMessage.Type.BUS_HEARTBEATS) {
+            received.add(message);
+        }
+    }
+
+    private String busOwnedBy(String nodeId) {
+        return BUSES.stream()
+                .filter(b -> nodeId.equals(membership.ownerOf(b)) && !BusSessionStore.BUS_MAP.containsKey(b))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static BusData bus(String busNumber, double latitude, long version) {
+        BusData bus = new BusData(null, busNumber, null, "Bus " + busNumber, null, latitude, 80.0, "STOPPED",
+                null, null);
+        bus.setVersion(version);
+        return bus;
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("condition not met in time");
+            }
+            Thread.sleep(20);
+        }
+    }
+}
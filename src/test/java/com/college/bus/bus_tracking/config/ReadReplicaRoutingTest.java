@@ -0,0 +1,114 @@
+package com.college.bus.bus_tracking.config;
+
+import com.college.bus.bus_tracking.entity.Feedback;
+import com.college.bus.bus_tracking.repository.FeedbackRepository;
+import com.college.bus.bus_tracking.service.AccountCacheService;
+import com.college.bus.bus_tracking.service.AccountIdentityService;
+import com.college.bus.bus_tracking.service.FeedbackService;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs against two separate in-memory H2 databases and tells them apart by the rows
+ * each one holds: read-only service methods must see the replica's data, writes, plain
+ * repository reads and auth lookups the primary's.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing_primary;DB_CLOSE_DELAY=-1",
+        "spring.datasource.replica.url=jdbc:h2:mem:routing_replica;DB_CLOSE_DELAY=-1",
+        "spring.datasource.replica.username=sa",
+        "spring.datasource.replica.password=",
+        "spring.datasource.replica.hikari.maximum-pool-size=2"
+})
+class ReadReplicaRoutingTest {
+
+    @Autowired
+    private FeedbackService feedbackService;
+
+    @Autowired
+    private FeedbackRepository feedbackRepository;
+
+    @Autowired
+    private AccountIdentityService accountIdentityService;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    private JdbcTemplate replica;
+
+    @BeforeEach
+    void setUp() {
+        // The replica is a separate database here, so it needs its own schema
+        Flyway.configure().dataSource(replicaDataSource).load().migrate();
+        replica = new JdbcTemplate(replicaDataSource);
+        replica.update("DELETE FROM feedback");
+        feedbackRepository.deleteAll();
+    }
+
+    @Test
+    void readOnlyServiceMethodsUseReplicaAndWritesUsePrimary() {
+        replica.update("INSERT INTO feedback (bus_number, issue_type, created_at, status) "
+                + "VALUES ('R1', 'delay', CURRENT_TIMESTAMP, 'pending')");
+        feedbackRepository.save(feedback("P1"));
+
+        List<Feedback> listed = feedbackService.getFeedbackPage(FeedbackService.Filter.NONE, null, 10).items();
+        assertEquals(1, listed.size());
+        assertEquals("R1", listed.get(0).getBusNumber());
+
+        // The write went to the primary only
+        assertEquals(1, new JdbcTemplate(primaryDataSource)
+                .queryForObject("SELECT COUNT(*) FROM feedback WHERE bus_number = 'P1'", Integer.class));
+        assertEquals(0, replica.queryForObject("SELECT COUNT(*) FROM feedback WHERE bus_number = 'P1'",
+                Integer.class));
+    }
+
+    @Test
+    void repositoryReadsStayOnPrimary() {
+        replica.update("INSERT INTO feedback (bus_number, issue_type, created_at, status) "
+                + "VALUES ('R1', 'delay', CURRENT_TIMESTAMP, 'pending')");
+        Feedback saved = feedbackRepository.save(feedback("P1"));
+
+        List<Feedback> all = feedbackRepository.findAllByOrderByCreatedAtDesc();
+        assertEquals(1, all.size());
+        assertEquals("P1", all.get(0).getBusNumber());
+        assertTrue(feedbackRepository.findById(saved.getId()).isPresent());
+    }
+
+    @Test
+    void authLookupsSeeAccountsTheReplicaHasNotCaughtUpWith() {
+        accountIdentityService.accountSaved(AccountCacheService.CLIENT, 77L, "fresh", "fresh@sairam.edu.in");
+        try {
+            assertEquals(0, replica.queryForObject("SELECT COUNT(*) FROM account_identity", Integer.class));
+            assertEquals(77L, accountIdentityService.findByLogin("fresh@sairam.edu.in").orElseThrow().userId());
+            assertEquals(77L, accountIdentityService.findUserId(AccountCacheService.CLIENT, "fresh").orElseThrow());
+        } finally {
+            accountIdentityService.accountDeleted(AccountCacheService.CLIENT, 77L);
+        }
+    }
+
+    private static Feedback feedback(String busNumber) {
+        Feedback feedback = new Feedback();
+        feedback.setBusNumber(busNumber);
+        feedback.setIssueType("delay");
+        feedback.setStatus("pending");
+        feedback.setCreatedAt(LocalDateTime.now());
+        return feedback;
+    }
+}
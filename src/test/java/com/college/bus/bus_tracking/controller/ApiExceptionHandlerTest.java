@@ -0,0 +1,87 @@
+package com.college.bus.bus_tracking.controller;
+
+import com.college.bus.bus_tracking.service.AccountCacheService;
+import com.college.bus.bus_tracking.service.AccountIdentityService;
+import com.college.bus.bus_tracking.service.PasswordHashingService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * A saturated password hashing pool answers 429 with Retry-After from every endpoint
+ * that hashes, rather than the endpoint's own error status. Password resets with a
+ * made-up token are refused before they reach the pool.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class ApiExceptionHandlerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AccountIdentityService accountIdentityService;
+
+    @MockitoBean
+    private PasswordHashingService passwordHashingService;
+
+    @BeforeEach
+    void saturate() {
+        when(passwordHashingService.encode(anyString())).thenThrow(new PasswordHashingService.BusyException(3));
+    }
+
+    @Test
+    void signupIsAskedToRetry() throws Exception {
+        mockMvc.perform(post("/api/client/signup")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"busy\",\"email\":\"busy@sairam.edu.in\",\"password\":\"secret\","
+                        + "\"name\":\"Busy Student\"}"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "3"))
+                .andExpect(jsonPath("$.success").value(false))
+                .andExpect(jsonPath("$.retryAfterSeconds").value(3));
+    }
+
+    @Test
+    void passwordResetIsAskedToRetryAndKeepsItsLink() throws Exception {
+        String token = accountIdentityService.issueResetToken(AccountCacheService.CLIENT, 4242L);
+        try {
+            mockMvc.perform(resetPassword(token))
+                    .andExpect(status().isTooManyRequests())
+                    .andExpect(header().string("Retry-After", "3"));
+            assertTrue(accountIdentityService.findResetToken(token).isPresent());
+        } finally {
+            accountIdentityService.accountDeleted(AccountCacheService.CLIENT, 4242L);
+        }
+    }
+
+    @Test
+    void madeUpResetTokensNeverReachTheHashingPool() throws Exception {
+        mockMvc.perform(resetPassword("made-up"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid token"));
+        verify(passwordHashingService, never()).encode(anyString());
+    }
+
+    private static MockHttpServletRequestBuilder resetPassword(String token) {
+        return post("/api/auth/reset-password")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"token\":\"" + token + "\",\"newPassword\":\"secret\"}");
+    }
+}
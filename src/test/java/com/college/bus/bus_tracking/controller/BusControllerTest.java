@@ -0,0 +1,149 @@
+package com.college.bus.bus_tracking.controller;
+
+import com.college.bus.bus_tracking.entity.BusEntity;
+import com.college.bus.bus_tracking.model.BusData;
+import com.college.bus.bus_tracking.repository.BusRepository;
+import com.college.bus.bus_tracking.service.FleetRegistryService;
+import com.college.bus.bus_tracking.store.BusSessionStore;
+import com.jayway.jsonpath.JsonPath;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Bus lookups served from the fleet registry: registered buses keep their stored status
+ * when they are not tracked, the fleet listing is conditional and gzipped, and the change
+ * feed holds requests until a bus changes.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class BusControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BusRepository busRepository;
+
+    @Autowired
+    private FleetRegistryService fleetRegistryService;
+
+    @AfterEach
+    void clear() {
+        busRepository.deleteAll();
+        BusSessionStore.restore(List.of());
+        fleetRegistryService.invalidateConfig();
+    }
+
+    @Test
+    void untrackedBusesReportTheirStoredStatus() throws Exception {
+        BusEntity bus = new BusEntity();
+        bus.setBusNumber("BC01");
+        bus.setBusName("Campus Line");
+        bus.setDriverId(9001L);
+        bus.setStatus("STOPPED");
+        bus = busRepository.save(bus);
+        fleetRegistryService.invalidateConfig();
+
+        mockMvc.perform(get("/api/bus/driver/9001"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].busNumber").value("BC01"))
+                .andExpect(jsonPath("$[0].status").value("STOPPED"));
+        mockMvc.perform(get("/api/bus/" + bus.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("STOPPED"));
+    }
+
+    @Test
+    void theFleetListingIsConditionalAndGzipped() throws Exception {
+        MvcResult plain = mockMvc.perform(get("/api/bus/all"))
+                .andExpect(status().isOk())
+                .andReturn();
+        String etag = plain.getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/api/bus/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+
+        // The gzipped body is the same JSON under its own tag
+        MvcResult gzipped = mockMvc.perform(get("/api/bus/all").header(HttpHeaders.ACCEPT_ENCODING, "gzip, br"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT_ENCODING)))
+                .andReturn();
+        assertNotEquals(etag, gzipped.getResponse().getHeader(HttpHeaders.ETAG));
+        try (GZIPInputStream in = new GZIPInputStream(
+                new ByteArrayInputStream(gzipped.getResponse().getContentAsByteArray()))) {
+            assertArrayEquals(plain.getResponse().getContentAsByteArray(), in.readAllBytes());
+        }
+
+        // A bus update changes the tag, so the old one no longer matches
+        BusSessionStore.put(new BusData(1L, "BC02", 9002L, "Campus Line", "Gate", 13.0, 80.2, "RUNNING",
+                "Ravi", "9000000000"));
+        mockMvc.perform(get("/api/bus/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.busNumber == 'BC02')].status").value("RUNNING"));
+    }
+
+    @Test
+    void theChangeFeedAnswersWhenABusChanges() throws Exception {
+        MvcResult full = mockMvc.perform(get("/api/bus/changes")).andExpect(request().asyncStarted()).andReturn();
+        String version = JsonPath.read(mockMvc.perform(asyncDispatch(full))
+                .andExpect(jsonPath("$.full").value(true))
+                .andReturn().getResponse().getContentAsString(), "$.version");
+
+        // The request is held without a worker thread until the bus changes
+        MvcResult waiting = mockMvc.perform(get("/api/bus/changes").param("since", version))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        BusSessionStore.put(new BusData(1L, "BC03", 9003L, "Campus Line", "Gate", 13.0, 80.2, "RUNNING",
+                "Ravi", "9000000000"));
+        mockMvc.perform(asyncDispatch(waiting))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.full").value(false))
+                .andExpect(jsonPath("$.buses.length()").value(1))
+                .andExpect(jsonPath("$.buses[0].busNumber").value("BC03"));
+    }
+
+    @Test
+    void theChangeFeedTimesOutEmptyWhenNothingChanges() throws Exception {
+        MvcResult full = mockMvc.perform(get("/api/bus/changes")).andExpect(request().asyncStarted()).andReturn();
+        String version = JsonPath.read(mockMvc.perform(asyncDispatch(full)).andReturn().getResponse()
+                .getContentAsString(), "$.version");
+
+        MvcResult waiting = mockMvc.perform(get("/api/bus/changes").param("since", version))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MockAsyncContext context = (MockAsyncContext) waiting.getRequest().getAsyncContext();
+        for (AsyncListener listener : context.getListeners()) {
+            listener.onTimeout(new AsyncEvent(context));
+        }
+        mockMvc.perform(asyncDispatch(waiting))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(version))
+                .andExpect(jsonPath("$.full").value(false))
+                .andExpect(jsonPath("$.buses").isEmpty())
+                .andExpect(jsonPath("$.removed").isEmpty());
+    }
+}
@@ -0,0 +1,64 @@
+package com.college.bus.bus_tracking.controller;
+
+import com.college.bus.bus_tracking.repository.FeedbackRepository;
+import com.college.bus.bus_tracking.store.SessionStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Feedback is rate limited per login session, else per client address, and never by the
+ * student email in the body.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class FeedbackControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private FeedbackRepository feedbackRepository;
+
+    @AfterEach
+    void clear() throws InterruptedException {
+        // Wait for the writer to store the accepted reports before deleting them
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (feedbackRepository.count() < 6 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        feedbackRepository.deleteAll();
+        SessionStore.clearAllSessions();
+    }
+
+    @Test
+    void rateLimitFollowsTheSenderNotTheEmail() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            mockMvc.perform(report(i, "10.1.0.1")).andExpect(status().isOk());
+        }
+        mockMvc.perform(report(5, "10.1.0.1")).andExpect(status().isTooManyRequests());
+
+        // Logged-in students behind the same address have their own limits
+        String token = SessionStore.createSession(601L, "CLIENT", "phone");
+        mockMvc.perform(report(6, "10.1.0.1").header("X-Session-Token", token)).andExpect(status().isOk());
+    }
+
+    private static MockHttpServletRequestBuilder report(int i, String address) {
+        return post("/api/feedback")
+                .with(request -> {
+                    request.setRemoteAddr(address);
+                    return request;
+                })
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"busNumber\":\"FC01\",\"issueType\":\"Delay\",\"message\":\"Late " + i
+                        + "\",\"studentEmail\":\"guest" + i + "@student.com\"}");
+    }
+}
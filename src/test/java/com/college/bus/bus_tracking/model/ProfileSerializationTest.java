@@ -0,0 +1,99 @@
+package com.college.bus.bus_tracking.model;
+
+import com.college.bus.bus_tracking.entity.Client;
+import com.college.bus.bus_tracking.entity.Driver;
+import com.college.bus.bus_tracking.repository.ClientRepository;
+import com.college.bus.bus_tracking.repository.DriverRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.lang.reflect.RecordComponent;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The login and profile responses built from the account projections are smaller than
+ * the ones built from whole entities and never carry credentials.
+ */
+@SpringBootTest
+class ProfileSerializationTest {
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private DriverRepository driverRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Client client;
+    private Driver driver;
+
+    @BeforeEach
+    void createAccounts() {
+        client = new Client();
+        client.setUsername("bench-client");
+        client.setEmail("bench-client@sairam.edu.in");
+        client.setPassword("$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z3Jg3bd0mE5hQvAZxGvT0rAq");
+        client.setName("Benchmark Student");
+        client.setPhoneNumber("9876543210");
+        client.setPhoneVerified(true);
+        client.setProfilePictureHash("9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08");
+        client.setSavedBusStop("Tambaram");
+        client = clientRepository.save(client);
+
+        driver = new Driver();
+        driver.setUsername("bench-driver");
+        driver.setEmail("bench-driver@example.com");
+        driver.setPassword("$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z3Jg3bd0mE5hQvAZxGvT0rAq");
+        driver.setName("Benchmark Driver");
+        driver.setPhone("9876543210");
+        driver.setBusNumber("B42");
+        driver.setBusName("Route 42");
+        driver = driverRepository.save(driver);
+    }
+
+    @AfterEach
+    void deleteAccounts() {
+        clientRepository.deleteById(client.getId());
+        driverRepository.deleteById(driver.getId());
+    }
+
+    @Test
+    void projectionsAreSmallerThanEntities() throws Exception {
+        String clientEntity = response("client", clientRepository.findByUsername("bench-client").orElseThrow());
+        String clientProfile = response("client",
+                clientRepository.findAccountByUsername("bench-client").orElseThrow().profile());
+        String driverEntity = response("driver", driverRepository.findByUsername("bench-driver").orElseThrow());
+        String driverProfile = response("driver",
+                driverRepository.findAccountByUsername("bench-driver").orElseThrow().profile());
+
+        assertTrue(clientProfile.length() < clientEntity.length());
+        assertTrue(driverProfile.length() < driverEntity.length());
+        for (String json : new String[] { clientProfile, driverProfile }) {
+            assertFalse(json.contains("password"), json);
+            assertFalse(json.contains("resetToken"), json);
+        }
+    }
+
+    @Test
+    void profilesHaveNoCredentialFields() {
+        for (Class<?> profile : new Class<?>[] { ClientProfile.class, DriverProfile.class }) {
+            for (RecordComponent component : profile.getRecordComponents()) {
+                String name = component.getName().toLowerCase();
+                assertFalse(name.contains("password") || name.contains("token"), profile.getSimpleName() + "." + name);
+            }
+        }
+    }
+
+    private String response(String key, Object account) throws Exception {
+        return objectMapper.writeValueAsString(Map.of("success", true, "message", "Login successful", key, account));
+    }
+}
@@ -0,0 +1,79 @@
+package com.college.bus.bus_tracking.repository;
+
+import com.college.bus.bus_tracking.entity.BusEntity;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Status and position changes are one UPDATE statement each, where loading the bus and
+ * saving it took three.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class BusRepositoryTest {
+
+    @Autowired
+    private BusRepository busRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        for (String busNumber : List.of("BR01", "BR02", "BR03")) {
+            BusEntity bus = new BusEntity();
+            bus.setBusNumber(busNumber);
+            bus.setStatus("INACTIVE");
+            busRepository.save(bus);
+        }
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void clear() {
+        busRepository.deleteAll();
+    }
+
+    @Test
+    void loadAndSaveTakesThreeStatements() {
+        BusEntity bus = busRepository.findByBusNumber("BR01").orElseThrow();
+        bus.setStatus("RUNNING");
+        busRepository.save(bus); // merges the detached bus: SELECT again, then UPDATE
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void statusUpdateIsOneStatement() {
+        assertEquals(1, busRepository.updateStatusByBusNumber("BR01", "RUNNING"));
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals("RUNNING", busRepository.findByBusNumber("BR01").orElseThrow().getStatus());
+    }
+
+    @Test
+    void positionUpdateIsOneStatement() {
+        assertEquals(1, busRepository.updatePositionByBusNumber("BR01", 13.0, 80.2, "RUNNING"));
+        assertEquals(1, statistics.getPrepareStatementCount());
+        BusEntity bus = busRepository.findByBusNumber("BR01").orElseThrow();
+        assertEquals(13.0, bus.getLatitude());
+        assertEquals(80.2, bus.getLongitude());
+    }
+
+    @Test
+    void manyBusesAreStoppedInOneStatement() {
+        assertEquals(3, busRepository.updateStatusByBusNumberIn(List.of("BR01", "BR02", "BR03"), "STOPPED"));
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(3, busRepository.findByStatus("STOPPED").size());
+    }
+}
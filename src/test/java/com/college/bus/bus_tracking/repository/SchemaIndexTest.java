@@ -0,0 +1,81 @@
+package com.college.bus.bus_tracking.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the schema built by the Flyway migrations serves each hot repository
+ * lookup from an index rather than a table scan.
+ */
+@SpringBootTest(properties = "spring.jpa.hibernate.ddl-auto=validate")
+class SchemaIndexTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void busLookupsUseIndexes() {
+        assertUsesIndex("SELECT * FROM bus_entity WHERE bus_number = 'B1'", "IDX_BUS_ENTITY_BUS_NUMBER");
+        assertUsesIndex("SELECT * FROM bus_entity WHERE driver_id = 1", "IDX_BUS_ENTITY_DRIVER_ID");
+        assertUsesIndex("SELECT * FROM bus_entity WHERE status = 'RUNNING'", "IDX_BUS_ENTITY_STATUS");
+    }
+
+    @Test
+    void accountLookupsUseIndexes() {
+        assertUsesUniqueIndex("SELECT * FROM client WHERE username = 'u'");
+        assertUsesUniqueIndex("SELECT * FROM client WHERE email = 'e'");
+        assertUsesUniqueIndex("SELECT * FROM driver WHERE username = 'u'");
+    }
+
+    @Test
+    void identityLookupsUseIndexes() {
+        assertUsesIndex("SELECT * FROM account_identity WHERE lookup_key = 'u' AND kind IN ('EMAIL', 'USERNAME')",
+                "PRIMARY_KEY"); // H2 names the primary key index itself
+        assertUsesIndex("SELECT * FROM account_identity WHERE lookup_key = 'h' AND kind = 'RESET'",
+                "PRIMARY_KEY");
+        assertUsesIndex("SELECT * FROM account_identity WHERE user_type = 'CLIENT' AND user_id = 1",
+                "IDX_ACCOUNT_IDENTITY_USER");
+        assertUsesIndex("SELECT * FROM account_identity WHERE kind = 'RESET' AND expires_at < 5",
+                "IDX_ACCOUNT_IDENTITY_EXPIRES_AT");
+    }
+
+    @Test
+    void feedbackListingsUseIndexes() {
+        assertUsesIndex("SELECT * FROM feedback ORDER BY created_at DESC, id DESC", "IDX_FEEDBACK_CREATED_AT_ID");
+        assertUsesIndex("SELECT * FROM feedback WHERE (created_at, id) < (TIMESTAMP '2024-01-01 00:00:00', 5)"
+                + " ORDER BY created_at DESC, id DESC", "IDX_FEEDBACK_CREATED_AT_ID");
+        assertUsesIndex("SELECT * FROM feedback WHERE bus_number = 'B1' ORDER BY created_at DESC, id DESC",
+                "IDX_FEEDBACK_BUS_NUMBER_CREATED_AT_ID");
+        assertUsesIndex("SELECT * FROM feedback WHERE status = 'OPEN' ORDER BY created_at DESC, id DESC",
+                "IDX_FEEDBACK_STATUS_CREATED_AT_ID");
+        assertUsesIndex("SELECT * FROM feedback WHERE issue_type = 'Delay' ORDER BY created_at DESC, id DESC",
+                "IDX_FEEDBACK_ISSUE_TYPE_CREATED_AT_ID");
+    }
+
+    @Test
+    void sessionAndGuestCodeLookupsUseIndexes() {
+        assertUsesIndex("SELECT * FROM user_session WHERE user_id = 1 AND user_type = 'STUDENT'",
+                "IDX_USER_SESSION_USER_ID_USER_TYPE");
+        assertUsesIndex("SELECT * FROM guest_access_code ORDER BY created_at DESC",
+                "IDX_GUEST_ACCESS_CODE_CREATED_AT");
+    }
+
+    /**
+     * Unique constraints get generated index names, so only check the plan is not a scan.
+     */
+    private void assertUsesUniqueIndex(String query) {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + query, String.class);
+        assertTrue(plan != null && plan.contains("_INDEX_") && !plan.contains("tableScan"),
+                "Expected a unique index for: " + query + "\nPlan:\n" + plan);
+    }
+
+    private void assertUsesIndex(String query, String index) {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + query, String.class);
+        assertTrue(plan != null && plan.toUpperCase().contains(index),
+                "Expected " + index + " for: " + query + "\nPlan:\n" + plan);
+    }
+}
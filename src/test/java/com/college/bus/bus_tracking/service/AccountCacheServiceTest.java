@@ -0,0 +1,126 @@
+package com.college.bus.bus_tracking.service;
+
+import com.college.bus.bus_tracking.cluster.LoopbackBackplane;
+import com.college.bus.bus_tracking.entity.Driver;
+import com.college.bus.bus_tracking.model.DriverAccount;
+import com.college.bus.bus_tracking.repository.ClientRepository;
+import com.college.bus.bus_tracking.repository.DriverRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Accounts are cached under all their keys, misses are cached too, a change drops every
+ * key of the account, and a lookup racing an invalidation does not copy its stale result
+ * to the other keys.
+ */
+class AccountCacheServiceTest {
+
+    private final DriverRepository driverRepository = mock(DriverRepository.class);
+    private LoopbackBackplane backplane;
+    private AccountCacheService cache;
+
+    @BeforeEach
+    void setUp() {
+        backplane = new LoopbackBackplane("node", "accounts-" + UUID.randomUUID());
+        cache = new AccountCacheService(driverRepository, mock(ClientRepository.class), backplane, 100, 600);
+        cache.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        backplane.close();
+    }
+
+    @Test
+    void accountsAreReachableByEveryKeyAndCountedInTheStats() {
+        DriverAccount account = account("old@college.edu");
+        when(driverRepository.findAccountByUsername("ravi")).thenReturn(Optional.of(account));
+
+        assertEquals(Optional.of(account), cache.findDriverByUsername("ravi"));
+        assertEquals(Optional.of(account), cache.findDriverByEmail("old@college.edu"));
+        assertEquals(Optional.of(account), cache.findDriverById(7L));
+        verify(driverRepository, times(1)).findAccountByUsername("ravi");
+
+        Map<?, ?> stats = (Map<?, ?>) cache.getStats().get("drivers");
+        assertEquals(2L, stats.get("hits"));
+        assertEquals(1L, stats.get("misses"));
+        assertEquals(3L, stats.get("size"));
+    }
+
+    @Test
+    void missesAreCachedUntilTheAccountIsSaved() {
+        when(driverRepository.findAccountByEmail("new@college.edu")).thenReturn(Optional.empty());
+        assertFalse(cache.findDriverByEmail("new@college.edu").isPresent());
+        assertFalse(cache.findDriverByEmail("new@college.edu").isPresent());
+        verify(driverRepository, times(1)).findAccountByEmail("new@college.edu");
+
+        DriverAccount account = account("new@college.edu");
+        when(driverRepository.findAccountByEmail("new@college.edu")).thenReturn(Optional.of(account));
+        cache.driverChanged(driver("new@college.edu"));
+        assertEquals(Optional.of(account), cache.findDriverByEmail("new@college.edu"));
+    }
+
+    @Test
+    void aChangeDropsTheOldAndNewKeys() {
+        when(driverRepository.findAccountById(7L)).thenReturn(Optional.of(account("old@college.edu")));
+        assertTrue(cache.findDriverById(7L).isPresent());
+
+        DriverAccount updated = account("new@college.edu");
+        when(driverRepository.findAccountById(7L)).thenReturn(Optional.of(updated));
+        when(driverRepository.findAccountByEmail("old@college.edu")).thenReturn(Optional.empty());
+        when(driverRepository.findAccountByEmail("new@college.edu")).thenReturn(Optional.of(updated));
+        cache.driverChanged(driver("new@college.edu"));
+
+        assertFalse(cache.findDriverByEmail("old@college.edu").isPresent());
+        assertEquals(Optional.of(updated), cache.findDriverByEmail("new@college.edu"));
+        assertEquals(Optional.of(updated), cache.findDriverById(7L));
+    }
+
+    @Test
+    void aLookupRacingAnInvalidationDoesNotSpreadItsStaleResult() {
+        DriverAccount stale = account("old@college.edu");
+        DriverAccount updated = account("new@college.edu");
+        when(driverRepository.findAccountById(7L)).thenReturn(Optional.of(updated));
+
+        // The row is read before a write commits; the write's invalidation reaches the
+        // cache while the lookup is still loading, and waits for it on the username key
+        when(driverRepository.findAccountByUsername("ravi")).thenAnswer(invocation -> {
+            Thread writer = new Thread(() -> cache.driverChanged(driver("new@college.edu")));
+            writer.start();
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (writer.getState() != Thread.State.BLOCKED && writer.isAlive()
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            return Optional.of(stale);
+        });
+
+        cache.findDriverByUsername("ravi");
+        assertEquals(Optional.of(updated), cache.findDriverById(7L));
+    }
+
+    private static DriverAccount account(String email) {
+        return new DriverAccount(7L, "ravi", email, "Ravi", "9000000000", "TN01", "Campus Line", "hash");
+    }
+
+    private static Driver driver(String email) {
+        Driver driver = new Driver();
+        driver.setId(7L);
+        driver.setUsername("ravi");
+        driver.setEmail(email);
+        return driver;
+    }
+}
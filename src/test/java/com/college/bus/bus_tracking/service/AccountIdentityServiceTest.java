@@ -0,0 +1,153 @@
+package com.college.bus.bus_tracking.service;
+
+import com.college.bus.bus_tracking.controller.ForgotPasswordController;
+import com.college.bus.bus_tracking.entity.Client;
+import com.college.bus.bus_tracking.entity.Driver;
+import com.college.bus.bus_tracking.repository.ClientRepository;
+import com.college.bus.bus_tracking.repository.DriverRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Login identifiers and reset tokens resolve through account_identity, logins find their
+ * account through it, reset tokens are stored hashed and single use, and expired ones
+ * are purged.
+ */
+@SpringBootTest
+class AccountIdentityServiceTest {
+
+    @Autowired
+    private AccountIdentityService identityService;
+
+    @Autowired
+    private ForgotPasswordController forgotPasswordController;
+
+    @Autowired
+    private ClientService clientService;
+
+    @Autowired
+    private DriverService driverService;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private DriverRepository driverRepository;
+
+    @Autowired
+    private BCryptPasswordEncoder passwordEncoder;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Client client;
+    private Driver driver;
+
+    @BeforeEach
+    void createAccounts() {
+        client = new Client();
+        client.setUsername("identity-student");
+        client.setEmail("identity@sairam.edu.in");
+        client.setPassword("old");
+        client = clientRepository.save(client);
+        identityService.accountSaved(AccountCacheService.CLIENT, client.getId(), client.getUsername(),
+                client.getEmail());
+
+        driver = new Driver();
+        driver.setUsername("identity-student"); // same username as the client
+        driver.setEmail("identity-driver@example.com");
+        driver.setPassword("old");
+        driver = driverRepository.save(driver);
+        identityService.accountSaved(AccountCacheService.DRIVER, driver.getId(), driver.getUsername(),
+                driver.getEmail());
+    }
+
+    @AfterEach
+    void deleteAccounts() {
+        identityService.accountDeleted(AccountCacheService.CLIENT, client.getId());
+        identityService.accountDeleted(AccountCacheService.DRIVER, driver.getId());
+        clientRepository.deleteById(client.getId());
+        driverRepository.deleteById(driver.getId());
+    }
+
+    @Test
+    void loginIdentifiersResolveToOneAccount() {
+        assertEquals(client.getId(), identityService.findByLogin("identity-student").orElseThrow().userId());
+        assertEquals(AccountCacheService.DRIVER,
+                identityService.findByLogin("identity-driver@example.com").orElseThrow().userType());
+        assertEquals(Optional.of(driver.getId()),
+                identityService.findUserId(AccountCacheService.DRIVER, "identity-student"));
+        assertTrue(identityService.findByLogin("nobody").isEmpty());
+
+        identityService.accountDeleted(AccountCacheService.CLIENT, client.getId());
+        assertEquals(driver.getId(), identityService.findByLogin("identity-student").orElseThrow().userId());
+    }
+
+    @Test
+    void loginsFindTheirAccountThroughTheIdentityTable() {
+        assertEquals(client.getId(), clientService.loginClient("identity@sairam.edu.in", "old").id());
+        assertEquals(client.getId(), clientService.loginClient("identity-student", "old").id());
+        assertEquals(driver.getId(), driverService.loginDriver("identity-student", "old").id());
+
+        // Drivers sign in with their username only
+        assertEquals(Optional.empty(),
+                identityService.findUserIdByUsername(AccountCacheService.DRIVER, "identity-driver@example.com"));
+        assertThrows(RuntimeException.class, () -> driverService.loginDriver("identity-driver@example.com", "old"));
+    }
+
+    @Test
+    void resetTokensAreHashedAndSingleUse() {
+        String first = identityService.issueResetToken(AccountCacheService.CLIENT, client.getId());
+        String token = identityService.issueResetToken(AccountCacheService.CLIENT, client.getId());
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM account_identity WHERE lookup_key = ?", Integer.class, token));
+
+        assertTrue(identityService.consumeResetToken(first).isEmpty()); // replaced
+        AccountIdentityService.Identity identity = identityService.consumeResetToken(token).orElseThrow();
+        assertEquals(client.getId(), identity.userId());
+        assertFalse(identity.isExpired());
+        assertTrue(identityService.consumeResetToken(token).isEmpty());
+    }
+
+    @Test
+    void expiredTokensAreRejectedAndPurged() {
+        String expired = identityService.issueResetToken(AccountCacheService.DRIVER, driver.getId());
+        String live = identityService.issueResetToken(AccountCacheService.CLIENT, client.getId());
+        jdbcTemplate.update("UPDATE account_identity SET expires_at = 1 WHERE kind = ? AND user_type = ?",
+                AccountIdentityService.RESET, AccountCacheService.DRIVER);
+
+        identityService.purgeExpiredTokens();
+        assertTrue(identityService.consumeResetToken(expired).isEmpty());
+        assertTrue(identityService.consumeResetToken(live).isPresent());
+    }
+
+    @Test
+    void forgotAndResetPasswordThroughTheController() {
+        ResponseEntity<?> forgot = forgotPasswordController.forgotPassword(
+                Map.of("identifier", "identity-driver@example.com"));
+        String link = (String) ((Map<?, ?>) forgot.getBody()).get("resetLink");
+        String token = link.substring(link.indexOf("token=") + "token=".length());
+        assertEquals("identity-driver@example.com", ((Map<?, ?>) forgot.getBody()).get("userEmail"));
+
+        assertEquals(200, forgotPasswordController.resetPassword(
+                Map.of("token", token, "newPassword", "s3cret")).getStatusCode().value());
+        assertTrue(passwordEncoder.matches("s3cret", driverRepository.findById(driver.getId()).orElseThrow()
+                .getPassword()));
+        assertEquals(400, forgotPasswordController.resetPassword(
+                Map.of("token", token, "newPassword", "again")).getStatusCode().value());
+    }
+}
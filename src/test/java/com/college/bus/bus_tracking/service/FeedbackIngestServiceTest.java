@@ -0,0 +1,153 @@
+package com.college.bus.bus_tracking.service;
+
+import com.college.bus.bus_tracking.entity.Feedback;
+import com.college.bus.bus_tracking.repository.FeedbackRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Submissions are acknowledged with their final id before they are written, identical
+ * reports collapse into one counted row, each sender is rate limited whatever email
+ * its reports carry, and reports survive failed writes.
+ */
+@SpringBootTest
+class FeedbackIngestServiceTest {
+
+    @Autowired
+    private FeedbackIngestService ingestService;
+
+    @Autowired
+    private FeedbackRepository feedbackRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void deleteFeedback() {
+        ingestService.flush();
+        feedbackRepository.deleteAll();
+    }
+
+    @Test
+    void acknowledgedIdsAreTheStoredRows() {
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 120; i++) {
+            FeedbackIngestService.Receipt receipt = ingestService.submit(
+                    report("I1", "Delay", "Report " + i, "student" + i + "@sairam.edu.in"), "10.0.1." + i);
+            assertEquals(FeedbackIngestService.Outcome.ACCEPTED, receipt.outcome());
+            ids.add(receipt.feedbackId());
+        }
+        ingestService.flush();
+
+        assertEquals(120, ids.size());
+        for (Long id : ids) {
+            assertTrue(feedbackRepository.existsById(id), "Missing row " + id);
+        }
+
+        // Ids from the entity's own generator do not collide with pre-allocated ones
+        Feedback saved = feedbackRepository.save(report("I1", "Delay", "Saved directly", null));
+        assertTrue(!ids.contains(saved.getId()));
+    }
+
+    @Test
+    void identicalReportsAreCounted() {
+        FeedbackIngestService.Receipt first = ingestService.submit(
+                report("I2", "Delay", "Bus is  late", "a@sairam.edu.in"), "10.0.0.1");
+        FeedbackIngestService.Receipt second = ingestService.submit(
+                report("I2", "delay", "bus is late ", "b@sairam.edu.in"), "10.0.0.2");
+        FeedbackIngestService.Receipt other = ingestService.submit(
+                report("I2", "Delay", "Driver was rude", "c@sairam.edu.in"), "10.0.0.3");
+        ingestService.flush();
+
+        assertEquals(FeedbackIngestService.Outcome.DUPLICATE, second.outcome());
+        assertEquals(first.feedbackId(), second.feedbackId());
+        assertNotEquals(first.feedbackId(), other.feedbackId());
+        assertEquals(2, feedbackRepository.findById(first.feedbackId()).orElseThrow().getReportCount());
+        assertEquals(1, feedbackRepository.findById(other.feedbackId()).orElseThrow().getReportCount());
+
+        // Once resolved, a new identical report starts a new row
+        ingestService.forget(first.feedbackId());
+        FeedbackIngestService.Receipt reopened = ingestService.submit(
+                report("I2", "Delay", "Bus is late", "d@sairam.edu.in"), "10.0.0.4");
+        assertEquals(FeedbackIngestService.Outcome.ACCEPTED, reopened.outcome());
+    }
+
+    @Test
+    void sendersAreRateLimited() {
+        FeedbackIngestService.Receipt receipt = null;
+        for (int i = 0; i < 6; i++) {
+            // A new email per report does not reset the limit
+            receipt = ingestService.submit(report("I3", "Delay", "Spam " + i, "spam" + i + "@sairam.edu.in"),
+                    "10.0.0.5");
+        }
+        assertEquals(FeedbackIngestService.Outcome.RATE_LIMITED, receipt.outcome());
+        assertTrue(receipt.retryAfterSeconds() > 0);
+
+        FeedbackIngestService.Receipt someoneElse = ingestService.submit(
+                report("I3", "Delay", "Spam 0", "spam0@sairam.edu.in"), "10.0.0.7");
+        assertEquals(FeedbackIngestService.Outcome.DUPLICATE, someoneElse.outcome());
+    }
+
+    @Test
+    void reportsAreKeptUntilTheDatabaseIsBack() {
+        FeedbackIngestService.Receipt receipt;
+        jdbcTemplate.execute("ALTER TABLE feedback RENAME TO feedback_offline");
+        try {
+            receipt = ingestService.submit(report("I4", "Delay", "During the outage", null), "10.0.0.8");
+            ingestService.flush();
+            ingestService.flush();
+            assertEquals(1, ingestService.getQueueDepth());
+        } finally {
+            jdbcTemplate.execute("ALTER TABLE feedback_offline RENAME TO feedback");
+        }
+        ingestService.flush();
+        assertEquals(0, ingestService.getQueueDepth());
+        assertTrue(feedbackRepository.existsById(receipt.feedbackId()));
+    }
+
+    @Test
+    void aReportIsDroppedOnlyAfterRepeatedConstraintErrors() {
+        Feedback invalid = report("I5", "Delay", "Route name too long", null);
+        invalid.setRouteName("R".repeat(300));
+        FeedbackIngestService.Receipt bad = ingestService.submit(invalid, "10.0.0.9");
+        FeedbackIngestService.Receipt good = ingestService.submit(report("I5", "Delay", "Fine", null), "10.0.0.9");
+
+        ingestService.flush();
+        assertTrue(feedbackRepository.existsById(good.feedbackId()));
+        assertEquals(1, ingestService.getQueueDepth());
+
+        // The writer thread may take some of the attempts
+        for (int attempt = 0; attempt < 3 && ingestService.getQueueDepth() > 0; attempt++) {
+            ingestService.flush();
+        }
+        assertEquals(0, ingestService.getQueueDepth());
+        assertTrue(!feedbackRepository.existsById(bad.feedbackId()));
+    }
+
+    @Test
+    void requiredFieldsAreCheckedUpFront() {
+        assertThrows(IllegalArgumentException.class,
+                () -> ingestService.submit(report(null, "Delay", "No bus", "x@sairam.edu.in"), "10.0.0.6"));
+    }
+
+    private static Feedback report(String bus, String issueType, String message, String email) {
+        Feedback feedback = new Feedback();
+        feedback.setBusNumber(bus);
+        feedback.setIssueType(issueType);
+        feedback.setMessage(message);
+        feedback.setStudentEmail(email);
+        feedback.setStudentName("Student");
+        return feedback;
+    }
+}
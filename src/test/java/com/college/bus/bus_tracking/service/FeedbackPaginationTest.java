@@ -0,0 +1,112 @@
+package com.college.bus.bus_tracking.service;
+
+import com.college.bus.bus_tracking.entity.Feedback;
+import com.college.bus.bus_tracking.repository.FeedbackRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Walks feedback listings page by page and checks the keyset cursor returns every
+ * matching row exactly once, newest first, including rows sharing a timestamp.
+ */
+@SpringBootTest
+class FeedbackPaginationTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 3, 1, 8, 0);
+
+    @Autowired
+    private FeedbackService feedbackService;
+
+    @Autowired
+    private FeedbackRepository feedbackRepository;
+
+    @BeforeEach
+    void insertFeedback() {
+        List<Feedback> rows = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            Feedback feedback = new Feedback();
+            feedback.setBusNumber(i % 2 == 0 ? "P1" : "P2");
+            feedback.setIssueType(i % 3 == 0 ? "Delay" : "Cleanliness");
+            feedback.setStatus(i % 5 == 0 ? "resolved" : "pending");
+            feedback.setMessage("Report " + i);
+            // Pairs of rows share a timestamp, so the id tie-break matters
+            feedback.setCreatedAt(BASE.plusMinutes(i / 2));
+            rows.add(feedback);
+        }
+        feedbackRepository.saveAll(rows);
+    }
+
+    @AfterEach
+    void deleteFeedback() {
+        feedbackRepository.deleteAll();
+    }
+
+    @Test
+    void pagesCoverEveryRowOnceNewestFirst() {
+        List<Feedback> all = walk(FeedbackService.Filter.NONE, 4);
+        assertEquals(25, all.size());
+        for (int i = 1; i < all.size(); i++) {
+            Feedback previous = all.get(i - 1);
+            Feedback current = all.get(i);
+            int order = previous.getCreatedAt().compareTo(current.getCreatedAt());
+            assertTrue(order > 0 || (order == 0 && previous.getId() > current.getId()));
+        }
+        assertEquals(25, all.stream().map(Feedback::getId).distinct().count());
+    }
+
+    @Test
+    void filtersCombine() {
+        FeedbackService.Filter filter = new FeedbackService.Filter("P1", "pending", "Delay",
+                BASE.plusMinutes(1), BASE.plusMinutes(10));
+        List<Feedback> matched = walk(filter, 2);
+        long expected = feedbackRepository.findAll().stream()
+                .filter(f -> f.getBusNumber().equals("P1") && f.getStatus().equals("pending")
+                        && f.getIssueType().equals("Delay") && !f.getCreatedAt().isBefore(BASE.plusMinutes(1))
+                        && f.getCreatedAt().isBefore(BASE.plusMinutes(10)))
+                .count();
+        assertTrue(expected > 0);
+        assertEquals(expected, matched.size());
+    }
+
+    @Test
+    void firstPageCarriesTotal() {
+        FeedbackService.Page first = feedbackService.getFeedbackPage(
+                new FeedbackService.Filter("P2", null, null, null, null), null, 5);
+        assertEquals(12, first.total());
+        assertEquals(false, first.totalCapped());
+
+        FeedbackService.Page second = feedbackService.getFeedbackPage(FeedbackService.Filter.NONE,
+                feedbackService.getFeedbackPage(FeedbackService.Filter.NONE, null, 5).nextCursor(), 5);
+        assertNull(second.total());
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> feedbackService.getFeedbackPage(FeedbackService.Filter.NONE, "not-a-cursor", 10));
+    }
+
+    private List<Feedback> walk(FeedbackService.Filter filter, int pageSize) {
+        List<Feedback> all = new ArrayList<>();
+        String cursor = null;
+        do {
+            FeedbackService.Page page = feedbackService.getFeedbackPage(filter, cursor, pageSize);
+            assertTrue(page.items().size() <= pageSize);
+            all.addAll(page.items());
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        return all;
+    }
+}
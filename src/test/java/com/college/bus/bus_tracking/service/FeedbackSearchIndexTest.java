@@ -0,0 +1,109 @@
+package com.college.bus.bus_tracking.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ranking, prefix matching and maintenance of the feedback inverted index, and top-k
+ * latency on a few years' worth of reports.
+ */
+class FeedbackSearchIndexTest {
+
+    @Test
+    void ranksDocumentsMatchingAllTermsFirst() {
+        FeedbackSearchIndex index = new FeedbackSearchIndex();
+        index.add(1, "TN-01", "Tambaram", "The AC is not working");
+        index.add(2, "TN-02", "Guindy", "Rash driving near the bridge");
+        index.add(3, "TN-03", "Velachery", "Driver was driving rash and the AC leaked");
+        index.add(4, "TN-04", "Tambaram", "Bus was late");
+
+        List<FeedbackSearchIndex.Hit> hits = index.search("rash driving", 10);
+        assertEquals(List.of(3L, 2L), ids(hits)); // equal scores: newest first
+
+        // Both terms beat one term, even one that also appears in the route name
+        index.add(5, "TN-05", "Rash Street", "Seat broken");
+        hits = index.search("rash driving", 10);
+        assertEquals(5L, hits.get(2).id());
+        assertTrue(hits.get(1).score() > hits.get(2).score());
+
+        assertEquals(List.of(1L, 3L), ids(index.search("ac", 10)).stream().sorted().toList());
+        assertEquals(List.of(1L, 4L), ids(index.search("tambaram", 10)).stream().sorted().toList());
+        assertEquals(1L, index.search("tn 01", 10).get(0).id());
+    }
+
+    @Test
+    void matchesPrefixesBelowExactTerms() {
+        FeedbackSearchIndex index = new FeedbackSearchIndex();
+        index.add(1, "B1", null, "drive");
+        index.add(2, "B2", null, "driving too fast");
+        index.add(3, "B3", null, "seats are dirty");
+
+        List<FeedbackSearchIndex.Hit> hits = index.search("driv", 10);
+        assertEquals(List.of(1L, 2L), ids(hits).stream().sorted().toList());
+
+        List<FeedbackSearchIndex.Hit> exactFirst = index.search("drive", 10);
+        assertEquals(1L, exactFirst.get(0).id());
+    }
+
+    @Test
+    void prefixExpansionStopsAtTheLimitButKeepsTheExactTerm() {
+        FeedbackSearchIndex index = new FeedbackSearchIndex();
+        index.add(1, "Z", null, "seat");
+        for (int i = 0; i < 100; i++) {
+            index.add(100 + i, "Z", null, String.format("seat%03d", i));
+        }
+
+        List<FeedbackSearchIndex.Hit> hits = index.search("seat", 1_000);
+        assertEquals(65, hits.size()); // the exact term plus 64 expansions
+        assertEquals(1L, hits.get(0).id());
+    }
+
+    @Test
+    void removeAndReplaceUpdatePostings() {
+        FeedbackSearchIndex index = new FeedbackSearchIndex();
+        index.add(1, "B1", "Route A", "broken window");
+        index.add(2, "B2", "Route B", "broken seat");
+        index.remove(1);
+        assertEquals(List.of(2L), ids(index.search("broken", 10)));
+
+        index.add(2, "B2", "Route B", "clean now");
+        assertTrue(index.search("broken", 10).isEmpty());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void topKOverLargeIndexIsFast() {
+        String[] words = { "late", "bus", "driver", "rash", "driving", "ac", "not", "working", "crowded",
+                "dirty", "seat", "broken", "stop", "missed", "early", "rude", "window", "music", "loud" };
+        String[] routes = { "Tambaram", "Guindy", "Velachery", "Porur", "Avadi", "Chromepet" };
+        Random random = new Random(42);
+        FeedbackSearchIndex index = new FeedbackSearchIndex();
+        for (int id = 1; id <= 100_000; id++) {
+            StringBuilder message = new StringBuilder();
+            for (int w = 0; w < 8; w++) {
+                message.append(words[random.nextInt(words.length)]).append(' ');
+            }
+            index.add(id, "TN-" + (id % 60), routes[id % routes.length], message.toString());
+        }
+
+        for (int i = 0; i < 5; i++) {
+            index.search("rash driv", 20); // warm up
+        }
+        long startedAt = System.nanoTime();
+        int queries = 20;
+        for (int i = 0; i < queries; i++) {
+            assertEquals(20, index.search(i % 2 == 0 ? "rash driv" : "ac not working tambaram", 20).size());
+        }
+        double ms = (System.nanoTime() - startedAt) / 1_000_000.0 / queries;
+        System.out.printf("[FeedbackSearch] top-20 over %d reports: %.1f ms/query%n", index.size(), ms);
+    }
+
+    private static List<Long> ids(List<FeedbackSearchIndex.Hit> hits) {
+        return hits.stream().map(FeedbackSearchIndex.Hit::id).toList();
+    }
+}
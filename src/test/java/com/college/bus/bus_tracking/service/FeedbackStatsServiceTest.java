@@ -0,0 +1,157 @@
+package com.college.bus.bus_tracking.service;
+
+import com.college.bus.bus_tracking.entity.Feedback;
+import com.college.bus.bus_tracking.repository.FeedbackRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The stats buckets follow submit, duplicate report, resolve and delete, and always
+ * agree with counting the feedback table directly.
+ */
+@SpringBootTest
+class FeedbackStatsServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 5, 6);
+
+    @Autowired
+    private FeedbackIngestService ingestService;
+
+    @Autowired
+    private FeedbackService feedbackService;
+
+    @Autowired
+    private FeedbackStatsService statsService;
+
+    @Autowired
+    private FeedbackRepository feedbackRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanUp() {
+        ingestService.flush();
+        feedbackRepository.deleteAll();
+        jdbcTemplate.update("DELETE FROM feedback_daily_stats WHERE bus_number LIKE 'S%'");
+    }
+
+    @Test
+    void bucketsFollowEveryChange() {
+        long late = submit("S1", "Delay", "Late again", "a@sairam.edu.in", 0);
+        submit("S1", "Delay", "late again", "b@sairam.edu.in", 0); // counted into the first
+        long dirty = submit("S1", "Cleanliness", "Dirty seats", "c@sairam.edu.in", 0);
+        long nextDay = submit("S2", "Delay", "Late", "d@sairam.edu.in", 1);
+        ingestService.flush();
+
+        assertTotals("S1", null, 2, 3, 0);
+        assertMatchesTable();
+
+        feedbackService.resolve(late);
+        feedbackService.resolve(late); // already resolved: no change
+        assertTotals("S1", null, 2, 3, 1);
+
+        feedbackService.delete(late);
+        feedbackService.delete(dirty);
+        assertTotals("S1", null, 0, 0, 0);
+        assertTotals("S2", null, 1, 1, 0);
+        assertMatchesTable();
+
+        List<Map<String, Object>> byDay = statsService.query(DAY, DAY.plusDays(1), null, "Delay", List.of("day", "bus"));
+        assertEquals(2, byDay.size());
+        assertEquals(DAY.plusDays(1).toString(), byDay.get(1).get("day"));
+        assertEquals(1L, byDay.get(1).get("pending"));
+        assertEquals(nextDay, feedbackRepository.findAll().get(0).getId());
+    }
+
+    @Test
+    void concurrentFirstChangesToABucketAreBothCounted() throws Exception {
+        FeedbackStatsService.Bucket bucket = new FeedbackStatsService.Bucket(DAY, "S3", "Delay");
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        CountDownLatch firstApplied = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            // The first transaction creates the bucket and commits only after the second
+            // one has tried to create it too
+            Future<?> first = pool.submit(() -> tx.executeWithoutResult(status -> {
+                statsService.apply(new FeedbackStatsService.Changes().add(bucket, 1, 1, 0));
+                firstApplied.countDown();
+                sleep(300);
+            }));
+            if (!firstApplied.await(5, TimeUnit.SECONDS)) {
+                first.get(); // report why the first transaction did not get there
+            }
+            tx.executeWithoutResult(status -> statsService.apply(new FeedbackStatsService.Changes()
+                    .add(bucket, 1, 2, 0)));
+            first.get();
+        } finally {
+            pool.shutdown();
+        }
+        assertTotals("S3", "Delay", 2, 3, 0);
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long submit(String bus, String issueType, String message, String email, int dayOffset) {
+        Feedback feedback = new Feedback();
+        feedback.setBusNumber(bus);
+        feedback.setIssueType(issueType);
+        feedback.setMessage(message);
+        feedback.setStudentEmail(email);
+        feedback.setCreatedAt(DAY.plusDays(dayOffset).atTime(8, 30));
+        return ingestService.submit(feedback, "10.0.1.1").feedbackId();
+    }
+
+    private void assertTotals(String bus, String issueType, long submitted, long reports, long resolved) {
+        Map<String, Object> total = statsService.query(null, null, bus, issueType, List.of()).get(0);
+        assertEquals(submitted, total.get("submitted"));
+        assertEquals(reports, total.get("reports"));
+        assertEquals(resolved, total.get("resolved"));
+        assertEquals(submitted - resolved, total.get("pending"));
+    }
+
+    private void assertMatchesTable() {
+        List<Map<String, Object>> scanned = jdbcTemplate.queryForList(
+                "SELECT CAST(created_at AS DATE) AS d, bus_number, issue_type, COUNT(*) AS submitted, "
+                        + "SUM(report_count) AS reports, "
+                        + "SUM(CASE WHEN status = 'resolved' THEN 1 ELSE 0 END) AS resolved "
+                        + "FROM feedback WHERE bus_number LIKE 'S%' "
+                        + "GROUP BY CAST(created_at AS DATE), bus_number, issue_type ORDER BY 1, 2, 3");
+        List<Map<String, Object>> buckets = jdbcTemplate.queryForList(
+                "SELECT report_date AS d, bus_number, issue_type, submitted, reports, resolved "
+                        + "FROM feedback_daily_stats WHERE bus_number LIKE 'S%' AND submitted > 0 ORDER BY 1, 2, 3");
+        assertEquals(scanned.size(), buckets.size());
+        for (int i = 0; i < scanned.size(); i++) {
+            for (String column : new String[] { "BUS_NUMBER", "ISSUE_TYPE", "SUBMITTED", "REPORTS", "RESOLVED" }) {
+                assertEquals(String.valueOf(scanned.get(i).get(column)), String.valueOf(buckets.get(i).get(column)),
+                        column + " of bucket " + i);
+            }
+        }
+    }
+}
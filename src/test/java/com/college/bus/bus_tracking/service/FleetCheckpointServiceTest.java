@@ -0,0 +1,173 @@
+package com.college.bus.bus_tracking.service;
+
+import com.college.bus.bus_tracking.model.BusData;
+import com.college.bus.bus_tracking.store.BusSessionStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The fleet store comes back from checkpoint plus journal after a crash, a record with a
+ * bad CRC or a torn tail ends the replay without losing what came before it, and
+ * concurrent mutations are journaled in the order they were applied.
+ */
+class FleetCheckpointServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private final List<FleetCheckpointService> services = new ArrayList<>();
+
+    @AfterEach
+    void clear() {
+        services.forEach(BusSessionStore::removeListener);
+        BusSessionStore.restore(List.of());
+    }
+
+    @Test
+    void restoresCheckpointPlusJournal() throws IOException {
+        BusSessionStore.restore(List.of(bus("CK01", 1.0)));
+        start();
+        BusSessionStore.put(bus("CK02", 2.0));
+        BusData first = BusSessionStore.BUS_MAP.get("CK01");
+        first.setLatitude(1.5);
+        BusSessionStore.changed(first);
+        BusSessionStore.remove("CK02");
+        BusSessionStore.put(bus("CK03", 3.0));
+
+        crashAndRestore();
+        assertEquals(2, BusSessionStore.BUS_MAP.size());
+        assertEquals(1.5, BusSessionStore.BUS_MAP.get("CK01").getLatitude());
+        assertEquals(3.0, BusSessionStore.BUS_MAP.get("CK03").getLatitude());
+        assertEquals(List.of("CK01", "CK03"), numbers(BusSessionStore.findByStatus("STOPPED")));
+    }
+
+    @Test
+    void badChecksumsStopTheReplay() throws IOException {
+        start();
+        BusSessionStore.put(bus("CK11", 1.0));
+        BusSessionStore.put(bus("CK12", 2.0));
+        BusSessionStore.put(bus("CK13", 3.0));
+
+        // Corrupt the CRC of the second of three equally long records
+        Path journal = journal();
+        long recordLength = Files.size(journal) / 3;
+        flip(journal, 2 * recordLength - 1);
+        crashAndRestore();
+        assertEquals(List.of("CK11"), numbers(BusSessionStore.BUS_MAP.values()));
+
+        flip(dir.resolve("fleet.checkpoint"), 10);
+        BusSessionStore.restore(List.of());
+        assertFalse(new FleetCheckpointService(true, dir.toString()).restore());
+    }
+
+    @Test
+    void tornTailIsDroppedAndLaterRecordsSurvive() throws IOException {
+        start();
+        BusSessionStore.put(bus("CK21", 1.0));
+        BusSessionStore.put(bus("CK22", 2.0));
+        try (RandomAccessFile file = new RandomAccessFile(journal().toFile(), "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        FleetCheckpointService restored = crashAndRestore();
+        assertEquals(List.of("CK21"), numbers(BusSessionStore.BUS_MAP.values()));
+
+        // Journaling resumes in a fresh file, so the torn record cannot hide new ones
+        restored.start();
+        services.add(restored);
+        BusSessionStore.put(bus("CK23", 3.0));
+        crashAndRestore();
+        assertEquals(List.of("CK21", "CK23"), numbers(BusSessionStore.BUS_MAP.values()));
+    }
+
+    @Test
+    void concurrentPutsReplayToTheLastAppliedState() throws Exception {
+        start();
+        int threads = 8;
+        CountDownLatch go = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int writer = t;
+            Thread thread = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 2_000; i++) {
+                    BusSessionStore.put(bus("CK31", writer * 10_000 + i));
+                }
+            });
+            writers.add(thread);
+            thread.start();
+        }
+        go.countDown();
+        for (Thread thread : writers) {
+            thread.join();
+        }
+        double applied = BusSessionStore.BUS_MAP.get("CK31").getLatitude();
+
+        crashAndRestore();
+        assertEquals(applied, BusSessionStore.BUS_MAP.get("CK31").getLatitude());
+    }
+
+    private void start() {
+        FleetCheckpointService service = new FleetCheckpointService(true, dir.toString());
+        service.start();
+        services.add(service);
+    }
+
+    /**
+     * Drop the running journal writers without a final checkpoint, empty the store as a
+     * new process would start, and restore it from disk.
+     */
+    private FleetCheckpointService crashAndRestore() {
+        services.forEach(BusSessionStore::removeListener);
+        BusSessionStore.restore(List.of());
+        FleetCheckpointService restored = new FleetCheckpointService(true, dir.toString());
+        assertTrue(restored.restore());
+        return restored;
+    }
+
+    private Path journal() throws IOException {
+        try (var files = Files.list(dir)) {
+            return files.filter(f -> f.getFileName().toString().startsWith("journal-"))
+                    .max(Path::compareTo)
+                    .orElseThrow();
+        }
+    }
+
+    private static void flip(Path file, long position) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(position);
+            int b = raf.read();
+            raf.seek(position);
+            raf.write(b ^ 0xff);
+        }
+    }
+
+    private static BusData bus(String busNumber, double latitude) {
+        return new BusData(null, busNumber, null, "Bus " + busNumber, null, latitude, 80.0, "STOPPED",
+                null, null);
+    }
+
+    private static List<String> numbers(Iterable<BusData> buses) {
+        List<String> numbers = new ArrayList<>();
+        buses.forEach(bus -> numbers.add(bus.getBusNumber()));
+        numbers.sort(null);
+        return numbers;
+    }
+}
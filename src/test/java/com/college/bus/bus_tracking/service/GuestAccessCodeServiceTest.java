@@ -0,0 +1,128 @@
+package com.college.bus.bus_tracking.service;
+
+import com.college.bus.bus_tracking.cluster.ClusterMembershipService;
+import com.college.bus.bus_tracking.cluster.LoopbackBackplane;
+import com.college.bus.bus_tracking.entity.GuestAccessCode;
+import com.college.bus.bus_tracking.repository.GuestAccessCodeRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Three nodes sharing one code table: when the code expires, or at midnight, only the
+ * owning node generates a new one and the others pick it up.
+ */
+class GuestAccessCodeServiceTest {
+
+    private final List<GuestAccessCode> saved = new CopyOnWriteArrayList<>();
+    private final List<LoopbackBackplane> backplanes = new ArrayList<>();
+    private final List<GuestAccessCodeService> nodes = new ArrayList<>();
+
+    @BeforeEach
+    void startNodes() throws InterruptedException {
+        GuestAccessCodeRepository repository = mock(GuestAccessCodeRepository.class);
+        when(repository.save(any())).thenAnswer(invocation -> {
+            saved.add(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+        when(repository.findTopByOrderByCreatedAtDesc())
+                .thenAnswer(invocation -> saved.isEmpty() ? Optional.empty() : Optional.of(saved.get(saved.size() - 1)));
+        // An expired code left by the previous day
+        LocalDateTime yesterday = LocalDateTime.now().minusDays(1);
+        saved.add(new GuestAccessCode("111111", yesterday.minusHours(1), yesterday));
+
+        String group = "guest-" + UUID.randomUUID();
+        List<ClusterMembershipService> memberships = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            LoopbackBackplane backplane = new LoopbackBackplane("node-" + i, group);
+            ClusterMembershipService membership = new ClusterMembershipService(backplane, 60_000);
+            membership.start();
+            GuestAccessCodeService service = new GuestAccessCodeService();
+            ReflectionTestUtils.setField(service, "repository", repository);
+            ReflectionTestUtils.setField(service, "backplane", backplane);
+            ReflectionTestUtils.setField(service, "clusterMembershipService", membership);
+            service.start();
+            backplanes.add(backplane);
+            memberships.add(membership);
+            nodes.add(service);
+        }
+        awaitTrue(() -> memberships.stream().allMatch(m -> m.getMembers().size() == 3));
+    }
+
+    @AfterEach
+    void stopNodes() {
+        backplanes.forEach(LoopbackBackplane::close);
+    }
+
+    @Test
+    void anExpiredCodeIsReplacedOnceAcrossTheCluster() throws InterruptedException {
+        runConcurrently(GuestAccessCodeService::refreshExpiredCode, 4);
+        assertEquals(2, saved.size());
+
+        String code = saved.get(1).getCode();
+        awaitTrue(() -> nodes.stream().allMatch(n -> n.validateCode(code)));
+        for (GuestAccessCodeService node : nodes) {
+            assertEquals(code, node.getCurrentCode().getCode());
+        }
+        assertEquals(2, saved.size());
+    }
+
+    @Test
+    void midnightRegenerationRunsOnOneNode() throws InterruptedException {
+        runConcurrently(GuestAccessCodeService::scheduledCodeRegeneration, 1);
+        assertEquals(2, saved.size());
+        awaitTrue(() -> nodes.stream().allMatch(n -> n.validateCode(saved.get(1).getCode())));
+    }
+
+    /**
+     * Run the task on every node at once, {@code perNode} times per node.
+     */
+    private void runConcurrently(Consumer<GuestAccessCodeService> task, int perNode) throws InterruptedException {
+        CountDownLatch go = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (GuestAccessCodeService node : nodes) {
+            for (int i = 0; i < perNode; i++) {
+                Thread thread = new Thread(() -> {
+                    try {
+                        go.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    task.accept(node);
+                });
+                threads.add(thread);
+                thread.start();
+            }
+        }
+        go.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("condition not met in time");
+            }
+            Thread.sleep(20);
+        }
+    }
+}
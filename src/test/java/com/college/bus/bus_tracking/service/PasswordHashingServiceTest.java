@@ -0,0 +1,102 @@
+package com.college.bus.bus_tracking.service;
+
+import com.college.bus.bus_tracking.entity.Driver;
+import com.college.bus.bus_tracking.repository.DriverRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Hashing is refused with a Retry-After once the pool's queue is full, and legacy
+ * plaintext passwords are replaced by their hash on the first successful login.
+ */
+@SpringBootTest
+class PasswordHashingServiceTest {
+
+    @Autowired
+    private DriverService driverService;
+
+    @Autowired
+    private DriverRepository driverRepository;
+
+    @Autowired
+    private AccountIdentityService accountIdentityService;
+
+    @Test
+    void refusesWorkBeyondTheQueueLimit() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        BCryptPasswordEncoder blocking = new BCryptPasswordEncoder(4) {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.encode(rawPassword);
+            }
+        };
+        PasswordHashingService hashing = new PasswordHashingService(blocking, 0, 2); // 1 thread, 2 queued
+        ExecutorService callers = Executors.newFixedThreadPool(3);
+        try {
+            Future<?>[] accepted = new Future<?>[3];
+            for (int i = 0; i < 3; i++) {
+                accepted[i] = callers.submit(() -> hashing.encode("secret"));
+            }
+            while (!hashing.getStats().get("queueDepth").equals(2)) {
+                Thread.sleep(5);
+            }
+
+            PasswordHashingService.BusyException busy = assertThrows(PasswordHashingService.BusyException.class,
+                    () -> hashing.encode("secret"));
+            assertTrue(busy.getRetryAfterSeconds() >= 1);
+
+            release.countDown();
+            for (Future<?> f : accepted) {
+                f.get(10, TimeUnit.SECONDS);
+            }
+            Map<String, Object> stats = hashing.getStats();
+            assertEquals(1L, stats.get("rejected"));
+            assertEquals(3L, ((Map<?, ?>) stats.get("hashTime")).get("count"));
+            assertTrue(hashing.matches("secret", hashing.encode("secret")));
+        } finally {
+            release.countDown();
+            callers.shutdownNow();
+            hashing.stop();
+        }
+    }
+
+    @Test
+    void legacyPlaintextPasswordIsRehashedOnLogin() {
+        Driver driver = new Driver();
+        driver.setUsername("legacy-driver");
+        driver.setPassword("plain-old");
+        driver = driverRepository.save(driver);
+        accountIdentityService.accountSaved(AccountCacheService.DRIVER, driver.getId(), "legacy-driver", null);
+        try {
+            driverService.loginDriver("legacy-driver", "plain-old");
+            String stored = driverRepository.findById(driver.getId()).orElseThrow().getPassword();
+            assertTrue(PasswordHashingService.isHashed(stored));
+
+            assertEquals(driver.getId(), driverService.loginDriver("legacy-driver", "plain-old").id());
+            assertThrows(RuntimeException.class, () -> driverService.loginDriver("legacy-driver", stored));
+            assertFalse(PasswordHashingService.isHashed("plain-old"));
+        } finally {
+            driverRepository.deleteById(driver.getId());
+            accountIdentityService.accountDeleted(AccountCacheService.DRIVER, driver.getId());
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.college.bus.bus_tracking.service;
+
+import com.college.bus.bus_tracking.store.BlobStore;
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * V9 moves the base64 pictures left in client.profile_picture into the blob store and
+ * drops the column. Pictures that do not decode are dropped without failing the
+ * migration.
+ */
+class ProfilePictureMigrationTest {
+
+    private static final String BLOB_DIR = "target/test-blobs";
+
+    @Test
+    void legacyPicturesMoveToTheBlobStoreBeforeTheColumnIsDropped() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:pictures-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        Flyway.configure().dataSource(dataSource).target("8").load().migrate();
+
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        byte[] png = png(200, 150);
+        insertClient(jdbc, 1, "data:image/png;base64," + Base64.getEncoder().encodeToString(png));
+        insertClient(jdbc, 2, Base64.getEncoder().encodeToString("not an image".getBytes()));
+        // Header intact, pixel data cut short
+        insertClient(jdbc, 3, Base64.getEncoder().encodeToString(Arrays.copyOf(png, png.length / 2)));
+        // A final base64 character that encodes no whole byte
+        insertClient(jdbc, 4, Base64.getEncoder().encodeToString(png) + "Q");
+
+        Flyway.configure().dataSource(dataSource).placeholders(Map.of("blob-store-dir", BLOB_DIR)).load().migrate();
+
+        String hash = jdbc.queryForObject("SELECT profile_picture_hash FROM client WHERE id = 1", String.class);
+        BlobStore blobStore = new BlobStore(BLOB_DIR);
+        assertArrayEquals(png, Files.readAllBytes(blobStore.path(hash)));
+        for (long id = 2; id <= 4; id++) {
+            assertNull(jdbc.queryForObject("SELECT profile_picture_hash FROM client WHERE id = ?", String.class, id));
+        }
+        assertTrue(jdbc.queryForList("SELECT column_name FROM information_schema.columns "
+                + "WHERE table_name = 'CLIENT' AND column_name = 'PROFILE_PICTURE'").isEmpty());
+    }
+
+    // Noise, so the compressed pixel data is most of the file
+    private static byte[] png(int width, int height) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(7);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        return png.toByteArray();
+    }
+
+    private static void insertClient(JdbcTemplate jdbc, long id, String picture) {
+        jdbc.update("INSERT INTO client (id, username, email, phone_verified, profile_picture) VALUES (?, ?, ?, ?, ?)",
+                id, "legacy" + id, "legacy" + id + "@sairam.edu.in", false, picture);
+    }
+}
@@ -0,0 +1,91 @@
+package com.college.bus.bus_tracking.service;
+
+import com.college.bus.bus_tracking.store.SessionStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Sessions reach user_session in coalesced batches, activity is written at most once per
+ * flush with activity, and a restart puts the sessions back without the idle ones.
+ */
+@SpringBootTest
+class SessionPersistenceServiceTest {
+
+    @Autowired
+    private SessionPersistenceService persistenceService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void clear() {
+        SessionStore.clearAllSessions();
+        persistenceService.flush(true);
+    }
+
+    @Test
+    void changesAreWrittenBehindAndCoalesced() {
+        SessionStore.openSession(501L, "CLIENT", "phone", false);
+        SessionStore.openSession(501L, "CLIENT", "laptop", true); // replaces the phone session
+        SessionStore.openSession(502L, "DRIVER", "tablet", false);
+        SessionStore.openSession(503L, "DRIVER", "tablet", false);
+        SessionStore.removeSession(503L, "DRIVER");
+        assertEquals(0, rows().size());
+
+        persistenceService.flush(false);
+        List<Map<String, Object>> rows = rows();
+        assertEquals(2, rows.size());
+        assertEquals("laptop", rows.get(0).get("DEVICE_ID"));
+        assertEquals(SessionStore.getSession(501L, "CLIENT").sessionToken, rows.get(0).get("SESSION_TOKEN"));
+
+        SessionStore.SessionData session = SessionStore.getSession(502L, "DRIVER");
+        long written = (Long) rows.get(1).get("LAST_ACTIVITY_TIME");
+        session.lastActivityTime = written + 5_000;
+        persistenceService.flush(false);
+        assertEquals(written, rows().get(1).get("LAST_ACTIVITY_TIME")); // not an activity flush
+        persistenceService.flush(true);
+        assertEquals(written + 5_000, rows().get(1).get("LAST_ACTIVITY_TIME"));
+    }
+
+    @Test
+    void restartRestoresSessionsAndPurgesIdleOnes() {
+        String token = SessionStore.createSession(511L, "CLIENT", "phone");
+        persistenceService.flush(true);
+        long longAgo = System.currentTimeMillis() - 3L * 24 * 3600 * 1000;
+        jdbcTemplate.update("INSERT INTO user_session (user_id, user_type, login_time, last_activity_time, "
+                + "session_token, device_id) VALUES (512, 'DRIVER', ?, ?, 'stale', 'tablet')", longAgo, longAgo);
+
+        // Lose the in-memory sessions without telling the persistence service, as a restart would
+        SessionStore.removeListener(persistenceService);
+        SessionStore.clearAllSessions();
+        persistenceService.restore();
+
+        SessionStore.SessionData restored = SessionStore.findByToken(token);
+        assertNotNull(restored);
+        assertEquals("phone", restored.deviceId);
+        assertNull(SessionStore.getSession(512L, "DRIVER"));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM user_session WHERE session_token = 'stale'", Integer.class));
+
+        // Still recording changes after the restore
+        SessionStore.removeSession(511L, "CLIENT");
+        persistenceService.flush(false);
+        assertTrue(rows().isEmpty());
+    }
+
+    private List<Map<String, Object>> rows() {
+        return jdbcTemplate.queryForList("SELECT * FROM user_session WHERE user_id BETWEEN 500 AND 599 "
+                + "ORDER BY user_id");
+    }
+}
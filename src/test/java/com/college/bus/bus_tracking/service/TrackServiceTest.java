@@ -0,0 +1,97 @@
+package com.college.bus.bus_tracking.service;
+
+import com.college.bus.bus_tracking.model.TrackPoint;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tracks are simplified with a tolerance of a pixel and a half at the requested zoom,
+ * and cached results are replaced once new points arrive.
+ */
+class TrackServiceTest {
+
+    private static final double LAT = 13.0;
+    private static final double LNG = 80.2;
+    private static final double DEGREES_PER_METER = 1.0 / 111_320;
+
+    @Test
+    void toleranceIsAPixelAndAHalfAtEachZoom() {
+        assertEquals(156_543.033_92 * 1.5, TrackService.toleranceMeters(0, 0.0), 1e-6);
+        for (int zoom = 0; zoom < 20; zoom++) {
+            assertEquals(TrackService.toleranceMeters(zoom, LAT) / 2, TrackService.toleranceMeters(zoom + 1, LAT),
+                    1e-9);
+        }
+        // Pixels cover less ground away from the equator
+        assertTrue(TrackService.toleranceMeters(15, LAT) < TrackService.toleranceMeters(15, 0.0));
+    }
+
+    @Test
+    void aWobblyTripKeepsMorePointsAsTheMapZoomsIn() {
+        // 10,000 fixes 1 m apart heading north, swaying 3 m to each side every 100 m
+        List<TrackPoint> trip = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            double sway = 3 * Math.sin(i * 2 * Math.PI / 100);
+            trip.add(point(i, sway, i));
+        }
+
+        int city = TrackService.simplify(trip, TrackService.toleranceMeters(13, LAT)).size(); // ~27 m
+        int street = TrackService.simplify(trip, TrackService.toleranceMeters(17, LAT)).size(); // ~1.7 m
+        int closest = TrackService.simplify(trip, TrackService.toleranceMeters(20, LAT)).size(); // ~0.2 m
+        assertEquals(2, city);
+        assertTrue(street > city && street < 1_000, "street zoom kept " + street);
+        assertTrue(closest > street && closest < trip.size(), "closest zoom kept " + closest);
+    }
+
+    @Test
+    void cornersAreKeptAtEveryZoom() {
+        List<TrackPoint> turn = new ArrayList<>();
+        for (int i = 0; i <= 500; i++) {
+            turn.add(point(0, i, i)); // 500 m east
+        }
+        for (int i = 1; i <= 500; i++) {
+            turn.add(point(i, 500, 500 + i)); // then 500 m north
+        }
+
+        List<TrackPoint> simplified = TrackService.simplify(turn, TrackService.toleranceMeters(13, LAT));
+        assertEquals(3, simplified.size());
+        assertEquals(500, simplified.get(1).getTimestamp());
+    }
+
+    @Test
+    void newPointsReplaceTheCachedOpenEndedTrack() {
+        TrackService service = new TrackService();
+        for (int i = 0; i < 10; i++) {
+            service.record("T1", LAT + i * 10 * DEGREES_PER_METER, LNG + (i % 2) * 10 * DEGREES_PER_METER, i);
+        }
+
+        TrackService.SimplifiedTrack first = service.getTrack("T1", null, null, 20);
+        assertSame(first, service.getTrack("T1", null, null, 20));
+        TrackService.SimplifiedTrack closed = service.getTrack("T1", 2L, 5L, 20);
+
+        service.record("T1", LAT + 100 * DEGREES_PER_METER, LNG, 10);
+        TrackService.SimplifiedTrack updated = service.getTrack("T1", null, null, 20);
+        assertNotSame(first, updated);
+        assertEquals(11, updated.getOriginalPointCount());
+        assertEquals(10, updated.getPoints().get(updated.getPoints().size() - 1).getTimestamp());
+
+        // A closed range behind the newest point cannot change, so it stays cached
+        assertSame(closed, service.getTrack("T1", 2L, 5L, 20));
+
+        service.clear("T1");
+        assertEquals(0, service.getTrack("T1", null, null, 20).getOriginalPointCount());
+    }
+
+    // A fix the given meters north and east of the campus
+    private static TrackPoint point(double northMeters, double eastMeters, long timestamp) {
+        double lngDegreesPerMeter = DEGREES_PER_METER / Math.cos(Math.toRadians(LAT));
+        return new TrackPoint(LAT + northMeters * DEGREES_PER_METER, LNG + eastMeters * lngDegreesPerMeter,
+                timestamp);
+    }
+}
@@ -0,0 +1,106 @@
+package com.college.bus.bus_tracking.store;
+
+import com.college.bus.bus_tracking.service.SessionExpiryService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The user and token indexes of the session store agree under concurrent logins,
+ * forced logins and logouts, and idle sessions expire on the timer while used ones slide.
+ */
+class SessionStoreTest {
+
+    @AfterEach
+    void clear() {
+        SessionStore.clearAllSessions();
+    }
+
+    @Test
+    void tokenIndexFollowsReplaceAndRemove() {
+        String first = SessionStore.createSession(1L, "CLIENT", "phone");
+        assertTrue(SessionStore.validateSession(first));
+
+        assertNull(SessionStore.openSession(1L, "CLIENT", "laptop", false)); // held by the phone
+        assertSame(SessionStore.findByToken(first), SessionStore.openSession(1L, "CLIENT", "phone", false));
+
+        SessionStore.SessionData forced = SessionStore.openSession(1L, "CLIENT", "laptop", true);
+        assertFalse(SessionStore.validateSession(first));
+        assertSame(forced, SessionStore.findByToken(forced.sessionToken));
+
+        SessionStore.removeSession(1L, "CLIENT");
+        assertFalse(SessionStore.validateSession(forced.sessionToken));
+        assertEquals(0, SessionStore.tokenIndexSize());
+    }
+
+    @Test
+    void indexesStayConsistentUnderConcurrentWrites() throws Exception {
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String device = "device-" + t;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 20_000; i++) {
+                    long userId = random.nextLong(16);
+                    switch (random.nextInt(4)) {
+                        case 0 -> SessionStore.createSession(userId, "DRIVER", device);
+                        case 1 -> SessionStore.openSession(userId, "DRIVER", device, true);
+                        case 2 -> SessionStore.openSession(userId, "DRIVER", device, false);
+                        default -> SessionStore.removeSession(userId, "DRIVER");
+                    }
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(SessionStore.size(), SessionStore.tokenIndexSize());
+        for (SessionStore.SessionData session : SessionStore.getAllSessions().values()) {
+            assertSame(session, SessionStore.findByToken(session.sessionToken));
+        }
+    }
+
+    @Test
+    void idleSessionsExpireAndActiveOnesSlide() throws Exception {
+        SessionExpiryService expiry = new SessionExpiryService(2_000);
+        expiry.start();
+        try {
+            String idle = SessionStore.createSession(10L, "CLIENT", "a");
+            String active = SessionStore.createSession(11L, "CLIENT", "b");
+            assertEquals(2, expiry.getArmedCount());
+
+            long deadline = System.currentTimeMillis() + 6_000;
+            while (SessionStore.findByToken(idle) != null && System.currentTimeMillis() < deadline) {
+                SessionStore.touch(11L, "CLIENT");
+                Thread.sleep(200);
+            }
+            assertNull(SessionStore.findByToken(idle));
+            assertNotNull(SessionStore.findByToken(active));
+            assertEquals(1, expiry.getArmedCount());
+        } finally {
+            expiry.stop();
+        }
+    }
+}